@@ -0,0 +1,49 @@
+#!/bin/bash
+
+# Fires TOTAL runs of a workflow with CONCURRENCY requests in flight and reports throughput.
+#
+# Usage:
+#   ./wiremock-endpoints-mapping.sh                 # register the WireMock stubs on :8089
+#   ./load-test.sh [workflow] [total] [concurrency]
+#
+# Compare platform and virtual threads by starting the app twice:
+#   ./mvnw spring-boot:run
+#   ./mvnw spring-boot:run -Dspring-boot.run.arguments=--workflow.engine.virtual-threads=true   (Java 21+)
+#
+# Add a fixed delay to the stubs (e.g. "fixedDelayMilliseconds": 200 in the WireMock response)
+# to simulate slow downstreams; that is where the two modes differ most.
+
+WORKFLOW=${1:-Alpha3}
+TOTAL=${2:-2000}
+CONCURRENCY=${3:-1000}
+BASE_URL=${BASE_URL:-http://localhost:8080}
+
+RESULTS=$(mktemp)
+trap 'rm -f "$RESULTS"' EXIT
+
+echo "🚀 Running $WORKFLOW $TOTAL times with $CONCURRENCY concurrent requests against $BASE_URL"
+
+START=$(perl -MTime::HiRes=time -e 'printf "%.3f", time')
+
+seq 1 "$TOTAL" | xargs -P "$CONCURRENCY" -I{} \
+  curl -s -o /dev/null -w "%{http_code} %{time_total}\n" \
+    -X POST "$BASE_URL/api/workflows/run/$WORKFLOW" \
+    -H "Content-Type: application/json" \
+    -d '{"applicationId": "load-{}"}' >> "$RESULTS"
+
+END=$(perl -MTime::HiRes=time -e 'printf "%.3f", time')
+
+ELAPSED=$(echo "$END - $START" | bc)
+COUNT=$(wc -l < "$RESULTS" | tr -d ' ')
+
+echo "⏱️  elapsed: ${ELAPSED}s, throughput: $(echo "scale=1; $COUNT / $ELAPSED" | bc) runs/s"
+
+cut -d' ' -f2 "$RESULTS" | sort -n | awk '
+  { times[NR] = $1; sum += $1 }
+  END {
+    printf "📊 latency avg: %.3fs, p50: %.3fs, p95: %.3fs, p99: %.3fs\n",
+      sum / NR, times[int(NR * 0.50)], times[int(NR * 0.95)], times[int(NR * 0.99)]
+  }'
+
+echo "📬 status codes:"
+cut -d' ' -f1 "$RESULTS" | sort | uniq -c
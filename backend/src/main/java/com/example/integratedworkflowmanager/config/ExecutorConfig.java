@@ -0,0 +1,111 @@
+package com.example.integratedworkflowmanager.config;
+
+import com.example.integratedworkflowmanager.util.VirtualThreads;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+    Thread pools used by the workflow engine.
+
+        - nodeExecutor: runs nodes of parallel plans. Its size is the global cap on nodes
+          executing concurrently across all runs (workflow.engine.max-concurrency); extra
+          ready nodes wait in its queue.
+        - runExecutor: workers for runs submitted with ?async=true. The number of queued runs
+          is bounded by WorkflowRunQueue (workflow.async.queue-capacity), not by this queue.
+        - batchExecutor: workers for POST /run/{name}/batch (workflow.batch.workers across all
+          batches); each batch also caps its own in-flight runs (see WorkflowServiceImpl.runBatch).
+        - workerExecutor: runs claimed from the database in worker mode (workflow.worker.concurrency,
+          see WorkflowWorker); unused otherwise.
+
+    With workflow.engine.virtual-threads=true (Java 21+), both executors start a virtual thread
+    per task instead of using platform pools, and Tomcat serves requests on virtual threads too.
+    Runs are almost entirely blocking I/O (HTTP calls, JDBC), so a blocked run then costs a
+    parked virtual thread rather than a platform thread. The concurrency limits above still apply.
+*/
+@Configuration
+@Slf4j
+public class ExecutorConfig {
+
+    @Value("${workflow.engine.virtual-threads:false}")
+    private boolean virtualThreads;
+
+    @Bean(name = "nodeExecutor", destroyMethod = "shutdown")
+    public ExecutorService nodeExecutor(@Value("${workflow.engine.max-concurrency:64}") int maxConcurrency) {
+        if (useVirtualThreads()) {
+            return new PermitLimitedExecutor(VirtualThreads.newThreadPerTaskExecutor("workflow-node-"), maxConcurrency);
+        }
+        return new ThreadPoolExecutor(maxConcurrency, maxConcurrency,
+                60L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(),
+                namedThreads("workflow-node-"));
+    }
+
+    @Bean(name = "runExecutor", destroyMethod = "shutdown")
+    public ExecutorService runExecutor(@Value("${workflow.async.workers:16}") int workers) {
+        if (useVirtualThreads()) {
+            return new PermitLimitedExecutor(VirtualThreads.newThreadPerTaskExecutor("workflow-run-"), workers);
+        }
+        return new ThreadPoolExecutor(workers, workers,
+                60L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(),
+                namedThreads("workflow-run-"));
+    }
+
+    @Bean(name = "batchExecutor", destroyMethod = "shutdown")
+    public ExecutorService batchExecutor(@Value("${workflow.batch.workers:32}") int workers) {
+        if (useVirtualThreads()) {
+            return new PermitLimitedExecutor(VirtualThreads.newThreadPerTaskExecutor("workflow-batch-"), workers);
+        }
+        return new ThreadPoolExecutor(workers, workers,
+                60L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(),
+                namedThreads("workflow-batch-"));
+    }
+
+    @Bean(name = "workerExecutor", destroyMethod = "shutdown")
+    public ExecutorService workerExecutor(@Value("${workflow.worker.concurrency:8}") int concurrency) {
+        if (useVirtualThreads()) {
+            return new PermitLimitedExecutor(VirtualThreads.newThreadPerTaskExecutor("workflow-worker-"), concurrency);
+        }
+        return new ThreadPoolExecutor(concurrency, concurrency,
+                60L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(),
+                namedThreads("workflow-worker-"));
+    }
+
+    // Serve HTTP requests (including synchronous runs) on virtual threads as well
+    @Bean
+    @ConditionalOnProperty(name = "workflow.engine.virtual-threads", havingValue = "true")
+    public TomcatProtocolHandlerCustomizer<?> virtualThreadProtocolHandler() {
+        return protocolHandler -> {
+            if (useVirtualThreads()) {
+                protocolHandler.setExecutor(VirtualThreads.newThreadPerTaskExecutor("http-vt-"));
+            }
+        };
+    }
+
+    private boolean useVirtualThreads() {
+        if (virtualThreads && !VirtualThreads.isSupported()) {
+            log.warn("workflow.engine.virtual-threads is enabled but this JVM ({}) has no virtual threads; using platform threads",
+                    System.getProperty("java.version"));
+            return false;
+        }
+        return virtualThreads;
+    }
+
+    static ThreadFactory namedThreads(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
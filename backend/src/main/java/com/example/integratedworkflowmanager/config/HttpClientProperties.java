@@ -0,0 +1,34 @@
+package com.example.integratedworkflowmanager.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/*
+    Settings of the pooled HTTP client used for node calls (workflow.http.*).
+
+        - maxTotal / maxPerRoute: pool-wide and default per-host connection limits
+        - maxPerHost: per-host overrides keyed by "scheme://host[:port]", e.g.
+              max-per-host:
+                "[https://api.example.com]": 50
+        - connectTimeoutMs / readTimeoutMs: defaults for nodes without connect_timeout_ms / timeout_ms
+        - connectionRequestTimeoutMs: how long a call waits for a free pooled connection
+        - keepAliveMs: how long an idle connection is kept when the server sends no Keep-Alive header
+        - idleEvictMs: idle connections older than this are closed by a background evictor
+*/
+@Data
+@Component
+@ConfigurationProperties(prefix = "workflow.http")
+public class HttpClientProperties {
+    private int maxTotal = 200;
+    private int maxPerRoute = 20;
+    private Map<String, Integer> maxPerHost = new LinkedHashMap<>();
+    private int connectTimeoutMs = 5000;
+    private int readTimeoutMs = 30000;
+    private int connectionRequestTimeoutMs = 5000;
+    private long keepAliveMs = 30000;
+    private long idleEvictMs = 60000;
+}
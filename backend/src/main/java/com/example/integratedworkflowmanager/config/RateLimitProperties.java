@@ -0,0 +1,33 @@
+package com.example.integratedworkflowmanager.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/*
+    Client-side rate limits for node calls (workflow.rate-limit.*).
+
+        - perHost: limits keyed by "scheme://host[:port]", shared by every workflow calling that host
+        - perWorkflow: limits keyed by workflow name; they take precedence over the workflow's own
+          "rate_limit" block, so a limit can be tuned without re-uploading the definition
+        - maxWaitMs: a call that would have to wait longer than this for its turn is rejected
+          (step status RATE_LIMITED) instead of queueing
+*/
+@Data
+@Component
+@ConfigurationProperties(prefix = "workflow.rate-limit")
+public class RateLimitProperties {
+
+    @Data
+    public static class Limit {
+        private double perSecond;
+        private int burst = 1;
+    }
+
+    private long maxWaitMs = 5000;
+    private Map<String, Limit> perHost = new LinkedHashMap<>();
+    private Map<String, Limit> perWorkflow = new LinkedHashMap<>();
+}
@@ -0,0 +1,41 @@
+package com.example.integratedworkflowmanager.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/*
+    Circuit breaker and bulkhead settings for node calls (workflow.resilience.*).
+
+        - key: HOST (one breaker / bulkhead per "scheme://host[:port]") or NODE (per workflow node)
+        - failureRateThreshold / slowCallRateThreshold: percentages of the sliding window that
+          open the breaker; a call slower than slowCallDurationMs counts as slow
+        - slidingWindowSize / minimumCalls: calls considered, and needed before the rates apply
+        - openStateMs: how long an open breaker rejects calls before letting halfOpenCalls probes through
+        - maxConcurrentCalls / maxWaitMs: bulkhead limit per key and how long a blocking call
+          waits for a permit (0 = reject at once; keep 0 for reactive plans, see DownstreamGuard)
+        - maxConcurrentPerHost: bulkhead overrides keyed like workflow.http.max-per-host
+*/
+@Data
+@Component
+@ConfigurationProperties(prefix = "workflow.resilience")
+public class ResilienceProperties {
+
+    public enum Key { HOST, NODE }
+
+    private boolean enabled = true;
+    private Key key = Key.HOST;
+    private float failureRateThreshold = 50;
+    private float slowCallRateThreshold = 80;
+    private long slowCallDurationMs = 5000;
+    private int slidingWindowSize = 20;
+    private int minimumCalls = 10;
+    private long openStateMs = 30000;
+    private int halfOpenCalls = 3;
+    private int maxConcurrentCalls = 50;
+    private long maxWaitMs = 0;
+    private Map<String, Integer> maxConcurrentPerHost = new LinkedHashMap<>();
+}
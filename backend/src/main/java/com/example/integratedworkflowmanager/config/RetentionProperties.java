@@ -0,0 +1,44 @@
+package com.example.integratedworkflowmanager.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/*
+    Retention of execution history (workflow.retention.*), applied by ExecutionRetentionService.
+
+        - defaultDays / perWorkflow: executions older than this many days (by executed_at) expire;
+          0 keeps a workflow's executions forever
+        - mode: DELETE removes expired executions, ARCHIVE first appends them to gzip NDJSON files
+          under archiveDir
+        - batchSize / batchPauseMs: executions removed per transaction and the pause between batches,
+          so the job only ever holds short row locks
+        - partitioned: the tables were partitioned by month (see db/partition-executions.sql); the job
+          then also creates upcoming partitions and drops those that are entirely expired
+*/
+@Data
+@Component
+@ConfigurationProperties(prefix = "workflow.retention")
+public class RetentionProperties {
+
+    public enum Mode { DELETE, ARCHIVE }
+
+    private boolean enabled = false;
+    private long intervalMs = 3_600_000;
+    private long initialDelayMs = 60_000;
+    private Mode mode = Mode.DELETE;
+    private int defaultDays = 90;
+    private Map<String, Integer> perWorkflow = new LinkedHashMap<>();
+    private String archiveDir = "./archive";
+    private int batchSize = 500;
+    private long batchPauseMs = 100;
+    private boolean partitioned = false;
+    private int partitionsAhead = 3;
+
+    public int daysFor(String workflowName) {
+        return perWorkflow.getOrDefault(workflowName, defaultDays);
+    }
+}
@@ -1,5 +1,6 @@
 package com.example.integratedworkflowmanager.config;
 
+import com.example.integratedworkflowmanager.controller.WorkflowController;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
@@ -16,7 +17,8 @@ public class WebConfig {
                 registry.addMapping("/api/**")
                         .allowedOrigins("http://localhost:3000") // React frontend origin
                         .allowedMethods("GET", "POST", "PUT", "DELETE")
-                        .allowedHeaders("*");
+                        .allowedHeaders("*")
+                        .exposedHeaders(WorkflowController.NEXT_CURSOR_HEADER); // execution history paging
             }
         };
     }
@@ -0,0 +1,158 @@
+package com.example.integratedworkflowmanager.controller;
+
+import com.example.integratedworkflowmanager.engine.DownstreamGuard;
+import com.example.integratedworkflowmanager.engine.ExecutionTracer;
+import com.example.integratedworkflowmanager.engine.IdempotencyLedger;
+import com.example.integratedworkflowmanager.engine.NodeHttpClient;
+import com.example.integratedworkflowmanager.engine.NodeRateLimiter;
+import com.example.integratedworkflowmanager.engine.ResponseCache;
+import com.example.integratedworkflowmanager.engine.RunJournal;
+import com.example.integratedworkflowmanager.engine.SingleFlight;
+import com.example.integratedworkflowmanager.engine.WorkflowPlanCache;
+import com.example.integratedworkflowmanager.service.ExecutionRetentionService;
+import com.example.integratedworkflowmanager.service.WorkflowWorker;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.UUID;
+
+@RestController
+@RequestMapping("/api/engine")
+@RequiredArgsConstructor
+@Tag(name = "Engine Controllers", description = "APIs for inspecting the workflow engine at runtime")
+public class EngineController {
+
+    private final WorkflowPlanCache workflowPlanCache;
+    private final NodeHttpClient nodeHttpClient;
+    private final IdempotencyLedger idempotencyLedger;
+    private final ResponseCache responseCache;
+    private final SingleFlight singleFlight;
+    private final ExecutionTracer executionTracer;
+    private final DownstreamGuard downstreamGuard;
+    private final NodeRateLimiter nodeRateLimiter;
+    private final ExecutionRetentionService executionRetentionService;
+    private final RunJournal runJournal;
+    private final WorkflowWorker workflowWorker;
+
+    // 📈 Plan cache statistics
+    @GetMapping("/plan-cache")
+    @Operation(summary = "Get compiled workflow plan cache statistics")
+    public ResponseEntity<?> getPlanCacheStats() {
+        return ResponseEntity.ok(workflowPlanCache.stats());
+    }
+
+    // 🔑 Completed idempotency key cache statistics
+    @GetMapping("/idempotency")
+    @Operation(summary = "Get idempotency key cache statistics")
+    public ResponseEntity<?> getIdempotencyStats() {
+        return ResponseEntity.ok(idempotencyLedger.stats());
+    }
+
+    // 🗃️ GET node response cache statistics
+    @GetMapping("/response-cache")
+    @Operation(summary = "Get GET-node response cache statistics")
+    public ResponseEntity<?> getResponseCacheStats() {
+        return ResponseEntity.ok(responseCache.stats());
+    }
+
+    // 🧹 Drop every cached GET node response
+    @DeleteMapping("/response-cache")
+    @Operation(summary = "Clear the GET-node response cache")
+    public ResponseEntity<?> clearResponseCache() {
+        responseCache.clear();
+        return ResponseEntity.ok("✅ Response cache cleared.");
+    }
+
+    // 🤝 Coalesced (single-flight) node call statistics
+    @GetMapping("/single-flight")
+    @Operation(summary = "Get request coalescing statistics")
+    public ResponseEntity<?> getSingleFlightStats() {
+        return ResponseEntity.ok(singleFlight.stats());
+    }
+
+    // 🔍 Traced executions still held in the trace ring buffer, newest first
+    @GetMapping("/traces")
+    @Operation(summary = "List traced executions")
+    public ResponseEntity<?> getTraces() {
+        return ResponseEntity.ok(executionTracer.list());
+    }
+
+    // 🔍 Trace events (context snapshots, conditions, attempts) of one execution
+    @GetMapping("/traces/{executionId}")
+    @Operation(summary = "Get the debug trace of an execution")
+    public ResponseEntity<?> getTrace(@PathVariable UUID executionId) {
+        return executionTracer.get(executionId)
+                .<ResponseEntity<?>>map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.status(404).body("❌ No trace for execution " + executionId));
+    }
+
+    // 🧹 Drop all captured traces
+    @DeleteMapping("/traces")
+    @Operation(summary = "Clear captured execution traces")
+    public ResponseEntity<?> clearTraces() {
+        executionTracer.clear();
+        return ResponseEntity.ok("✅ Traces cleared.");
+    }
+
+    // ⚡ Circuit breaker state and bulkhead permits per downstream
+    @GetMapping("/circuit-breakers")
+    @Operation(summary = "Get circuit breaker and bulkhead state per downstream")
+    public ResponseEntity<?> getCircuitBreakers() {
+        return ResponseEntity.ok(downstreamGuard.stats());
+    }
+
+    // 🔄 Close a circuit breaker again; the key is a host ("https://api.example.com") or "workflow.node"
+    @PostMapping("/circuit-breakers/reset")
+    @Operation(summary = "Reset the circuit breaker of a downstream")
+    public ResponseEntity<?> resetCircuitBreaker(@RequestParam String key) {
+        if (!downstreamGuard.reset(key)) {
+            return ResponseEntity.status(404).body("❌ No circuit breaker for " + key);
+        }
+        return ResponseEntity.ok("✅ Circuit breaker " + key + " reset.");
+    }
+
+    // 🚦 Rate limits in use, per workflow and per host
+    @GetMapping("/rate-limits")
+    @Operation(summary = "Get the rate limiters in use for node calls")
+    public ResponseEntity<?> getRateLimits() {
+        return ResponseEntity.ok(nodeRateLimiter.stats());
+    }
+
+    // 🧹 Retention settings and the outcome of the last retention run
+    @GetMapping("/retention")
+    @Operation(summary = "Get execution retention settings and the last run")
+    public ResponseEntity<?> getRetention() {
+        return ResponseEntity.ok(executionRetentionService.status());
+    }
+
+    // 🧹 Run retention now instead of waiting for the schedule
+    @PostMapping("/retention/run")
+    @Operation(summary = "Delete or archive expired executions now")
+    public ResponseEntity<?> runRetention() {
+        return ResponseEntity.ok(executionRetentionService.run());
+    }
+
+    // 📒 Run journal: active runs, records written, syncs and the average append cost
+    @GetMapping("/journal")
+    @Operation(summary = "Get run journal statistics")
+    public ResponseEntity<?> getJournalStats() {
+        return ResponseEntity.ok(runJournal.stats());
+    }
+
+    // 👷 Worker mode: claimed, reclaimed and active runs of this instance
+    @GetMapping("/worker")
+    @Operation(summary = "Get the status of this instance's queue worker")
+    public ResponseEntity<?> getWorkerStatus() {
+        return ResponseEntity.ok(workflowWorker.status());
+    }
+
+    // 🔌 HTTP connection pool utilization
+    @GetMapping("/http-pool")
+    @Operation(summary = "Get HTTP connection pool statistics for node calls")
+    public ResponseEntity<?> getHttpPoolStats() {
+        return ResponseEntity.ok(nodeHttpClient.stats());
+    }
+}
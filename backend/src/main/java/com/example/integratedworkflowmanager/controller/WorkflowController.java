@@ -1,30 +1,46 @@
 package com.example.integratedworkflowmanager.controller;
 
-import com.example.integratedworkflowmanager.dto.WorkflowExecutionDto;
+import com.example.integratedworkflowmanager.dto.ExecutionFilter;
+import com.example.integratedworkflowmanager.dto.ExecutionPage;
+import com.example.integratedworkflowmanager.engine.RunOptions;
+import com.example.integratedworkflowmanager.engine.WorkflowPlanCache;
 import com.example.integratedworkflowmanager.entity.WorkflowDefinition;
 import com.example.integratedworkflowmanager.entity.WorkflowExecution;
 import com.example.integratedworkflowmanager.entity.WorkflowExecutionStep;
 import com.example.integratedworkflowmanager.repository.WorkflowDefinitionRepository;
 import com.example.integratedworkflowmanager.repository.WorkflowExecutionRepository;
 import com.example.integratedworkflowmanager.repository.WorkflowExecutionStepRepository;
+import com.example.integratedworkflowmanager.service.StepPayloadStore;
 import com.example.integratedworkflowmanager.service.WorkflowService;
 import com.example.integratedworkflowmanager.util.WorkflowValidator;
+import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.MappingIterator;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import reactor.core.publisher.Mono;
 
+import java.io.BufferedOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.RejectedExecutionException;
 
 @RestController
 @RequestMapping("/api/workflows")
@@ -37,16 +53,112 @@ public class WorkflowController {
     private final WorkflowDefinitionRepository workflowDefinitionRepository;
     private final WorkflowExecutionRepository workflowExecutionRepository;
     private final WorkflowExecutionStepRepository workflowExecutionStepRepository;
-
-    // 🟢 Run a workflow
+    private final WorkflowPlanCache workflowPlanCache;
+    private final StepPayloadStore stepPayloadStore;
+
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    public static final String TRACE_HEADER = "X-Workflow-Trace";
+    private static final int MAX_PAGE_SIZE = 500;
+
+    @Value("${workflow.batch.default-concurrency:8}")
+    private int defaultBatchConcurrency;
+
+    @Value("${workflow.batch.max-concurrency:64}")
+    private int maxBatchConcurrency;
+
+    /*
+        🟢 Run a workflow
+            - async=true queues it and returns 202 with the executionId
+            - workflows on the reactive engine complete the response asynchronously, without
+              holding the request thread while nodes are in flight
+            - trace=true (or the X-Workflow-Trace: true header) records a debug trace of the
+              run, readable through /api/engine/traces/{executionId}
+     */
     @PostMapping("/run/{name}")
     @Operation(summary = "Run a workflow by name")
-    public ResponseEntity<?> runWorkflow(
+    public Mono<ResponseEntity<?>> runWorkflow(
             @PathVariable String name,
+            @RequestParam(defaultValue = "false") boolean async,
+            @RequestParam(defaultValue = "false") boolean trace,
+            @RequestHeader(value = TRACE_HEADER, defaultValue = "false") boolean traceHeader,
             @RequestBody(required = false) Map<String, Object> input
     ) {
-        Map<String, Object> result = workflowService.runWorkflow(name, input == null ? new HashMap<>() : input);
-        return ResponseEntity.ok(result);
+        Map<String, Object> params = input == null ? new HashMap<>() : input;
+        RunOptions options = new RunOptions(trace || traceHeader);
+
+        if (async) {
+            try {
+                Map<String, Object> result = workflowService.submitWorkflow(name, params, options);
+                return Mono.just(ResponseEntity.status(HttpStatus.ACCEPTED)
+                        .header(HttpHeaders.LOCATION, "/api/workflows/executions/" + result.get("executionId"))
+                        .body(result));
+            } catch (RejectedExecutionException ex) {
+                return Mono.just(ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).body("❌ " + ex.getMessage()));
+            }
+        }
+
+        if (workflowService.usesReactiveEngine(name)) {
+            return workflowService.runWorkflowReactive(name, params, options).map(ResponseEntity::ok);
+        }
+
+        Map<String, Object> result = workflowService.runWorkflow(name, params, options);
+        return Mono.just(ResponseEntity.ok(result));
+    }
+
+    /*
+        📦 Run a workflow once per input and stream the results back as NDJSON
+            - the body is a JSON array of input objects or NDJSON (one input object per line);
+              it is read as the batch progresses, not up front
+            - up to `concurrency` runs execute at once (capped by workflow.batch.max-concurrency)
+            - one line per run is written as soon as it completes, then a final {"summary": ...} line
+     */
+    @PostMapping(value = "/run/{name}/batch",
+            consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE},
+            produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @Operation(summary = "Run a workflow for a batch of inputs (JSON array or NDJSON)")
+    public ResponseEntity<?> runWorkflowBatch(
+            @PathVariable String name,
+            @RequestParam(required = false) Integer concurrency,
+            @RequestParam(defaultValue = "false") boolean trace,
+            HttpServletRequest request
+    ) {
+        try {
+            workflowPlanCache.getPlan(name);
+        } catch (Exception ex) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body("❌ " + ex.getMessage());
+        }
+        int parallelism = Math.max(1, Math.min(concurrency != null ? concurrency : defaultBatchConcurrency, maxBatchConcurrency));
+        RunOptions options = new RunOptions(trace);
+
+        StreamingResponseBody body = out -> {
+            Object writeLock = new Object();
+            try (MappingIterator<Map<String, Object>> inputs = objectMapper.readerFor(new TypeReference<Map<String, Object>>() { })
+                    .readValues(request.getInputStream())) {
+                Map<String, Object> summary = workflowService.runBatch(name, inputs, parallelism, options, result -> {
+                    synchronized (writeLock) {
+                        writeLine(out, result);
+                    }
+                });
+                synchronized (writeLock) {
+                    writeLine(out, Map.of("summary", summary));
+                }
+            }
+        };
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+
+    // One NDJSON line, flushed so the client sees each result as soon as its run completes
+    private void writeLine(OutputStream out, Object value) {
+        try {
+            out.write(objectMapper.writeValueAsBytes(value));
+            out.write('\n');
+            out.flush();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
     }
 
     // ➕ Add a new workflow
@@ -85,6 +197,7 @@ public class WorkflowController {
 
             existing.setWorkflowJson(updated.getWorkflowJson());
             workflowDefinitionRepository.save(existing);
+            workflowPlanCache.invalidate(name);
 
             return ResponseEntity.ok("✅ Workflow updated.");
         } catch (Exception ex) {
@@ -108,6 +221,7 @@ public class WorkflowController {
         }
 
         workflowDefinitionRepository.deleteByName(name);
+        workflowPlanCache.invalidate(name);
         return ResponseEntity.ok("✅ Workflow deleted successfully.");
     }
 
@@ -161,12 +275,78 @@ public class WorkflowController {
     }
 
 
-    // Get all executions
+    /*
+        Get executions, newest first, one page at a time:
+            - optional filters: workflowName, status, from (inclusive) / to (exclusive) on executedAt
+            - the body is the page as an array; when more executions follow, the X-Next-Cursor
+              response header holds the cursor to pass back for the next page
+     */
     @GetMapping("/executions")
-    @Operation(summary = "Get all executions")
-    public ResponseEntity<List<WorkflowExecutionDto>> getAllExecutions() {
-        List<WorkflowExecutionDto> executions = workflowService.getExecutionHistory();
-        return ResponseEntity.ok(executions);
+    @Operation(summary = "Get executions (keyset-paginated, filterable)")
+    public ResponseEntity<?> getAllExecutions(
+            @RequestParam(required = false) String workflowName,
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int limit
+    ) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            return ResponseEntity.badRequest().body("❌ limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+
+        try {
+            ExecutionPage page = workflowService.getExecutionHistory(
+                    new ExecutionFilter(workflowName, status, from, to), cursor, limit);
+
+            ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+            if (page.nextCursor() != null) {
+                response.header(NEXT_CURSOR_HEADER, page.nextCursor());
+            }
+            return response.body(page.executions());
+        } catch (IllegalArgumentException ex) {
+            return ResponseEntity.badRequest().body("❌ " + ex.getMessage());
+        }
+    }
+
+    // 📤 Export executions (with step summaries) as NDJSON, one execution per line, streamed row by row
+    @GetMapping(value = "/executions/stream", produces = "application/x-ndjson")
+    @Operation(summary = "Stream executions as NDJSON (filterable)")
+    public ResponseEntity<StreamingResponseBody> streamExecutions(
+            @RequestParam(required = false) String workflowName,
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to
+    ) {
+        ExecutionFilter filter = new ExecutionFilter(workflowName, status, from, to);
+        StreamingResponseBody body = out -> workflowService.streamExecutionHistory(filter, new BufferedOutputStream(out, 64 * 1024));
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+
+    /*
+        ⏩ Resume a failed execution from where it stopped
+            - nodes that already succeeded are not called again; their responses are restored
+              from the execution's steps
+            - 404 for unknown executions, 409 when the execution is not FAIL, did not record its
+              inputs, is being resumed already or its workflow definition changed since
+     */
+    @PostMapping("/executions/{executionId}/resume")
+    @Operation(summary = "Resume a failed execution, skipping the nodes that already succeeded")
+    public ResponseEntity<?> resumeExecution(
+            @PathVariable UUID executionId,
+            @RequestParam(defaultValue = "false") boolean trace,
+            @RequestHeader(value = TRACE_HEADER, defaultValue = "false") boolean traceHeader
+    ) {
+        try {
+            return ResponseEntity.ok(workflowService.resumeWorkflow(executionId, new RunOptions(trace || traceHeader)));
+        } catch (NoSuchElementException ex) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body("❌ " + ex.getMessage());
+        } catch (IllegalStateException ex) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body("❌ " + ex.getMessage());
+        }
     }
 
     // Get single execution
@@ -181,24 +361,32 @@ public class WorkflowController {
 
         WorkflowExecution execution = optionalExecution.get();
         List<WorkflowExecutionStep> steps = workflowExecutionStepRepository.findByExecutionOrderByNodeIdAsc(execution);
+        Map<String, String> payloads = stepPayloadStore.load(steps);
 
         Map<String, Object> result = new HashMap<>();
         result.put("executionId", execution.getExecutionId());
         result.put("workflowName", execution.getWorkflowName());
         result.put("executedAt", execution.getExecutedAt());
         result.put("status", execution.getStatus());
+        result.put("stepsIncomplete", Boolean.TRUE.equals(execution.getStepsIncomplete()));
 
         List<Map<String, Object>> stepDetails = steps.stream().map(step -> {
             Map<String, Object> stepMap = new HashMap<>();
             stepMap.put("nodeId", step.getNodeId());
             stepMap.put("nodeName", step.getNodeName());
             stepMap.put("requestUrl", step.getRequestUrl());
-            stepMap.put("requestBody", step.getRequestBody());
-            stepMap.put("requestHeaders", step.getRequestHeaders());
-            stepMap.put("queryParams", step.getQueryParams());
-            stepMap.put("response", step.getResponse());
+            stepMap.put("requestBody", StepPayloadStore.text(step.getRequestBody(), step.getRequestBodyRef(), payloads));
+            stepMap.put("requestHeaders", StepPayloadStore.text(step.getRequestHeaders(), step.getRequestHeadersRef(), payloads));
+            stepMap.put("queryParams", StepPayloadStore.text(step.getQueryParams(), step.getQueryParamsRef(), payloads));
+            stepMap.put("response", StepPayloadStore.text(step.getResponse(), step.getResponseRef(), payloads));
             stepMap.put("statusCode", step.getStatusCode());
+            stepMap.put("status", step.getStatus());
             stepMap.put("skipped", step.isSkipped());
+            stepMap.put("cacheHit", step.isCacheHit());
+            stepMap.put("attemptCount", step.getAttemptCount());
+            stepMap.put("attemptStartedAt", step.getAttemptStartedAt());
+            stepMap.put("durationMs", step.getDurationMs());
+            stepMap.put("backoffMs", step.getBackoffMs());
             stepMap.put("createdAt", step.getCreatedAt());
             return stepMap;
         }).toList();
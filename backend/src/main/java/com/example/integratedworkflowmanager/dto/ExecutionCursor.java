@@ -0,0 +1,28 @@
+package com.example.integratedworkflowmanager.dto;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.UUID;
+
+/*
+    Keyset position in the execution history, which is ordered by (executedAt DESC, executionId DESC).
+    Clients receive it as an opaque URL-safe token and send it back to get the next page.
+*/
+public record ExecutionCursor(LocalDateTime executedAt, UUID executionId) {
+
+    public String encode() {
+        String raw = executedAt + "|" + executionId;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static ExecutionCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separator = raw.indexOf('|');
+            return new ExecutionCursor(LocalDateTime.parse(raw.substring(0, separator)), UUID.fromString(raw.substring(separator + 1)));
+        } catch (RuntimeException ex) {
+            throw new IllegalArgumentException("Invalid cursor: " + token);
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package com.example.integratedworkflowmanager.dto;
+
+import java.time.LocalDateTime;
+
+/*
+    Optional filters of the execution history; null fields are not applied.
+    from is inclusive and to is exclusive, both on executedAt.
+*/
+public record ExecutionFilter(String workflowName, String status, LocalDateTime from, LocalDateTime to) {
+}
@@ -0,0 +1,28 @@
+package com.example.integratedworkflowmanager.dto;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/*
+    One row of the streamed history export: an execution joined with one of its steps
+    (step columns are null for an execution without steps). Only non-LOB columns are selected.
+*/
+public record ExecutionHistoryRow(UUID executionId, String workflowName, LocalDateTime executedAt, String status,
+                                  Integer nodeId, String nodeName, String requestUrl, Boolean skipped,
+                                  Integer statusCode, LocalDateTime stepCreatedAt) {
+
+    public boolean hasStep() {
+        return nodeName != null || nodeId != null;
+    }
+
+    public ExecutionStepDto toStepDto() {
+        return ExecutionStepDto.builder()
+                .nodeId(nodeId)
+                .nodeName(nodeName)
+                .requestUrl(requestUrl)
+                .skipped(Boolean.TRUE.equals(skipped))
+                .statusCode(statusCode == null || statusCode == 0 ? null : statusCode)
+                .createdAt(stepCreatedAt)
+                .build();
+    }
+}
@@ -0,0 +1,7 @@
+package com.example.integratedworkflowmanager.dto;
+
+import java.util.List;
+
+// One page of the execution history; nextCursor is null on the last page
+public record ExecutionPage(List<WorkflowExecutionDto> executions, String nextCursor) {
+}
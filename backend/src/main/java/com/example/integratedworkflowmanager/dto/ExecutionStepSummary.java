@@ -0,0 +1,23 @@
+package com.example.integratedworkflowmanager.dto;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/*
+    Projection of the non-LOB step columns used by the execution history, selected for all
+    executions of a page in one query and grouped by executionId.
+*/
+public record ExecutionStepSummary(UUID executionId, Integer nodeId, String nodeName, String requestUrl,
+                                   boolean skipped, int statusCode, LocalDateTime createdAt) {
+
+    public ExecutionStepDto toDto() {
+        return ExecutionStepDto.builder()
+                .nodeId(nodeId)
+                .nodeName(nodeName)
+                .requestUrl(requestUrl)
+                .skipped(skipped)
+                .statusCode(statusCode == 0 ? null : statusCode)
+                .createdAt(createdAt)
+                .build();
+    }
+}
@@ -19,4 +19,9 @@ public class WorkflowExecutionDto {
     private LocalDateTime executedAt;
     private String status;
     private List<ExecutionStepDto> steps;
-}
\ No newline at end of file
+
+    // Constructor expression of the history query; steps are attached afterwards
+    public WorkflowExecutionDto(UUID executionId, String workflowName, LocalDateTime executedAt, String status) {
+        this(executionId, workflowName, executedAt, status, null);
+    }
+}
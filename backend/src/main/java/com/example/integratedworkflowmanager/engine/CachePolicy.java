@@ -0,0 +1,17 @@
+package com.example.integratedworkflowmanager.engine;
+
+import lombok.Value;
+
+/*
+    Compiled "cache" block of a GET node:
+
+        - ttlMs: how long a successful response is served from the ResponseCache
+        - key: optional {{...}} template; when absent the resolved request URL (with query) is the key
+
+    Keys are always scoped to the workflow and node, so different nodes never share entries.
+*/
+@Value
+public class CachePolicy {
+    long ttlMs;
+    Template key;
+}
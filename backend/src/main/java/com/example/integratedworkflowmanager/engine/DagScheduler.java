@@ -0,0 +1,134 @@
+package com.example.integratedworkflowmanager.engine;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Function;
+
+/*
+    Runs the nodes of a parallel plan as a dependency graph.
+
+        1. Nodes with no unfinished dependencies are "ready"; ready nodes are started in
+           declaration order, up to the plan's max_concurrency (or the default per-workflow limit).
+        2. Node tasks run on the shared node executor, whose size is the global limit across
+           all runs (workflow.engine.max-concurrency). A task returns a future: a node waiting
+           for a retry or a rate limit slot gives its thread back and continues later (see
+           NodeTimer), so waiting nodes do not occupy the pool.
+        3. When a node finishes (SUCCESS or SKIPPED), dependents whose last dependency it was
+           become ready.
+        4. On the first FAILED node or unexpected error, no further nodes are started; nodes
+           already in flight are allowed to finish so their steps are recorded.
+
+    The calling (run) thread only coordinates; when exactly one node is ready and nothing is in
+    flight it executes that node itself, so chains do not pay for a thread hand-off.
+    Wall-clock time of a run is therefore its critical path, not the sum of node latencies.
+*/
+@Component
+@Slf4j
+public class DagScheduler {
+
+    // pooled is false when the node runs on the coordinating thread, true on the node executor
+    @FunctionalInterface
+    public interface NodeTask {
+        CompletableFuture<NodeOutcome> start(WorkflowRun run, PlanNode node, boolean pooled);
+    }
+
+    private record Completion(PlanNode node, NodeOutcome outcome, Throwable error) {
+    }
+
+    private final ExecutorService nodeExecutor;
+    private final int defaultWorkflowConcurrency;
+
+    public DagScheduler(@Qualifier("nodeExecutor") ExecutorService nodeExecutor,
+                        @Value("${workflow.engine.default-workflow-concurrency:8}") int defaultWorkflowConcurrency) {
+        this.nodeExecutor = nodeExecutor;
+        this.defaultWorkflowConcurrency = defaultWorkflowConcurrency;
+    }
+
+    public boolean execute(WorkflowRun run, NodeTask task) throws Exception {
+        WorkflowPlan plan = run.getPlan();
+        int limit = plan.getMaxConcurrency() != null ? plan.getMaxConcurrency() : defaultWorkflowConcurrency;
+
+        Map<String, Integer> pending = new HashMap<>();
+        Map<String, List<PlanNode>> dependents = new HashMap<>();
+        Map<String, Integer> order = new HashMap<>();
+        for (PlanNode node : plan.getNodes()) {
+            order.put(node.getName(), order.size());
+            pending.put(node.getName(), node.getDependsOn().size());
+            for (String dependency : node.getDependsOn()) {
+                dependents.computeIfAbsent(dependency, k -> new ArrayList<>()).add(node);
+            }
+        }
+
+        PriorityQueue<PlanNode> ready = new PriorityQueue<>(Comparator.comparing(n -> order.get(n.getName())));
+        plan.getNodes().stream().filter(n -> n.getDependsOn().isEmpty()).forEach(ready::add);
+
+        BlockingQueue<Completion> completions = new LinkedBlockingQueue<>();
+        int inFlight = 0;
+        boolean failed = false;
+        Exception error = null;
+
+        while (true) {
+            if (!failed && inFlight == 0 && ready.size() == 1) {
+                // Nothing to overlap with: run the node on the coordinating thread
+                PlanNode node = ready.poll();
+                try {
+                    NodeOutcome outcome = NodeTimer.await(task.start(run, node, false));
+                    failed = !complete(new Completion(node, outcome, null), dependents, pending, ready);
+                } catch (Exception ex) {
+                    error = ex;
+                    failed = true;
+                }
+                continue;
+            }
+
+            while (!failed && inFlight < limit && !ready.isEmpty()) {
+                PlanNode node = ready.poll();
+                CompletableFuture.supplyAsync(() -> task.start(run, node, true), nodeExecutor)
+                        .thenCompose(Function.identity())
+                        .whenComplete((outcome, ex) -> completions.add(new Completion(node, outcome, ex)));
+                inFlight++;
+            }
+
+            if (inFlight == 0) {
+                break;
+            }
+
+            Completion done = completions.take();
+            inFlight--;
+            if (done.error() != null) {
+                if (error == null) {
+                    Throwable cause = NodeTimer.unwrap(done.error());
+                    error = cause instanceof Exception exception ? exception : new ExecutionException(cause);
+                }
+                failed = true;
+            } else if (!complete(done, dependents, pending, ready)) {
+                failed = true;
+            }
+        }
+
+        if (error != null) {
+            throw error;
+        }
+        return !failed;
+    }
+
+    private boolean complete(Completion completion, Map<String, List<PlanNode>> dependents,
+                             Map<String, Integer> pending, Queue<PlanNode> ready) {
+        if (completion.outcome() == NodeOutcome.FAILED) {
+            log.info("Node {} failed; no further nodes will be started", completion.node().getName());
+            return false;
+        }
+
+        for (PlanNode dependent : dependents.getOrDefault(completion.node().getName(), List.of())) {
+            if (pending.merge(dependent.getName(), -1, Integer::sum) == 0) {
+                ready.add(dependent);
+            }
+        }
+        return true;
+    }
+}
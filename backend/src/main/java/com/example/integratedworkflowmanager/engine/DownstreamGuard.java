@@ -0,0 +1,173 @@
+package com.example.integratedworkflowmanager.engine;
+
+import com.example.integratedworkflowmanager.config.ResilienceProperties;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadConfig;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.micrometer.tagged.TaggedBulkheadMetrics;
+import io.github.resilience4j.micrometer.tagged.TaggedCircuitBreakerMetrics;
+import io.github.resilience4j.reactor.bulkhead.operator.BulkheadOperator;
+import io.github.resilience4j.reactor.circuitbreaker.operator.CircuitBreakerOperator;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.function.Supplier;
+
+/*
+    Circuit breakers and bulkheads around node calls (workflow.resilience.*), one pair per
+    downstream host (or per node with key: NODE).
+
+        1. The bulkhead caps concurrent calls to a host, so one slow downstream cannot take every
+           node thread or connection.
+        2. The breaker opens when the failure or slow-call rate over its sliding window passes
+           the threshold; while open, calls fail at once (CallNotPermittedException) instead of
+           spending their timeouts and retries, and after openStateMs a few probe calls decide
+           whether it closes again.
+        3. Only 5xx responses and failures without a response count as breaker failures; a 4xx is
+           the caller's problem, not the downstream's.
+        4. Rejected calls are not retried (see RetryPolicy) and are recorded with their own step
+           status (CIRCUIT_OPEN / BULKHEAD_FULL, or RATE_LIMITED from NodeRateLimiter; see rejectionStatus).
+
+    Breaker and bulkhead meters are published as resilience4j_circuitbreaker_* / resilience4j_bulkhead_*.
+*/
+@Component
+@Slf4j
+public class DownstreamGuard {
+
+    private final ResilienceProperties properties;
+    private final CircuitBreakerRegistry circuitBreakers;
+    private final BulkheadRegistry bulkheads;
+
+    public DownstreamGuard(ResilienceProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.circuitBreakers = CircuitBreakerRegistry.of(CircuitBreakerConfig.custom()
+                .failureRateThreshold(properties.getFailureRateThreshold())
+                .slowCallRateThreshold(properties.getSlowCallRateThreshold())
+                .slowCallDurationThreshold(Duration.ofMillis(properties.getSlowCallDurationMs()))
+                .slidingWindowSize(properties.getSlidingWindowSize())
+                .minimumNumberOfCalls(properties.getMinimumCalls())
+                .waitDurationInOpenState(Duration.ofMillis(properties.getOpenStateMs()))
+                .permittedNumberOfCallsInHalfOpenState(properties.getHalfOpenCalls())
+                .automaticTransitionFromOpenToHalfOpenEnabled(true)
+                .recordException(DownstreamGuard::isDownstreamFailure)
+                .build());
+        this.bulkheads = BulkheadRegistry.of(BulkheadConfig.custom()
+                .maxConcurrentCalls(properties.getMaxConcurrentCalls())
+                .maxWaitDuration(Duration.ofMillis(properties.getMaxWaitMs()))
+                .build());
+
+        circuitBreakers.getEventPublisher().onEntryAdded(event -> event.getAddedEntry().getEventPublisher()
+                .onStateTransition(transition -> log.warn("⚡ Circuit breaker {}: {}", transition.getCircuitBreakerName(),
+                        transition.getStateTransition())));
+
+        TaggedCircuitBreakerMetrics.ofCircuitBreakerRegistry(circuitBreakers).bindTo(meterRegistry);
+        TaggedBulkheadMetrics.ofBulkheadRegistry(bulkheads).bindTo(meterRegistry);
+    }
+
+    // Blocking variant, used by WorkflowEngine
+    public ResponseEntity<String> call(WorkflowRun run, PlanNode node, String url, Callable<ResponseEntity<String>> call) throws Exception {
+        if (!properties.isEnabled()) {
+            return call.call();
+        }
+        String key = keyFor(run, node, url);
+        return Bulkhead.decorateCallable(bulkheadFor(key),
+                CircuitBreaker.decorateCallable(circuitBreakers.circuitBreaker(key), call)).call();
+    }
+
+    /*
+        Fails fast with the exception the guarded call would end with, for a call that cannot be
+        permitted right now: an open breaker, or a full bulkhead that does not queue (maxWaitMs 0).
+        The engines call it before reserving rate-limit slots, so rejected calls neither wait for
+        nor use up slots. A half-open breaker is not checked: its probe permits are taken by the call.
+    */
+    public void checkPermitted(WorkflowRun run, PlanNode node, String url) {
+        if (!properties.isEnabled()) return;
+        String key = keyFor(run, node, url);
+        CircuitBreaker breaker = circuitBreakers.circuitBreaker(key);
+        CircuitBreaker.State state = breaker.getState();
+        if (state == CircuitBreaker.State.OPEN || state == CircuitBreaker.State.FORCED_OPEN) {
+            throw CallNotPermittedException.createCallNotPermittedException(breaker);
+        }
+        Bulkhead bulkhead = bulkheadFor(key);
+        if (properties.getMaxWaitMs() == 0 && bulkhead.getMetrics().getAvailableConcurrentCalls() == 0) {
+            throw BulkheadFullException.createBulkheadFullException(bulkhead);
+        }
+    }
+
+    // Reactive variant, used by ReactiveWorkflowEngine (keep maxWaitMs at 0: a waiting acquire would block the event loop)
+    public Mono<ResponseEntity<String>> callReactive(WorkflowRun run, PlanNode node, String url, Supplier<Mono<ResponseEntity<String>>> call) {
+        if (!properties.isEnabled()) {
+            return call.get();
+        }
+        String key = keyFor(run, node, url);
+        return Mono.defer(call)
+                .transformDeferred(CircuitBreakerOperator.of(circuitBreakers.circuitBreaker(key)))
+                .transformDeferred(BulkheadOperator.of(bulkheadFor(key)));
+    }
+
+    // Step status of a call rejected without reaching the downstream, or null for any other failure
+    public static String rejectionStatus(Throwable error) {
+        if (error instanceof CallNotPermittedException) return "CIRCUIT_OPEN";
+        if (error instanceof BulkheadFullException) return "BULKHEAD_FULL";
+        if (error instanceof NodeRateLimiter.RateLimitedException) return "RATE_LIMITED";
+        return null;
+    }
+
+    // 📊 State, failure / slow-call rates and bulkhead permits per key
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new TreeMap<>();
+        for (CircuitBreaker breaker : circuitBreakers.getAllCircuitBreakers()) {
+            CircuitBreaker.Metrics metrics = breaker.getMetrics();
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("state", breaker.getState().name());
+            entry.put("failureRate", metrics.getFailureRate());
+            entry.put("slowCallRate", metrics.getSlowCallRate());
+            entry.put("bufferedCalls", metrics.getNumberOfBufferedCalls());
+            entry.put("notPermittedCalls", metrics.getNumberOfNotPermittedCalls());
+            bulkheads.find(breaker.getName()).ifPresent(bulkhead -> {
+                entry.put("bulkheadAvailable", bulkhead.getMetrics().getAvailableConcurrentCalls());
+                entry.put("bulkheadMax", bulkhead.getMetrics().getMaxAllowedConcurrentCalls());
+            });
+            stats.put(breaker.getName(), entry);
+        }
+        return stats;
+    }
+
+    // Closes the breaker again, e.g. after the downstream is known to be back
+    public boolean reset(String key) {
+        Optional<CircuitBreaker> breaker = circuitBreakers.find(key);
+        breaker.ifPresent(CircuitBreaker::reset);
+        return breaker.isPresent();
+    }
+
+    private Bulkhead bulkheadFor(String key) {
+        Integer max = properties.getMaxConcurrentPerHost().get(key);
+        if (max == null) {
+            return bulkheads.bulkhead(key);
+        }
+        return bulkheads.bulkhead(key, BulkheadConfig.from(bulkheads.getDefaultConfig()).maxConcurrentCalls(max).build());
+    }
+
+    private String keyFor(WorkflowRun run, PlanNode node, String url) {
+        if (properties.getKey() == ResilienceProperties.Key.NODE) {
+            return run.getWorkflowName() + "." + node.getName();
+        }
+        return NodeRequest.hostOf(url);
+    }
+
+    private static boolean isDownstreamFailure(Throwable error) {
+        Integer status = RetryPolicy.statusOf(error);
+        return status == null || status >= 500;
+    }
+}
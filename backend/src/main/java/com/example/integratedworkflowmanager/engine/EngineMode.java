@@ -0,0 +1,19 @@
+package com.example.integratedworkflowmanager.engine;
+
+/*
+    Which engine executes a plan's nodes:
+
+        - BLOCKING: WorkflowEngine, one thread per run (and per in-flight parallel node)
+        - REACTIVE: ReactiveWorkflowEngine, non-blocking WebClient calls driven by event-loop threads
+
+    Chosen per workflow with "engine": "blocking" | "reactive" in the workflow JSON, falling back
+    to workflow.engine.mode.
+*/
+public enum EngineMode {
+    BLOCKING,
+    REACTIVE;
+
+    public static EngineMode from(String value) {
+        return value == null ? null : EngineMode.valueOf(value.trim().toUpperCase());
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.integratedworkflowmanager.engine;
+
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+import java.util.*;
+
+/*
+    Debug trace of one traced execution, kept by ExecutionTracer.
+
+        - Events are appended by the engines from any node thread; the list is bounded, later
+          events are counted as dropped.
+        - Context snapshots are shallow copies: context values are never mutated after they are
+          put, so copying the map is enough. They are only serialized when the trace is read.
+*/
+@Getter
+public class ExecutionTrace {
+
+    public record Event(LocalDateTime at, String node, String type, Object detail) {
+    }
+
+    private final UUID executionId;
+    private final String workflowName;
+    private final LocalDateTime startedAt = LocalDateTime.now();
+    private final int maxEvents;
+    private final List<Event> events = new ArrayList<>();
+    private int dropped;
+
+    ExecutionTrace(UUID executionId, String workflowName, int maxEvents) {
+        this.executionId = executionId;
+        this.workflowName = workflowName;
+        this.maxEvents = maxEvents;
+    }
+
+    public synchronized void event(String node, String type, Object detail) {
+        if (events.size() >= maxEvents) {
+            dropped++;
+            return;
+        }
+        events.add(new Event(LocalDateTime.now(), node, type, detail));
+    }
+
+    public void snapshot(String node, Map<String, Object> context) {
+        Map<String, Object> copy;
+        synchronized (context) {
+            copy = new TreeMap<>(context);
+        }
+        event(node, "context", copy);
+    }
+
+    public synchronized List<Event> events() {
+        return List.copyOf(events);
+    }
+
+    public synchronized int dropped() {
+        return dropped;
+    }
+}
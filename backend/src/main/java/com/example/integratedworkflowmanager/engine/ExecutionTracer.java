@@ -0,0 +1,138 @@
+package com.example.integratedworkflowmanager.engine;
+
+import com.example.integratedworkflowmanager.entity.WorkflowExecution;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+    Opt-in debug traces of workflow executions (workflow.trace.*).
+
+        1. A run is traced when the caller asks for it (X-Workflow-Trace: true or ?trace=true)
+           or when it is picked by sample-rate (0.0 = never, 1.0 = every run).
+        2. Untraced runs carry no trace at all; the engines only check for null, so production
+           runs pay nothing for this.
+        3. Traces live in a ring buffer of the last `capacity` traced executions, read through
+           /api/engine/traces. Nothing is written to the console or the database.
+        4. Values are serialized (and cut at max-value-chars) only when a trace is read.
+*/
+@Component
+public class ExecutionTracer {
+
+    private final double sampleRate;
+    private final int maxEvents;
+    private final int maxValueChars;
+    private final ExecutionTrace[] ring;
+    private final AtomicLong next = new AtomicLong();
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
+    public ExecutionTracer(@Value("${workflow.trace.sample-rate:0.0}") double sampleRate,
+                           @Value("${workflow.trace.capacity:100}") int capacity,
+                           @Value("${workflow.trace.max-events:500}") int maxEvents,
+                           @Value("${workflow.trace.max-value-chars:2000}") int maxValueChars) {
+        this.sampleRate = sampleRate;
+        this.maxEvents = maxEvents;
+        this.maxValueChars = maxValueChars;
+        this.ring = new ExecutionTrace[capacity];
+    }
+
+    // Returns the trace for this execution, or null when it is neither requested nor sampled
+    public ExecutionTrace start(WorkflowExecution execution, RunOptions options) {
+        boolean sampled = sampleRate > 0 && ThreadLocalRandom.current().nextDouble() < sampleRate;
+        if (!options.trace() && !sampled) {
+            return null;
+        }
+
+        ExecutionTrace trace = new ExecutionTrace(execution.getExecutionId(), execution.getWorkflowName(), maxEvents);
+        synchronized (ring) {
+            ring[(int) (next.getAndIncrement() % ring.length)] = trace;
+        }
+        return trace;
+    }
+
+    // Newest first
+    public List<Map<String, Object>> list() {
+        List<Map<String, Object>> summaries = new ArrayList<>();
+        for (ExecutionTrace trace : snapshot()) {
+            Map<String, Object> summary = new LinkedHashMap<>();
+            summary.put("executionId", trace.getExecutionId());
+            summary.put("workflowName", trace.getWorkflowName());
+            summary.put("startedAt", trace.getStartedAt());
+            summary.put("events", trace.events().size());
+            summaries.add(summary);
+        }
+        return summaries;
+    }
+
+    public Optional<Map<String, Object>> get(UUID executionId) {
+        return snapshot().stream()
+                .filter(trace -> trace.getExecutionId().equals(executionId))
+                .findFirst()
+                .map(this::render);
+    }
+
+    public void clear() {
+        synchronized (ring) {
+            Arrays.fill(ring, null);
+        }
+    }
+
+    private List<ExecutionTrace> snapshot() {
+        List<ExecutionTrace> traces = new ArrayList<>();
+        synchronized (ring) {
+            long end = next.get();
+            for (long i = end - 1; i >= Math.max(0, end - ring.length); i--) {
+                ExecutionTrace trace = ring[(int) (i % ring.length)];
+                if (trace != null) traces.add(trace);
+            }
+        }
+        return traces;
+    }
+
+    private Map<String, Object> render(ExecutionTrace trace) {
+        List<Map<String, Object>> events = new ArrayList<>();
+        for (ExecutionTrace.Event event : trace.events()) {
+            Map<String, Object> rendered = new LinkedHashMap<>();
+            rendered.put("at", event.at());
+            rendered.put("node", event.node());
+            rendered.put("type", event.type());
+            rendered.put("detail", renderDetail(event.detail()));
+            events.add(rendered);
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("executionId", trace.getExecutionId());
+        result.put("workflowName", trace.getWorkflowName());
+        result.put("startedAt", trace.getStartedAt());
+        result.put("dropped", trace.dropped());
+        result.put("events", events);
+        return result;
+    }
+
+    private Object renderDetail(Object detail) {
+        if (detail instanceof Map<?, ?> map) {
+            Map<String, Object> rendered = new LinkedHashMap<>();
+            map.forEach((key, value) -> rendered.put(String.valueOf(key), shorten(value)));
+            return rendered;
+        }
+        return shorten(detail);
+    }
+
+    private Object shorten(Object value) {
+        if (value == null || value instanceof Number || value instanceof Boolean) {
+            return value;
+        }
+        String text;
+        try {
+            text = value instanceof String s ? s : objectMapper.writeValueAsString(value);
+        } catch (Exception ex) {
+            text = String.valueOf(value);
+        }
+        return text.length() > maxValueChars ? text.substring(0, maxValueChars) + "..." : text;
+    }
+}
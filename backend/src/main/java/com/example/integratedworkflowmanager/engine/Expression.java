@@ -0,0 +1,68 @@
+package com.example.integratedworkflowmanager.engine;
+
+import org.mvel2.MVEL;
+import org.mvel2.ast.ASTNode;
+import org.mvel2.ast.Assignment;
+import org.mvel2.ast.IndexedOperativeAssign;
+import org.mvel2.ast.OperativeAssign;
+import org.mvel2.compiler.CompiledExpression;
+import org.mvel2.compiler.ExecutableAccessor;
+import org.mvel2.integration.VariableResolverFactory;
+
+import java.io.Serializable;
+
+/*
+    A single MVEL expression taken from a workflow definition, e.g. a node condition
+    or the inside of a {{...}} placeholder.
+
+        - Compiled with MVEL.compileExpression exactly once, when the plan is built
+        - The compiled form is reused by every run; MVEL only re-optimizes property
+          accessors according to the configured optimizer (see MvelConfig)
+        - Syntax errors surface at compile time instead of in the middle of a run
+        - Assignment statements ("x = 1", "user.name = 'a'", "n += 1") are rejected at compile
+          time: expressions read the workflow context, they never change it (the resolver
+          factory of a run is read-only as well, see FunctionRegistry)
+*/
+public final class Expression {
+
+    private final String source;
+    private final Serializable compiled;
+
+    public Expression(String source) {
+        this.source = source;
+        this.compiled = MVEL.compileExpression(source);
+        rejectAssignments(source, compiled);
+    }
+
+    private static void rejectAssignments(String source, Serializable compiled) {
+        ASTNode node = compiled instanceof CompiledExpression expression ? expression.getFirstNode()
+                : compiled instanceof ExecutableAccessor accessor ? accessor.getNode()
+                : null;
+        for (; node != null; node = node.nextASTNode) {
+            if (node instanceof Assignment || node instanceof OperativeAssign || node instanceof IndexedOperativeAssign) {
+                throw new IllegalArgumentException("Expressions cannot assign variables: " + source);
+            }
+        }
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    public Serializable getCompiled() {
+        return compiled;
+    }
+
+    public Object evaluate(VariableResolverFactory variables) {
+        return MVEL.executeExpression(compiled, variables);
+    }
+
+    public boolean evaluateToBoolean(VariableResolverFactory variables) {
+        return MVEL.executeExpression(compiled, null, variables, Boolean.class);
+    }
+
+    @Override
+    public String toString() {
+        return source;
+    }
+}
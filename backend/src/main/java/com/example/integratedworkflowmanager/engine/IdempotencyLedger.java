@@ -0,0 +1,156 @@
+package com.example.integratedworkflowmanager.engine;
+
+import com.example.integratedworkflowmanager.entity.IdempotencyLedgerEntry;
+import com.example.integratedworkflowmanager.repository.IdempotencyLedgerRepository;
+import com.example.integratedworkflowmanager.util.LruCache;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+/*
+    Idempotency check for nodes with an idempotency_key, backed by the idempotency_ledger table.
+
+        1. claim(...) first looks in an in-memory LRU of keys known to be COMPLETED; a hit skips
+           the node without touching the database.
+        2. Otherwise it inserts an IN_FLIGHT row with INSERT IGNORE. The unique key on
+           (workflow, node, resolved key) makes exactly one of several racing runs win the claim.
+        3. A run that loses finds the existing row: COMPLETED (skip, and cache the key) or IN_FLIGHT
+           (another run is executing the node right now; its outcome is unknown, so the losing run
+           fails the node and can be resumed once the claim is resolved). An IN_FLIGHT claim older than
+           workflow.idempotency.claim-timeout-ms belongs to a run that died and is taken over; a claim
+           of the same execution (a resume after a crash) is taken back at once.
+        4. The winner calls complete(...) when the node succeeded, or release(...) when it failed,
+           which deletes the claim so a later run can try again.
+
+    Steps that succeeded before the ledger existed have no entry, so their nodes would run again.
+    backfill() enters their keys as COMPLETED at startup, before any run can claim one
+    (workflow.idempotency.backfill-steps; INSERT IGNORE, so repeating it only costs the scan).
+
+    Keys longer than MAX_KEY_LENGTH characters are stored as their SHA-256 ("sha256:<hex>"): the
+    column is a VARCHAR(255), and INSERT IGNORE would truncate a longer key with only a warning,
+    after which the lookup by the full key could never find the claim again.
+*/
+@Component
+@Slf4j
+public class IdempotencyLedger {
+
+    public enum Claim {
+        CLAIMED,
+        COMPLETED,
+        IN_FLIGHT
+    }
+
+    static final int MAX_KEY_LENGTH = 255;
+
+    private final IdempotencyLedgerRepository repository;
+    private final LruCache<String, Boolean> completedKeys;
+    private final long claimTimeoutMs;
+    private final boolean backfillSteps;
+
+    public IdempotencyLedger(IdempotencyLedgerRepository repository,
+                             @Value("${workflow.idempotency.cache-size:10000}") int cacheSize,
+                             @Value("${workflow.idempotency.claim-timeout-ms:300000}") long claimTimeoutMs,
+                             @Value("${workflow.idempotency.backfill-steps:true}") boolean backfillSteps) {
+        this.repository = repository;
+        this.completedKeys = new LruCache<>(cacheSize);
+        this.claimTimeoutMs = claimTimeoutMs;
+        this.backfillSteps = backfillSteps;
+    }
+
+    @PostConstruct
+    public void backfill() {
+        if (!backfillSteps) return;
+        int inserted = repository.backfillCompletedSteps(MAX_KEY_LENGTH);
+        for (IdempotencyLedgerRepository.CompletedStepKey step : repository.findCompletedStepKeysLongerThan(MAX_KEY_LENGTH)) {
+            inserted += repository.insertCompleted(step.getWorkflowName(), step.getNodeName(), storedKey(step.getIdempotencyKey()),
+                    step.getExecutionId(), step.getCompletedAt());
+        }
+        if (inserted > 0) {
+            log.info("🔑 Backfilled {} completed idempotency key(s) from earlier steps", inserted);
+        }
+    }
+
+    public Claim claim(String workflowName, String nodeName, String renderedKey, UUID executionId) {
+        String key = storedKey(renderedKey);
+        String cacheKey = cacheKey(workflowName, nodeName, key);
+        if (completedKeys.get(cacheKey) != null) {
+            return Claim.COMPLETED;
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        if (repository.insertClaim(workflowName, nodeName, key, executionId.toString(), now) == 1) {
+            return Claim.CLAIMED;
+        }
+
+        Optional<IdempotencyLedgerEntry> existing = repository.findByWorkflowNameAndNodeNameAndIdempotencyKey(workflowName, nodeName, key);
+        if (existing.isEmpty()) {
+            // Released between our insert and lookup: try once more
+            return repository.insertClaim(workflowName, nodeName, key, executionId.toString(), now) == 1 ? Claim.CLAIMED : Claim.IN_FLIGHT;
+        }
+
+        IdempotencyLedgerEntry entry = existing.get();
+        if ("COMPLETED".equals(entry.getStatus())) {
+            completedKeys.put(cacheKey, Boolean.TRUE);
+            return Claim.COMPLETED;
+        }
+
+        // A resumed execution takes back the claim it held when it was interrupted
+        if (executionId.equals(entry.getExecutionId())) {
+            return Claim.CLAIMED;
+        }
+
+        if (repository.reclaimStale(entry.getId(), executionId, now, now.minusNanos(claimTimeoutMs * 1_000_000)) == 1) {
+            log.warn("♻️ Took over stale idempotency claim of execution {} for node {} (key: {})", entry.getExecutionId(), nodeName, key);
+            return Claim.CLAIMED;
+        }
+        return Claim.IN_FLIGHT;
+    }
+
+    public void complete(String workflowName, String nodeName, String renderedKey, UUID executionId) {
+        String key = storedKey(renderedKey);
+        repository.markCompleted(workflowName, nodeName, key, executionId, LocalDateTime.now());
+        completedKeys.put(cacheKey(workflowName, nodeName, key), Boolean.TRUE);
+    }
+
+    public void release(String workflowName, String nodeName, String renderedKey, UUID executionId) {
+        repository.deleteClaim(workflowName, nodeName, storedKey(renderedKey), executionId);
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("cachedKeys", completedKeys.size());
+        stats.put("maxSize", completedKeys.getMaxSize());
+        stats.put("hits", completedKeys.getHits());
+        stats.put("misses", completedKeys.getMisses());
+        stats.put("hitRatio", completedKeys.getHitRatio());
+        return stats;
+    }
+
+    // The key as stored in idempotency_ledger.idempotency_key
+    static String storedKey(String key) {
+        if (key.length() <= MAX_KEY_LENGTH) {
+            return key;
+        }
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(key.getBytes(StandardCharsets.UTF_8));
+            return "sha256:" + HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private static String cacheKey(String workflowName, String nodeName, String key) {
+        return workflowName + '\u0000' + nodeName + '\u0000' + key;
+    }
+}
@@ -0,0 +1,122 @@
+package com.example.integratedworkflowmanager.engine;
+
+import com.example.integratedworkflowmanager.config.HttpClientProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.hc.client5.http.HttpRoute;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.http.HttpHost;
+import org.apache.hc.core5.pool.PoolStats;
+import org.apache.hc.core5.util.TimeValue;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestTemplate;
+
+import java.net.URISyntaxException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+    HTTP client for node calls, backed by one pooled Apache HttpClient 5 instance.
+
+        1. Connections are kept alive and reused across nodes and runs, so most calls skip
+           the TCP / TLS handshake.
+        2. The pool is bounded overall (max-total) and per host (max-per-route, with
+           max-per-host overrides), so one slow downstream cannot take every connection.
+        3. Every call has a connect and a read timeout: the node's connect_timeout_ms /
+           timeout_ms, or the workflow.http defaults.
+        4. One RestTemplate is kept per distinct (connect, read) timeout pair; all of them
+           share the same pool.
+*/
+@Component
+@Slf4j
+public class NodeHttpClient implements DisposableBean {
+
+    private record Timeouts(int connectMs, int readMs) {
+    }
+
+    private final HttpClientProperties properties;
+    private final PoolingHttpClientConnectionManager connectionManager;
+    private final CloseableHttpClient httpClient;
+    private final Map<Timeouts, RestTemplate> templates = new ConcurrentHashMap<>();
+
+    public NodeHttpClient(HttpClientProperties properties, WorkflowMetrics metrics) {
+        this.properties = properties;
+
+        this.connectionManager = PoolingHttpClientConnectionManagerBuilder.create()
+                .setMaxConnTotal(properties.getMaxTotal())
+                .setMaxConnPerRoute(properties.getMaxPerRoute())
+                .build();
+        properties.getMaxPerHost().forEach((host, max) -> {
+            try {
+                connectionManager.setMaxPerRoute(new HttpRoute(HttpHost.create(host)), max);
+            } catch (URISyntaxException ex) {
+                throw new IllegalArgumentException("Invalid workflow.http.max-per-host entry: " + host, ex);
+            }
+        });
+
+        this.httpClient = HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectionKeepAlive(TimeValue.ofMilliseconds(properties.getKeepAliveMs()))
+                        .build())
+                .evictExpiredConnections()
+                .evictIdleConnections(TimeValue.ofMilliseconds(properties.getIdleEvictMs()))
+                .build();
+
+        metrics.gauge("workflow.http.pool.leased", "Pooled node connections in use", connectionManager, m -> m.getTotalStats().getLeased());
+        metrics.gauge("workflow.http.pool.pending", "Node calls waiting for a pooled connection", connectionManager, m -> m.getTotalStats().getPending());
+    }
+
+    public ResponseEntity<String> exchange(PlanNode node, String url, HttpMethod method, HttpEntity<?> entity) {
+        Timeouts timeouts = new Timeouts(
+                node.getConnectTimeoutMs() != null ? node.getConnectTimeoutMs() : properties.getConnectTimeoutMs(),
+                node.getTimeoutMs() != null ? node.getTimeoutMs() : properties.getReadTimeoutMs());
+
+        return templates.computeIfAbsent(timeouts, this::createTemplate)
+                .exchange(url, method, entity, String.class);
+    }
+
+    // 📊 Leased / available / pending connections, overall and per host
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>(toMap(connectionManager.getTotalStats()));
+
+        Map<String, Object> routes = new TreeMap<>();
+        for (HttpRoute route : connectionManager.getRoutes()) {
+            routes.put(route.getTargetHost().toURI(), toMap(connectionManager.getStats(route)));
+        }
+        stats.put("routes", routes);
+        stats.put("timeoutProfiles", templates.size());
+        return stats;
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        httpClient.close();
+    }
+
+    private RestTemplate createTemplate(Timeouts timeouts) {
+        HttpComponentsClientHttpRequestFactory factory = new HttpComponentsClientHttpRequestFactory(httpClient);
+        factory.setConnectTimeout(timeouts.connectMs());
+        factory.setReadTimeout(timeouts.readMs());
+        factory.setConnectionRequestTimeout(properties.getConnectionRequestTimeoutMs());
+        log.debug("Created HTTP client profile: connect {} ms, read {} ms", timeouts.connectMs(), timeouts.readMs());
+        return new RestTemplate(factory);
+    }
+
+    private Map<String, Object> toMap(PoolStats poolStats) {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("leased", poolStats.getLeased());
+        map.put("available", poolStats.getAvailable());
+        map.put("pending", poolStats.getPending());
+        map.put("max", poolStats.getMax());
+        return map;
+    }
+}
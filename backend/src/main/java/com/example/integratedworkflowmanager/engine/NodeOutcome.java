@@ -0,0 +1,15 @@
+package com.example.integratedworkflowmanager.engine;
+
+/*
+    Result of executing a single node within a run.
+
+        - SUCCESS: the API call succeeded and its response was added to the context
+        - SKIPPED: the condition evaluated to false or the idempotency check matched
+        - FAILED:  every attempt (including retries) failed, or another run holds the node's
+                   idempotency claim; the run stops scheduling nodes
+*/
+public enum NodeOutcome {
+    SUCCESS,
+    SKIPPED,
+    FAILED
+}
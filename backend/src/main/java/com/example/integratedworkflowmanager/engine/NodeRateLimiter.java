@@ -0,0 +1,164 @@
+package com.example.integratedworkflowmanager.engine;
+
+import com.example.integratedworkflowmanager.config.RateLimitProperties;
+import com.example.integratedworkflowmanager.util.GcraRateLimiter;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/*
+    Per-host and per-workflow throttling of node calls, applied right before each outbound call.
+
+        1. A call takes a slot from its workflow's limiter (workflow.rate-limit.per-workflow, else
+           the plan's rate_limit) and from its host's limiter (workflow.rate-limit.per-host);
+           calls without a configured limit pass straight through.
+        2. Slots are reserved lock-free (GcraRateLimiter); the call then waits for its slot on a
+           timer: NodeTimer for the blocking engine (a pooled node thread is released meanwhile),
+           Mono.delay for the reactive engine.
+        3. A call whose slot is more than max-wait-ms away fails with RateLimitedException
+           (step status RATE_LIMITED) and is not retried. A call the host limiter rejects gives
+           back the workflow slot it had already reserved.
+        4. A call the DownstreamGuard rejects once its slot is due (open breaker, full bulkhead) never
+           went out either: both of its slots are given back. The engines check the guard before
+           reserving too (DownstreamGuard.checkPermitted), so an open breaker fails fast.
+
+    Coalesced calls (see SingleFlight) only take a slot for the call that actually goes out.
+*/
+@Component
+public class NodeRateLimiter {
+
+    public static class RateLimitedException extends RuntimeException {
+        public RateLimitedException(String message) {
+            super(message);
+        }
+    }
+
+    private final RateLimitProperties properties;
+    private final WorkflowMetrics metrics;
+    private final NodeTimer nodeTimer;
+    private final Map<String, GcraRateLimiter> limiters = new ConcurrentHashMap<>();
+
+    public NodeRateLimiter(RateLimitProperties properties, WorkflowMetrics metrics, NodeTimer nodeTimer) {
+        this.properties = properties;
+        this.metrics = metrics;
+        this.nodeTimer = nodeTimer;
+    }
+
+    // Blocking-engine variant: runs the call now, or once its slot is due (pooled: see NodeTimer)
+    public <T> CompletableFuture<T> acquire(WorkflowRun run, PlanNode node, String url, boolean pooled, Callable<T> call) {
+        Reservation reservation;
+        try {
+            reservation = reserve(run, node, url);
+        } catch (RateLimitedException ex) {
+            return CompletableFuture.failedFuture(ex);
+        }
+        return nodeTimer.delay(reservation.waitNanos(), pooled).thenCompose(ignored -> {
+            try {
+                return CompletableFuture.completedFuture(call.call());
+            } catch (Exception ex) {
+                reservation.releaseIfRejected(ex);
+                return CompletableFuture.failedFuture(ex);
+            }
+        });
+    }
+
+    // Reactive variant: subscribes to the call once its slot is due
+    public <T> Mono<T> acquire(WorkflowRun run, PlanNode node, String url, Mono<T> call) {
+        return Mono.defer(() -> {
+            Reservation reservation = reserve(run, node, url);
+            Mono<T> guarded = call.doOnError(reservation::releaseIfRejected);
+            return reservation.waitNanos() > 0 ? Mono.delay(Duration.ofNanos(reservation.waitNanos())).then(guarded) : guarded;
+        });
+    }
+
+    // 📊 Configured limiters that have been used so far
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new TreeMap<>();
+        limiters.forEach((key, limiter) -> {
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("perSecond", limiter.getPerSecond());
+            entry.put("burst", limiter.getBurst());
+            stats.put(key, entry);
+        });
+        return stats;
+    }
+
+    // The slots one call holds (null limiter = no limit) and how long it waits for the later of them
+    private record Reservation(long waitNanos, GcraRateLimiter workflowLimiter, GcraRateLimiter hostLimiter) {
+
+        void releaseIfRejected(Throwable error) {
+            if (DownstreamGuard.rejectionStatus(error) == null) return; // the call went out and used its slots
+            if (workflowLimiter != null) workflowLimiter.release();
+            if (hostLimiter != null) hostLimiter.release();
+        }
+    }
+
+    // A call rejected by its host's limiter gives its workflow slot back, so rejected calls use up no capacity
+    private Reservation reserve(WorkflowRun run, PlanNode node, String url) {
+        long maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(properties.getMaxWaitMs());
+        String host = NodeRequest.hostOf(url);
+        String workflowKey = "workflow:" + run.getWorkflowName();
+        String hostKey = "host:" + host;
+        GcraRateLimiter workflowLimiter = limiter(workflowKey, workflowLimit(run));
+        GcraRateLimiter hostLimiter = limiter(hostKey, toRateLimit(properties.getPerHost().get(host)));
+
+        long workflowWait = reserve("workflow", workflowKey, workflowLimiter, run, node, maxWaitNanos);
+        long hostWait;
+        try {
+            hostWait = reserve("host", hostKey, hostLimiter, run, node, maxWaitNanos);
+        } catch (RateLimitedException ex) {
+            if (workflowLimiter != null) {
+                workflowLimiter.release();
+            }
+            throw ex;
+        }
+
+        if (workflowLimiter != null) metrics.recordThrottleWait(run, node, "workflow", workflowWait);
+        if (hostLimiter != null) metrics.recordThrottleWait(run, node, "host", hostWait);
+        return new Reservation(Math.max(workflowWait, hostWait), workflowLimiter, hostLimiter);
+    }
+
+    private long reserve(String scope, String key, GcraRateLimiter limiter, WorkflowRun run, PlanNode node, long maxWaitNanos) {
+        if (limiter == null) {
+            return 0;
+        }
+        long waitNanos = limiter.reserve(maxWaitNanos);
+        if (waitNanos < 0) {
+            metrics.recordThrottleRejected(run, node, scope);
+            throw new RateLimitedException("Rate limit of " + key + " (" + limiter.getPerSecond() + "/s) exceeded");
+        }
+        return waitNanos;
+    }
+
+    private GcraRateLimiter limiter(String key, RateLimit limit) {
+        if (limit == null) {
+            return null;
+        }
+        GcraRateLimiter limiter = limiters.get(key);
+        if (limiter == null || !limiter.hasLimit(limit.getPerSecond(), limit.getBurst())) {
+            // First call, or the limit changed (definition re-uploaded): start a new limiter
+            limiter = limiters.compute(key, (k, existing) ->
+                    existing != null && existing.hasLimit(limit.getPerSecond(), limit.getBurst())
+                            ? existing
+                            : new GcraRateLimiter(limit.getPerSecond(), limit.getBurst()));
+        }
+        return limiter;
+    }
+
+    private RateLimit workflowLimit(WorkflowRun run) {
+        RateLimit configured = toRateLimit(properties.getPerWorkflow().get(run.getWorkflowName()));
+        return configured != null ? configured : run.getPlan().getRateLimit();
+    }
+
+    private static RateLimit toRateLimit(RateLimitProperties.Limit limit) {
+        return limit == null ? null : new RateLimit(limit.getPerSecond(), limit.getBurst());
+    }
+}
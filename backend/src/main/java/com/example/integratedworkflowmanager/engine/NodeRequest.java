@@ -0,0 +1,163 @@
+package com.example.integratedworkflowmanager.engine;
+
+import com.example.integratedworkflowmanager.entity.WorkflowExecutionStep;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.Getter;
+import org.mvel2.integration.VariableResolverFactory;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.web.util.UriComponents;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.util.*;
+
+/*
+    The HTTP request of one node with every {{...}} expression evaluated, shared by the
+    blocking and the reactive engine:
+
+        - url: request_url with query_params appended
+        - cacheKey: the node's resolved cache key (its url unless cache.key is set), null when not cached
+        - body / headers / queryParams: request maps with expressions replaced by their values
+        - stepBuilder(...) pre-fills the WorkflowExecutionStep fields every attempt records (subject to the node's capture)
+*/
+@Getter
+final class NodeRequest {
+
+    private final String url;
+    private final HttpMethod method;
+    private final Map<String, Object> body;
+    private final Map<String, Object> headers;
+    private final Map<String, Object> queryParams;
+    private final String cacheKey;
+
+    private NodeRequest(String url, HttpMethod method, Map<String, Object> body,
+                        Map<String, Object> headers, Map<String, Object> queryParams, String cacheKey) {
+        this.url = url;
+        this.method = method;
+        this.body = body;
+        this.headers = headers;
+        this.queryParams = queryParams;
+        this.cacheKey = cacheKey;
+    }
+
+    static NodeRequest resolve(PlanNode node, VariableResolverFactory variables) {
+        String url = render(node.getRequestUrl(), variables);
+        Map<String, Object> body = resolveMap(node.getRequestBody(), variables);
+        Map<String, Object> headers = resolveMap(node.getRequestHeaders(), variables);
+        Map<String, Object> queryParams = resolveMap(node.getQueryParams(), variables);
+
+        if (!queryParams.isEmpty()) {
+            url += "?" + buildQuery(queryParams);
+        }
+
+        HttpMethod method = HttpMethod.valueOf(node.getMethod());
+        String cacheKey = null;
+        if (node.getCache() != null && method == HttpMethod.GET) {
+            cacheKey = node.getCache().getKey() != null ? render(node.getCache().getKey(), variables) : url;
+        }
+        return new NodeRequest(url, method, body, headers, queryParams, cacheKey);
+    }
+
+    // Identity of the outbound request for SingleFlight: method, URL, headers and body
+    String coalescingKey() {
+        return method + " " + url + " " + new TreeMap<>(headers) + " " + new TreeMap<>(body);
+    }
+
+    HttpHeaders httpHeaders() {
+        HttpHeaders httpHeaders = new HttpHeaders();
+        headers.forEach((k, v) -> httpHeaders.set(k, v.toString()));
+        return httpHeaders;
+    }
+
+    HttpEntity<?> toEntity() {
+        return new HttpEntity<>(body.isEmpty() ? null : body, httpHeaders());
+    }
+
+    // "scheme://host[:port]" of a URL, the key of per-host limits (workflow.http, workflow.resilience, workflow.rate-limit)
+    static String hostOf(String url) {
+        UriComponents uri = UriComponentsBuilder.fromUriString(url).build();
+        return uri.getScheme() + "://" + uri.getHost() + (uri.getPort() != -1 ? ":" + uri.getPort() : "");
+    }
+
+    WorkflowExecutionStep.WorkflowExecutionStepBuilder stepBuilder(WorkflowRun run, PlanNode node, String idempotencyKey,
+                                                                   int attempt, ObjectMapper objectMapper) throws JsonProcessingException {
+        return WorkflowExecutionStep.builder()
+                .execution(run.getExecution())
+                .nodeId(node.getId())
+                .nodeName(node.getName())
+                .requestUrl(url)
+                .requestBody(node.captured(objectMapper.writeValueAsString(body)))
+                .requestHeaders(node.captured(objectMapper.writeValueAsString(headers)))
+                .queryParams(node.captured(objectMapper.writeValueAsString(queryParams)))
+                .applicationId(run.getApplicationId())
+                .idempotencyKey(idempotencyKey)
+                .skipped(false)
+                .attemptCount(attempt);
+    }
+
+    /*
+        This method replaces placeholders like {{applicationId}} in single values:
+
+            1. https://api.example.com/data/{{applicationId}} with actual values from the context map.
+            2. The template was already split into literal and {{...}} segments when the plan was compiled
+            3. Executes each precompiled expression segment using MVEL with the enhanced context
+            4. Returns a string with expressions resolved
+            5. Used for request_url, idempotency_key, etc.
+    */
+    static String render(Template template, VariableResolverFactory variables) {
+        if (template == null) return "";
+
+        if (template.isDynamic()) {
+            return template.render(expression -> expression.evaluate(variables));
+        }
+
+        return template.getSource();
+    }
+
+    /*
+        This takes a json object (key-value pairs) as map for headers, body, queryParams that may contain dynamic strings like:
+
+            {
+              "Authorization": "Bearer {{token}}",
+              "applicantId": "{{applicationId}}"
+            }
+
+            - and evaluates all values that were compiled into an Expression ("{{applicationId}}", keeps its type)
+              or a Template ("Bearer {{token}}", rendered to a string) using MVEL.
+            - Used for resolving maps like headers/body/params before sending requests.
+    */
+    private static Map<String, Object> resolveMap(Map<String, Object> raw, VariableResolverFactory variables) {
+        Map<String, Object> resolved = new HashMap<>();
+        if (raw == null) return resolved;
+
+        for (var entry : raw.entrySet()) {
+            Object value = entry.getValue();
+            if (value instanceof Expression expression) {
+                resolved.put(entry.getKey(), expression.evaluate(variables));
+            } else if (value instanceof Template template) {
+                resolved.put(entry.getKey(), render(template, variables));
+            } else {
+                resolved.put(entry.getKey(), value);
+            }
+        }
+        return resolved;
+    }
+
+    /*
+        Used when appending query params to request_url.
+        Converts a map like:
+            {
+              "userId": "123",
+              "active": true
+            }
+
+        Into a query string: userId=123&active=true
+    */
+    private static String buildQuery(Map<String, Object> params) {
+        List<String> parts = new ArrayList<>();
+        params.forEach((k, v) -> parts.add(k + "=" + v.toString()));
+        return String.join("&", parts);
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.integratedworkflowmanager.engine;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.*;
+
+/*
+    Waits of the blocking engine: retry backoff and rate limit slots.
+
+        - pooled: the node runs on a nodeExecutor thread shared by all runs. The wait is scheduled
+          on a single timer thread and the node's thread is returned to the pool; when the wait is
+          over, the node continues on the node executor. A backing-off node therefore holds no
+          thread at all.
+        - inline: the thread belongs to the run itself (sequential plans, or the DagScheduler's
+          coordinating thread), which waits for the run's outcome anyway; it sleeps.
+
+    delay(...) completes exceptionally with InterruptedException when an inline wait is interrupted,
+    and with RejectedExecutionException once the executors are shut down.
+*/
+@Component
+public class NodeTimer {
+
+    private final ExecutorService nodeExecutor;
+    private final ScheduledExecutorService timer;
+
+    public NodeTimer(@Qualifier("nodeExecutor") ExecutorService nodeExecutor) {
+        this.nodeExecutor = nodeExecutor;
+        this.timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "workflow-node-timer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public CompletableFuture<Void> delay(long nanos, boolean pooled) {
+        if (nanos <= 0) {
+            return CompletableFuture.completedFuture(null);
+        }
+        if (!pooled) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(nanos);
+                return CompletableFuture.completedFuture(null);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return CompletableFuture.failedFuture(ex);
+            }
+        }
+
+        CompletableFuture<Void> due = new CompletableFuture<>();
+        try {
+            timer.schedule(() -> {
+                try {
+                    nodeExecutor.execute(() -> due.complete(null)); // dependents continue on the node executor
+                } catch (RejectedExecutionException ex) {
+                    due.completeExceptionally(ex);
+                }
+            }, nanos, TimeUnit.NANOSECONDS);
+        } catch (RejectedExecutionException ex) {
+            due.completeExceptionally(ex);
+        }
+        return due;
+    }
+
+    // Waits for a node's future on the calling thread, rethrowing the node's own exception
+    public static <T> T await(CompletableFuture<T> future) throws Exception {
+        try {
+            return future.get();
+        } catch (ExecutionException ex) {
+            throw unwrap(ex) instanceof Exception cause ? cause : ex;
+        }
+    }
+
+    // The exception a stage failed with, without the CompletionException / ExecutionException wrapper
+    public static Throwable unwrap(Throwable error) {
+        while ((error instanceof CompletionException || error instanceof ExecutionException) && error.getCause() != null) {
+            error = error.getCause();
+        }
+        return error;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        timer.shutdown();
+    }
+}
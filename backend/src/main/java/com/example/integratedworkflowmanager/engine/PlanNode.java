@@ -0,0 +1,55 @@
+package com.example.integratedworkflowmanager.engine;
+
+import lombok.Builder;
+import lombok.Value;
+
+import java.util.Map;
+import java.util.Set;
+
+/*
+    Typed, pre-parsed form of one entry in workflowJson.nodes.
+
+        - condition: MVEL expression (defaults to "true")
+        - requestUrl / idempotencyKey: templates with {{...}} placeholders split out
+        - requestBody / requestHeaders / queryParams: values are either plain JSON values,
+          an Expression when the original string was exactly one {{...}}, or a Template when
+          it mixed {{...}} with text
+        - dependsOn: names of nodes that must complete first (explicit depends_on plus earlier
+          nodes referenced in this node's expressions); only used by parallel plans
+        - retryPolicy: retry count ("retry") plus backoff and retryable failures ("retry_policy")
+        - timeoutMs / connectTimeoutMs: per-node read / connect timeouts (null = workflow.http defaults)
+        - cache: response caching policy of a GET node (null = not cached)
+        - coalesce: share one outbound call between identical concurrent requests (see SingleFlight)
+        - capture / captureMaxChars: how much of the request and response the node's steps store
+          ("full", "truncate" to capture_max_chars, or "none")
+*/
+@Value
+@Builder
+public class PlanNode {
+    Integer id;
+    String name;
+    String method;
+    Expression condition;
+    Template requestUrl;
+    Template idempotencyKey;
+    Map<String, Object> requestBody;
+    Map<String, Object> requestHeaders;
+    Map<String, Object> queryParams;
+    RetryPolicy retryPolicy;
+    Set<String> dependsOn;
+    Integer timeoutMs;
+    Integer connectTimeoutMs;
+    CachePolicy cache;
+    boolean coalesce;
+    Capture capture;
+    int captureMaxChars;
+
+    public enum Capture { FULL, TRUNCATE, NONE }
+
+    // The text a step of this node stores for a request / response payload
+    public String captured(String text) {
+        if (text == null || capture == Capture.FULL || capture == null) return text;
+        if (capture == Capture.NONE) return null;
+        return text.length() <= captureMaxChars ? text : text.substring(0, captureMaxChars) + "…[truncated " + text.length() + " chars]";
+    }
+}
@@ -0,0 +1,13 @@
+package com.example.integratedworkflowmanager.engine;
+
+import lombok.Value;
+
+/*
+    Compiled "rate_limit" block of a workflow: at most perSecond node calls per second across
+    all runs of the workflow, with bursts of up to burst calls (see NodeRateLimiter).
+*/
+@Value
+public class RateLimit {
+    double perSecond;
+    int burst;
+}
@@ -0,0 +1,442 @@
+package com.example.integratedworkflowmanager.engine;
+
+import com.example.integratedworkflowmanager.config.HttpClientProperties;
+import com.example.integratedworkflowmanager.entity.WorkflowExecutionStep;
+import com.example.integratedworkflowmanager.interfaces.FunctionRegistry;
+import com.example.integratedworkflowmanager.service.WorkflowStepWriter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.netty.channel.ChannelOption;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.hc.core5.http.HttpHost;
+import org.mvel2.integration.VariableResolverFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+import reactor.util.retry.Retry;
+
+import java.net.InetSocketAddress;
+import java.net.URISyntaxException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/*
+    Non-blocking alternative to WorkflowEngine, used for plans whose engine is REACTIVE.
+
+        1. Node calls go through WebClient on Reactor Netty; an in-flight call holds a pooled
+           connection, not a thread, so a few event-loop threads drive many concurrent runs.
+        2. Per-node timeout_ms and retry_policy are Reactor operators (timeout, retryWhen with a
+           delayed re-subscription); every attempt writes the same WorkflowExecutionStep as the
+           blocking engine.
+        3. JDBC work (idempotency claims, step inserts) is blocking, so it is moved to a bounded
+           elastic scheduler (workflow.reactive.persistence-threads / persistence-queue) and never
+           runs on an event loop.
+        4. Sequential plans run node after node; parallel plans turn every node into a cached
+           Mono that starts once the Monos of its dependencies have completed.
+
+    Conditions and {{...}} expressions are cheap CPU work and are evaluated on the event loop.
+    Traced runs record the same trace events as in WorkflowEngine (in-memory, see ExecutionTracer).
+*/
+@Component
+@Slf4j
+public class ReactiveWorkflowEngine implements DisposableBean {
+
+    private final WorkflowStepWriter stepWriter;
+    private final IdempotencyLedger idempotencyLedger;
+    private final ResponseCache responseCache;
+    private final SingleFlight singleFlight;
+    private final WorkflowMetrics metrics;
+    private final DownstreamGuard downstreamGuard;
+    private final NodeRateLimiter rateLimiter;
+    private final RunJournal runJournal;
+    private final HttpClientProperties httpProperties;
+    private final WebClient.Builder webClientBuilder;
+    private final ConnectionProvider connectionProvider;
+    private final Scheduler persistenceScheduler;
+    private final int defaultWorkflowConcurrency;
+    private final Map<Integer, WebClient> clients = new ConcurrentHashMap<>();
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    public ReactiveWorkflowEngine(WorkflowStepWriter stepWriter,
+                                  IdempotencyLedger idempotencyLedger,
+                                  ResponseCache responseCache,
+                                  SingleFlight singleFlight,
+                                  WorkflowMetrics metrics,
+                                  DownstreamGuard downstreamGuard,
+                                  NodeRateLimiter rateLimiter,
+                                  RunJournal runJournal,
+                                  HttpClientProperties httpProperties,
+                                  WebClient.Builder webClientBuilder,
+                                  @Value("${workflow.reactive.persistence-threads:16}") int persistenceThreads,
+                                  @Value("${workflow.reactive.persistence-queue:10000}") int persistenceQueue,
+                                  @Value("${workflow.engine.default-workflow-concurrency:8}") int defaultWorkflowConcurrency) {
+        this.stepWriter = stepWriter;
+        this.idempotencyLedger = idempotencyLedger;
+        this.responseCache = responseCache;
+        this.singleFlight = singleFlight;
+        this.metrics = metrics;
+        this.downstreamGuard = downstreamGuard;
+        this.rateLimiter = rateLimiter;
+        this.runJournal = runJournal;
+        this.httpProperties = httpProperties;
+        this.webClientBuilder = webClientBuilder;
+        this.connectionProvider = createConnectionProvider(httpProperties);
+        this.persistenceScheduler = Schedulers.newBoundedElastic(persistenceThreads, persistenceQueue, "workflow-persist");
+        this.defaultWorkflowConcurrency = defaultWorkflowConcurrency;
+    }
+
+    /*
+        Emits true when every node either succeeded or was skipped, false when a node failed
+        all of its attempts. Unexpected errors (bad expressions, etc.) are signalled as errors.
+    */
+    public Mono<Boolean> execute(WorkflowRun run) {
+        if (run.getPlan().isParallel()) {
+            return executeGraph(run);
+        }
+
+        return Flux.fromIterable(run.getPlan().getNodes())
+                .concatMap(node -> executeJournaled(run, node))
+                .takeUntil(outcome -> outcome == NodeOutcome.FAILED)
+                .all(outcome -> outcome != NodeOutcome.FAILED);
+    }
+
+    // Runs blocking (JDBC) work on the persistence scheduler
+    public <T> Mono<T> offload(Callable<T> work) {
+        return Mono.fromCallable(work).subscribeOn(persistenceScheduler);
+    }
+
+    /*
+        Parallel plans: each node becomes a cached Mono that waits for its dependencies' Monos.
+        Nodes are subscribed in dependency order through flatMap, which caps how many run at
+        once at the plan's max_concurrency. Once a node fails, nodes that have not started yet
+        are not started, mirroring DagScheduler.
+    */
+    private Mono<Boolean> executeGraph(WorkflowRun run) {
+        WorkflowPlan plan = run.getPlan();
+        int limit = plan.getMaxConcurrency() != null ? plan.getMaxConcurrency() : defaultWorkflowConcurrency;
+        AtomicBoolean failed = new AtomicBoolean();
+
+        Map<String, Mono<NodeOutcome>> monos = new LinkedHashMap<>();
+        for (PlanNode node : topologicalOrder(plan.getNodes())) {
+            List<Mono<NodeOutcome>> dependencies = node.getDependsOn().stream().map(monos::get).toList();
+            Mono<NodeOutcome> mono = Mono.when(dependencies)
+                    .then(Mono.defer(() -> failed.get() ? Mono.<NodeOutcome>empty() : executeJournaled(run, node)))
+                    .doOnNext(outcome -> {
+                        if (outcome == NodeOutcome.FAILED) {
+                            log.info("Node {} failed; no further nodes will be started", node.getName());
+                            failed.set(true);
+                        }
+                    })
+                    .doOnError(ex -> failed.set(true))
+                    .cache();
+            monos.put(node.getName(), mono);
+        }
+
+        return Flux.fromIterable(monos.values())
+                .flatMapDelayError(mono -> mono, limit, 32)
+                .then(Mono.fromCallable(() -> !failed.get()));
+    }
+
+    // executeNode with its dispatch and completion recorded in the RunJournal
+    private Mono<NodeOutcome> executeJournaled(WorkflowRun run, PlanNode node) {
+        return Mono.defer(() -> {
+            if (run.isCancelled()) {
+                log.warn("🛑 Lease of execution {} was lost, node {} is not started", run.getExecutionId(), node.getName());
+                return Mono.just(NodeOutcome.FAILED);
+            }
+            runJournal.nodeDispatched(run, node);
+            return executeNode(run, node);
+        }).doOnNext(outcome -> runJournal.nodeCompleted(run, node, outcome));
+    }
+
+    private Mono<NodeOutcome> executeNode(WorkflowRun run, PlanNode node) {
+        return Mono.defer(() -> {
+            String nodeName = node.getName();
+            if (run.isRestored(nodeName)) {
+                run.trace(nodeName, "restored", Map.of());
+                metrics.recordSkip(run, node, "restored");
+                return Mono.just(NodeOutcome.SUCCESS);
+            }
+            VariableResolverFactory variables = FunctionRegistry.newResolverFactory(run.getContext());
+            run.traceContext(nodeName);
+
+            long evaluationStart = System.nanoTime();
+            boolean conditionMet = node.getCondition().evaluateToBoolean(variables);
+            metrics.recordEvaluation(run, node, "condition", evaluationStart);
+            run.trace(nodeName, "condition", conditionMet);
+            if (!conditionMet) {
+                log.info("Skipping node {} due to condition", nodeName);
+                metrics.recordSkip(run, node, "condition");
+                return Mono.just(NodeOutcome.SKIPPED);
+            }
+
+            // 💡 Check idempotency
+            String idempotencyKey = NodeRequest.render(node.getIdempotencyKey(), variables);
+
+            if (node.getIdempotencyKey() == null) {
+                return Mono.defer(() -> call(run, node, resolve(run, node, variables), idempotencyKey));
+            }
+
+            UUID executionId = run.getExecutionId();
+            return offload(() -> idempotencyLedger.claim(run.getWorkflowName(), nodeName, idempotencyKey, executionId))
+                    .flatMap(claim -> {
+                        if (claim == IdempotencyLedger.Claim.IN_FLIGHT) {
+                            // Another run is executing the node and its outcome is unknown: fail instead of skipping
+                            log.warn("⏳ Node {} is being executed by another run (key: {}), failing this run", nodeName, idempotencyKey);
+                            run.trace(nodeName, "in-flight", Map.of("idempotencyKey", idempotencyKey));
+                            return persist(() -> WorkflowExecutionStep.builder()
+                                    .execution(run.getExecution())
+                                    .nodeId(node.getId())
+                                    .nodeName(nodeName)
+                                    .applicationId(run.getApplicationId())
+                                    .idempotencyKey(idempotencyKey)
+                                    .statusCode(0)
+                                    .status("IN_FLIGHT")
+                                    .build())
+                                    .thenReturn(NodeOutcome.FAILED);
+                        }
+                        if (claim == IdempotencyLedger.Claim.COMPLETED) {
+                            log.info("⏭️ Skipping node {} due to idempotencyKey match (key: {})", nodeName, idempotencyKey);
+                            metrics.recordSkip(run, node, "idempotency");
+                            run.trace(nodeName, "skipped", Map.of("idempotencyKey", idempotencyKey, "claim", claim.name()));
+                            return persist(() -> WorkflowExecutionStep.builder()
+                                    .execution(run.getExecution())
+                                    .nodeId(node.getId())
+                                    .nodeName(nodeName)
+                                    .applicationId(run.getApplicationId())
+                                    .idempotencyKey(idempotencyKey)
+                                    .skipped(true)
+                                    .statusCode(0)
+                                    .status("SKIPPED")
+                                    .build())
+                                    .thenReturn(NodeOutcome.SKIPPED);
+                        }
+
+                        // Complete the claim on success, release it otherwise (including unexpected errors)
+                        return Mono.defer(() -> call(run, node, resolve(run, node, variables), idempotencyKey))
+                                .flatMap(outcome -> offload(() -> {
+                                    if (outcome == NodeOutcome.SUCCESS) {
+                                        idempotencyLedger.complete(run.getWorkflowName(), nodeName, idempotencyKey, executionId);
+                                    } else {
+                                        idempotencyLedger.release(run.getWorkflowName(), nodeName, idempotencyKey, executionId);
+                                    }
+                                    return outcome;
+                                }))
+                                .onErrorResume(ex -> offload(() -> {
+                                    idempotencyLedger.release(run.getWorkflowName(), nodeName, idempotencyKey, executionId);
+                                    return true;
+                                }).then(Mono.error(ex)));
+                    });
+        });
+    }
+
+    private NodeRequest resolve(WorkflowRun run, PlanNode node, VariableResolverFactory variables) {
+        long evaluationStart = System.nanoTime();
+        NodeRequest request = NodeRequest.resolve(node, variables);
+        metrics.recordEvaluation(run, node, "request", evaluationStart);
+        return request;
+    }
+
+    /*
+        One subscription = one attempt. A failed attempt records its step and re-signals the
+        error; retryWhen re-subscribes after the policy's backoff when the failure is retryable.
+        Once no retry is left (count, non-retryable failure or deadline) the node is FAILED.
+    */
+    private Mono<NodeOutcome> call(WorkflowRun run, PlanNode node, NodeRequest request, String idempotencyKey) {
+        WebClient client = clientFor(node);
+        Duration timeout = Duration.ofMillis(node.getTimeoutMs() != null ? node.getTimeoutMs() : httpProperties.getReadTimeoutMs());
+        RetryPolicy policy = node.getRetryPolicy();
+        AtomicInteger attempts = new AtomicInteger();
+        AtomicLong firstAttemptStart = new AtomicLong();
+        AtomicLong backoffMs = new AtomicLong();
+
+        // 🗃️ Cached GET response: no downstream call, recorded as a cache-hit step
+        ResponseCache.CachedResponse cached = request.getCacheKey() == null ? null : responseCache.get(run, node, request.getCacheKey());
+        if (cached != null) {
+            run.trace(node.getName(), "cacheHit", Map.of("statusCode", cached.statusCode()));
+            try {
+                run.getContext().put(node.getName(), objectMapper.readValue(cached.body(), Object.class));
+            } catch (Exception ex) {
+                return Mono.error(ex);
+            }
+            return persist(() -> request.stepBuilder(run, node, idempotencyKey, 0, objectMapper)
+                    .response(node.captured(cached.body()))
+                    .statusCode(cached.statusCode())
+                    .status("SUCCESS")
+                    .cacheHit(true)
+                    .build())
+                    .thenReturn(NodeOutcome.SUCCESS);
+        }
+
+        return Mono.defer(() -> {
+                    int attempt = attempts.incrementAndGet();
+                    if (attempt > 1) {
+                        metrics.recordRetry(run, node);
+                    }
+                    LocalDateTime attemptStartedAt = LocalDateTime.now();
+                    long attemptStart = System.nanoTime();
+                    if (attempt == 1) {
+                        firstAttemptStart.set(attemptStart);
+                    }
+                    // Restarted once the call goes out, so HTTP timings leave out the rate-limit wait
+                    AtomicLong callStart = new AtomicLong(attemptStart);
+                    long waited = backoffMs.get();
+                    WebClient.RequestBodySpec spec = client.method(request.getMethod())
+                            .uri(request.getUrl())
+                            .headers(headers -> headers.addAll(request.httpHeaders()));
+                    WebClient.RequestHeadersSpec<?> ready = request.getBody().isEmpty() ? spec : spec.bodyValue(request.getBody());
+
+                    Supplier<Mono<ResponseEntity<String>>> exchange = () -> Mono.defer(() -> {
+                        downstreamGuard.checkPermitted(run, node, request.getUrl()); // an open breaker takes no rate-limit slot
+                        return rateLimiter.acquire(run, node, request.getUrl(),
+                                downstreamGuard.callReactive(run, node, request.getUrl(), () -> {
+                                    callStart.set(System.nanoTime());
+                                    return ready.retrieve().toEntity(String.class).timeout(timeout);
+                                }));
+                    });
+                    Mono<ResponseEntity<String>> outbound = node.isCoalesce()
+                            ? singleFlight.execute(request.coalescingKey(), exchange)
+                            : exchange.get();
+
+                    return outbound
+                            .doOnNext(response -> metrics.recordHttp(run, node, WorkflowMetrics.outcome(response.getStatusCode()), callStart.get()))
+                            .doOnError(ex -> metrics.recordHttp(run, node, WorkflowMetrics.outcome(ex), callStart.get()))
+                            .flatMap(response -> {
+                                String responseBody = response.getBody();
+                                run.trace(node.getName(), "attempt", Map.of("attempt", attempt, "url", request.getUrl(), "statusCode", response.getStatusCode().value(), "response", String.valueOf(responseBody)));
+                                try {
+                                    run.getContext().put(node.getName(), objectMapper.readValue(responseBody, Object.class));
+                                    if (request.getCacheKey() != null) {
+                                        responseCache.put(run, node, request.getCacheKey(), responseBody, response.getStatusCode().value());
+                                    }
+                                } catch (Exception ex) {
+                                    return Mono.error(ex);
+                                }
+                                return persist(() -> request.stepBuilder(run, node, idempotencyKey, attempt, objectMapper)
+                                        .response(node.captured(responseBody))
+                                        .statusCode(response.getStatusCode().value())
+                                        .status("SUCCESS")
+                                        .attemptStartedAt(attemptStartedAt)
+                                        .durationMs(elapsedMs(callStart.get()))
+                                        .backoffMs(waited)
+                                        .build());
+                            })
+                            .thenReturn(NodeOutcome.SUCCESS)
+                            .onErrorResume(ex -> {
+                                log.warn("Attempt {} failed for node {}: {}", attempt, node.getName(), ex.getMessage());
+                                run.trace(node.getName(), "attempt", Map.of("attempt", attempt, "url", request.getUrl(), "error", String.valueOf(ex.getMessage())));
+                                Integer status = RetryPolicy.statusOf(ex);
+                                String rejection = DownstreamGuard.rejectionStatus(ex);
+                                return persist(() -> request.stepBuilder(run, node, idempotencyKey, attempt, objectMapper)
+                                        .response(node.captured(ex.getMessage()))
+                                        .statusCode(status != null ? status : rejection != null ? 0 : 500)
+                                        .status(rejection != null ? rejection : "FAIL")
+                                        .attemptStartedAt(attemptStartedAt)
+                                        .durationMs(elapsedMs(callStart.get()))
+                                        .backoffMs(waited)
+                                        .build())
+                                        .then(Mono.error(ex));
+                            });
+                })
+                .retryWhen(Retry.from(failures -> failures.concatMap(failure -> {
+                    // ⏳ Backoff on the parallel scheduler's timer: no thread waits for the next attempt
+                    int attempt = (int) failure.totalRetries() + 1;
+                    if (attempt > policy.getMaxRetries() || !policy.isRetryable(failure.failure()) || run.isCancelled()) {
+                        return Mono.error(failure.failure());
+                    }
+                    long delay = policy.delayMs(attempt);
+                    if (!policy.allowsRetry(firstAttemptStart.get(), delay)) {
+                        log.warn("⏱️ Node {} reached its retry deadline after {} attempts", node.getName(), attempt);
+                        return Mono.error(failure.failure());
+                    }
+                    backoffMs.set(delay);
+                    run.trace(node.getName(), "backoff", delay);
+                    return Mono.delay(Duration.ofMillis(delay));
+                })))
+                .onErrorReturn(NodeOutcome.FAILED);
+    }
+
+    private static long elapsedMs(long startNanos) {
+        return (System.nanoTime() - startNanos) / 1_000_000;
+    }
+
+    private Mono<Void> persist(Callable<WorkflowExecutionStep> step) {
+        return offload(() -> {
+            stepWriter.write(step.call());
+            return true;
+        }).then();
+    }
+
+    // One WebClient per connect timeout; they all share the same connection pool
+    private WebClient clientFor(PlanNode node) {
+        int connectTimeout = node.getConnectTimeoutMs() != null ? node.getConnectTimeoutMs() : httpProperties.getConnectTimeoutMs();
+        return clients.computeIfAbsent(connectTimeout, ms -> webClientBuilder.clone()
+                .clientConnector(new ReactorClientHttpConnector(HttpClient.create(connectionProvider)
+                        .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, ms)))
+                .build());
+    }
+
+    // Reactor Netty keeps one pool per remote host, so max-per-route maps to maxConnections
+    private static ConnectionProvider createConnectionProvider(HttpClientProperties properties) {
+        ConnectionProvider.Builder builder = ConnectionProvider.builder("workflow-nodes")
+                .maxConnections(properties.getMaxPerRoute())
+                .pendingAcquireTimeout(Duration.ofMillis(properties.getConnectionRequestTimeoutMs()))
+                .maxIdleTime(Duration.ofMillis(properties.getKeepAliveMs()))
+                .evictInBackground(Duration.ofMillis(properties.getIdleEvictMs()));
+
+        properties.getMaxPerHost().forEach((host, max) -> {
+            try {
+                HttpHost httpHost = HttpHost.create(host);
+                int port = httpHost.getPort() != -1 ? httpHost.getPort() : ("https".equalsIgnoreCase(httpHost.getSchemeName()) ? 443 : 80);
+                builder.forRemoteHost(InetSocketAddress.createUnresolved(httpHost.getHostName(), port),
+                        spec -> spec.maxConnections(max));
+            } catch (URISyntaxException ex) {
+                throw new IllegalArgumentException("Invalid workflow.http.max-per-host entry: " + host, ex);
+            }
+        });
+        return builder.build();
+    }
+
+    // Declaration order, except that a node always comes after the nodes it depends on
+    private static List<PlanNode> topologicalOrder(List<PlanNode> nodes) {
+        Map<String, PlanNode> byName = new LinkedHashMap<>();
+        nodes.forEach(n -> byName.put(n.getName(), n));
+
+        List<PlanNode> ordered = new ArrayList<>();
+        Set<String> placed = new HashSet<>();
+        for (PlanNode node : nodes) {
+            place(node, byName, placed, ordered);
+        }
+        return ordered;
+    }
+
+    private static void place(PlanNode node, Map<String, PlanNode> byName, Set<String> placed, List<PlanNode> ordered) {
+        if (!placed.add(node.getName())) return;
+        for (String dependency : node.getDependsOn()) {
+            place(byName.get(dependency), byName, placed, ordered);
+        }
+        ordered.add(node);
+    }
+
+    @Override
+    public void destroy() {
+        persistenceScheduler.dispose();
+        connectionProvider.dispose();
+    }
+}
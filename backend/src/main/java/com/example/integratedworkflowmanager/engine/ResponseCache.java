@@ -0,0 +1,91 @@
+package com.example.integratedworkflowmanager.engine;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/*
+    In-process cache of GET node responses for nodes with a "cache" block.
+
+        - Caffeine (W-TinyLFU admission) bounded by the approximate size of the cached keys and bodies
+          in bytes (workflow.response-cache.max-weight-bytes), not by entry count.
+        - Every entry expires after the ttl_ms of the node that stored it.
+        - Only successful responses are stored; a hit is recorded as a step with cacheHit = true.
+*/
+@Component
+public class ResponseCache {
+
+    public record CachedResponse(String body, int statusCode, long ttlMs) {
+    }
+
+    private static final int ENTRY_OVERHEAD_BYTES = 64;
+
+    private final Cache<String, CachedResponse> cache;
+    private final long maxWeightBytes;
+
+    public ResponseCache(@Value("${workflow.response-cache.max-weight-bytes:67108864}") long maxWeightBytes) {
+        this.maxWeightBytes = maxWeightBytes;
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxWeightBytes)
+                .weigher((String key, CachedResponse value) -> weigh(key, value))
+                .expireAfter(new Expiry<String, CachedResponse>() {
+                    @Override
+                    public long expireAfterCreate(String key, CachedResponse value, long currentTime) {
+                        return TimeUnit.MILLISECONDS.toNanos(value.ttlMs());
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, CachedResponse value, long currentTime, long currentDuration) {
+                        return TimeUnit.MILLISECONDS.toNanos(value.ttlMs());
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, CachedResponse value, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .build();
+    }
+
+    public CachedResponse get(WorkflowRun run, PlanNode node, String key) {
+        return cache.getIfPresent(scopedKey(run, node, key));
+    }
+
+    public void put(WorkflowRun run, PlanNode node, String key, String body, int statusCode) {
+        cache.put(scopedKey(run, node, key), new CachedResponse(body, statusCode, node.getCache().getTtlMs()));
+    }
+
+    public void clear() {
+        cache.invalidateAll();
+    }
+
+    public Map<String, Object> stats() {
+        CacheStats stats = cache.stats();
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("entries", cache.estimatedSize());
+        map.put("weightBytes", cache.policy().eviction().map(e -> e.weightedSize().orElse(0L)).orElse(0L));
+        map.put("maxWeightBytes", maxWeightBytes);
+        map.put("hits", stats.hitCount());
+        map.put("misses", stats.missCount());
+        map.put("hitRatio", stats.hitRate());
+        map.put("evictions", stats.evictionCount());
+        return map;
+    }
+
+    private static String scopedKey(WorkflowRun run, PlanNode node, String key) {
+        return run.getWorkflowName() + '\u0000' + node.getName() + '\u0000' + key;
+    }
+
+    private static int weigh(String key, CachedResponse value) {
+        long chars = key.length() + (value.body() == null ? 0 : value.body().length());
+        return (int) Math.min(Integer.MAX_VALUE, chars * 2 + ENTRY_OVERHEAD_BYTES);
+    }
+}
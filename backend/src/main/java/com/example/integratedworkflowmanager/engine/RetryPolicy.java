@@ -0,0 +1,119 @@
+package com.example.integratedworkflowmanager.engine;
+
+import com.fasterxml.jackson.core.JacksonException;
+import lombok.Builder;
+import lombok.Value;
+import org.springframework.web.client.RestClientResponseException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeoutException;
+
+/*
+    Compiled retry behaviour of a node ("retry" plus the optional "retry_policy" block).
+
+        - maxRetries: attempts after the first one
+        - backoff / baseDelayMs / maxDelayMs: wait before retry n is baseDelayMs (FIXED) or
+          baseDelayMs * 2^(n-1) (EXPONENTIAL), capped at maxDelayMs; NONE retries immediately
+        - jitter: FULL waits a random time in [0, delay], EQUAL in [delay/2, delay], NONE exactly delay
+        - retryOnStatus: HTTP statuses worth retrying; any other status fails the node at once
+        - retryOnExceptions: failures without a response worth retrying, by alias ("timeout",
+          "io") or by exception class name (simple or fully qualified, anywhere in the cause chain)
+        - deadlineMs: no retry is started once its wait would end later than deadlineMs after
+          the first attempt started (null = no deadline)
+
+    A node without retry_policy gets the defaults below: exponential backoff from 200 ms to 5 s
+    with full jitter, retrying 408, 429, 500, 502, 503, 504, timeouts and I/O errors.
+*/
+@Value
+@Builder(toBuilder = true)
+public class RetryPolicy {
+
+    public enum Backoff { NONE, FIXED, EXPONENTIAL }
+
+    public enum Jitter { NONE, FULL, EQUAL }
+
+    public static final long DEFAULT_BASE_DELAY_MS = 200;
+    public static final long DEFAULT_MAX_DELAY_MS = 5000;
+    public static final Set<Integer> DEFAULT_RETRY_ON_STATUS = Set.of(408, 429, 500, 502, 503, 504);
+    public static final Set<String> DEFAULT_RETRY_ON_EXCEPTIONS = Set.of("timeout", "io");
+
+    int maxRetries;
+    Backoff backoff;
+    long baseDelayMs;
+    long maxDelayMs;
+    Jitter jitter;
+    Set<Integer> retryOnStatus;
+    Set<String> retryOnExceptions;
+    Long deadlineMs;
+
+    public static RetryPolicy defaults(int maxRetries) {
+        return RetryPolicy.builder()
+                .maxRetries(maxRetries)
+                .backoff(Backoff.EXPONENTIAL)
+                .baseDelayMs(DEFAULT_BASE_DELAY_MS)
+                .maxDelayMs(DEFAULT_MAX_DELAY_MS)
+                .jitter(Jitter.FULL)
+                .retryOnStatus(DEFAULT_RETRY_ON_STATUS)
+                .retryOnExceptions(DEFAULT_RETRY_ON_EXCEPTIONS)
+                .build();
+    }
+
+    public boolean isRetryable(Throwable error) {
+        Integer status = statusOf(error);
+        if (status != null) {
+            return retryOnStatus.contains(status);
+        }
+        for (Throwable t = error; t != null; t = t.getCause() == t ? null : t.getCause()) {
+            if (retryOnExceptions.contains(t.getClass().getName()) || retryOnExceptions.contains(t.getClass().getSimpleName())) {
+                return true;
+            }
+            if (retryOnExceptions.contains("timeout") && (t instanceof SocketTimeoutException || t instanceof TimeoutException)) {
+                return true;
+            }
+            // Jackson errors are IOExceptions too, but an unparseable response is not a transport failure
+            if (retryOnExceptions.contains("io") && t instanceof IOException && !(t instanceof JacksonException)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Wait before retry number `retry` (1 = the second attempt)
+    public long delayMs(int retry) {
+        long delay = switch (backoff) {
+            case NONE -> 0;
+            case FIXED -> baseDelayMs;
+            case EXPONENTIAL -> baseDelayMs << Math.min(retry - 1, 30);
+        };
+        delay = Math.min(Math.max(delay, 0), maxDelayMs);
+        if (delay == 0) return 0;
+
+        return switch (jitter) {
+            case NONE -> delay;
+            case FULL -> ThreadLocalRandom.current().nextLong(delay + 1);
+            case EQUAL -> delay / 2 + ThreadLocalRandom.current().nextLong(delay - delay / 2 + 1);
+        };
+    }
+
+    // Whether a retry after waiting delayMs still starts within the deadline
+    public boolean allowsRetry(long firstAttemptStartNanos, long delayMs) {
+        if (deadlineMs == null) return true;
+        long elapsedMs = (System.nanoTime() - firstAttemptStartNanos) / 1_000_000;
+        return elapsedMs + delayMs < deadlineMs;
+    }
+
+    // HTTP status of a failed call, or null when no response was received
+    public static Integer statusOf(Throwable error) {
+        if (error instanceof RestClientResponseException ex) {
+            return ex.getStatusCode().value();
+        }
+        if (error instanceof WebClientResponseException ex) {
+            return ex.getStatusCode().value();
+        }
+        return null;
+    }
+}
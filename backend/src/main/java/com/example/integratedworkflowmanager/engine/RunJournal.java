@@ -0,0 +1,258 @@
+package com.example.integratedworkflowmanager.engine;
+
+import com.example.integratedworkflowmanager.util.MappedSegmentLog;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+    Local journal of the runs executing in this process (workflow.journal.*), so runs cut off by a
+    crash can be found again on startup (see RunRecovery).
+
+        1. Every run records RUN_START, NODE_DISPATCH / NODE_COMPLETE around each node, and RUN_END.
+           An event is a few dozen bytes appended to a memory-mapped segment (MappedSegmentLog): it
+           survives a JVM crash as soon as it is written, and costs microseconds instead of a
+           database transaction.
+        2. The segment is synced to disk every flush-interval-ms, one sync for all events of the
+           interval (group commit); a power loss can lose that interval.
+        3. The journal keeps the state of the active runs in memory. When a segment is full the next
+           one starts with a checkpoint of that state, and the old segments are deleted.
+        4. On startup the segments are replayed. Runs without RUN_END were interrupted; they stay in
+           the journal until RunRecovery has dealt with them (forget()).
+
+    The journal is off unless enabled, and then needs an explicit directory that belongs to this
+    instance alone: another instance replaying it would fail runs that are still running. The
+    directory is locked (journal.lock) while the process runs, so a second instance pointed at
+    the same directory fails to start instead.
+*/
+@Component
+@Slf4j
+public class RunJournal {
+
+    private static final byte RUN_START = 1;
+    private static final byte NODE_DISPATCH = 2;
+    private static final byte NODE_COMPLETE = 3;
+    private static final byte RUN_END = 4;
+
+    // A run found in the journal without RUN_END
+    public record InterruptedRun(UUID executionId, String workflowName, long startedAtMillis,
+                                 Set<String> completedNodes, Set<String> inFlightNodes) {
+    }
+
+    private static final class RunState {
+        final String workflowName;
+        final long startedAtMillis;
+        final Set<String> completed = ConcurrentHashMap.newKeySet();
+        final Set<String> inFlight = ConcurrentHashMap.newKeySet();
+
+        RunState(String workflowName, long startedAtMillis) {
+            this.workflowName = workflowName;
+            this.startedAtMillis = startedAtMillis;
+        }
+    }
+
+    private final boolean enabled;
+    private final FileChannel lockChannel;
+    private final MappedSegmentLog segmentLog;
+    private final Map<UUID, RunState> active = new ConcurrentHashMap<>();
+    private final List<InterruptedRun> interrupted;
+    private final ScheduledExecutorService flusher;
+    private final AtomicLong appendNanos = new AtomicLong();
+    private final AtomicLong failedAppends = new AtomicLong();
+
+    public RunJournal(@Value("${workflow.journal.enabled:false}") boolean enabled,
+                      @Value("${workflow.journal.directory:}") String directory,
+                      @Value("${workflow.journal.segment-bytes:16777216}") int segmentBytes,
+                      @Value("${workflow.journal.flush-interval-ms:10}") long flushIntervalMs,
+                      WorkflowMetrics metrics) throws IOException {
+        if (enabled && directory.isBlank()) {
+            throw new IllegalArgumentException("workflow.journal.directory must be set to a directory of this instance when the journal is enabled");
+        }
+        this.enabled = enabled;
+        this.lockChannel = enabled ? lock(Path.of(directory)) : null;
+        this.segmentLog = enabled ? new MappedSegmentLog(Path.of(directory), segmentBytes) : null;
+        this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "workflow-journal-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        if (!enabled) {
+            this.interrupted = List.of();
+            return;
+        }
+
+        List<byte[]> records = MappedSegmentLog.read(Path.of(directory));
+        records.forEach(this::apply);
+        this.interrupted = active.entrySet().stream()
+                .map(entry -> new InterruptedRun(entry.getKey(), entry.getValue().workflowName, entry.getValue().startedAtMillis,
+                        Set.copyOf(entry.getValue().completed), Set.copyOf(entry.getValue().inFlight)))
+                .toList();
+        if (!interrupted.isEmpty()) {
+            log.warn("📒 Journal replay ({} records) found {} interrupted run(s)", records.size(), interrupted.size());
+        }
+
+        segmentLog.open(checkpoint());
+        flusher.scheduleWithFixedDelay(segmentLog::force, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+        metrics.gauge("workflow.journal.active.runs", "Runs recorded as active in the run journal", active, Map::size);
+    }
+
+    public void runStarted(WorkflowRun run) {
+        if (!enabled) return;
+        long now = System.currentTimeMillis();
+        active.put(run.getExecutionId(), new RunState(run.getWorkflowName(), now));
+        append(RUN_START, run.getExecutionId(), now, run.getWorkflowName());
+    }
+
+    public void nodeDispatched(WorkflowRun run, PlanNode node) {
+        if (!enabled) return;
+        RunState state = active.get(run.getExecutionId());
+        if (state != null) {
+            state.inFlight.add(node.getName());
+        }
+        append(NODE_DISPATCH, run.getExecutionId(), System.currentTimeMillis(), node.getName());
+    }
+
+    public void nodeCompleted(WorkflowRun run, PlanNode node, NodeOutcome outcome) {
+        if (!enabled) return;
+        RunState state = active.get(run.getExecutionId());
+        if (state != null) {
+            state.inFlight.remove(node.getName());
+            if (outcome != NodeOutcome.FAILED) {
+                state.completed.add(node.getName());
+            }
+        }
+        append(NODE_COMPLETE, run.getExecutionId(), System.currentTimeMillis(), node.getName() + '\u0000' + outcome.name());
+    }
+
+    public void runEnded(UUID executionId, String status) {
+        if (!enabled) return;
+        active.remove(executionId);
+        append(RUN_END, executionId, System.currentTimeMillis(), status);
+    }
+
+    // Interrupted run handled by recovery: no longer reported after the next restart
+    public void forget(UUID executionId) {
+        runEnded(executionId, "RECOVERED");
+    }
+
+    // Runs that were active when the previous process stopped, as found on startup
+    public List<InterruptedRun> interruptedRuns() {
+        return interrupted;
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        if (!enabled) return stats;
+        long records = segmentLog.getRecords();
+        stats.put("activeRuns", active.size());
+        stats.put("interruptedAtStartup", interrupted.size());
+        stats.put("segment", segmentLog.getSegment());
+        stats.put("records", records);
+        stats.put("bytes", segmentLog.getBytes());
+        stats.put("forces", segmentLog.getForces());
+        stats.put("failedAppends", failedAppends.get());
+        stats.put("avgAppendMicros", records == 0 ? 0 : appendNanos.get() / 1000.0 / records);
+        return stats;
+    }
+
+    @PreDestroy
+    public void shutdown() throws IOException {
+        flusher.shutdown();
+        if (enabled) {
+            segmentLog.close();
+            lockChannel.close(); // releases the directory lock
+        }
+    }
+
+    private static FileChannel lock(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        FileChannel channel = FileChannel.open(directory.resolve("journal.lock"), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        FileLock lock;
+        try {
+            lock = channel.tryLock();
+        } catch (OverlappingFileLockException ex) {
+            lock = null; // held by another journal of this JVM
+        }
+        if (lock == null) {
+            channel.close();
+            throw new IllegalStateException("Journal directory " + directory.toAbsolutePath() + " is in use by another instance");
+        }
+        return channel;
+    }
+
+    // A lost event only weakens recovery; it must never fail the run
+    private void append(byte type, UUID executionId, long timeMillis, String text) {
+        long start = System.nanoTime();
+        try {
+            segmentLog.append(encode(type, executionId, timeMillis, text), this::checkpoint);
+        } catch (IOException | RuntimeException ex) {
+            failedAppends.incrementAndGet();
+            log.error("❌ Cannot append to the run journal: {}", ex.getMessage());
+        }
+        appendNanos.addAndGet(System.nanoTime() - start);
+    }
+
+    // The active runs as events: replaying them rebuilds the current state
+    private List<byte[]> checkpoint() {
+        List<byte[]> records = new ArrayList<>();
+        active.forEach((executionId, state) -> {
+            records.add(encode(RUN_START, executionId, state.startedAtMillis, state.workflowName));
+            state.completed.forEach(node -> records.add(encode(NODE_COMPLETE, executionId, state.startedAtMillis, node + '\u0000' + NodeOutcome.SUCCESS.name())));
+            state.inFlight.forEach(node -> records.add(encode(NODE_DISPATCH, executionId, state.startedAtMillis, node)));
+        });
+        return records;
+    }
+
+    private void apply(byte[] record) {
+        ByteBuffer data = ByteBuffer.wrap(record);
+        byte type = data.get();
+        UUID executionId = new UUID(data.getLong(), data.getLong());
+        long timeMillis = data.getLong();
+        String text = new String(record, data.position(), data.remaining(), StandardCharsets.UTF_8);
+
+        switch (type) {
+            case RUN_START -> active.put(executionId, new RunState(text, timeMillis));
+            case NODE_DISPATCH -> Optional.ofNullable(active.get(executionId)).ifPresent(state -> state.inFlight.add(text));
+            case NODE_COMPLETE -> Optional.ofNullable(active.get(executionId)).ifPresent(state -> {
+                String node = text.substring(0, text.indexOf('\u0000'));
+                state.inFlight.remove(node);
+                if (!text.endsWith(NodeOutcome.FAILED.name())) {
+                    state.completed.add(node);
+                }
+            });
+            case RUN_END -> active.remove(executionId);
+            default -> log.warn("⚠️ Skipping journal record of unknown type {}", type);
+        }
+    }
+
+    // [type][execution id][time millis][UTF-8 text]
+    private static byte[] encode(byte type, UUID executionId, long timeMillis, String text) {
+        byte[] textBytes = text.getBytes(StandardCharsets.UTF_8);
+        return ByteBuffer.allocate(1 + 16 + 8 + textBytes.length)
+                .put(type)
+                .putLong(executionId.getMostSignificantBits())
+                .putLong(executionId.getLeastSignificantBits())
+                .putLong(timeMillis)
+                .put(textBytes)
+                .array();
+    }
+}
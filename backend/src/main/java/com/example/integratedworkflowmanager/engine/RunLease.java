@@ -0,0 +1,39 @@
+package com.example.integratedworkflowmanager.engine;
+
+import lombok.Getter;
+
+/*
+    Lease under which a worker runs an execution it claimed (see WorkflowWorker).
+
+        - The worker marks it lost when a heartbeat finds that the row is no longer leased to it,
+          or when it could not renew the lease for lease-ms (the database was unreachable).
+        - Once it is lost, another worker may already be running the execution: the engines start
+          no further node or retry attempt, and the run's final status is only recorded while the
+          row is still leased to this worker.
+*/
+@Getter
+public class RunLease {
+
+    private final String workerId;
+    private final long leaseNanos;
+    private volatile long renewedAtNanos = System.nanoTime();
+    private volatile boolean lost;
+
+    public RunLease(String workerId, long leaseMs) {
+        this.workerId = workerId;
+        this.leaseNanos = leaseMs * 1_000_000;
+    }
+
+    public void renewed() {
+        renewedAtNanos = System.nanoTime();
+    }
+
+    // Not renewed for a whole lease period: the database has let it expire by now
+    public boolean isExpired() {
+        return System.nanoTime() - renewedAtNanos > leaseNanos;
+    }
+
+    public void lose() {
+        lost = true;
+    }
+}
@@ -0,0 +1,12 @@
+package com.example.integratedworkflowmanager.engine;
+
+/*
+    Per-request options for a workflow run, set by the caller of POST /run/{name}.
+
+        - trace: capture a debug trace of this execution (see ExecutionTracer); runs may also be
+          traced by sampling even when this is false
+*/
+public record RunOptions(boolean trace) {
+
+    public static final RunOptions DEFAULT = new RunOptions(false);
+}
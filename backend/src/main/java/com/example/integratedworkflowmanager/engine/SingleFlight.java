@@ -0,0 +1,94 @@
+package com.example.integratedworkflowmanager.engine;
+
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/*
+    Request coalescing for nodes with "coalesce": true.
+
+        - While a call for a request key (method, URL, headers, body) is in flight, identical
+          calls from other runs do not go out; they wait for the in-flight call and receive the
+          same response, or the same error.
+        - The key is removed as soon as the call completes or is cancelled, so nothing is cached: a call that
+          starts after the response arrived goes downstream again (see ResponseCache for that).
+        - Only the outbound call is shared; every caller still parses the response into its own
+          context and records its own step.
+*/
+@Component
+public class SingleFlight {
+
+    private final Map<String, CompletableFuture<ResponseEntity<String>>> inFlight = new ConcurrentHashMap<>();
+    private final Map<String, Mono<ResponseEntity<String>>> reactiveInFlight = new ConcurrentHashMap<>();
+
+    private final AtomicLong calls = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+
+    // Blocking-engine variant: the first caller starts the call, later callers share its future (no thread waits for it)
+    public CompletableFuture<ResponseEntity<String>> executeAsync(String key, Supplier<CompletableFuture<ResponseEntity<String>>> call) {
+        CompletableFuture<ResponseEntity<String>> mine = new CompletableFuture<>();
+        CompletableFuture<ResponseEntity<String>> existing = inFlight.putIfAbsent(key, mine);
+
+        if (existing != null) {
+            coalesced.incrementAndGet();
+            return existing;
+        }
+
+        calls.incrementAndGet();
+        CompletableFuture<ResponseEntity<String>> started;
+        try {
+            started = call.get();
+        } catch (RuntimeException ex) {
+            started = CompletableFuture.failedFuture(ex);
+        }
+        started.whenComplete((response, error) -> {
+            inFlight.remove(key, mine);
+            if (error != null) {
+                mine.completeExceptionally(NodeTimer.unwrap(error));
+            } else {
+                mine.complete(response);
+            }
+        });
+        return mine;
+    }
+
+    // Reactive variant: callers subscribe to one shared Mono for the duration of the call
+    public Mono<ResponseEntity<String>> execute(String key, Supplier<Mono<ResponseEntity<String>>> call) {
+        return Mono.defer(() -> {
+            CompletableFuture<Mono<ResponseEntity<String>>> holder = new CompletableFuture<>();
+            Mono<ResponseEntity<String>> shared = reactiveInFlight.computeIfAbsent(key, k -> {
+                Mono<ResponseEntity<String>> mono = call.get()
+                        // doFinally, not doOnTerminate: a cancelled call must not stay in flight for later callers
+                        .doFinally(signal -> reactiveInFlight.remove(k, holder.getNow(null)))
+                        // replay + refCount, not cache(): the call is cancelled once every caller sharing it cancelled
+                        .flux()
+                        .replay(1)
+                        .refCount(1)
+                        .singleOrEmpty();
+                holder.complete(mono);
+                return mono;
+            });
+
+            if (holder.isDone()) {
+                calls.incrementAndGet();
+            } else {
+                coalesced.incrementAndGet();
+            }
+            return shared;
+        });
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("inFlight", inFlight.size() + reactiveInFlight.size());
+        stats.put("calls", calls.get());
+        stats.put("coalesced", coalesced.get());
+        return stats;
+    }
+}
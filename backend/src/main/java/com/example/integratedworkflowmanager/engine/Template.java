@@ -0,0 +1,81 @@
+package com.example.integratedworkflowmanager.engine;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+
+/*
+    A string with {{...}} placeholders, split once into literal and expression segments:
+
+        "https://api.example.com/data/{{applicationId}}"
+            → [literal "https://api.example.com/data/", expression "applicationId"]
+
+    Used for request_url, idempotency_key and map values that mix text with {{...}}. Rendering
+    walks the segments instead of re-scanning the raw string for braces on every run.
+*/
+public class Template {
+
+    private final String source;
+    private final List<Object> segments; // String literal or Expression
+    private final boolean dynamic;
+
+    private Template(String source, List<Object> segments) {
+        this.source = source;
+        this.segments = segments;
+        this.dynamic = segments.stream().anyMatch(Expression.class::isInstance);
+    }
+
+    public static Template parse(String source) {
+        if (source == null) {
+            return null;
+        }
+
+        List<Object> segments = new ArrayList<>();
+        int start, end = 0;
+        while ((start = source.indexOf("{{", end)) != -1) {
+            if (start > end) {
+                segments.add(source.substring(end, start));
+            }
+            end = source.indexOf("}}", start);
+            if (end == -1) {
+                throw new IllegalArgumentException("Unterminated expression in template: " + source);
+            }
+            segments.add(new Expression(source.substring(start + 2, end).trim()));
+            end += 2;
+        }
+        if (end < source.length()) {
+            segments.add(source.substring(end));
+        }
+        return new Template(source, Collections.unmodifiableList(segments));
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    public List<Object> getSegments() {
+        return segments;
+    }
+
+    public boolean isDynamic() {
+        return dynamic;
+    }
+
+    public String render(Function<Expression, Object> evaluator) {
+        if (!dynamic) {
+            return source;
+        }
+
+        StringBuilder result = new StringBuilder();
+        for (Object segment : segments) {
+            if (segment instanceof Expression expression) {
+                Object evaluated = evaluator.apply(expression);
+                result.append(evaluated != null ? evaluated.toString() : "");
+            } else {
+                result.append((String) segment);
+            }
+        }
+        return result.toString();
+    }
+}
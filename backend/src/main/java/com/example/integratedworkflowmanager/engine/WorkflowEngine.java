@@ -0,0 +1,380 @@
+package com.example.integratedworkflowmanager.engine;
+
+import com.example.integratedworkflowmanager.entity.WorkflowExecution;
+import com.example.integratedworkflowmanager.entity.WorkflowExecutionStep;
+import com.example.integratedworkflowmanager.interfaces.FunctionRegistry;
+import com.example.integratedworkflowmanager.service.WorkflowStepWriter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.mvel2.integration.VariableResolverFactory;
+import org.springframework.http.*;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/*
+    Executes the nodes of a compiled WorkflowPlan for one WorkflowRun.
+
+        - Sequential plans (the default) run nodes strictly in declaration order.
+        - Plans with "parallel": true are handed to the DagScheduler, which runs every node
+          whose dependencies are complete concurrently.
+
+    Both paths share executeNode(), so a node behaves the same regardless of scheduling. A node
+    returns a future: retry backoff and rate limit waits are scheduled by the NodeTimer instead of
+    holding a pooled node thread; sequential plans wait on the run's own thread.
+*/
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class WorkflowEngine {
+
+    private final WorkflowStepWriter stepWriter;
+    private final IdempotencyLedger idempotencyLedger;
+    private final ResponseCache responseCache;
+    private final SingleFlight singleFlight;
+    private final DagScheduler dagScheduler;
+    private final NodeHttpClient httpClient;
+    private final DownstreamGuard downstreamGuard;
+    private final NodeRateLimiter rateLimiter;
+    private final WorkflowMetrics metrics;
+    private final RunJournal runJournal;
+    private final NodeTimer nodeTimer;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    /*
+        Returns true when every node either succeeded or was skipped, false as soon as a node
+        fails all of its attempts. Unexpected errors (bad expressions, etc.) are thrown.
+    */
+    public boolean execute(WorkflowRun run) throws Exception {
+        if (run.getPlan().isParallel()) {
+            return dagScheduler.execute(run, this::executeJournaled);
+        }
+
+        for (PlanNode node : run.getPlan().getNodes()) {
+            if (NodeTimer.await(executeJournaled(run, node, false)) == NodeOutcome.FAILED) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // executeNode with its dispatch and completion recorded in the RunJournal
+    private CompletableFuture<NodeOutcome> executeJournaled(WorkflowRun run, PlanNode node, boolean pooled) {
+        if (run.isCancelled()) {
+            log.warn("🛑 Lease of execution {} was lost, node {} is not started", run.getExecutionId(), node.getName());
+            return CompletableFuture.completedFuture(NodeOutcome.FAILED);
+        }
+        runJournal.nodeDispatched(run, node);
+        CompletableFuture<NodeOutcome> outcome;
+        try {
+            outcome = executeNode(run, node, pooled);
+        } catch (Exception ex) {
+            return CompletableFuture.failedFuture(ex);
+        }
+        return outcome.thenApply(completed -> {
+            runJournal.nodeCompleted(run, node, completed);
+            return completed;
+        });
+    }
+
+    /*
+        High-level flow of this method:
+            0. Returns at once for a node restored by a resume (see WorkflowRun.restore)
+            1. Evaluates its condition (optional MVEL logic)
+            2. Skips if the condition is false or already run (idempotency)
+            3. Otherwise builds and sends the API call
+            4. Saves each attempt's execution info
+            5. Retries retryable failures after a backoff (see RetryPolicy)
+
+            ****** Flowchart TD ******
+                A[executeNode()] --> C{Condition met?}
+                C -- No --> D[Skip Node]
+                C -- Yes --> E{Idempotent?}
+                E -- Already run --> F[Log step as skipped]
+                E -- Not run --> G[Resolve Expressions]
+                G --> H[Build Request (URL, Body, Headers, Params)]
+                H --> I[Send API call with retries]
+                I --> J[Log Step]
+                J --> K[Publish response into context]
+     */
+    CompletableFuture<NodeOutcome> executeNode(WorkflowRun run, PlanNode node, boolean pooled) throws Exception {
+        WorkflowExecution execution = run.getExecution();
+        Map<String, Object> context = run.getContext();
+        String workflowName = run.getWorkflowName();
+        String applicationId = run.getApplicationId();
+
+        Integer nodeId = node.getId();
+        String nodeName = node.getName();
+        Expression condition = node.getCondition();
+
+        VariableResolverFactory variables = createVariableResolver(context);
+
+        // ⏩ Completed before the execution was resumed: its response is already in the context
+        if (run.isRestored(nodeName)) {
+            run.trace(nodeName, "restored", Map.of());
+            metrics.recordSkip(run, node, "restored");
+            return CompletableFuture.completedFuture(NodeOutcome.SUCCESS);
+        }
+
+        // 🔍 Context snapshot for traced runs only (see ExecutionTracer)
+        run.traceContext(nodeName);
+
+        log.debug("Evaluating condition: {}", condition.getSource());
+        log.debug("Available keys: {}", context.keySet());
+
+        long evaluationStart = System.nanoTime();
+        boolean conditionMet = condition.evaluateToBoolean(variables);
+        metrics.recordEvaluation(run, node, "condition", evaluationStart);
+        run.trace(nodeName, "condition", conditionMet);
+        if (!conditionMet){
+            log.info("Skipping node {} due to condition", nodeName);
+            metrics.recordSkip(run, node, "condition");
+            return CompletableFuture.completedFuture(NodeOutcome.SKIPPED);
+        }
+
+        // 💡 Check idempotency
+        Template rawKey = node.getIdempotencyKey();
+        String idempotencyKey = NodeRequest.render(rawKey, variables); // resolve {{applicationId}} or other dynamic parts
+
+        if (rawKey == null) {
+            log.debug("ℹ️ Node {} does not define idempotency_key — skipping idempotency check", nodeName);
+            return send(run, node, variables, idempotencyKey, pooled);
+        }
+
+        IdempotencyLedger.Claim claim = idempotencyLedger.claim(workflowName, nodeName, idempotencyKey, execution.getExecutionId());
+        if (claim == IdempotencyLedger.Claim.IN_FLIGHT) {
+            // Another run is executing the node; whether it succeeds is unknown, so this run cannot go on as if it had
+            log.warn("⏳ Node {} is being executed by another run (key: {}), failing this run", nodeName, idempotencyKey);
+            run.trace(nodeName, "in-flight", Map.of("idempotencyKey", idempotencyKey));
+            stepWriter.write(
+                    WorkflowExecutionStep.builder()
+                            .execution(execution)
+                            .nodeId(nodeId)
+                            .nodeName(nodeName)
+                            .applicationId(applicationId)
+                            .idempotencyKey(idempotencyKey)
+                            .statusCode(0)
+                            .status("IN_FLIGHT")
+                            .build()
+            );
+            return CompletableFuture.completedFuture(NodeOutcome.FAILED);
+        }
+        if (claim == IdempotencyLedger.Claim.COMPLETED) {
+            log.info("⏭️ Skipping node {} due to idempotencyKey match (key: {})", nodeName, idempotencyKey);
+            metrics.recordSkip(run, node, "idempotency");
+            run.trace(nodeName, "skipped", Map.of("idempotencyKey", idempotencyKey, "claim", claim.name()));
+
+            stepWriter.write(
+                    WorkflowExecutionStep.builder()
+                            .execution(execution)
+                            .nodeId(nodeId)
+                            .nodeName(nodeName)
+                            .applicationId(applicationId)
+                            .idempotencyKey(idempotencyKey)
+                            .skipped(true)
+                            .statusCode(0)
+                            .status("SKIPPED")
+                            .build()
+            );
+
+            return CompletableFuture.completedFuture(NodeOutcome.SKIPPED);
+        }
+
+        // The claim is completed on success and released on failure, so a later run may retry the key
+        CompletableFuture<NodeOutcome> sent;
+        try {
+            sent = send(run, node, variables, idempotencyKey, pooled);
+        } catch (Exception ex) {
+            idempotencyLedger.release(workflowName, nodeName, idempotencyKey, execution.getExecutionId());
+            throw ex;
+        }
+        return sent.whenComplete((outcome, error) -> {
+            if (outcome == NodeOutcome.SUCCESS) {
+                idempotencyLedger.complete(workflowName, nodeName, idempotencyKey, execution.getExecutionId());
+            } else {
+                idempotencyLedger.release(workflowName, nodeName, idempotencyKey, execution.getExecutionId());
+            }
+        });
+    }
+
+    // Builds the request and sends it, retrying per the node's RetryPolicy; every attempt is recorded as a step with its timing
+    private CompletableFuture<NodeOutcome> send(WorkflowRun run, PlanNode node, VariableResolverFactory variables,
+                                                String idempotencyKey, boolean pooled) throws Exception {
+        String nodeName = node.getName();
+        long evaluationStart = System.nanoTime();
+        NodeRequest request = NodeRequest.resolve(node, variables);
+        metrics.recordEvaluation(run, node, "request", evaluationStart);
+
+        // 🗃️ Cached GET response: no downstream call, recorded as a cache-hit step
+        ResponseCache.CachedResponse cached = request.getCacheKey() == null ? null : responseCache.get(run, node, request.getCacheKey());
+        if (cached != null) {
+            run.trace(nodeName, "cacheHit", Map.of("statusCode", cached.statusCode()));
+            run.getContext().put(nodeName, objectMapper.readValue(cached.body(), Object.class));
+            stepWriter.write(
+                    request.stepBuilder(run, node, idempotencyKey, 0, objectMapper)
+                            .response(node.captured(cached.body()))
+                            .statusCode(cached.statusCode())
+                            .status("SUCCESS")
+                            .cacheHit(true)
+                            .build()
+            );
+            return CompletableFuture.completedFuture(NodeOutcome.SUCCESS);
+        }
+
+        return attempt(new Attempts(run, node, request, request.toEntity(), idempotencyKey, pooled, System.nanoTime()), 1, 0);
+    }
+
+    // What every attempt of one node call shares
+    private record Attempts(WorkflowRun run, PlanNode node, NodeRequest request, HttpEntity<?> entity,
+                            String idempotencyKey, boolean pooled, long firstAttemptStart) {
+    }
+
+    /*
+        One attempt of a node call. A failed attempt records its step; when the failure is retryable
+        the next attempt is started after the policy's backoff (NodeTimer), otherwise the node is FAILED.
+    */
+    private CompletableFuture<NodeOutcome> attempt(Attempts call, int attempt, long backoffMs) {
+        WorkflowRun run = call.run();
+        PlanNode node = call.node();
+        NodeRequest request = call.request();
+        if (attempt > 1) {
+            metrics.recordRetry(run, node);
+        }
+
+        LocalDateTime attemptStartedAt = LocalDateTime.now();
+        // Restarted once the call goes out, so HTTP timings leave out the rate-limit wait
+        AtomicLong callStart = new AtomicLong(System.nanoTime());
+        Supplier<CompletableFuture<ResponseEntity<String>>> exchange = () -> {
+            try {
+                downstreamGuard.checkPermitted(run, node, request.getUrl()); // an open breaker takes no rate-limit slot
+            } catch (RuntimeException ex) {
+                return CompletableFuture.failedFuture(ex);
+            }
+            return rateLimiter.acquire(run, node, request.getUrl(), call.pooled(),
+                    () -> downstreamGuard.call(run, node, request.getUrl(), () -> {
+                        callStart.set(System.nanoTime());
+                        return httpClient.exchange(node, request.getUrl(), request.getMethod(), call.entity());
+                    }));
+        };
+        CompletableFuture<ResponseEntity<String>> outbound = node.isCoalesce()
+                ? singleFlight.executeAsync(request.coalescingKey(), exchange)
+                : exchange.get();
+
+        return outbound.handle((response, error) -> {
+            Throwable failure = NodeTimer.unwrap(error);
+            if (failure == null) {
+                try {
+                    return CompletableFuture.completedFuture(succeeded(call, attempt, backoffMs, response, attemptStartedAt, callStart.get()));
+                } catch (Exception ex) {
+                    failure = ex; // e.g. a response that is not JSON: a failed attempt like any other
+                }
+            }
+            try {
+                return failed(call, attempt, backoffMs, failure, attemptStartedAt, callStart.get());
+            } catch (Exception ex) {
+                return CompletableFuture.<NodeOutcome>failedFuture(ex);
+            }
+        }).thenCompose(Function.identity());
+    }
+
+    private NodeOutcome succeeded(Attempts call, int attempt, long backoffMs, ResponseEntity<String> response,
+                                  LocalDateTime attemptStartedAt, long callStart) throws Exception {
+        WorkflowRun run = call.run();
+        PlanNode node = call.node();
+        NodeRequest request = call.request();
+        metrics.recordHttp(run, node, WorkflowMetrics.outcome(response.getStatusCode()), callStart);
+        String responseBody = response.getBody();
+        run.trace(node.getName(), "attempt", Map.of("attempt", attempt, "url", request.getUrl(), "statusCode", response.getStatusCode().value(), "response", String.valueOf(responseBody)));
+        run.getContext().put(node.getName(), objectMapper.readValue(responseBody, Object.class));
+        if (request.getCacheKey() != null) {
+            responseCache.put(run, node, request.getCacheKey(), responseBody, response.getStatusCode().value());
+        }
+
+        stepWriter.write(
+                request.stepBuilder(run, node, call.idempotencyKey(), attempt, objectMapper)
+                        .response(node.captured(responseBody))
+                        .statusCode(response.getStatusCode().value())
+                        .status("SUCCESS")
+                        .attemptStartedAt(attemptStartedAt)
+                        .durationMs(elapsedMs(callStart))
+                        .backoffMs(backoffMs)
+                        .build()
+        );
+        return NodeOutcome.SUCCESS;
+    }
+
+    private CompletableFuture<NodeOutcome> failed(Attempts call, int attempt, long backoffMs, Throwable ex,
+                                                  LocalDateTime attemptStartedAt, long callStart) throws Exception {
+        WorkflowRun run = call.run();
+        PlanNode node = call.node();
+        NodeRequest request = call.request();
+        String nodeName = node.getName();
+        metrics.recordHttp(run, node, WorkflowMetrics.outcome(ex), callStart);
+        log.warn("Attempt {} failed for node {}: {}", attempt, nodeName, ex.getMessage());
+        run.trace(nodeName, "attempt", Map.of("attempt", attempt, "url", request.getUrl(), "error", String.valueOf(ex.getMessage())));
+
+        Integer status = RetryPolicy.statusOf(ex);
+        String rejection = DownstreamGuard.rejectionStatus(ex);
+        stepWriter.write(
+                request.stepBuilder(run, node, call.idempotencyKey(), attempt, objectMapper)
+                        .response(node.captured(ex.getMessage()))
+                        .statusCode(status != null ? status : rejection != null ? 0 : 500)
+                        .status(rejection != null ? rejection : "FAIL")
+                        .attemptStartedAt(attemptStartedAt)
+                        .durationMs(elapsedMs(callStart))
+                        .backoffMs(backoffMs)
+                        .build()
+        );
+
+        RetryPolicy policy = node.getRetryPolicy();
+        if (attempt > policy.getMaxRetries() || !policy.isRetryable(ex) || run.isCancelled()
+                || ex instanceof InterruptedException || ex instanceof RejectedExecutionException) {
+            return CompletableFuture.completedFuture(NodeOutcome.FAILED);
+        }
+        long nextBackoffMs = policy.delayMs(attempt);
+        if (!policy.allowsRetry(call.firstAttemptStart(), nextBackoffMs)) {
+            log.warn("⏱️ Node {} reached its retry deadline after {} attempts", nodeName, attempt);
+            return CompletableFuture.completedFuture(NodeOutcome.FAILED);
+        }
+
+        // ⏳ Backoff: a pooled node thread is released until the timer resumes the node
+        run.trace(nodeName, "backoff", nextBackoffMs);
+        return nodeTimer.delay(TimeUnit.MILLISECONDS.toNanos(nextBackoffMs), call.pooled())
+                .handle((ignored, error) -> error == null
+                        ? attempt(call, attempt + 1, nextBackoffMs)
+                        : CompletableFuture.completedFuture(NodeOutcome.FAILED))
+                .thenCompose(Function.identity());
+    }
+
+    private static long elapsedMs(long startNanos) {
+        return (System.nanoTime() - startNanos) / 1_000_000;
+    }
+
+    /*
+        Creates the MVEL variable scope for one node:
+            1. All input variables (applicationId, etc.) and responses of earlier nodes, read
+               directly from the live workflow context — nothing is copied
+            2. Utility functions from FunctionRegistry's shared, immutable function layer:
+                - math → MathUtils
+                - stringUtils → StringUtils
+                - base64 → ExpressionUtils
+                - inline functional interfaces like MVELFunction<T, R> and MVELBiFunction<T, U, R>
+            3. This allows you to use helper functions like:
+                - {{math.min(income, 5000)}}
+                - {{stringUtils.trim(name)}}
+            4. Workflow variables shadow helpers with the same name, so be careful about the
+               names of inputs and nodes to avoid collisions.
+    */
+    private VariableResolverFactory createVariableResolver(Map<String, Object> inputContext) {
+        return FunctionRegistry.newResolverFactory(inputContext);
+    }
+}
@@ -0,0 +1,172 @@
+package com.example.integratedworkflowmanager.engine;
+
+import io.micrometer.core.instrument.*;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestClientResponseException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+
+import java.net.SocketTimeoutException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.ToDoubleFunction;
+
+/*
+    Micrometer meters of the workflow engine, scraped at /actuator/prometheus.
+
+        - workflow.run.duration          {workflow, engine, status}
+        - workflow.node.http             {workflow, node, outcome}   outcome = 2xx..5xx, TIMEOUT, IO_ERROR,
+                                                                     CIRCUIT_OPEN, BULKHEAD_FULL, RATE_LIMITED
+        - workflow.node.retries          {workflow, node}
+        - workflow.node.skipped          {workflow, node, reason}    reason = condition, idempotency
+        - workflow.mvel.evaluation       {workflow, node, phase}     phase = condition, request
+        - workflow.definition.load       {workflow}                  plan cache misses (query + compile)
+        - workflow.step.persist          {mode}                      mode = single, batch
+        - workflow.batch.duration        {workflow}                  duration of a POST /run/{name}/batch request
+        - workflow.batch.throughput      {workflow}                  runs per second of a batch
+        - workflow.ratelimit.wait        {workflow, node, limit}     limit = workflow, host; time waited for a slot
+        - workflow.ratelimit.rejected    {workflow, node, limit}     calls rejected after max-wait-ms
+
+    Tags are limited to workflow and node names (bounded by the stored definitions) and small
+    fixed sets; URLs, keys and ids are never used as tags. Components register their own gauges
+    (cache sizes, pool usage, queue depth) through gauge(...).
+*/
+@Component
+public class WorkflowMetrics {
+
+    private final MeterRegistry registry;
+
+    public WorkflowMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    public void recordRun(String workflow, EngineMode engine, String status, long startNanos) {
+        timer("workflow.run.duration", "Duration of a workflow run",
+                "workflow", workflow, "engine", engine.name().toLowerCase(), "status", status)
+                .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordHttp(WorkflowRun run, PlanNode node, String outcome, long startNanos) {
+        timer("workflow.node.http", "Latency of node HTTP calls",
+                "workflow", run.getWorkflowName(), "node", node.getName(), "outcome", outcome)
+                .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordRetry(WorkflowRun run, PlanNode node) {
+        Counter.builder("workflow.node.retries")
+                .description("Node attempts after the first")
+                .tags("workflow", run.getWorkflowName(), "node", node.getName())
+                .register(registry)
+                .increment();
+    }
+
+    public void recordSkip(WorkflowRun run, PlanNode node, String reason) {
+        Counter.builder("workflow.node.skipped")
+                .description("Nodes skipped by condition or idempotency")
+                .tags("workflow", run.getWorkflowName(), "node", node.getName(), "reason", reason)
+                .register(registry)
+                .increment();
+    }
+
+    public void recordEvaluation(WorkflowRun run, PlanNode node, String phase, long startNanos) {
+        timer("workflow.mvel.evaluation", "Time spent evaluating MVEL expressions",
+                "workflow", run.getWorkflowName(), "node", node.getName(), "phase", phase)
+                .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordDefinitionLoad(String workflow, long startNanos) {
+        timer("workflow.definition.load", "Loading and compiling a workflow definition on a plan cache miss",
+                "workflow", workflow)
+                .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordPersist(String mode, long startNanos) {
+        timer("workflow.step.persist", "Time to store step records", "mode", mode)
+                .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    // Steps a batch insert (stage "batch", then retried one by one) or a single insert (stage "single", lost) failed to store
+    public void recordPersistFailure(String stage, int steps) {
+        Counter.builder("workflow.step.persist.failed")
+                .description("Step records that could not be stored")
+                .tags("stage", stage)
+                .register(registry)
+                .increment(steps);
+    }
+
+    public void recordBatch(String workflow, int runs, long startNanos) {
+        long nanos = System.nanoTime() - startNanos;
+        timer("workflow.batch.duration", "Duration of a batch run", "workflow", workflow)
+                .record(nanos, TimeUnit.NANOSECONDS);
+        DistributionSummary.builder("workflow.batch.throughput")
+                .description("Runs completed per second by a batch")
+                .baseUnit("runs/s")
+                .tags("workflow", workflow)
+                .register(registry)
+                .record(nanos == 0 ? 0 : runs * 1e9 / nanos);
+    }
+
+    public void recordThrottleWait(WorkflowRun run, PlanNode node, String limit, long waitNanos) {
+        timer("workflow.ratelimit.wait", "Time node calls waited for a rate limit slot",
+                "workflow", run.getWorkflowName(), "node", node.getName(), "limit", limit)
+                .record(waitNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordThrottleRejected(WorkflowRun run, PlanNode node, String limit) {
+        Counter.builder("workflow.ratelimit.rejected")
+                .description("Node calls rejected by a rate limit")
+                .tags("workflow", run.getWorkflowName(), "node", node.getName(), "limit", limit)
+                .register(registry)
+                .increment();
+    }
+
+    public void recordRetention(String mode, long executions, long startNanos) {
+        timer("workflow.retention.duration", "Duration of a retention run", "mode", mode)
+                .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+        Counter.builder("workflow.retention.executions")
+                .description("Executions removed by retention")
+                .tags("mode", mode)
+                .register(registry)
+                .increment(executions);
+    }
+
+    public void recordClaim(boolean reclaimed, int executions) {
+        Counter.builder("workflow.worker.claimed")
+                .description("Executions claimed from the database by this worker")
+                .tags("reclaimed", String.valueOf(reclaimed))
+                .register(registry)
+                .increment(executions);
+    }
+
+    public <T> void gauge(String name, String description, T target, ToDoubleFunction<T> value) {
+        Gauge.builder(name, target, value).description(description).register(registry);
+    }
+
+    public static String outcome(HttpStatusCode status) {
+        return (status.value() / 100) + "xx";
+    }
+
+    // Status class of a failed call: the HTTP status when there was a response, otherwise a rejection or TIMEOUT / IO_ERROR
+    public static String outcome(Throwable error) {
+        String rejection = DownstreamGuard.rejectionStatus(error);
+        if (rejection != null) {
+            return rejection;
+        }
+        if (error instanceof RestClientResponseException ex) {
+            return outcome(ex.getStatusCode());
+        }
+        if (error instanceof WebClientResponseException ex) {
+            return outcome(ex.getStatusCode());
+        }
+        if (error instanceof TimeoutException
+                || (error instanceof ResourceAccessException && error.getCause() instanceof SocketTimeoutException)) {
+            return "TIMEOUT";
+        }
+        return "IO_ERROR";
+    }
+
+    private Timer timer(String name, String description, String... tags) {
+        return Timer.builder(name).description(description).tags(tags).register(registry);
+    }
+}
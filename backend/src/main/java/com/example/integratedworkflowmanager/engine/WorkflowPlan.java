@@ -0,0 +1,27 @@
+package com.example.integratedworkflowmanager.engine;
+
+import lombok.Builder;
+import lombok.Value;
+
+import java.util.List;
+
+/*
+    Compiled form of a WorkflowDefinition: the definition name and version it was built
+    from, plus its nodes in declaration order. Plans are immutable and shared across runs.
+
+        - parallel: run nodes as a dependency graph instead of strictly in order
+        - maxConcurrency: per-run cap on concurrently executing nodes (null = engine default)
+        - engine: BLOCKING or REACTIVE executor for this workflow (null = workflow.engine.mode)
+        - rateLimit: node calls per second across all runs of the workflow (null = unlimited)
+*/
+@Value
+@Builder
+public class WorkflowPlan {
+    String name;
+    Long version;
+    List<PlanNode> nodes;
+    boolean parallel;
+    Integer maxConcurrency;
+    EngineMode engine;
+    RateLimit rateLimit;
+}
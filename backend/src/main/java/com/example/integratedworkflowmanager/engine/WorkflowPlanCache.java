@@ -0,0 +1,124 @@
+package com.example.integratedworkflowmanager.engine;
+
+import com.example.integratedworkflowmanager.entity.WorkflowDefinition;
+import com.example.integratedworkflowmanager.repository.WorkflowDefinitionRepository;
+import com.example.integratedworkflowmanager.util.LruCache;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+    In-memory cache of compiled workflow plans, keyed by definition name and validated against the
+    definition's version.
+
+        - A hit skips both the findByName round trip and the JSON parse / compile step.
+        - Entries carry the definition version they were compiled from. A hit older than
+          workflow.plan-cache.validate-after-ms probes the current version (a single-column
+          lookup); a plan whose version changed, or whose definition was deleted, is dropped and
+          compiled again. This is how an instance sees a definition updated through another one.
+        - getCurrentPlan(...) always probes, for callers that compare versions (resume, reclaim).
+        - Bounded by workflow.plan-cache.max-size with LRU eviction.
+        - Invalidated locally whenever a definition is created, updated or deleted.
+*/
+@Component
+@Slf4j
+public class WorkflowPlanCache {
+
+    private static final class Entry {
+        final WorkflowPlan plan;
+        volatile long validatedAtNanos = System.nanoTime();
+
+        Entry(WorkflowPlan plan) {
+            this.plan = plan;
+        }
+    }
+
+    private final WorkflowDefinitionRepository workflowDefinitionRepository;
+    private final WorkflowPlanCompiler compiler;
+    private final WorkflowMetrics metrics;
+    private final LruCache<String, Entry> plans;
+    private final long validateAfterNanos;
+    private final AtomicLong probes = new AtomicLong();
+    private final AtomicLong stale = new AtomicLong();
+
+    // Bumped on every invalidation so a load that raced with an update never caches a stale plan
+    private final AtomicLong generation = new AtomicLong();
+
+    public WorkflowPlanCache(WorkflowDefinitionRepository workflowDefinitionRepository,
+                             WorkflowPlanCompiler compiler,
+                             WorkflowMetrics metrics,
+                             @Value("${workflow.plan-cache.max-size:256}") int maxSize,
+                             @Value("${workflow.plan-cache.validate-after-ms:1000}") long validateAfterMs) {
+        this.workflowDefinitionRepository = workflowDefinitionRepository;
+        this.compiler = compiler;
+        this.metrics = metrics;
+        this.plans = new LruCache<>(maxSize);
+        this.validateAfterNanos = validateAfterMs * 1_000_000;
+        metrics.gauge("workflow.plan.cache.size", "Compiled plans held in the plan cache", plans, LruCache::size);
+    }
+
+    public WorkflowPlan getPlan(String workflowName) throws Exception {
+        return getPlan(workflowName, validateAfterNanos);
+    }
+
+    // The plan of the definition's current version, checked against the database even on a fresh hit
+    public WorkflowPlan getCurrentPlan(String workflowName) throws Exception {
+        return getPlan(workflowName, 0);
+    }
+
+    private WorkflowPlan getPlan(String workflowName, long maxAgeNanos) throws Exception {
+        Entry entry = plans.get(workflowName);
+        if (entry != null) {
+            if (System.nanoTime() - entry.validatedAtNanos < maxAgeNanos) {
+                return entry.plan;
+            }
+            probes.incrementAndGet();
+            Optional<Long> version = workflowDefinitionRepository.findVersionByName(workflowName);
+            if (version.isPresent() && Objects.equals(version.get(), entry.plan.getVersion())) {
+                entry.validatedAtNanos = System.nanoTime();
+                return entry.plan;
+            }
+            stale.incrementAndGet();
+            log.info("♻️ Plan of workflow {} is stale (version {} → {}), compiling it again",
+                    workflowName, entry.plan.getVersion(), version.map(String::valueOf).orElse("deleted"));
+            invalidate(workflowName);
+        }
+
+        long observedGeneration = generation.get();
+        long loadStart = System.nanoTime();
+        WorkflowDefinition def = workflowDefinitionRepository.findByName(workflowName)
+                .orElseThrow(() -> new RuntimeException("Workflow not found: " + workflowName));
+
+        WorkflowPlan plan = compiler.compile(def);
+        metrics.recordDefinitionLoad(workflowName, loadStart);
+        if (generation.get() == observedGeneration) {
+            plans.put(workflowName, new Entry(plan));
+        }
+        log.debug("Compiled plan for workflow {} (version {})", workflowName, plan.getVersion());
+        return plan;
+    }
+
+    public void invalidate(String workflowName) {
+        generation.incrementAndGet();
+        plans.remove(workflowName);
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("size", plans.size());
+        stats.put("maxSize", plans.getMaxSize());
+        stats.put("hits", plans.getHits());
+        stats.put("misses", plans.getMisses());
+        stats.put("evictions", plans.getEvictions());
+        stats.put("hitRatio", plans.getHitRatio());
+        stats.put("versionProbes", probes.get());
+        stats.put("staleReloads", stale.get());
+        return stats;
+    }
+}
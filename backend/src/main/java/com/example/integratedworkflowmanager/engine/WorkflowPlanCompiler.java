@@ -0,0 +1,237 @@
+package com.example.integratedworkflowmanager.engine;
+
+import com.example.integratedworkflowmanager.entity.WorkflowDefinition;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.regex.Pattern;
+
+/*
+    Turns the raw workflowJson of a definition into a WorkflowPlan:
+
+        1. Parses the JSON once
+        2. Reads every node field into a typed PlanNode (id, name, method, retry, ...)
+        3. Splits request_url / idempotency_key into literal and {{...}} segments
+        4. Replaces {{...}} values inside request_body / request_headers / query_params
+           with Expression or Template objects so nothing has to be scanned again at run time
+        5. Works out each node's dependencies: its explicit depends_on list plus every earlier
+           node whose name appears as a variable in one of its expressions, e.g. a header
+           "{{'Bearer ' + authToken.token}}" makes the node depend on "authToken"
+*/
+@Component
+public class WorkflowPlanCompiler {
+
+    // Stored characters per payload of a "capture": "truncate" node without capture_max_chars
+    private static final int DEFAULT_CAPTURE_MAX_CHARS = 1024;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    public WorkflowPlan compile(WorkflowDefinition definition) throws Exception {
+        Map<String, Object> json = objectMapper.readValue(definition.getWorkflowJson(), Map.class);
+        List<Map<String, Object>> rawNodes = (List<Map<String, Object>>) json.get("nodes");
+
+        List<PlanNode> nodes = new ArrayList<>();
+        List<String> earlierNodes = new ArrayList<>();
+        for (Map<String, Object> node : rawNodes) {
+            PlanNode compiled = compileNode(node, earlierNodes);
+            nodes.add(compiled);
+            earlierNodes.add(compiled.getName());
+        }
+        checkForCycles(nodes);
+
+        return WorkflowPlan.builder()
+                .name(definition.getName())
+                .version(definition.getVersion())
+                .nodes(Collections.unmodifiableList(nodes))
+                .parallel(Boolean.TRUE.equals(json.get("parallel")))
+                .maxConcurrency((Integer) json.get("max_concurrency"))
+                .engine(EngineMode.from((String) json.get("engine")))
+                .rateLimit(compileRateLimit((Map<String, Object>) json.get("rate_limit")))
+                .build();
+    }
+
+    // "rate_limit": { "per_second": 10, "burst": 20 }
+    private RateLimit compileRateLimit(Map<String, Object> raw) {
+        if (raw == null) return null;
+        return new RateLimit(((Number) raw.get("per_second")).doubleValue(), ((Number) raw.getOrDefault("burst", 1)).intValue());
+    }
+
+    private PlanNode compileNode(Map<String, Object> node, List<String> earlierNodes) {
+        String name = (String) node.get("name");
+        Expression condition = new Expression((String) node.getOrDefault("condition", "true"));
+        Template requestUrl = Template.parse((String) node.get("request_url"));
+        Template idempotencyKey = Template.parse((String) node.get("idempotency_key"));
+        Map<String, Object> requestBody = compileMap((Map<String, Object>) node.get("request_body"));
+        Map<String, Object> requestHeaders = compileMap((Map<String, Object>) node.get("request_headers"));
+        Map<String, Object> queryParams = compileMap((Map<String, Object>) node.get("query_params"));
+        CachePolicy cache = compileCache((Map<String, Object>) node.get("cache"));
+
+        List<Expression> expressions = new ArrayList<>();
+        expressions.add(condition);
+        collectExpressions(requestUrl, expressions);
+        collectExpressions(idempotencyKey, expressions);
+        collectExpressions(requestBody, expressions);
+        collectExpressions(requestHeaders, expressions);
+        collectExpressions(queryParams, expressions);
+        if (cache != null) {
+            collectExpressions(cache.getKey(), expressions);
+        }
+
+        Set<String> dependsOn = new LinkedHashSet<>();
+        List<String> explicit = (List<String>) node.get("depends_on");
+        if (explicit != null) {
+            dependsOn.addAll(explicit);
+        }
+        for (String candidate : earlierNodes) {
+            if (referencesVariable(expressions, candidate)) {
+                dependsOn.add(candidate);
+            }
+        }
+
+        return PlanNode.builder()
+                .id((Integer) node.get("id"))
+                .name(name)
+                .method(((String) node.getOrDefault("method", "GET")).toUpperCase())
+                .condition(condition)
+                .requestUrl(requestUrl)
+                .idempotencyKey(idempotencyKey)
+                .requestBody(requestBody)
+                .requestHeaders(requestHeaders)
+                .queryParams(queryParams)
+                .retryPolicy(compileRetryPolicy((Integer) node.getOrDefault("retry", 0), (Map<String, Object>) node.get("retry_policy")))
+                .dependsOn(Collections.unmodifiableSet(dependsOn))
+                .timeoutMs((Integer) node.get("timeout_ms"))
+                .connectTimeoutMs((Integer) node.get("connect_timeout_ms"))
+                .cache(cache)
+                .coalesce(Boolean.TRUE.equals(node.get("coalesce")))
+                .capture(PlanNode.Capture.valueOf(((String) node.getOrDefault("capture", "full")).toUpperCase()))
+                .captureMaxChars((Integer) node.getOrDefault("capture_max_chars", DEFAULT_CAPTURE_MAX_CHARS))
+                .build();
+    }
+
+    // "cache": { "ttl_ms": 60000, "key": "{{...}}" }
+    private CachePolicy compileCache(Map<String, Object> raw) {
+        if (raw == null) return null;
+        return new CachePolicy(((Number) raw.get("ttl_ms")).longValue(), Template.parse((String) raw.get("key")));
+    }
+
+    /*
+        "retry_policy": { "backoff": "exponential", "base_delay_ms": 200, "max_delay_ms": 5000, "jitter": "full",
+                          "retry_on_status": [429, "5xx"], "retry_on_exceptions": ["timeout", "io"], "deadline_ms": 10000 }
+        Every field is optional; missing ones keep the RetryPolicy defaults.
+    */
+    private RetryPolicy compileRetryPolicy(int retry, Map<String, Object> raw) {
+        RetryPolicy defaults = RetryPolicy.defaults(retry);
+        if (raw == null) return defaults;
+
+        return defaults.toBuilder()
+                .backoff(raw.containsKey("backoff") ? RetryPolicy.Backoff.valueOf(((String) raw.get("backoff")).toUpperCase()) : defaults.getBackoff())
+                .baseDelayMs(raw.containsKey("base_delay_ms") ? ((Number) raw.get("base_delay_ms")).longValue() : defaults.getBaseDelayMs())
+                .maxDelayMs(raw.containsKey("max_delay_ms") ? ((Number) raw.get("max_delay_ms")).longValue() : defaults.getMaxDelayMs())
+                .jitter(raw.containsKey("jitter") ? RetryPolicy.Jitter.valueOf(((String) raw.get("jitter")).toUpperCase()) : defaults.getJitter())
+                .retryOnStatus(raw.containsKey("retry_on_status") ? compileStatuses((List<Object>) raw.get("retry_on_status")) : defaults.getRetryOnStatus())
+                .retryOnExceptions(raw.containsKey("retry_on_exceptions") ? Set.copyOf((List<String>) raw.get("retry_on_exceptions")) : defaults.getRetryOnExceptions())
+                .deadlineMs(raw.containsKey("deadline_ms") ? ((Number) raw.get("deadline_ms")).longValue() : null)
+                .build();
+    }
+
+    // Status codes (503) or classes ("5xx")
+    private Set<Integer> compileStatuses(List<Object> raw) {
+        Set<Integer> statuses = new HashSet<>();
+        for (Object entry : raw) {
+            if (entry instanceof Number code) {
+                statuses.add(code.intValue());
+            } else {
+                int hundreds = Character.digit(((String) entry).charAt(0), 10) * 100;
+                for (int code = hundreds; code < hundreds + 100; code++) {
+                    statuses.add(code);
+                }
+            }
+        }
+        return Set.copyOf(statuses);
+    }
+
+    private void collectExpressions(Template template, List<Expression> expressions) {
+        if (template == null) return;
+        for (Object segment : template.getSegments()) {
+            if (segment instanceof Expression expression) {
+                expressions.add(expression);
+            }
+        }
+    }
+
+    private void collectExpressions(Map<String, Object> values, List<Expression> expressions) {
+        for (Object value : values.values()) {
+            if (value instanceof Expression expression) {
+                expressions.add(expression);
+            } else if (value instanceof Template template) {
+                collectExpressions(template, expressions);
+            }
+        }
+    }
+
+    // Matches the name as a root variable ("authToken.token"), not as a property ("x.authToken")
+    private boolean referencesVariable(List<Expression> expressions, String name) {
+        Pattern pattern = Pattern.compile("(?<![\\w.$])" + Pattern.quote(name) + "(?![\\w$])");
+        return expressions.stream().anyMatch(e -> pattern.matcher(e.getSource()).find());
+    }
+
+    private void checkForCycles(List<PlanNode> nodes) {
+        Map<String, PlanNode> byName = new HashMap<>();
+        nodes.forEach(n -> byName.put(n.getName(), n));
+
+        Map<String, Integer> pending = new HashMap<>();
+        Map<String, List<String>> dependents = new HashMap<>();
+        for (PlanNode node : nodes) {
+            for (String dependency : node.getDependsOn()) {
+                if (!byName.containsKey(dependency) || dependency.equals(node.getName())) {
+                    throw new IllegalArgumentException("Node " + node.getName() + " has invalid depends_on entry: " + dependency);
+                }
+                dependents.computeIfAbsent(dependency, k -> new ArrayList<>()).add(node.getName());
+            }
+            pending.put(node.getName(), node.getDependsOn().size());
+        }
+
+        Deque<String> ready = new ArrayDeque<>();
+        pending.forEach((name, count) -> { if (count == 0) ready.add(name); });
+        int visited = 0;
+        while (!ready.isEmpty()) {
+            String name = ready.poll();
+            visited++;
+            for (String dependent : dependents.getOrDefault(name, List.of())) {
+                if (pending.merge(dependent, -1, Integer::sum) == 0) {
+                    ready.add(dependent);
+                }
+            }
+        }
+        if (visited != nodes.size()) {
+            throw new IllegalArgumentException("Workflow nodes have a dependency cycle in depends_on");
+        }
+    }
+
+    /*
+        String values containing {{...}} are compiled once:
+            - exactly one placeholder ("{{user.age}}") becomes an Expression, so its result keeps
+              its type: a number stays a number
+            - anything else ("Bearer {{token}}") becomes a Template and resolves to a string
+    */
+    private Map<String, Object> compileMap(Map<String, Object> raw) {
+        if (raw == null || raw.isEmpty()) {
+            return Collections.emptyMap();
+        }
+
+        Map<String, Object> compiled = new LinkedHashMap<>();
+        for (var entry : raw.entrySet()) {
+            Object value = entry.getValue();
+            if (value instanceof String str && str.contains("{{")) {
+                Template template = Template.parse(str);
+                List<Object> segments = template.getSegments();
+                compiled.put(entry.getKey(), segments.size() == 1 ? segments.get(0) : template);
+            } else {
+                compiled.put(entry.getKey(), value);
+            }
+        }
+        return Collections.unmodifiableMap(compiled);
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.integratedworkflowmanager.engine;
+
+import com.example.integratedworkflowmanager.entity.WorkflowExecution;
+import lombok.Getter;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+    State of one workflow execution while it is running.
+
+        - context holds the input variables plus the parsed response of each completed node
+          (keyed by node name). It is a synchronized map because independent nodes of a
+          parallel plan publish their responses concurrently; values are never mutated
+          after they are put, so readers only need the map itself to be safe.
+        - Iterating the context (e.g. for debug output) must synchronize on it.
+        - trace is null unless the run is traced (see ExecutionTracer); the trace methods below
+          are no-ops then.
+        - restoredNodes are nodes that completed before a resumed run was interrupted; their
+          responses are put back into the context and the engines do not run them again.
+        - lease is set for runs claimed by a worker (see RunLease); once it is lost the run is
+          cancelled and the engines start no further node or attempt.
+*/
+@Getter
+public class WorkflowRun {
+
+    private final WorkflowPlan plan;
+    private final WorkflowExecution execution;
+    private final String applicationId;
+    private final Map<String, Object> context;
+    private final ExecutionTrace trace;
+    private final Set<String> restoredNodes = ConcurrentHashMap.newKeySet();
+    private volatile RunLease lease;
+
+    public WorkflowRun(WorkflowPlan plan, WorkflowExecution execution, Map<String, Object> inputParams) {
+        this(plan, execution, inputParams, null);
+    }
+
+    public WorkflowRun(WorkflowPlan plan, WorkflowExecution execution, Map<String, Object> inputParams, ExecutionTrace trace) {
+        this.plan = plan;
+        this.execution = execution;
+        this.applicationId = (String) inputParams.get("applicationId"); // assume it's passed in payload
+        this.context = Collections.synchronizedMap(new HashMap<>(inputParams));
+        this.trace = trace;
+    }
+
+    public UUID getExecutionId() {
+        return execution.getExecutionId();
+    }
+
+    public String getWorkflowName() {
+        return execution.getWorkflowName();
+    }
+
+    // Called before the run starts, for every node completed by the execution being resumed
+    public void restore(String nodeName, Object response) {
+        context.put(nodeName, response);
+        restoredNodes.add(nodeName);
+    }
+
+    public boolean isRestored(String nodeName) {
+        return restoredNodes.contains(nodeName);
+    }
+
+    public void setLease(RunLease lease) {
+        this.lease = lease;
+    }
+
+    public boolean isCancelled() {
+        return lease != null && lease.isLost();
+    }
+
+    public boolean isTraced() {
+        return trace != null;
+    }
+
+    public void trace(String node, String type, Object detail) {
+        if (trace != null) {
+            trace.event(node, type, detail);
+        }
+    }
+
+    public void traceContext(String node) {
+        if (trace != null) {
+            trace.snapshot(node, context);
+        }
+    }
+}
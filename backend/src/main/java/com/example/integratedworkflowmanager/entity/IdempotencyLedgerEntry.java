@@ -0,0 +1,56 @@
+package com.example.integratedworkflowmanager.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/*
+    One claimed or completed idempotency key of a node.
+
+        - (workflow_name, node_name, idempotency_key) is unique, so concurrent runs cannot both
+          claim the same key; the insert itself decides the winner.
+        - status is IN_FLIGHT while the claiming run executes the node, COMPLETED once it succeeded.
+*/
+@Entity
+@Table(name = "idempotency_ledger", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_idempotency_ledger_key", columnNames = {"workflow_name", "node_name", "idempotency_key"})
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder(toBuilder = true)
+public class IdempotencyLedgerEntry {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "workflow_name", nullable = false)
+    private String workflowName;
+
+    @Column(name = "node_name", nullable = false)
+    private String nodeName;
+
+    @Column(name = "idempotency_key", nullable = false) // longer keys are hashed, see IdempotencyLedger
+    private String idempotencyKey;
+
+    @Column(name = "status", nullable = false, length = 16)
+    private String status; // IN_FLIGHT or COMPLETED
+
+    @Column(name = "execution_id", columnDefinition = "CHAR(36)")
+    @JdbcTypeCode(SqlTypes.CHAR)
+    private UUID executionId;
+
+    @Column(name = "claimed_at", nullable = false)
+    private LocalDateTime claimedAt;
+
+    @Column(name = "completed_at")
+    private LocalDateTime completedAt;
+}
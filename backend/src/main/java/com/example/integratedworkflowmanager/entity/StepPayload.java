@@ -0,0 +1,43 @@
+package com.example.integratedworkflowmanager.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/*
+    A large step payload (request body / headers / query params / response) stored outside
+    workflow_execution_steps, see StepPayloadStore.
+
+        - Content-addressed: the id is the SHA-256 of the uncompressed text, so identical payloads
+          of many steps (e.g. the same lookup response) are stored once.
+        - codec is LZ4 or NONE; originalLength is the uncompressed length in bytes (UTF-8).
+*/
+@Entity
+@Table(name = "step_payloads")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class StepPayload {
+
+    @Id
+    @Column(name = "hash", columnDefinition = "CHAR(64)")
+    private String hash;
+
+    @Column(name = "codec", nullable = false, length = 8)
+    private String codec;
+
+    @Column(name = "original_length", nullable = false)
+    private int originalLength;
+
+    @Lob
+    @Column(name = "data", nullable = false, columnDefinition = "LONGBLOB")
+    private byte[] data;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+}
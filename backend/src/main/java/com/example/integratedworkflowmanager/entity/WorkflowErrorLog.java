@@ -10,7 +10,9 @@ import java.time.LocalDateTime;
 import java.util.UUID;
 
 @Entity
-@Table(name = "workflow_error_logs")
+@Table(name = "workflow_error_logs", indexes = {
+        @Index(name = "idx_error_logs_execution", columnList = "execution_id")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -21,6 +23,7 @@ public class WorkflowErrorLog {
     @GeneratedValue
     private UUID id;
 
+    @Column(name = "execution_id")
     private UUID executionId;
 
     private String workflowName;
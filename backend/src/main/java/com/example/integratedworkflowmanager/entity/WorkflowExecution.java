@@ -12,7 +12,11 @@ import java.time.LocalDateTime;
 import java.util.UUID;
 
 @Entity
-@Table(name = "workflow_executions")
+@Table(name = "workflow_executions", indexes = {
+        @Index(name = "idx_executions_executed_at", columnList = "executed_at, execution_id"),
+        @Index(name = "idx_executions_workflow_executed_at", columnList = "workflow_name, executed_at"),
+        @Index(name = "idx_executions_claim", columnList = "status, lease_expires_at, executed_at")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -25,11 +29,34 @@ public class WorkflowExecution {
     @JdbcTypeCode(SqlTypes.CHAR)
     private UUID executionId;
 
+    @Column(name = "workflow_name")
     private String workflowName;
 
+    @Column(name = "executed_at")
     private LocalDateTime executedAt;
 
-    private String status; // SUCCESS or FAIL
+    private String status; // QUEUED, IN_PROGRESS, SUCCESS or FAIL
+
+    // Input parameters and definition version of the run, so a failed execution can be resumed
+    @Lob
+    @Column(name = "input_json", columnDefinition = "LONGTEXT")
+    private String inputJson;
+
+    @Column(name = "workflow_version")
+    private Long workflowVersion;
+
+    // Worker mode (see WorkflowWorker): the worker running it, until when, and how many workers claimed it
+    @Column(name = "lease_owner")
+    private String leaseOwner;
+
+    @Column(name = "lease_expires_at")
+    private LocalDateTime leaseExpiresAt;
+
+    private Integer attempts;
+
+    // Set when some of the run's step records could not be stored (see WorkflowStepWriter)
+    @Column(name = "steps_incomplete")
+    private Boolean stepsIncomplete;
 
     @Version
     private Long version;
@@ -5,12 +5,20 @@ import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.ColumnDefault;
 
 import java.time.LocalDateTime;
 import java.util.UUID;
 
 @Entity
-@Table(name = "workflow_execution_steps")
+@Table(name = "workflow_execution_steps", indexes = {
+        @Index(name = "idx_steps_execution_node", columnList = "execution_id, node_id"),
+        // Payload references, so retention can tell whether an offloaded payload is still in use
+        @Index(name = "idx_steps_request_body_ref", columnList = "request_body_ref"),
+        @Index(name = "idx_steps_request_headers_ref", columnList = "request_headers_ref"),
+        @Index(name = "idx_steps_query_params_ref", columnList = "query_params_ref"),
+        @Index(name = "idx_steps_response_ref", columnList = "response_ref")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -25,6 +33,7 @@ public class WorkflowExecutionStep {
     @JoinColumn(name = "execution_id", referencedColumnName = "execution_id", columnDefinition = "CHAR(36)")
     private WorkflowExecution execution;
 
+    @Column(name = "node_id")
     private Integer nodeId;
 
     private String nodeName;
@@ -43,14 +52,34 @@ public class WorkflowExecutionStep {
     @Lob
     private String response;
 
+    // SHA-256 of the payload in step_payloads when it was offloaded (the inline column is then null), see StepPayloadStore
+    @Column(name = "request_body_ref", columnDefinition = "CHAR(64)")
+    private String requestBodyRef;
+
+    @Column(name = "request_headers_ref", columnDefinition = "CHAR(64)")
+    private String requestHeadersRef;
+
+    @Column(name = "query_params_ref", columnDefinition = "CHAR(64)")
+    private String queryParamsRef;
+
+    @Column(name = "response_ref", columnDefinition = "CHAR(64)")
+    private String responseRef;
+
     private int statusCode;
 
+    // SUCCESS, FAIL, SKIPPED, or CIRCUIT_OPEN / BULKHEAD_FULL / RATE_LIMITED when the call was rejected before going out
+    @Column(name = "status", length = 20)
+    private String status;
+
     @Column(name = "created_at", nullable = false, updatable = false)
     private LocalDateTime createdAt;
 
+    // Usually stamped when the step is recorded, which can be earlier than the (batched) insert
     @PrePersist
     public void prePersist() {
-        this.createdAt = LocalDateTime.now();
+        if (this.createdAt == null) {
+            this.createdAt = LocalDateTime.now();
+        }
     }
 
     @Column(name = "idempotency_key")
@@ -64,6 +93,21 @@ public class WorkflowExecutionStep {
 
     private int attemptCount;
 
+    // Attempt timing: when the call started, how long it took, and the backoff waited before it
+    @Column(name = "attempt_started_at")
+    private LocalDateTime attemptStartedAt;
+
+    @Column(name = "duration_ms")
+    private Long durationMs;
+
+    @Column(name = "backoff_ms")
+    private Long backoffMs;
+
+    // Served from the ResponseCache instead of calling the downstream
+    @ColumnDefault("0")
+    @Column(name = "cache_hit", nullable = false)
+    private boolean cacheHit;
+
 
 
 }
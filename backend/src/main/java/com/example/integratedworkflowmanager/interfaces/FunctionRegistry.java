@@ -4,11 +4,44 @@ import java.util.*;
 import com.example.integratedworkflowmanager.util.ExpressionUtils;
 import com.example.integratedworkflowmanager.util.MathUtils;
 import com.example.integratedworkflowmanager.util.StringUtils;
+import org.mvel2.integration.VariableResolver;
+import org.mvel2.integration.VariableResolverFactory;
+import org.mvel2.integration.impl.BaseVariableResolverFactory;
+import org.mvel2.integration.impl.ImmutableDefaultFactory;
 
+/*
+    Registry of helper functions available to every MVEL expression.
+
+        1. Functions are registered once, in a static immutable map, instead of being
+           re-created for every evaluation.
+        2. newResolverFactory(...) layers a thin MVEL VariableResolverFactory over the live
+           workflow context with the shared function layer underneath:
+
+                [ workflow context (read in place, never copied) ]
+                [ FUNCTION_LAYER   (singleton, immutable)        ]
+
+        3. Workflow variables are looked up first, so an input or node named like a helper
+           (e.g. "max") shadows that helper for the expression.
+        4. Both layers are read-only: an expression cannot assign a workflow variable (that
+           would write straight into the run's context) or replace a helper for other runs.
+           Expression also rejects assignment statements when it is compiled.
+*/
 public class FunctionRegistry {
 
-    public static Map<String, Object> getMvelContext(Map<String, Object> inputContext) {
-        Map<String, Object> context = new HashMap<>(inputContext);
+    private static final Map<String, Object> FUNCTIONS = Collections.unmodifiableMap(buildFunctions());
+
+    private static final VariableResolverFactory FUNCTION_LAYER = new FunctionLayer(FUNCTIONS);
+
+    public static Map<String, Object> getFunctions() {
+        return FUNCTIONS;
+    }
+
+    public static VariableResolverFactory newResolverFactory(Map<String, Object> variables) {
+        return new ContextLayer(variables, FUNCTION_LAYER);
+    }
+
+    private static Map<String, Object> buildFunctions() {
+        Map<String, Object> context = new HashMap<>();
 
         // Static utility classes
         context.put("base64", ExpressionUtils.class);
@@ -59,4 +92,157 @@ public class FunctionRegistry {
 
         return context;
     }
+
+    /*
+        Read-only view of the workflow context for one evaluation. Values are read from the
+        live map on every lookup; creating or assigning a variable throws instead of writing
+        into the context (MVEL's MapVariableResolverFactory would put it in the map).
+    */
+    private static final class ContextLayer extends BaseVariableResolverFactory {
+
+        private final Map<String, Object> variables;
+
+        private ContextLayer(Map<String, Object> variables, VariableResolverFactory functions) {
+            this.variables = variables;
+            this.nextFactory = functions;
+        }
+
+        @Override
+        public VariableResolver createVariable(String name, Object value) {
+            throw new UnsupportedOperationException("Expressions cannot assign variables: " + name);
+        }
+
+        @Override
+        public VariableResolver createVariable(String name, Object value, Class<?> type) {
+            throw new UnsupportedOperationException("Expressions cannot assign variables: " + name);
+        }
+
+        @Override
+        public VariableResolver getVariableResolver(String name) {
+            if (variables.containsKey(name)) {
+                return new ContextResolver(name, variables.get(name));
+            }
+            return super.getVariableResolver(name);
+        }
+
+        @Override
+        public boolean isTarget(String name) {
+            return variables.containsKey(name);
+        }
+
+        @Override
+        public boolean isResolveable(String name) {
+            return variables.containsKey(name) || nextFactory.isResolveable(name);
+        }
+
+        @Override
+        public Set<String> getKnownVariables() {
+            Set<String> known = new HashSet<>(variables.keySet());
+            known.addAll(nextFactory.getKnownVariables());
+            return known;
+        }
+    }
+
+    private record ContextResolver(String name, Object value) implements VariableResolver {
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public Class getType() {
+            return Object.class;
+        }
+
+        @Override
+        public void setStaticType(Class type) {
+        }
+
+        @Override
+        public int getFlags() {
+            return 0;
+        }
+
+        @Override
+        public Object getValue() {
+            return value;
+        }
+
+        @Override
+        public void setValue(Object value) {
+            throw new UnsupportedOperationException("Expressions cannot assign variables: " + name);
+        }
+    }
+
+    /*
+        Read-only resolver factory over the function map. Resolvers are built once, so it is
+        safe to share between threads (MVEL's own map factories lazily cache resolvers in a HashMap).
+    */
+    private static final class FunctionLayer extends ImmutableDefaultFactory {
+
+        private final Map<String, VariableResolver> resolvers;
+
+        private FunctionLayer(Map<String, Object> functions) {
+            Map<String, VariableResolver> map = new HashMap<>();
+            functions.forEach((name, value) -> map.put(name, new FunctionResolver(name, value)));
+            this.resolvers = Collections.unmodifiableMap(map);
+        }
+
+        @Override
+        public VariableResolver getVariableResolver(String name) {
+            VariableResolver resolver = resolvers.get(name);
+            if (resolver == null) {
+                return super.getVariableResolver(name);
+            }
+            return resolver;
+        }
+
+        @Override
+        public boolean isTarget(String name) {
+            return resolvers.containsKey(name);
+        }
+
+        @Override
+        public boolean isResolveable(String name) {
+            return resolvers.containsKey(name);
+        }
+
+        @Override
+        public Set<String> getKnownVariables() {
+            return resolvers.keySet();
+        }
+    }
+
+    private record FunctionResolver(String name, Object value) implements VariableResolver {
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public Class getType() {
+            return Object.class;
+        }
+
+        @Override
+        public void setStaticType(Class type) {
+        }
+
+        @Override
+        public int getFlags() {
+            return 0;
+        }
+
+        @Override
+        public Object getValue() {
+            return value;
+        }
+
+        @Override
+        public void setValue(Object value) {
+            throw new UnsupportedOperationException("Cannot reassign built-in function: " + name);
+        }
+    }
 }
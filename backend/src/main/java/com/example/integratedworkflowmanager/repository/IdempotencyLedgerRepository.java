@@ -0,0 +1,124 @@
+package com.example.integratedworkflowmanager.repository;
+
+import com.example.integratedworkflowmanager.entity.IdempotencyLedgerEntry;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+public interface IdempotencyLedgerRepository extends JpaRepository<IdempotencyLedgerEntry, Long> {
+
+    // A successful step with an idempotency key, recorded before the ledger existed
+    interface CompletedStepKey {
+        String getWorkflowName();
+        String getNodeName();
+        String getIdempotencyKey();
+        String getExecutionId();
+        LocalDateTime getCompletedAt();
+    }
+
+    // Enters the key of every successful step as COMPLETED, for keys that fit the column unchanged.
+    // Steps without a status were written before it existed and count as successful when 2xx.
+    @Transactional
+    @Modifying
+    @Query(nativeQuery = true, value = """
+            INSERT IGNORE INTO idempotency_ledger (workflow_name, node_name, idempotency_key, status, execution_id, claimed_at, completed_at)
+            SELECT e.workflow_name, s.node_name, s.idempotency_key, 'COMPLETED', e.execution_id, s.created_at, s.created_at
+            FROM workflow_execution_steps s
+            JOIN workflow_executions e ON e.execution_id = s.execution_id
+            WHERE s.idempotency_key IS NOT NULL AND s.skipped = 0
+              AND (s.status = 'SUCCESS' OR (s.status IS NULL AND s.status_code BETWEEN 200 AND 299))
+              AND CHAR_LENGTH(s.idempotency_key) <= :maxKeyLength
+            """)
+    int backfillCompletedSteps(@Param("maxKeyLength") int maxKeyLength);
+
+    // The same steps for keys too long for the column, which are stored hashed (see IdempotencyLedger)
+    @Query(nativeQuery = true, value = """
+            SELECT e.workflow_name AS workflowName, s.node_name AS nodeName, s.idempotency_key AS idempotencyKey,
+                   e.execution_id AS executionId, s.created_at AS completedAt
+            FROM workflow_execution_steps s
+            JOIN workflow_executions e ON e.execution_id = s.execution_id
+            WHERE s.idempotency_key IS NOT NULL AND s.skipped = 0
+              AND (s.status = 'SUCCESS' OR (s.status IS NULL AND s.status_code BETWEEN 200 AND 299))
+              AND CHAR_LENGTH(s.idempotency_key) > :maxKeyLength
+            """)
+    List<CompletedStepKey> findCompletedStepKeysLongerThan(@Param("maxKeyLength") int maxKeyLength);
+
+    // Returns 1 when inserted, 0 when the key already has an entry
+    @Transactional
+    @Modifying
+    @Query(nativeQuery = true, value = """
+            INSERT IGNORE INTO idempotency_ledger (workflow_name, node_name, idempotency_key, status, execution_id, claimed_at, completed_at)
+            VALUES (:workflowName, :nodeName, :idempotencyKey, 'COMPLETED', :executionId, :completedAt, :completedAt)
+            """)
+    int insertCompleted(@Param("workflowName") String workflowName,
+                        @Param("nodeName") String nodeName,
+                        @Param("idempotencyKey") String idempotencyKey,
+                        @Param("executionId") String executionId,
+                        @Param("completedAt") LocalDateTime completedAt);
+
+    // Returns 1 when this call inserted the claim, 0 when the key already exists (unique key hit)
+    @Transactional
+    @Modifying
+    @Query(nativeQuery = true, value = """
+            INSERT IGNORE INTO idempotency_ledger (workflow_name, node_name, idempotency_key, status, execution_id, claimed_at)
+            VALUES (:workflowName, :nodeName, :idempotencyKey, 'IN_FLIGHT', :executionId, :claimedAt)
+            """)
+    int insertClaim(@Param("workflowName") String workflowName,
+                    @Param("nodeName") String nodeName,
+                    @Param("idempotencyKey") String idempotencyKey,
+                    @Param("executionId") String executionId,
+                    @Param("claimedAt") LocalDateTime claimedAt);
+
+    Optional<IdempotencyLedgerEntry> findByWorkflowNameAndNodeNameAndIdempotencyKey(
+            String workflowName,
+            String nodeName,
+            String idempotencyKey
+    );
+
+    // Takes over a claim whose run stopped before completing or releasing it; 1 when taken over
+    @Transactional
+    @Modifying
+    @Query("""
+            UPDATE IdempotencyLedgerEntry l
+            SET l.executionId = :executionId, l.claimedAt = :claimedAt
+            WHERE l.id = :id AND l.status = 'IN_FLIGHT' AND l.claimedAt < :staleBefore
+            """)
+    int reclaimStale(@Param("id") Long id,
+                     @Param("executionId") UUID executionId,
+                     @Param("claimedAt") LocalDateTime claimedAt,
+                     @Param("staleBefore") LocalDateTime staleBefore);
+
+    @Transactional
+    @Modifying
+    @Query("""
+            UPDATE IdempotencyLedgerEntry l
+            SET l.status = 'COMPLETED', l.completedAt = :completedAt
+            WHERE l.workflowName = :workflowName AND l.nodeName = :nodeName
+              AND l.idempotencyKey = :idempotencyKey AND l.executionId = :executionId
+            """)
+    int markCompleted(@Param("workflowName") String workflowName,
+                      @Param("nodeName") String nodeName,
+                      @Param("idempotencyKey") String idempotencyKey,
+                      @Param("executionId") UUID executionId,
+                      @Param("completedAt") LocalDateTime completedAt);
+
+    @Transactional
+    @Modifying
+    @Query("""
+            DELETE FROM IdempotencyLedgerEntry l
+            WHERE l.workflowName = :workflowName AND l.nodeName = :nodeName
+              AND l.idempotencyKey = :idempotencyKey AND l.executionId = :executionId
+              AND l.status = 'IN_FLIGHT'
+            """)
+    int deleteClaim(@Param("workflowName") String workflowName,
+                    @Param("nodeName") String nodeName,
+                    @Param("idempotencyKey") String idempotencyKey,
+                    @Param("executionId") UUID executionId);
+}
@@ -0,0 +1,45 @@
+package com.example.integratedworkflowmanager.repository;
+
+import com.example.integratedworkflowmanager.entity.StepPayload;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+
+public interface StepPayloadRepository extends JpaRepository<StepPayload, String> {
+
+    // Stores a payload unless one with the same hash exists already (then it is identical)
+    @Modifying
+    @Query(nativeQuery = true, value = """
+            INSERT IGNORE INTO step_payloads (hash, codec, original_length, data, created_at)
+            VALUES (:hash, :codec, :originalLength, :data, :createdAt)
+            """)
+    int insertIgnore(@Param("hash") String hash,
+                     @Param("codec") String codec,
+                     @Param("originalLength") int originalLength,
+                     @Param("data") byte[] data,
+                     @Param("createdAt") LocalDateTime createdAt);
+
+    /*
+        Deletes those of the given payloads that no step references any more. Safe against steps
+        written concurrently because every writer runs insertIgnore for its payloads in the
+        transaction that inserts its steps:
+            - writer first: its INSERT IGNORE holds a lock on the existing payload row until the
+              step commits; the DELETE waits for it and then sees the new reference
+            - delete first: the DELETE holds the row lock; the writer's INSERT IGNORE waits for it
+              and then inserts the payload again
+    */
+    @Modifying
+    @Query(nativeQuery = true, value = """
+            DELETE FROM step_payloads
+            WHERE hash IN (:hashes)
+              AND NOT EXISTS (SELECT 1 FROM workflow_execution_steps s WHERE s.request_body_ref = step_payloads.hash)
+              AND NOT EXISTS (SELECT 1 FROM workflow_execution_steps s WHERE s.request_headers_ref = step_payloads.hash)
+              AND NOT EXISTS (SELECT 1 FROM workflow_execution_steps s WHERE s.query_params_ref = step_payloads.hash)
+              AND NOT EXISTS (SELECT 1 FROM workflow_execution_steps s WHERE s.response_ref = step_payloads.hash)
+            """)
+    int deleteUnreferenced(@Param("hashes") Collection<String> hashes);
+}
@@ -2,12 +2,18 @@ package com.example.integratedworkflowmanager.repository;
 
 import com.example.integratedworkflowmanager.entity.WorkflowDefinition;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import java.util.Optional;
 import java.util.UUID;
 
 public interface WorkflowDefinitionRepository extends JpaRepository<WorkflowDefinition, UUID> {
     Optional<WorkflowDefinition> findByName(String name);
+
+    // Version probe of the plan cache: no JSON is read
+    @Query("SELECT d.version FROM WorkflowDefinition d WHERE d.name = :name")
+    Optional<Long> findVersionByName(@Param("name") String name);
     boolean existsByName(String name);
     void deleteByName(String name);
 }
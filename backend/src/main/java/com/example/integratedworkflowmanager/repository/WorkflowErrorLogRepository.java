@@ -2,8 +2,19 @@ package com.example.integratedworkflowmanager.repository;
 
 import com.example.integratedworkflowmanager.entity.WorkflowErrorLog;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.UUID;
 
 public interface WorkflowErrorLogRepository extends JpaRepository<WorkflowErrorLog, UUID> {
+
+    List<WorkflowErrorLog> findByExecutionIdIn(Collection<UUID> executionIds);
+
+    @Modifying
+    @Query("DELETE FROM WorkflowErrorLog l WHERE l.executionId IN :executionIds")
+    int deleteByExecutionIds(@Param("executionIds") Collection<UUID> executionIds);
 }
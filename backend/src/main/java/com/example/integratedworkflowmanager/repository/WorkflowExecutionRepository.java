@@ -1,11 +1,173 @@
 package com.example.integratedworkflowmanager.repository;
 
+import com.example.integratedworkflowmanager.dto.ExecutionHistoryRow;
+import com.example.integratedworkflowmanager.dto.WorkflowExecutionDto;
 import com.example.integratedworkflowmanager.entity.WorkflowExecution;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 public interface WorkflowExecutionRepository extends JpaRepository<WorkflowExecution, UUID> {
     boolean existsByWorkflowName(String workflowName);
-}
 
+    @Query("SELECT DISTINCT e.workflowName FROM WorkflowExecution e")
+    List<String> findWorkflowNames();
+
+    // Oldest executions of a workflow before a cutoff (served by idx_executions_workflow_executed_at)
+    @Query("""
+            SELECT e.executionId FROM WorkflowExecution e
+            WHERE e.workflowName = :workflowName AND e.executedAt < :before
+            ORDER BY e.executedAt ASC
+            """)
+    List<UUID> findExpiredIds(@Param("workflowName") String workflowName,
+                              @Param("before") LocalDateTime before,
+                              Limit limit);
+
+    // 1 when the execution was in status `from` and is now in `to`; a worker lease left on it ends, so it is not reclaimed
+    @Modifying
+    @Query("""
+            UPDATE WorkflowExecution e SET e.status = :to, e.leaseExpiresAt = NULL, e.version = e.version + 1
+            WHERE e.executionId = :executionId AND e.status = :from
+            """)
+    int updateStatusIf(@Param("executionId") UUID executionId, @Param("from") String from, @Param("to") String to);
+
+    /*
+        Work queue of worker mode (see WorkflowWorker), served by idx_executions_claim. Leases are
+        compared with the database clock, so instances need not agree on the time.
+            - lock*: rows to claim, locked FOR UPDATE; SKIP LOCKED passes over rows another worker
+              is claiming at the same moment instead of waiting for them (MySQL 8)
+            - claim: the locked rows become IN_PROGRESS, leased to the worker for leaseMs
+            - renewLeases: heartbeat of the runs a worker still holds
+            - endLease: the run is over; its row keeps the owner but can no longer be reclaimed
+    */
+    @Query(value = """
+            SELECT execution_id FROM workflow_executions
+            WHERE status = 'QUEUED' AND lease_expires_at IS NULL
+            ORDER BY executed_at
+            LIMIT :limit
+            FOR UPDATE SKIP LOCKED
+            """, nativeQuery = true)
+    List<String> lockQueued(@Param("limit") int limit);
+
+    @Query(value = """
+            SELECT execution_id FROM workflow_executions
+            WHERE status = 'IN_PROGRESS' AND lease_expires_at < NOW(6)
+            ORDER BY lease_expires_at
+            LIMIT :limit
+            FOR UPDATE SKIP LOCKED
+            """, nativeQuery = true)
+    List<String> lockExpiredLeases(@Param("limit") int limit);
+
+    @Modifying
+    @Query(value = """
+            UPDATE workflow_executions
+            SET status = 'IN_PROGRESS', lease_owner = :owner,
+                lease_expires_at = DATE_ADD(NOW(6), INTERVAL :leaseMs * 1000 MICROSECOND),
+                attempts = COALESCE(attempts, 0) + 1, version = COALESCE(version, 0) + 1
+            WHERE execution_id IN (:executionIds)
+            """, nativeQuery = true)
+    int claim(@Param("executionIds") Collection<String> executionIds, @Param("owner") String owner, @Param("leaseMs") long leaseMs);
+
+    @Modifying
+    @Query(value = """
+            UPDATE workflow_executions
+            SET lease_expires_at = DATE_ADD(NOW(6), INTERVAL :leaseMs * 1000 MICROSECOND)
+            WHERE execution_id IN (:executionIds) AND lease_owner = :owner AND status = 'IN_PROGRESS'
+            """, nativeQuery = true)
+    int renewLeases(@Param("executionIds") Collection<String> executionIds, @Param("owner") String owner, @Param("leaseMs") long leaseMs);
+
+    // Final status of a leased run, only while the row is still leased to the worker (a reclaimed run belongs to its new worker)
+    @Modifying
+    @Query("""
+            UPDATE WorkflowExecution e SET e.status = :status, e.leaseExpiresAt = NULL, e.version = e.version + 1
+            WHERE e.executionId = :executionId AND e.leaseOwner = :owner AND e.status = 'IN_PROGRESS'
+            """)
+    int finishLeased(@Param("executionId") UUID executionId, @Param("owner") String owner, @Param("status") String status);
+
+    // No version bump: flagging a run must not make its concurrent status update fail
+    @Modifying
+    @Query("UPDATE WorkflowExecution e SET e.stepsIncomplete = TRUE WHERE e.executionId IN :executionIds")
+    int markStepsIncomplete(@Param("executionIds") Collection<UUID> executionIds);
+
+    @Query("""
+            SELECT e.executionId FROM WorkflowExecution e
+            WHERE e.executionId IN :executionIds AND e.leaseOwner = :owner AND e.status = 'IN_PROGRESS'
+            """)
+    List<UUID> findLeased(@Param("executionIds") Collection<UUID> executionIds, @Param("owner") String owner);
+
+    @Modifying
+    @Query(value = """
+            UPDATE workflow_executions SET lease_expires_at = NULL
+            WHERE execution_id = :executionId AND lease_owner = :owner
+            """, nativeQuery = true)
+    int endLease(@Param("executionId") String executionId, @Param("owner") String owner);
+
+    @Modifying
+    @Query("DELETE FROM WorkflowExecution e WHERE e.executionId IN :executionIds")
+    int deleteByIds(@Param("executionIds") Collection<UUID> executionIds);
+
+    /*
+        Keyset page of the execution history, newest first. Rows after the cursor
+        (cursorAt, cursorId) are read from the executed_at indexes; null filters are ignored.
+    */
+    @Query("""
+            SELECT new com.example.integratedworkflowmanager.dto.WorkflowExecutionDto(
+                e.executionId, e.workflowName, e.executedAt, e.status)
+            FROM WorkflowExecution e
+            WHERE (:workflowName IS NULL OR e.workflowName = :workflowName)
+              AND (:status IS NULL OR e.status = :status)
+              AND (:from IS NULL OR e.executedAt >= :from)
+              AND (:to IS NULL OR e.executedAt < :to)
+              AND (:cursorAt IS NULL
+                   OR e.executedAt < :cursorAt
+                   OR (e.executedAt = :cursorAt AND e.executionId < :cursorId))
+            ORDER BY e.executedAt DESC, e.executionId DESC
+            """)
+    List<WorkflowExecutionDto> findHistoryPage(@Param("workflowName") String workflowName,
+                                               @Param("status") String status,
+                                               @Param("from") LocalDateTime from,
+                                               @Param("to") LocalDateTime to,
+                                               @Param("cursorAt") LocalDateTime cursorAt,
+                                               @Param("cursorId") UUID cursorId,
+                                               Limit limit);
+
+    /*
+        Forward-only export of executions joined with their steps, newest execution first and
+        steps in node order, so all rows of one execution are adjacent.
+            - Integer.MIN_VALUE is MySQL Connector/J's signal to stream rows one at a time
+              instead of buffering the whole result set
+            - Must be consumed inside a (read-only) transaction and closed afterwards
+    */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + Integer.MIN_VALUE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "false")
+    })
+    @Query("""
+            SELECT new com.example.integratedworkflowmanager.dto.ExecutionHistoryRow(
+                e.executionId, e.workflowName, e.executedAt, e.status,
+                s.nodeId, s.nodeName, s.requestUrl, s.skipped, s.statusCode, s.createdAt)
+            FROM WorkflowExecution e
+            LEFT JOIN WorkflowExecutionStep s ON s.execution = e
+            WHERE (:workflowName IS NULL OR e.workflowName = :workflowName)
+              AND (:status IS NULL OR e.status = :status)
+              AND (:from IS NULL OR e.executedAt >= :from)
+              AND (:to IS NULL OR e.executedAt < :to)
+            ORDER BY e.executedAt DESC, e.executionId DESC, s.nodeId ASC
+            """)
+    Stream<ExecutionHistoryRow> streamHistory(@Param("workflowName") String workflowName,
+                                              @Param("status") String status,
+                                              @Param("from") LocalDateTime from,
+                                              @Param("to") LocalDateTime to);
+}
@@ -1,18 +1,49 @@
 package com.example.integratedworkflowmanager.repository;
 
+import com.example.integratedworkflowmanager.dto.ExecutionStepSummary;
 import com.example.integratedworkflowmanager.entity.WorkflowExecution;
 import com.example.integratedworkflowmanager.entity.WorkflowExecutionStep;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
 
 public interface WorkflowExecutionStepRepository extends JpaRepository<WorkflowExecutionStep, UUID> {
     List<WorkflowExecutionStep> findByExecutionOrderByNodeIdAsc(WorkflowExecution execution);
-    boolean existsByApplicationIdAndExecution_WorkflowNameAndNodeNameAndSkippedFalse(
-            String applicationId,
-            String workflowName,
-            String nodeName
-    );
 
+    // Steps of several executions as [executionId, step] rows, so the lazy execution is never loaded
+    @Query("""
+            SELECT s.execution.executionId, s FROM WorkflowExecutionStep s
+            WHERE s.execution.executionId IN :executionIds
+            ORDER BY s.nodeId ASC
+            """)
+    List<Object[]> findWithExecutionIds(@Param("executionIds") Collection<UUID> executionIds);
+
+    // Offloaded payload hashes referenced by the steps of some executions
+    @Query("""
+            SELECT s.requestBodyRef, s.requestHeadersRef, s.queryParamsRef, s.responseRef
+            FROM WorkflowExecutionStep s
+            WHERE s.execution.executionId IN :executionIds
+              AND (s.requestBodyRef IS NOT NULL OR s.requestHeadersRef IS NOT NULL
+                   OR s.queryParamsRef IS NOT NULL OR s.responseRef IS NOT NULL)
+            """)
+    List<Object[]> findPayloadRefs(@Param("executionIds") Collection<UUID> executionIds);
+
+    @Modifying
+    @Query("DELETE FROM WorkflowExecutionStep s WHERE s.execution.executionId IN :executionIds")
+    int deleteByExecutionIds(@Param("executionIds") Collection<UUID> executionIds);
+
+    // Non-LOB step columns of several executions at once (served by idx_steps_execution_node)
+    @Query("""
+            SELECT new com.example.integratedworkflowmanager.dto.ExecutionStepSummary(
+                s.execution.executionId, s.nodeId, s.nodeName, s.requestUrl, s.skipped, s.statusCode, s.createdAt)
+            FROM WorkflowExecutionStep s
+            WHERE s.execution.executionId IN :executionIds
+            ORDER BY s.nodeId ASC
+            """)
+    List<ExecutionStepSummary> findSummariesByExecutionIds(@Param("executionIds") Collection<UUID> executionIds);
 }
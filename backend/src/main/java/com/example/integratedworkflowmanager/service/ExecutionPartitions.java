@@ -0,0 +1,119 @@
+package com.example.integratedworkflowmanager.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+
+/*
+    Monthly RANGE partitions of the execution tables (workflow.retention.partitioned, see
+    db/partition-executions.sql).
+
+        - Partition pYYYYMM holds the rows of that month; pmax (VALUES LESS THAN MAXVALUE) catches
+          anything later.
+        - ensureAhead(n) splits pmax so the current and the next n months have their own partition.
+        - expired(cutoff) lists the partitions that end before cutoff; drop(table, partition) drops one:
+          a metadata change instead of deleting the rows one by one. Child tables (steps, error logs)
+          are listed before workflow_executions.
+        - Each table is partitioned on its own time column (executed_at, created_at, timestamp), so
+          steps written in a later month than their execution (a run crossing midnight at month end,
+          a resumed or reclaimed run) stay in their own month's partition after the execution's
+          partition is dropped; see db/partition-executions.sql.
+*/
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ExecutionPartitions {
+
+    // Children first, so executions are never gone while their steps remain
+    static final List<String> TABLES = List.of("workflow_error_logs", "workflow_execution_steps", "workflow_executions");
+
+    private static final DateTimeFormatter NAME = DateTimeFormatter.ofPattern("'p'yyyyMM");
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // Creates missing month partitions up to monthsAhead months from now; returns "table.partition" names
+    public List<String> ensureAhead(int monthsAhead) {
+        List<String> created = new ArrayList<>();
+        for (String table : TABLES) {
+            Map<String, LocalDate> existing = partitions(table);
+            if (existing.isEmpty()) {
+                log.warn("⚠️ {} is not partitioned; run db/partition-executions.sql or set workflow.retention.partitioned=false", table);
+                continue;
+            }
+            LocalDate last = existing.values().stream().max(Comparator.naturalOrder()).orElseThrow();
+            YearMonth month = YearMonth.from(last);
+            YearMonth until = YearMonth.now().plusMonths(monthsAhead);
+            while (!month.isAfter(until)) {
+                String name = NAME.format(month);
+                jdbcTemplate.execute("ALTER TABLE " + table + " REORGANIZE PARTITION pmax INTO ("
+                        + "PARTITION " + name + " VALUES LESS THAN ('" + month.plusMonths(1).atDay(1) + "'), "
+                        + "PARTITION pmax VALUES LESS THAN (MAXVALUE))");
+                created.add(table + "." + name);
+                month = month.plusMonths(1);
+            }
+        }
+        return created;
+    }
+
+    // Month partitions whose rows are all older than cutoff, by table
+    public Map<String, List<String>> expired(LocalDateTime cutoff) {
+        Map<String, List<String>> expired = new LinkedHashMap<>();
+        for (String table : TABLES) {
+            List<String> names = new ArrayList<>();
+            partitions(table).forEach((name, upperBound) -> {
+                if (!upperBound.atStartOfDay().isAfter(cutoff)) names.add(name);
+            });
+            expired.put(table, names);
+        }
+        return expired;
+    }
+
+    public boolean isEmpty(String table, String partition) {
+        return jdbcTemplate.queryForList("SELECT 1 FROM " + table + " PARTITION (" + partition + ") LIMIT 1").isEmpty();
+    }
+
+    // Offloaded payload hashes referenced from one step partition, to be collected after it is dropped
+    public Set<String> payloadRefs(String partition) {
+        Set<String> hashes = new HashSet<>();
+        jdbcTemplate.query("""
+                SELECT request_body_ref, request_headers_ref, query_params_ref, response_ref
+                FROM workflow_execution_steps PARTITION (%s)
+                WHERE request_body_ref IS NOT NULL OR request_headers_ref IS NOT NULL
+                   OR query_params_ref IS NOT NULL OR response_ref IS NOT NULL
+                """.formatted(partition), row -> {
+            for (int column = 1; column <= 4; column++) {
+                String hash = row.getString(column);
+                if (hash != null) hashes.add(hash);
+            }
+        });
+        return hashes;
+    }
+
+    public void drop(String table, String partition) {
+        jdbcTemplate.execute("ALTER TABLE " + table + " DROP PARTITION " + partition);
+        log.info("🗑️ Dropped partition {}.{}", table, partition);
+    }
+
+    // Month partitions of a table and their exclusive upper bound; empty when the table is not partitioned
+    private Map<String, LocalDate> partitions(String table) {
+        Map<String, LocalDate> partitions = new TreeMap<>();
+        jdbcTemplate.query("""
+                SELECT PARTITION_NAME, PARTITION_DESCRIPTION FROM information_schema.PARTITIONS
+                WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? AND PARTITION_NAME IS NOT NULL
+                """, row -> {
+            String description = row.getString(2);
+            if (!"MAXVALUE".equalsIgnoreCase(description)) {
+                // RANGE COLUMNS bounds look like '2026-11-01 00:00:00' (quotes included)
+                partitions.put(row.getString(1), LocalDate.parse(description.replace("'", "").substring(0, 10)));
+            }
+        }, table);
+        return partitions;
+    }
+}
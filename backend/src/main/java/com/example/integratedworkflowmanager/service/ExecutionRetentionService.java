@@ -0,0 +1,316 @@
+package com.example.integratedworkflowmanager.service;
+
+import com.example.integratedworkflowmanager.config.RetentionProperties;
+import com.example.integratedworkflowmanager.engine.WorkflowMetrics;
+import com.example.integratedworkflowmanager.entity.WorkflowErrorLog;
+import com.example.integratedworkflowmanager.entity.WorkflowExecution;
+import com.example.integratedworkflowmanager.entity.WorkflowExecutionStep;
+import com.example.integratedworkflowmanager.repository.WorkflowErrorLogRepository;
+import com.example.integratedworkflowmanager.repository.WorkflowExecutionRepository;
+import com.example.integratedworkflowmanager.repository.WorkflowExecutionStepRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.GZIPOutputStream;
+
+/*
+    Background job that removes expired execution history (workflow.retention.*).
+
+        1. An execution expires when its executed_at is older than its workflow's retention
+           (per-workflow or default-days; 0 keeps it forever).
+        2. Expired executions are taken oldest first, batch-size at a time, from the
+           (workflow_name, executed_at) index. Each batch is deleted with its steps, error logs and
+           no longer referenced payloads in one short transaction that only locks those rows;
+           the job pauses batch-pause-ms between batches.
+        3. ARCHIVE mode writes each batch to <archive-dir>/<workflow>/<workflow>-<run start>.ndjson.gz
+           first: one JSON line per execution with its steps (payloads resolved) and error logs.
+           Every batch is its own fsync'ed gzip member, so the file is valid gzip after each batch.
+           A crash between archiving and deleting archives that batch twice, never loses it.
+        4. With partitioned tables, month partitions that are expired for every workflow are
+           dropped instead (DELETE mode), or once the batches emptied them (ARCHIVE mode).
+
+    Idempotency ledger entries are kept: they still guard against repeating a node's side effect.
+*/
+@Service
+@Slf4j
+public class ExecutionRetentionService {
+
+    private static final DateTimeFormatter FILE_TIME = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    private final RetentionProperties properties;
+    private final WorkflowExecutionRepository executionRepo;
+    private final WorkflowExecutionStepRepository stepRepo;
+    private final WorkflowErrorLogRepository errorRepo;
+    private final WorkflowTransactionalService transactionalService;
+    private final StepPayloadStore payloadStore;
+    private final ExecutionPartitions partitions;
+    private final ObjectMapper objectMapper;
+    private final WorkflowMetrics metrics;
+    private final ReentrantLock running = new ReentrantLock();
+    private final ScheduledExecutorService scheduler;
+    private volatile Map<String, Object> lastRun = Map.of();
+
+    public ExecutionRetentionService(RetentionProperties properties,
+                                     WorkflowExecutionRepository executionRepo,
+                                     WorkflowExecutionStepRepository stepRepo,
+                                     WorkflowErrorLogRepository errorRepo,
+                                     WorkflowTransactionalService transactionalService,
+                                     StepPayloadStore payloadStore,
+                                     ExecutionPartitions partitions,
+                                     ObjectMapper objectMapper,
+                                     WorkflowMetrics metrics) {
+        this.properties = properties;
+        this.executionRepo = executionRepo;
+        this.stepRepo = stepRepo;
+        this.errorRepo = errorRepo;
+        this.transactionalService = transactionalService;
+        this.payloadStore = payloadStore;
+        this.partitions = partitions;
+        this.objectMapper = objectMapper;
+        this.metrics = metrics;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "workflow-retention");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        if (properties.isEnabled()) {
+            scheduler.scheduleWithFixedDelay(this::runScheduled, properties.getInitialDelayMs(), properties.getIntervalMs(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    // One pass over every workflow; returns what was removed. Concurrent calls return without doing anything.
+    public Map<String, Object> run() {
+        if (!running.tryLock()) {
+            return Map.of("status", "ALREADY_RUNNING");
+        }
+        try {
+            long start = System.nanoTime();
+            LocalDateTime now = LocalDateTime.now();
+            Map<String, Object> report = new LinkedHashMap<>();
+            report.put("startedAt", now);
+            report.put("mode", properties.getMode());
+
+            Map<String, Long> removed = new LinkedHashMap<>();
+            List<String> droppedPartitions = new ArrayList<>();
+            if (properties.isPartitioned()) {
+                report.put("createdPartitions", partitions.ensureAhead(properties.getPartitionsAhead()));
+                if (properties.getMode() == RetentionProperties.Mode.DELETE) {
+                    droppedPartitions.addAll(dropPartitions(now));
+                }
+            }
+
+            for (String workflowName : executionRepo.findWorkflowNames()) {
+                int days = properties.daysFor(workflowName);
+                if (days <= 0) continue;
+                long executions = purge(workflowName, now.minusDays(days), now);
+                if (executions > 0) {
+                    removed.put(workflowName, executions);
+                }
+            }
+
+            if (properties.isPartitioned() && properties.getMode() == RetentionProperties.Mode.ARCHIVE) {
+                droppedPartitions.addAll(dropPartitions(now));
+            }
+
+            report.put("removedExecutions", removed);
+            report.put("droppedPartitions", droppedPartitions);
+            report.put("durationMs", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            metrics.recordRetention(properties.getMode().name(), removed.values().stream().mapToLong(Long::longValue).sum(), start);
+            log.info("🧹 Retention removed {} (partitions dropped: {})", removed, droppedPartitions);
+            lastRun = report;
+            return report;
+        } finally {
+            running.unlock();
+        }
+    }
+
+    public Map<String, Object> status() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("enabled", properties.isEnabled());
+        status.put("mode", properties.getMode());
+        status.put("defaultDays", properties.getDefaultDays());
+        status.put("perWorkflow", properties.getPerWorkflow());
+        status.put("partitioned", properties.isPartitioned());
+        status.put("running", running.isLocked());
+        status.put("lastRun", lastRun);
+        return status;
+    }
+
+    private void runScheduled() {
+        try {
+            run();
+        } catch (Exception ex) {
+            log.error("❌ Retention run failed: {}", ex.getMessage(), ex);
+        }
+    }
+
+    // Removes the expired executions of one workflow in batches; returns how many
+    private long purge(String workflowName, LocalDateTime before, LocalDateTime runStart) {
+        Path archive = properties.getMode() == RetentionProperties.Mode.ARCHIVE
+                ? Path.of(properties.getArchiveDir(), fileName(workflowName), fileName(workflowName) + "-" + FILE_TIME.format(runStart) + ".ndjson.gz")
+                : null;
+        long total = 0;
+
+        while (true) {
+            List<UUID> ids = executionRepo.findExpiredIds(workflowName, before, Limit.of(properties.getBatchSize()));
+            if (ids.isEmpty()) break;
+
+            Set<String> payloadHashes = archive != null ? archive(ids, archive) : payloadRefs(ids);
+            Map<String, Integer> deleted = transactionalService.deleteExecutions(ids, payloadHashes);
+            total += deleted.get("executions");
+            log.debug("🧹 {}: removed {}", workflowName, deleted);
+
+            if (ids.size() < properties.getBatchSize()) break;
+            pause();
+        }
+        return total;
+    }
+
+    // Month partitions expired for every workflow; none while any workflow keeps its history forever
+    private List<String> dropPartitions(LocalDateTime now) {
+        int longest = properties.getDefaultDays();
+        for (int days : properties.getPerWorkflow().values()) {
+            if (days <= 0 || longest <= 0) {
+                longest = 0;
+                break;
+            }
+            longest = Math.max(longest, days);
+        }
+        if (longest <= 0) {
+            return List.of();
+        }
+
+        boolean requireEmpty = properties.getMode() == RetentionProperties.Mode.ARCHIVE;
+        List<String> dropped = new ArrayList<>();
+        Set<String> payloadHashes = new HashSet<>();
+        partitions.expired(now.minusDays(longest)).forEach((table, names) -> {
+            for (String name : names) {
+                if (requireEmpty && !partitions.isEmpty(table, name)) continue;
+                if (table.equals("workflow_execution_steps")) {
+                    payloadHashes.addAll(partitions.payloadRefs(name));
+                }
+                partitions.drop(table, name);
+                dropped.add(table + "." + name);
+            }
+        });
+
+        List<String> hashes = new ArrayList<>(payloadHashes);
+        for (int from = 0; from < hashes.size(); from += properties.getBatchSize()) {
+            transactionalService.deleteUnreferencedPayloads(hashes.subList(from, Math.min(hashes.size(), from + properties.getBatchSize())));
+        }
+        return dropped;
+    }
+
+    private Set<String> payloadRefs(List<UUID> ids) {
+        Set<String> hashes = new HashSet<>();
+        for (Object[] refs : stepRepo.findPayloadRefs(ids)) {
+            for (Object ref : refs) {
+                if (ref != null) hashes.add((String) ref);
+            }
+        }
+        return hashes;
+    }
+
+    // Appends one gzip member with a line per execution; returns the payload hashes its steps reference
+    private Set<String> archive(List<UUID> ids, Path file) {
+        Map<UUID, List<WorkflowExecutionStep>> stepsByExecution = new HashMap<>();
+        List<WorkflowExecutionStep> allSteps = new ArrayList<>();
+        for (Object[] row : stepRepo.findWithExecutionIds(ids)) {
+            WorkflowExecutionStep step = (WorkflowExecutionStep) row[1];
+            stepsByExecution.computeIfAbsent((UUID) row[0], id -> new ArrayList<>()).add(step);
+            allSteps.add(step);
+        }
+        Map<UUID, List<WorkflowErrorLog>> errorsByExecution = new HashMap<>();
+        for (WorkflowErrorLog error : errorRepo.findByExecutionIdIn(ids)) {
+            errorsByExecution.computeIfAbsent(error.getExecutionId(), id -> new ArrayList<>()).add(error);
+        }
+        Map<String, String> payloads = payloadStore.load(allSteps);
+
+        try {
+            Files.createDirectories(file.getParent());
+            try (FileOutputStream out = new FileOutputStream(file.toFile(), true);
+                 GZIPOutputStream gzip = new GZIPOutputStream(out, 64 * 1024)) {
+                for (WorkflowExecution execution : executionRepo.findAllById(ids)) {
+                    Map<String, Object> line = new LinkedHashMap<>();
+                    line.put("executionId", execution.getExecutionId());
+                    line.put("workflowName", execution.getWorkflowName());
+                    line.put("executedAt", execution.getExecutedAt());
+                    line.put("status", execution.getStatus());
+                    line.put("steps", stepsByExecution.getOrDefault(execution.getExecutionId(), List.of()).stream()
+                            .map(step -> archivedStep(step, payloads)).toList());
+                    line.put("errors", errorsByExecution.getOrDefault(execution.getExecutionId(), List.of()).stream()
+                            .map(error -> Map.of("errorMessage", String.valueOf(error.getErrorMessage()), "timestamp", String.valueOf(error.getTimestamp())))
+                            .toList());
+                    gzip.write(objectMapper.writeValueAsBytes(line));
+                    gzip.write('\n');
+                }
+                gzip.finish();
+                out.getFD().sync(); // on disk before the rows are deleted
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Cannot archive executions to " + file, ex);
+        }
+        Set<String> hashes = new HashSet<>();
+        for (WorkflowExecutionStep step : allSteps) {
+            for (String ref : Arrays.asList(step.getRequestBodyRef(), step.getRequestHeadersRef(), step.getQueryParamsRef(), step.getResponseRef())) {
+                if (ref != null) hashes.add(ref);
+            }
+        }
+        return hashes;
+    }
+
+    private Map<String, Object> archivedStep(WorkflowExecutionStep step, Map<String, String> payloads) {
+        Map<String, Object> stepMap = new LinkedHashMap<>();
+        stepMap.put("nodeId", step.getNodeId());
+        stepMap.put("nodeName", step.getNodeName());
+        stepMap.put("requestUrl", step.getRequestUrl());
+        stepMap.put("requestBody", StepPayloadStore.text(step.getRequestBody(), step.getRequestBodyRef(), payloads));
+        stepMap.put("requestHeaders", StepPayloadStore.text(step.getRequestHeaders(), step.getRequestHeadersRef(), payloads));
+        stepMap.put("queryParams", StepPayloadStore.text(step.getQueryParams(), step.getQueryParamsRef(), payloads));
+        stepMap.put("response", StepPayloadStore.text(step.getResponse(), step.getResponseRef(), payloads));
+        stepMap.put("statusCode", step.getStatusCode());
+        stepMap.put("status", step.getStatus());
+        stepMap.put("skipped", step.isSkipped());
+        stepMap.put("cacheHit", step.isCacheHit());
+        stepMap.put("attemptCount", step.getAttemptCount());
+        stepMap.put("attemptStartedAt", step.getAttemptStartedAt());
+        stepMap.put("durationMs", step.getDurationMs());
+        stepMap.put("backoffMs", step.getBackoffMs());
+        stepMap.put("createdAt", step.getCreatedAt());
+        return stepMap;
+    }
+
+    private static String fileName(String workflowName) {
+        return workflowName.replaceAll("[^A-Za-z0-9._-]", "_");
+    }
+
+    private void pause() {
+        try {
+            Thread.sleep(properties.getBatchPauseMs());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Retention run interrupted", ex);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.integratedworkflowmanager.service;
+
+import com.example.integratedworkflowmanager.engine.RunJournal;
+import com.example.integratedworkflowmanager.engine.RunOptions;
+import com.example.integratedworkflowmanager.entity.WorkflowExecution;
+import com.example.integratedworkflowmanager.repository.WorkflowExecutionRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.Optional;
+import java.util.Set;
+
+/*
+    Deals with the runs the RunJournal found interrupted when the application starts
+    (workflow.journal.recovery):
+
+        1. Runs whose execution is no longer IN_PROGRESS finished after all (only their RUN_END was
+           lost) and are just dropped from the journal. So are runs a worker had claimed: their lease
+           expires and a worker reclaims them (see WorkflowWorker).
+        2. Every other run is marked FAIL, with an error log naming the nodes that were in flight.
+        3. RESUME then continues it on an async worker via WorkflowService.resumeWorkflow: nodes that
+           succeeded are restored from their steps, the interrupted node runs again. FAIL stops at 2;
+           the execution can still be resumed by hand.
+*/
+@Component
+@Slf4j
+public class RunRecovery {
+
+    public enum Mode { FAIL, RESUME }
+
+    private final RunJournal journal;
+    private final WorkflowExecutionRepository executionRepo;
+    private final WorkflowTransactionalService transactionalService;
+    private final WorkflowService workflowService;
+    private final WorkflowRunQueue runQueue;
+    private final Mode mode;
+
+    public RunRecovery(RunJournal journal,
+                       WorkflowExecutionRepository executionRepo,
+                       WorkflowTransactionalService transactionalService,
+                       WorkflowService workflowService,
+                       WorkflowRunQueue runQueue,
+                       @Value("${workflow.journal.recovery:FAIL}") Mode mode) {
+        this.journal = journal;
+        this.executionRepo = executionRepo;
+        this.transactionalService = transactionalService;
+        this.workflowService = workflowService;
+        this.runQueue = runQueue;
+        this.mode = mode;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void recover() {
+        for (RunJournal.InterruptedRun run : journal.interruptedRuns()) {
+            try {
+                recover(run);
+            } catch (Exception ex) {
+                log.error("❌ Recovery of execution {} failed: {}", run.executionId(), ex.getMessage());
+            }
+        }
+    }
+
+    private void recover(RunJournal.InterruptedRun run) {
+        Optional<WorkflowExecution> execution = executionRepo.findById(run.executionId());
+        if (execution.isEmpty() || !Set.of("IN_PROGRESS", "QUEUED").contains(execution.get().getStatus())
+                || execution.get().getLeaseExpiresAt() != null) {
+            journal.forget(run.executionId());
+            return;
+        }
+
+        String message = "Interrupted by a restart; nodes completed: " + run.completedNodes() + ", in flight: " + run.inFlightNodes();
+        transactionalService.saveWorkflowError(run.executionId(), run.workflowName(), message);
+        transactionalService.updateWorkflowStatus(run.executionId(), "FAIL");
+        journal.forget(run.executionId());
+        log.warn("📒 Execution {} of {} was interrupted ({}) and is marked FAIL", run.executionId(), run.workflowName(), message);
+
+        if (mode == Mode.RESUME) {
+            if (!runQueue.tryReserve()) {
+                log.warn("⚠️ Run queue is full, execution {} is not resumed automatically", run.executionId());
+                return;
+            }
+            runQueue.execute(() -> {
+                try {
+                    Object status = workflowService.resumeWorkflow(run.executionId(), RunOptions.DEFAULT).get("status");
+                    log.info("⏩ Resumed interrupted execution {}: {}", run.executionId(), status);
+                } catch (RuntimeException ex) {
+                    log.warn("⚠️ Interrupted execution {} cannot be resumed: {}", run.executionId(), ex.getMessage());
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package com.example.integratedworkflowmanager.service;
+
+import com.example.integratedworkflowmanager.entity.StepPayload;
+import com.example.integratedworkflowmanager.entity.WorkflowExecutionStep;
+import com.example.integratedworkflowmanager.repository.StepPayloadRepository;
+import lombok.extern.slf4j.Slf4j;
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4FastDecompressor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/*
+    Keeps large step payloads out of workflow_execution_steps (workflow.payload.*).
+
+        1. Before a step is stored, each of its request body / headers / query params / response
+           longer than offload-threshold-bytes is moved to step_payloads: the step column is set
+           to null and the matching *_ref column to the payload's SHA-256.
+        2. Payloads are LZ4-compressed (compression: LZ4 | NONE); when compression does not make
+           a payload smaller it is stored as is.
+        3. Payloads are content-addressed and inserted with INSERT IGNORE, so identical payloads
+           are stored once. Every write inserts its payloads again, in the transaction of its steps:
+           a payload that exists already costs a key lookup, and retention cannot delete it between
+           the check and the step insert (see StepPayloadRepository.deleteUnreferenced).
+        4. Reading (GET /executions/{executionId}) loads the referenced payloads of all steps in
+           one query and decompresses them; callers see the same text as before.
+        5. Retention deletes a payload once the last step referencing it is gone.
+
+    Compression and hashing happen in extract(...), outside the insert transaction.
+*/
+@Component
+@Slf4j
+public class StepPayloadStore {
+
+    public enum Compression { LZ4, NONE }
+
+    private static final LZ4Factory LZ4 = LZ4Factory.fastestInstance();
+
+    private final StepPayloadRepository repository;
+    private final boolean enabled;
+    private final int thresholdBytes;
+    private final Compression compression;
+
+    public StepPayloadStore(StepPayloadRepository repository,
+                            @Value("${workflow.payload.offload:true}") boolean enabled,
+                            @Value("${workflow.payload.offload-threshold-bytes:4096}") int thresholdBytes,
+                            @Value("${workflow.payload.compression:LZ4}") Compression compression) {
+        this.repository = repository;
+        this.enabled = enabled;
+        this.thresholdBytes = thresholdBytes;
+        this.compression = compression;
+    }
+
+    // Moves the step's large payloads out of it; returns the payloads to insert with the step
+    public List<StepPayload> extract(WorkflowExecutionStep step) {
+        if (!enabled) {
+            return List.of();
+        }
+        List<StepPayload> payloads = new ArrayList<>(0);
+        offload(step.getRequestBody(), step::setRequestBody, step::setRequestBodyRef, payloads);
+        offload(step.getRequestHeaders(), step::setRequestHeaders, step::setRequestHeadersRef, payloads);
+        offload(step.getQueryParams(), step::setQueryParams, step::setQueryParamsRef, payloads);
+        offload(step.getResponse(), step::setResponse, step::setResponseRef, payloads);
+        return payloads;
+    }
+
+    public List<StepPayload> extract(List<WorkflowExecutionStep> steps) {
+        List<StepPayload> payloads = new ArrayList<>();
+        steps.forEach(step -> payloads.addAll(extract(step)));
+        return payloads;
+    }
+
+    // Called inside the step transaction, before the steps referencing the payloads are inserted
+    public void insert(List<StepPayload> payloads) {
+        for (StepPayload payload : payloads) {
+            repository.insertIgnore(payload.getHash(), payload.getCodec(), payload.getOriginalLength(),
+                    payload.getData(), payload.getCreatedAt());
+        }
+    }
+
+    // Payloads among the given hashes that no step references any more are deleted (retention)
+    public int deleteUnreferenced(Collection<String> hashes) {
+        if (hashes.isEmpty()) {
+            return 0;
+        }
+        return repository.deleteUnreferenced(hashes);
+    }
+
+    // Decompressed text of every payload referenced by the steps, keyed by hash
+    public Map<String, String> load(List<WorkflowExecutionStep> steps) {
+        Set<String> hashes = new HashSet<>();
+        for (WorkflowExecutionStep step : steps) {
+            for (String ref : List.of(
+                    Objects.toString(step.getRequestBodyRef(), ""),
+                    Objects.toString(step.getRequestHeadersRef(), ""),
+                    Objects.toString(step.getQueryParamsRef(), ""),
+                    Objects.toString(step.getResponseRef(), ""))) {
+                if (!ref.isEmpty()) hashes.add(ref);
+            }
+        }
+        if (hashes.isEmpty()) {
+            return Map.of();
+        }
+
+        Map<String, String> texts = new HashMap<>();
+        for (StepPayload payload : repository.findAllById(hashes)) {
+            texts.put(payload.getHash(), decode(payload));
+        }
+        return texts;
+    }
+
+    // The step column when the payload is inline, otherwise the loaded payload text
+    public static String text(String inline, String ref, Map<String, String> loaded) {
+        return ref == null ? inline : loaded.get(ref);
+    }
+
+    private void offload(String text, Consumer<String> setInline, Consumer<String> setRef, List<StepPayload> payloads) {
+        if (text == null || text.length() * 3L <= thresholdBytes) {
+            return; // fits whatever the characters: at most 3 UTF-8 bytes per char
+        }
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length <= thresholdBytes) {
+            return;
+        }
+
+        String hash = sha256(bytes);
+        setInline.accept(null);
+        setRef.accept(hash);
+        if (payloads.stream().anyMatch(p -> p.getHash().equals(hash))) {
+            return;
+        }
+        payloads.add(encode(hash, bytes));
+    }
+
+    private StepPayload encode(String hash, byte[] bytes) {
+        String codec = "NONE";
+        byte[] data = bytes;
+        if (compression == Compression.LZ4) {
+            LZ4Compressor compressor = LZ4.fastCompressor();
+            byte[] compressed = compressor.compress(bytes);
+            if (compressed.length < bytes.length) {
+                codec = "LZ4";
+                data = compressed;
+            }
+        }
+        return StepPayload.builder()
+                .hash(hash)
+                .codec(codec)
+                .originalLength(bytes.length)
+                .data(data)
+                .createdAt(LocalDateTime.now())
+                .build();
+    }
+
+    private String decode(StepPayload payload) {
+        byte[] bytes = payload.getData();
+        if ("LZ4".equals(payload.getCodec())) {
+            LZ4FastDecompressor decompressor = LZ4.fastDecompressor();
+            bytes = decompressor.decompress(bytes, payload.getOriginalLength());
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static String sha256(byte[] bytes) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(bytes));
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+}
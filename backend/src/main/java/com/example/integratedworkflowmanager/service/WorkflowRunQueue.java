@@ -0,0 +1,56 @@
+package com.example.integratedworkflowmanager.service;
+
+import com.example.integratedworkflowmanager.engine.WorkflowMetrics;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+
+/*
+    Bounded hand-off for asynchronous runs.
+
+        - Capacity is workers + queue-capacity slots; a slot is held from reserve() until the
+          run finishes on a runExecutor worker.
+        - Callers reserve a slot before persisting anything, so a full queue is rejected
+          without leaving QUEUED executions behind.
+*/
+@Component
+public class WorkflowRunQueue {
+
+    private final ExecutorService runExecutor;
+    private final Semaphore slots;
+
+    public WorkflowRunQueue(@Qualifier("runExecutor") ExecutorService runExecutor,
+                            @Value("${workflow.async.workers:16}") int workers,
+                            @Value("${workflow.async.queue-capacity:1000}") int queueCapacity,
+                            WorkflowMetrics metrics) {
+        this.runExecutor = runExecutor;
+        this.slots = new Semaphore(workers + queueCapacity);
+        metrics.gauge("workflow.async.slots.available", "Free slots for asynchronous runs", slots, Semaphore::availablePermits);
+    }
+
+    public boolean tryReserve() {
+        return slots.tryAcquire();
+    }
+
+    public void release() {
+        slots.release();
+    }
+
+    // Runs the task on a worker and frees the caller's reserved slot once it completes
+    public void execute(Runnable task) {
+        runExecutor.execute(() -> {
+            try {
+                task.run();
+            } finally {
+                slots.release();
+            }
+        });
+    }
+
+    public int availableSlots() {
+        return slots.availablePermits();
+    }
+}
@@ -1,13 +1,30 @@
 package com.example.integratedworkflowmanager.service;
 
-import com.example.integratedworkflowmanager.dto.WorkflowExecutionDto;
+import com.example.integratedworkflowmanager.dto.ExecutionFilter;
+import com.example.integratedworkflowmanager.dto.ExecutionPage;
+import com.example.integratedworkflowmanager.engine.RunLease;
+import com.example.integratedworkflowmanager.engine.RunOptions;
+import com.example.integratedworkflowmanager.entity.WorkflowExecution;
 
-import java.util.List;
+import reactor.core.publisher.Mono;
+
+import java.io.OutputStream;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.UUID;
+import java.util.function.Consumer;
 
 public interface WorkflowService {
-    Map<String, Object> runWorkflow(String workflowName, Map<String, Object> inputParams);
+    Map<String, Object> runWorkflow(String workflowName, Map<String, Object> inputParams, RunOptions options);
+    Mono<Map<String, Object>> runWorkflowReactive(String workflowName, Map<String, Object> inputParams, RunOptions options);
+    boolean usesReactiveEngine(String workflowName);
+    Map<String, Object> resumeWorkflow(UUID executionId, RunOptions options);
+    Map<String, Object> runClaimed(WorkflowExecution execution, RunLease lease);
+    Map<String, Object> submitWorkflow(String workflowName, Map<String, Object> inputParams, RunOptions options);
+    Map<String, Object> runBatch(String workflowName, Iterator<Map<String, Object>> inputs, int concurrency,
+                                 RunOptions options, Consumer<Map<String, Object>> onResult);
     void saveWorkflowFromJsonFile(String name, String workflowJson);
-    List<WorkflowExecutionDto> getExecutionHistory();
+    ExecutionPage getExecutionHistory(ExecutionFilter filter, String cursor, int limit);
+    void streamExecutionHistory(ExecutionFilter filter, OutputStream out);
 }
 
@@ -1,21 +1,42 @@
 package com.example.integratedworkflowmanager.service;
 
-import com.example.integratedworkflowmanager.dto.ExecutionStepDto;
-import com.example.integratedworkflowmanager.dto.WorkflowExecutionDto;
+import com.example.integratedworkflowmanager.dto.*;
+import com.example.integratedworkflowmanager.engine.EngineMode;
+import com.example.integratedworkflowmanager.engine.ExecutionTrace;
+import com.example.integratedworkflowmanager.engine.ExecutionTracer;
+import com.example.integratedworkflowmanager.engine.PlanNode;
+import com.example.integratedworkflowmanager.engine.ReactiveWorkflowEngine;
+import com.example.integratedworkflowmanager.engine.RunJournal;
+import com.example.integratedworkflowmanager.engine.RunLease;
+import com.example.integratedworkflowmanager.engine.RunOptions;
+import com.example.integratedworkflowmanager.engine.WorkflowEngine;
+import com.example.integratedworkflowmanager.engine.WorkflowMetrics;
+import com.example.integratedworkflowmanager.engine.WorkflowPlan;
+import com.example.integratedworkflowmanager.engine.WorkflowPlanCache;
+import com.example.integratedworkflowmanager.engine.WorkflowRun;
 import com.example.integratedworkflowmanager.entity.*;
-import com.example.integratedworkflowmanager.interfaces.FunctionRegistry;
 import com.example.integratedworkflowmanager.repository.*;
-import com.example.integratedworkflowmanager.util.ContextDebugUtils;
+import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.mvel2.MVEL;
-import org.springframework.data.domain.Sort;
-import org.springframework.http.*;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 
 @Service
 @RequiredArgsConstructor
@@ -24,341 +45,514 @@ public class WorkflowServiceImpl implements WorkflowService {
 
     private final WorkflowDefinitionRepository workflowDefinitionRepository;
     private final WorkflowExecutionRepository workflowExecutionRepository;
-    private final WorkflowExecutionStepRepository stepRepository;
     private final WorkflowErrorLogRepository errorLogRepository;
 
-    private final ObjectMapper objectMapper = new ObjectMapper();
-    private final RestTemplate restTemplate = new RestTemplate();
-
     private final WorkflowTransactionalService transactionalService;
     private final WorkflowExecutionStepRepository workflowExecutionStepRepository;
+    private final WorkflowPlanCache workflowPlanCache;
+    private final WorkflowEngine workflowEngine;
+    private final ReactiveWorkflowEngine reactiveEngine;
+    private final WorkflowRunQueue runQueue;
+    private final WorkflowStepWriter stepWriter;
+    private final WorkflowMetrics metrics;
+    private final ExecutionTracer tracer;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final StepPayloadStore stepPayloadStore;
+    private final RunJournal runJournal;
+
+    @Qualifier("batchExecutor")
+    private final ExecutorService batchExecutor;
+
+    @Value("${workflow.engine.mode:blocking}")
+    private String defaultEngineMode;
+
+    @Value("${workflow.worker.enabled:false}")
+    private boolean workerMode;
 
     /*
         High-level flow of this method:
-            1. Loads the workflow by name
-            2. Loops through each node (step)
-            3. Evaluates its condition (optional MVEL logic)
-            4. Skips if the condition is false or already run (idempotency)
-            5. Otherwise builds and sends the API call
-            6. Saves each step’s execution info
-            7. Supports retries for failure
-            8. Returns final result status
-
-            ****** Flowchart TD ******
-                A[runWorkflow()] --> B[Loop over nodes]
-                B --> C{Condition met?}
-                C -- No --> D[Skip Node]
-                C -- Yes --> E{Idempotent?}
-                E -- Already run --> F[Log step as skipped]
-                E -- Not run --> G[Resolve Expressions]
-                G --> H[Build Request (URL, Body, Headers, Params)]
-                H --> I[Send API call with retries]
-                I --> J[Log Step]
-                J --> B
-                B --> K[Update Workflow Status]
-                K --> L[Return result map]
+            1. Records the execution as IN_PROGRESS
+            2. Runs it on the calling thread (see execute below)
+            3. Returns the result map once every node has finished
      */
     @Override
-    public Map<String, Object> runWorkflow(String workflowName, Map<String, Object> inputParams) {
-        Map<String, Object> context = new HashMap<>(inputParams);
-        Map<String, Object> resultMap = new HashMap<>();
-        String applicationId = (String) inputParams.get("applicationId"); // assume it's passed in payload
-
-        WorkflowExecution execution = WorkflowExecution.builder()
-                .workflowName(workflowName)
-                .executedAt(LocalDateTime.now())
-                .status("IN_PROGRESS")
-                .build();
+    public Map<String, Object> runWorkflow(String workflowName, Map<String, Object> inputParams, RunOptions options) {
+        WorkflowExecution execution = startExecution(workflowName, "IN_PROGRESS", inputParams);
+        return execute(execution, inputParams, options);
+    }
 
-        execution = transactionalService.saveWorkflowExecution(execution);
-        UUID executionId = execution.getExecutionId();
+    /*
+        Variant of runWorkflow for plans executed by the ReactiveWorkflowEngine:
+            1. Records the execution as IN_PROGRESS on the persistence scheduler
+            2. Runs the nodes without blocking the calling thread
+            3. Emits the same result map as runWorkflow once every node has finished
+     */
+    @Override
+    public Mono<Map<String, Object>> runWorkflowReactive(String workflowName, Map<String, Object> inputParams, RunOptions options) {
+        return reactiveEngine.offload(() -> startExecution(workflowName, "IN_PROGRESS", inputParams))
+                .flatMap(execution -> executeReactive(execution, null, inputParams, Map.of(), tracer.start(execution, options), null));
+    }
 
+    // Engine from the workflow JSON, or workflow.engine.mode; unknown workflows use the blocking path, which records the error
+    @Override
+    public boolean usesReactiveEngine(String workflowName) {
         try {
-            WorkflowDefinition def = workflowDefinitionRepository.findByName(workflowName)
-                    .orElseThrow(() -> new RuntimeException("Workflow not found: " + workflowName));
+            return engineFor(workflowPlanCache.getPlan(workflowName)) == EngineMode.REACTIVE;
+        } catch (Exception ex) {
+            return false;
+        }
+    }
 
-            Map<String, Object> json = objectMapper.readValue(def.getWorkflowJson(), Map.class);
-            List<Map<String, Object>> nodes = (List<Map<String, Object>>) json.get("nodes");
+    private EngineMode engineFor(WorkflowPlan plan) {
+        return plan.getEngine() != null ? plan.getEngine() : EngineMode.from(defaultEngineMode);
+    }
 
-            for (Map<String, Object> node : nodes) {
-                Integer nodeId = (Integer) node.get("id");
-                String nodeName = (String) node.get("name");
-                String condition = (String) node.getOrDefault("condition", "true");
+    /*
+        Asynchronous variant used by POST /run/{name}?async=true:
+            1. Reserves a slot; when workers and queue are all taken, throws RejectedExecutionException
+               without persisting anything (the controller turns this into 429)
+            2. Records the execution as QUEUED and returns its executionId immediately
+            3. A WorkflowRunQueue worker marks it IN_PROGRESS and runs it; the outcome is read back
+               through GET /executions/{executionId}
+        In worker mode (workflow.worker.enabled) the run is only recorded as QUEUED: whichever
+        instance claims it first runs it (see WorkflowWorker), so there is no local slot to reserve.
+     */
+    @Override
+    public Map<String, Object> submitWorkflow(String workflowName, Map<String, Object> inputParams, RunOptions options) {
+        if (workerMode) {
+            WorkflowExecution execution = startExecution(workflowName, "QUEUED", inputParams);
+            Map<String, Object> resultMap = new HashMap<>();
+            resultMap.put("status", "QUEUED");
+            resultMap.put("executionId", execution.getExecutionId());
+            return resultMap;
+        }
 
-                Map<String, Object> mvelContext = createMvelContext(context);
+        if (!runQueue.tryReserve()) {
+            throw new RejectedExecutionException("Run queue is full, retry later");
+        }
 
-                // Printing Context Map on console
-                ContextDebugUtils.printContextAsTable(mvelContext, "Before Evaluating Condition for Node: " + nodeName);
+        boolean handedOff = false;
+        try {
+            WorkflowExecution execution = startExecution(workflowName, "QUEUED", inputParams);
+            runQueue.execute(() -> {
+                transactionalService.updateWorkflowStatus(execution.getExecutionId(), "IN_PROGRESS");
+                execute(execution, inputParams, options);
+            });
+            handedOff = true;
+
+            Map<String, Object> resultMap = new HashMap<>();
+            resultMap.put("status", "QUEUED");
+            resultMap.put("executionId", execution.getExecutionId());
+            return resultMap;
+        } finally {
+            if (!handedOff) {
+                runQueue.release();
+            }
+        }
+    }
 
-                log.debug("Evaluating condition: {}", condition);
-                log.debug("Available keys: {}", mvelContext.keySet());
+    /*
+        Runs one workflow for every input of a batch (POST /run/{name}/batch):
+            1. Loads the compiled plan once; every run of the batch shares it and the HTTP pool
+            2. Reads inputs lazily and starts each one on a batchExecutor worker, with at most
+               `concurrency` runs in flight; reading waits for a free slot, so a large upload is
+               never held in memory
+            3. Hands every result (index, executionId, status, duration) to onResult as soon as its
+               run completes, in completion order
+            4. Waits for the last run and returns the summary (counts, duration, runs per second)
+        A malformed input ends reading; the runs already started still complete and the
+        summary carries the error.
+     */
+    @Override
+    public Map<String, Object> runBatch(String workflowName, Iterator<Map<String, Object>> inputs, int concurrency,
+                                        RunOptions options, Consumer<Map<String, Object>> onResult) {
+        long batchStart = System.nanoTime();
+        Semaphore slots = new Semaphore(concurrency);
+        AtomicInteger succeeded = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+        AtomicInteger unwritten = new AtomicInteger();
+        int submitted = 0;
+        String inputError = null;
 
-                if (!MVEL.evalToBoolean(condition, mvelContext)){
-                    log.info("Skipping node {} due to condition", nodeName);
-                    continue;
+        try {
+            WorkflowPlan plan = workflowPlanCache.getPlan(workflowName);
+            while (true) {
+                Map<String, Object> input;
+                try {
+                    if (!inputs.hasNext()) break;
+                    input = inputs.next();
+                } catch (RuntimeException ex) {
+                    inputError = "Invalid input #" + submitted + ": " + ex.getMessage();
+                    log.warn("❌ Batch for {} stopped reading inputs: {}", workflowName, inputError);
+                    break;
                 }
 
-                // 💡 Check idempotency
-                String rawKey = (String) node.get("idempotency_key");
-                String idempotencyKey = resolveExpressions(rawKey, context); // resolve {{applicationId}} or other dynamic parts
-
-                if (rawKey != null) {
-                    if (applicationId != null && idempotencyKey != null) {
-                        boolean alreadyExecuted = stepRepository
-                                .existsByApplicationIdAndExecution_WorkflowNameAndNodeNameAndSkippedFalse(
-                                        applicationId,
-                                        workflowName,
-                                        nodeName
-                                );
-
-                        if (alreadyExecuted) {
-                            log.info("⏭️ Skipping node {} due to idempotencyKey match (key: {})", nodeName, idempotencyKey);
-
-                            transactionalService.saveWorkflowStep(
-                                    WorkflowExecutionStep.builder()
-                                            .execution(execution)
-                                            .nodeId(nodeId)
-                                            .nodeName(nodeName)
-                                            .applicationId(applicationId)
-                                            .idempotencyKey(idempotencyKey)
-                                            .skipped(true)
-                                            .statusCode(0)
-                                            .build()
-                            );
-
-                            continue;
+                int index = submitted++;
+                slots.acquire();
+                try {
+                    batchExecutor.execute(() -> {
+                        try {
+                            Map<String, Object> line = runBatchInput(workflowName, plan, index, input, options);
+                            ("SUCCESS".equals(line.get("status")) ? succeeded : failed).incrementAndGet();
+                            writeBatchLine(workflowName, onResult, line, unwritten);
+                        } finally {
+                            slots.release();
                         }
-                    }
-                } else {
-                    log.debug("ℹ️ Node {} does not define idempotency_key — skipping idempotency check", nodeName);
+                    });
+                } catch (RejectedExecutionException ex) {
+                    slots.release();
+                    failed.incrementAndGet();
+                    inputError = "Batch run #" + index + " rejected: " + ex.getMessage();
+                    log.error("❌ Batch for {} stopped submitting runs: {}", workflowName, inputError);
+                    writeBatchLine(workflowName, onResult, Map.of("index", index, "status", "FAIL", "error", inputError), unwritten);
+                    break;
                 }
+            }
+            slots.acquire(concurrency); // every run of the batch has completed
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            inputError = "Batch interrupted";
+        } catch (Exception ex) {
+            inputError = ex.getMessage();
+        }
 
-                String url = resolveExpressions((String) node.get("request_url"), context);
-                String method = ((String) node.getOrDefault("method", "GET")).toUpperCase();
+        metrics.recordBatch(workflowName, submitted, batchStart);
+        long durationMs = (System.nanoTime() - batchStart) / 1_000_000;
+
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("workflowName", workflowName);
+        summary.put("total", submitted);
+        summary.put("succeeded", succeeded.get());
+        summary.put("failed", failed.get());
+        summary.put("durationMs", durationMs);
+        summary.put("runsPerSecond", durationMs == 0 ? submitted : submitted * 1000.0 / durationMs);
+        if (unwritten.get() > 0) {
+            summary.put("unwritten", unwritten.get());
+        }
+        if (inputError != null) {
+            summary.put("error", inputError);
+        }
+        return summary;
+    }
 
-                Map<String, Object> body = resolveMap((Map<String, Object>) node.get("request_body"), context);
-                Map<String, Object> headers = resolveMap((Map<String, Object>) node.get("request_headers"), context);
-                Map<String, Object> queryParams = resolveMap((Map<String, Object>) node.get("query_params"), context);
+    // Result line of one batch run; a run that throws becomes a FAIL line
+    private Map<String, Object> runBatchInput(String workflowName, WorkflowPlan plan, int index,
+                                              Map<String, Object> input, RunOptions options) {
+        try {
+            Map<String, Object> params = input == null ? new HashMap<>() : input;
+            long runStart = System.nanoTime();
+            Map<String, Object> result = execute(startExecution(workflowName, "IN_PROGRESS", params), plan, params, options);
+
+            Map<String, Object> line = new LinkedHashMap<>();
+            line.put("index", index);
+            if (params.containsKey("applicationId")) {
+                line.put("applicationId", params.get("applicationId"));
+            }
+            line.putAll(result);
+            line.put("durationMs", (System.nanoTime() - runStart) / 1_000_000);
+            return line;
+        } catch (Exception ex) {
+            log.error("❌ Batch run #{} of {} failed: {}", index, workflowName, ex.getMessage());
+            return Map.of("index", index, "status", "FAIL", "error", String.valueOf(ex.getMessage()));
+        }
+    }
 
-                if (!queryParams.isEmpty()) {
-                    url += "?" + buildQuery(queryParams);
-                }
+    // The run is counted already; a line the caller cannot write (e.g. the client went away) is only counted as unwritten
+    private void writeBatchLine(String workflowName, Consumer<Map<String, Object>> onResult,
+                                Map<String, Object> line, AtomicInteger unwritten) {
+        try {
+            onResult.accept(line);
+        } catch (RuntimeException ex) {
+            unwritten.incrementAndGet();
+            log.warn("⚠️ Batch result #{} of {} could not be written: {}", line.get("index"), workflowName, ex.getMessage());
+        }
+    }
 
-                HttpHeaders httpHeaders = new HttpHeaders();
-                headers.forEach((k, v) -> httpHeaders.set(k, v.toString()));
-                HttpEntity<?> entity = new HttpEntity<>(body.isEmpty() ? null : body, httpHeaders);
-
-                Integer maxRetries = (Integer) node.getOrDefault("retry", 0);
-                int attempt = 0;
-                boolean success = false;
-
-                while (attempt <= maxRetries && !success) {
-                    attempt++;
-
-                    try {
-                        ResponseEntity<String> response = restTemplate.exchange(url, HttpMethod.valueOf(method), entity, String.class);
-                        String responseBody = response.getBody();
-                        context.put(nodeName, objectMapper.readValue(responseBody, Object.class));
-
-                        transactionalService.saveWorkflowStep(
-                                WorkflowExecutionStep.builder()
-                                        .execution(execution)
-                                        .nodeId(nodeId)
-                                        .nodeName(nodeName)
-                                        .requestUrl(url)
-                                        .requestBody(objectMapper.writeValueAsString(body))
-                                        .requestHeaders(objectMapper.writeValueAsString(headers))
-                                        .queryParams(objectMapper.writeValueAsString(queryParams))
-                                        .response(responseBody)
-                                        .statusCode(response.getStatusCodeValue())
-                                        .applicationId(applicationId)
-                                        .idempotencyKey(idempotencyKey)
-                                        .skipped(false)
-                                        .attemptCount(attempt)
-                                        .build()
-                        );
-
-                        success = true;
-                    } catch (Exception ex) {
-                        log.warn("Attempt {} failed for node {}: {}", attempt, nodeName, ex.getMessage());
-
-                        transactionalService.saveWorkflowStep(
-                                WorkflowExecutionStep.builder()
-                                        .execution(execution)
-                                        .nodeId(nodeId)
-                                        .nodeName(nodeName)
-                                        .requestUrl(url)
-                                        .requestBody(objectMapper.writeValueAsString(body))
-                                        .requestHeaders(objectMapper.writeValueAsString(headers))
-                                        .queryParams(objectMapper.writeValueAsString(queryParams))
-                                        .response(ex.getMessage())
-                                        .statusCode(500)
-                                        .applicationId(applicationId)
-                                        .idempotencyKey(idempotencyKey)
-                                        .skipped(false)
-                                        .attemptCount(attempt)
-                                        .build()
-                        );
-
-                        if (attempt > maxRetries) {
-                            transactionalService.updateWorkflowStatus(executionId, "FAIL");
-                            resultMap.put("status", "FAIL");
-                            resultMap.put("executionId", executionId);
-                            return resultMap;
-                        }
-                }
-}
+    // Inputs and definition version are recorded so the execution can be resumed (see resumeWorkflow)
+    private WorkflowExecution startExecution(String workflowName, String status, Map<String, Object> inputParams) {
+        WorkflowExecution execution = WorkflowExecution.builder()
+                .workflowName(workflowName)
+                .executedAt(LocalDateTime.now())
+                .status(status)
+                .inputJson(toJson(inputParams))
+                .workflowVersion(currentVersion(workflowName))
+                .build();
 
-            } // for loop ends
+        return transactionalService.saveWorkflowExecution(execution);
+    }
 
-            transactionalService.updateWorkflowStatus(executionId, "SUCCESS");
-            resultMap.put("status", "SUCCESS");
-            resultMap.put("executionId", executionId);
-            return resultMap;
+    private String toJson(Map<String, Object> inputParams) {
+        try {
+            return objectMapper.writeValueAsString(inputParams);
+        } catch (Exception ex) {
+            log.warn("⚠️ Inputs are not serializable, the execution cannot be resumed: {}", ex.getMessage());
+            return null;
+        }
+    }
 
+    // null for unknown workflows; their run fails and records the error as before
+    private Long currentVersion(String workflowName) {
+        try {
+            return workflowPlanCache.getPlan(workflowName).getVersion();
         } catch (Exception ex) {
-            log.error("Workflow execution failed: {}", ex.getMessage());
-            transactionalService.saveWorkflowError(executionId, workflowName, ex.getMessage());
-            transactionalService.updateWorkflowStatus(executionId, "FAIL");
-            resultMap.put("status", "FAIL");
-            resultMap.put("executionId", executionId);
-            resultMap.put("error", ex.getMessage());
-            return resultMap;
+            return null;
         }
     }
 
     /*
-        This method replaces placeholders like {{applicationId}} in single values:
+        Continues a failed execution instead of starting a new one (POST /executions/{id}/resume):
+            1. Only FAIL executions that recorded their inputs can be resumed, and only while the
+               definition is still at the version they ran with
+            2. Moves the execution back to IN_PROGRESS with a conditional update, so two concurrent
+               resumes of one execution cannot both run it
+            3. Rebuilds the context from the recorded inputs plus the response of every node that
+               has a SUCCESS step (offloaded payloads included); a node whose response was not
+               captured in full (capture truncate / none) runs again
+            4. Runs the plan on the same execution: restored nodes are neither evaluated nor called
+               again, every other node runs as usual (condition, idempotency, retries) and its
+               steps are appended to the execution
+        Throws NoSuchElementException for unknown executions and IllegalStateException when the
+        execution cannot be resumed.
+     */
+    @Override
+    public Map<String, Object> resumeWorkflow(UUID executionId, RunOptions options) {
+        WorkflowExecution execution = workflowExecutionRepository.findById(executionId)
+                .orElseThrow(() -> new NoSuchElementException("No execution found with ID: " + executionId));
+        if (!"FAIL".equals(execution.getStatus())) {
+            throw new IllegalStateException("Only failed executions can be resumed; " + executionId + " is " + execution.getStatus());
+        }
+        if (execution.getInputJson() == null) {
+            throw new IllegalStateException("Execution " + executionId + " did not record its inputs and cannot be resumed");
+        }
 
-            1. https://api.example.com/data/{{applicationId}} with actual values from the context map.
-            2. Looks for {{...}} patterns
-            3. Evaluates the expression using MVEL with the enhanced context
-            4. Returns a string with expressions resolved
-            5. Used for request_url, idempotency_key, etc.
-    */
-    private String resolveExpressions(String template, Map<String, Object> contextData) {
-        if (template == null) return "";
-
-        if (template.contains("{{")) {
-            Map<String, Object> context = createMvelContext(contextData); // <-- fix here
-            StringBuffer result = new StringBuffer();
-            int start, end = 0;
-            while ((start = template.indexOf("{{", end)) != -1) {
-                result.append(template, end, start);
-                end = template.indexOf("}}", start);
-                if (end == -1) break;
-                String expression = template.substring(start + 2, end).trim();
-                Object evaluated = MVEL.eval(expression, context); // <-- use enhanced context
-                result.append(evaluated != null ? evaluated.toString() : "");
-                end += 2;
-            }
-            result.append(template.substring(end));
-            return result.toString();
+        WorkflowPlan plan;
+        Map<String, Object> inputParams;
+        try {
+            plan = workflowPlanCache.getCurrentPlan(execution.getWorkflowName());
+            inputParams = objectMapper.readValue(execution.getInputJson(), new TypeReference<>() { });
+        } catch (Exception ex) {
+            throw new IllegalStateException("Execution " + executionId + " cannot be resumed: " + ex.getMessage(), ex);
+        }
+        if (!Objects.equals(plan.getVersion(), execution.getWorkflowVersion())) {
+            throw new IllegalStateException("Workflow " + execution.getWorkflowName() + " changed since execution " + executionId
+                    + " ran (version " + execution.getWorkflowVersion() + " → " + plan.getVersion() + "); start a new run instead");
+        }
+
+        Map<String, Object> restored = completedResponses(execution, plan);
+        if (!transactionalService.reopenFailedExecution(executionId)) {
+            throw new IllegalStateException("Execution " + executionId + " is already being resumed");
         }
+        execution.setStatus("IN_PROGRESS");
+        log.info("⏩ Resuming execution {} of {} with {} completed node(s): {}", executionId, execution.getWorkflowName(), restored.size(), restored.keySet());
 
-        return template;
+        Map<String, Object> resultMap = execute(execution, plan, inputParams, restored, options);
+        resultMap.put("resumed", true);
+        resultMap.put("restoredNodes", restored.keySet());
+        return resultMap;
     }
 
     /*
-        This takes a json object (key-value pairs) as map for headers, body, queryParams that may contain dynamic strings like:
-
-            {
-              "Authorization": "Bearer {{token}}",
-              "applicantId": "{{applicationId}}"
+        Runs an execution a WorkflowWorker has claimed (already IN_PROGRESS and leased to it):
+            1. Reads the inputs recorded when the run was submitted
+            2. A first attempt runs the plan as usual. A reclaimed run (its previous worker stopped
+               renewing the lease) continues like a resume: nodes with a SUCCESS step are restored,
+               the others run again, provided the definition is still at the version it started with
+            3. Runs that cannot be started are marked FAIL with an error log
+            4. The final status is only recorded while the execution is still leased to the worker
+        Runs use the default options: a trace requested on another instance would not be readable there.
+     */
+    @Override
+    public Map<String, Object> runClaimed(WorkflowExecution execution, RunLease lease) {
+        UUID executionId = execution.getExecutionId();
+        WorkflowPlan plan;
+        Map<String, Object> inputParams;
+        Map<String, Object> restored = Map.of();
+        try {
+            if (execution.getInputJson() == null) {
+                throw new IllegalStateException("Execution did not record its inputs");
+            }
+            inputParams = objectMapper.readValue(execution.getInputJson(), new TypeReference<>() { });
+            plan = workflowPlanCache.getCurrentPlan(execution.getWorkflowName());
+            if (execution.getAttempts() != null && execution.getAttempts() > 1) {
+                if (!Objects.equals(plan.getVersion(), execution.getWorkflowVersion())) {
+                    throw new IllegalStateException("Workflow " + execution.getWorkflowName() + " changed since the run started (version "
+                            + execution.getWorkflowVersion() + " → " + plan.getVersion() + ")");
+                }
+                restored = completedResponses(execution, plan);
+                log.info("⏩ Reclaimed execution {} of {} (attempt {}) with {} completed node(s): {}", executionId,
+                        execution.getWorkflowName(), execution.getAttempts(), restored.size(), restored.keySet());
             }
+        } catch (Exception ex) {
+            log.error("❌ Claimed execution {} cannot run: {}", executionId, ex.getMessage());
+            Map<String, Object> resultMap = new HashMap<>();
+            transactionalService.saveWorkflowError(executionId, execution.getWorkflowName(), ex.getMessage());
+            recordStatus(executionId, "FAIL", lease, resultMap);
+            resultMap.put("status", "FAIL");
+            resultMap.put("executionId", executionId);
+            resultMap.put("error", ex.getMessage());
+            return resultMap;
+        }
+        return execute(execution, plan, inputParams, restored, RunOptions.DEFAULT, lease);
+    }
 
-            - and evaluates all string values that contain {{...}} using MVEL.
-            - Used for resolving maps like headers/body/params before sending requests.
-    */
-    private Map<String, Object> resolveMap(Map<String, Object> raw, Map<String, Object> contextData) {
-        Map<String, Object> resolved = new HashMap<>();
-        if (raw == null) return resolved;
-
-        Map<String, Object> context = createMvelContext(contextData);
-
-        for (var entry : raw.entrySet()) {
-            Object value = entry.getValue();
-            if (value instanceof String str && str.contains("{{")) {
-                String expr = str.replace("{{", "").replace("}}", "");
-                Object evaluated = MVEL.eval(expr, context);
-                resolved.put(entry.getKey(), evaluated);
-            } else {
-                resolved.put(entry.getKey(), value);
+    // Parsed response of every node of the plan with a SUCCESS step, by node name
+    private Map<String, Object> completedResponses(WorkflowExecution execution, WorkflowPlan plan) {
+        List<WorkflowExecutionStep> steps = workflowExecutionStepRepository.findByExecutionOrderByNodeIdAsc(execution).stream()
+                .filter(step -> "SUCCESS".equals(step.getStatus()))
+                .toList();
+        Map<String, String> payloads = stepPayloadStore.load(steps);
+
+        Map<String, Object> responses = new LinkedHashMap<>();
+        for (PlanNode node : plan.getNodes()) {
+            if (node.getCapture() != null && node.getCapture() != PlanNode.Capture.FULL) continue;
+            for (WorkflowExecutionStep step : steps) {
+                if (!node.getName().equals(step.getNodeName())) continue;
+                String response = StepPayloadStore.text(step.getResponse(), step.getResponseRef(), payloads);
+                try {
+                    responses.put(node.getName(), objectMapper.readValue(response, Object.class));
+                } catch (Exception ex) {
+                    log.warn("⚠️ Response of node {} cannot be restored, it runs again: {}", node.getName(), ex.getMessage());
+                }
+                break;
             }
         }
-        return resolved;
+        return responses;
     }
 
     /*
-        Used when appending query params to request_url.
-        Converts a map like:
-            {
-              "userId": "123",
-              "active": true
-            }
+        Runs an execution that has already been recorded:
+            1. Loads the compiled workflow plan by name (cached, see WorkflowPlanCache)
+            2. Hands the plan to WorkflowEngine, which runs the nodes in order, or as a
+               dependency graph for parallel plans (condition, idempotency, API call, retries)
+            3. Flushes buffered step records (see WorkflowStepWriter), updates the workflow status
+               and returns the result map
+        Traced runs (requested or sampled, see ExecutionTracer) also get a "trace" link in the result.
+     */
+    private Map<String, Object> execute(WorkflowExecution execution, Map<String, Object> inputParams, RunOptions options) {
+        return execute(execution, null, inputParams, Map.of(), options);
+    }
 
-        Into a query string: userId=123&active=true
-    */
-    private String buildQuery(Map<String, Object> params) {
-        List<String> parts = new ArrayList<>();
-        params.forEach((k, v) -> parts.add(k + "=" + v.toString()));
-        return String.join("&", parts);
+    private Map<String, Object> execute(WorkflowExecution execution, WorkflowPlan knownPlan,
+                                        Map<String, Object> inputParams, RunOptions options) {
+        return execute(execution, knownPlan, inputParams, Map.of(), options);
+    }
+
+    private Map<String, Object> execute(WorkflowExecution execution, WorkflowPlan knownPlan, Map<String, Object> inputParams,
+                                        Map<String, Object> restored, RunOptions options) {
+        return execute(execution, knownPlan, inputParams, restored, options, null);
     }
 
     /*
-        Creates an MVEL-friendly context with:
-            1. All input variables (applicationId, etc.)
-            2. Utility functions like:
-                - math → MathUtils
-                - stringUtils → StringUtils
-                - base64 → ExpressionUtils (your custom)
-            3. This allows you to use helper functions like:
-                - {{math.min(income, 5000)}}
-                - {{stringUtils.trim(name)}}
-            4. In below example, we are showing the usage of custom functions from 3 different ways:
-                - Util class like MathUtils and StringUtils
-                - Inline direct call to functional interfaces like MVELFunction<T, R> and MVELBiFunction<T, U, R>
-                - Calling methods from a custom registry class like FunctionRegistry which has implemenation of all functions
-            5. Note that when you are using all these 3 methods, you have to be careful about the names of the functions to avoid collisions.
+        plan is null unless the caller already loaded it (batch runs, resumes); restored holds the
+        responses of nodes a resume skips; lease is set for runs claimed by a WorkflowWorker.
+        Every way of starting a run ends here, so a plan's engine applies to all of them: a REACTIVE
+        plan goes through executeReactive (same restore, lease and status handling) and the calling
+        worker thread waits for it.
     */
-    private Map<String, Object> createMvelContext(Map<String, Object> inputContext) {
-        // Below line adds all the methods from FunctionRegistry class to the mvel context
-        Map<String, Object> context = FunctionRegistry.getMvelContext(inputContext);
-
-        // Printing context keys and values
-        context.keySet().stream().sorted()
-                .forEach(k -> System.out.println(k + " → " + context.get(k)));
-
-        return context;
-
-        /*
-        You can have separate classes having certain methods defined in them
-        and add them to the mvel context like below:
-
-            context.put("base64", ExpressionUtils.class);
-            context.put("math", MathUtils.class);
-            context.put("stringUtils", StringUtils.class);
-        */
-
-        /*
-        You can have inline lambda implementations defined for the
-        Functional Interfaces and add them to the context like below:
-
-            // Lambda-based direct functional interface call using MVELFunction<T, R>
-            context.put("toUpper", (MVELFunction<String, String>) String::toUpperCase);
-            context.put("trim", (MVELFunction<String, String>) String::trim);
-            context.put("square", (MVELFunction<Integer, Integer>) x -> x * x);
-            context.put("doubleIt", (MVELFunction<Number, Number>) x -> x.doubleValue() * 2);
-            context.put("isEven", (MVELFunction<Integer, Boolean>) x -> x % 2 == 0);
-
-            // Lambda-based direct functional interface call using MVELBiFunction<T, U, R>
-            context.put("add", (MVELBiFunction<Number, Number, Number>) (a, b) -> a.doubleValue() + b.doubleValue());
-            context.put("subtract", (MVELBiFunction<Number, Number, Number>) (a, b) -> a.doubleValue() - b.doubleValue());
-            context.put("concat", (MVELBiFunction<String, String, String>) (a, b) -> a + b);
-            context.put("max", (MVELBiFunction<Number, Number, Number>) (a, b) -> Math.max(a.doubleValue(), b.doubleValue()));
-            context.put("min", (MVELBiFunction<Number, Number, Number>) (a, b) -> Math.min(a.doubleValue(), b.doubleValue()));
-        */
+    private Map<String, Object> execute(WorkflowExecution execution, WorkflowPlan knownPlan, Map<String, Object> inputParams,
+                                        Map<String, Object> restored, RunOptions options, RunLease lease) {
+        Map<String, Object> resultMap = new HashMap<>();
+        ExecutionTrace trace = tracer.start(execution, options);
+        putTraceLink(resultMap, trace);
+        UUID executionId = execution.getExecutionId();
+        String workflowName = execution.getWorkflowName();
+        long runStart = System.nanoTime();
 
+        try {
+            WorkflowPlan plan = knownPlan != null ? knownPlan : workflowPlanCache.getPlan(workflowName);
+            if (engineFor(plan) == EngineMode.REACTIVE) {
+                return executeReactive(execution, plan, inputParams, restored, trace, lease).block();
+            }
+            WorkflowRun run = new WorkflowRun(plan, execution, inputParams, trace);
+            restored.forEach(run::restore);
+            run.setLease(lease);
+            runJournal.runStarted(run);
+
+            boolean success = workflowEngine.execute(run);
+            String status = success ? "SUCCESS" : "FAIL";
+
+            stepWriter.completeRun();
+            recordStatus(executionId, status, lease, resultMap);
+            runJournal.runEnded(executionId, status);
+            metrics.recordRun(workflowName, EngineMode.BLOCKING, status, runStart);
+            resultMap.put("status", status);
+            resultMap.put("executionId", executionId);
+            return resultMap;
+
+        } catch (Exception ex) {
+            log.error("Workflow execution failed: {}", ex.getMessage());
+            stepWriter.completeRun();
+            transactionalService.saveWorkflowError(executionId, workflowName, ex.getMessage());
+            recordStatus(executionId, "FAIL", lease, resultMap);
+            runJournal.runEnded(executionId, "FAIL");
+            metrics.recordRun(workflowName, EngineMode.BLOCKING, "FAIL", runStart);
+            resultMap.put("status", "FAIL");
+            resultMap.put("executionId", executionId);
+            resultMap.put("error", ex.getMessage());
+            return resultMap;
+        }
+    }
+
+    // A leased run only records its status while the row is still leased to its worker; otherwise another worker owns the outcome
+    private void recordStatus(UUID executionId, String status, RunLease lease, Map<String, Object> resultMap) {
+        if (lease == null) {
+            transactionalService.updateWorkflowStatus(executionId, status);
+        } else if (!transactionalService.finishLeasedExecution(executionId, lease.getWorkerId(), status)) {
+            log.warn("🛑 Execution {} is no longer leased to worker {}, its status {} is not recorded", executionId, lease.getWorkerId(), status);
+            resultMap.put("leaseLost", true);
+        }
+    }
+
+    // Same steps as execute(...), with every database call offloaded by the reactive engine
+    private Mono<Map<String, Object>> executeReactive(WorkflowExecution execution, WorkflowPlan knownPlan, Map<String, Object> inputParams,
+                                                      Map<String, Object> restored, ExecutionTrace trace, RunLease lease) {
+        UUID executionId = execution.getExecutionId();
+        String workflowName = execution.getWorkflowName();
+        long runStart = System.nanoTime();
+
+        return (knownPlan != null ? Mono.just(knownPlan) : reactiveEngine.offload(() -> workflowPlanCache.getPlan(workflowName)))
+                .flatMap(plan -> {
+                    WorkflowRun run = new WorkflowRun(plan, execution, inputParams, trace);
+                    restored.forEach(run::restore);
+                    run.setLease(lease);
+                    runJournal.runStarted(run);
+                    return reactiveEngine.execute(run);
+                })
+                .flatMap(success -> reactiveEngine.offload(() -> {
+                    String status = success ? "SUCCESS" : "FAIL";
+                    Map<String, Object> resultMap = new HashMap<>();
+                    stepWriter.completeRun();
+                    recordStatus(executionId, status, lease, resultMap);
+                    runJournal.runEnded(executionId, status);
+                    metrics.recordRun(workflowName, EngineMode.REACTIVE, status, runStart);
+
+                    resultMap.put("status", status);
+                    resultMap.put("executionId", executionId);
+                    putTraceLink(resultMap, trace);
+                    return resultMap;
+                }))
+                .onErrorResume(ex -> reactiveEngine.offload(() -> {
+                    log.error("Workflow execution failed: {}", ex.getMessage());
+                    Map<String, Object> resultMap = new HashMap<>();
+                    stepWriter.completeRun();
+                    transactionalService.saveWorkflowError(executionId, workflowName, ex.getMessage());
+                    recordStatus(executionId, "FAIL", lease, resultMap);
+                    runJournal.runEnded(executionId, "FAIL");
+                    metrics.recordRun(workflowName, EngineMode.REACTIVE, "FAIL", runStart);
+
+                    resultMap.put("status", "FAIL");
+                    resultMap.put("executionId", executionId);
+                    resultMap.put("error", ex.getMessage());
+                    putTraceLink(resultMap, trace);
+                    return resultMap;
+                }));
+    }
+
+    private void putTraceLink(Map<String, Object> resultMap, ExecutionTrace trace) {
+        if (trace != null) {
+            resultMap.put("trace", "/api/engine/traces/" + trace.getExecutionId());
+        }
     }
 
     public void saveWorkflowFromJsonFile(String name, String workflowJson) {
@@ -368,36 +562,84 @@ public class WorkflowServiceImpl implements WorkflowService {
                 .createdAt(LocalDateTime.now())
                 .build();
         workflowDefinitionRepository.save(definition);
+        workflowPlanCache.invalidate(name);
     }
 
-    public List<WorkflowExecutionDto> getExecutionHistory() {
-        List<WorkflowExecution> executions = workflowExecutionRepository.findAll(Sort.by(Sort.Direction.DESC, "executedAt"));
-        List<WorkflowExecutionDto> result = new ArrayList<>();
-
-        for (WorkflowExecution exec : executions) {
-            List<WorkflowExecutionStep> steps = workflowExecutionStepRepository.findByExecutionOrderByNodeIdAsc(exec);
-            List<ExecutionStepDto> stepDtos = steps.stream()
-                    .map(step -> ExecutionStepDto.builder()
-                            .nodeId(step.getNodeId())
-                            .nodeName(step.getNodeName())
-                            .requestUrl(step.getRequestUrl())
-                            .skipped(step.isSkipped())
-                            .statusCode(step.getStatusCode() == 0 ? null : step.getStatusCode())
-                            .createdAt(step.getCreatedAt())
-                            .build())
-                    .toList();
-
-            result.add(WorkflowExecutionDto.builder()
-                    .executionId(exec.getExecutionId())
-                    .workflowName(exec.getWorkflowName())
-                    .executedAt(exec.getExecutedAt())
-                    .status(exec.getStatus())
-                    .steps(stepDtos)
-                    .build());
+    /*
+        One page of the execution history in two queries, whatever the page size:
+            1. A keyset query for the next `limit` executions after the cursor (newest first),
+               projected straight into DTOs
+            2. One query for the non-LOB columns of all their steps, grouped per execution
+        One extra row is fetched to know whether another page follows.
+     */
+    @Override
+    public ExecutionPage getExecutionHistory(ExecutionFilter filter, String cursor, int limit) {
+        ExecutionCursor after = cursor == null || cursor.isBlank() ? null : ExecutionCursor.decode(cursor);
+
+        List<WorkflowExecutionDto> executions = new ArrayList<>(workflowExecutionRepository.findHistoryPage(
+                filter.workflowName(),
+                filter.status(),
+                filter.from(),
+                filter.to(),
+                after == null ? null : after.executedAt(),
+                after == null ? null : after.executionId(),
+                Limit.of(limit + 1)));
+
+        String nextCursor = null;
+        if (executions.size() > limit) {
+            executions.remove(limit);
+            WorkflowExecutionDto last = executions.get(limit - 1);
+            nextCursor = new ExecutionCursor(last.getExecutedAt(), last.getExecutionId()).encode();
         }
 
-        return result;
+        Map<UUID, List<ExecutionStepDto>> stepsByExecution = new HashMap<>();
+        if (!executions.isEmpty()) {
+            List<UUID> ids = executions.stream().map(WorkflowExecutionDto::getExecutionId).toList();
+            for (ExecutionStepSummary step : workflowExecutionStepRepository.findSummariesByExecutionIds(ids)) {
+                stepsByExecution.computeIfAbsent(step.executionId(), k -> new ArrayList<>()).add(step.toDto());
+            }
+        }
+        executions.forEach(exec -> exec.setSteps(stepsByExecution.getOrDefault(exec.getExecutionId(), List.of())));
+
+        return new ExecutionPage(executions, nextCursor);
     }
 
+    /*
+        Writes the filtered execution history as NDJSON, one execution (with its steps) per line:
+            1. Rows come from a forward-only MySQL cursor inside a read-only transaction
+            2. Rows of the same execution are adjacent, so only the current execution is held
+               in memory; it is written out as soon as the next execution starts
+     */
+    @Override
+    public void streamExecutionHistory(ExecutionFilter filter, OutputStream out) {
+        transactionTemplate.executeWithoutResult(status -> {
+            status.setRollbackOnly(); // read-only export
+            try (var rows = workflowExecutionRepository.streamHistory(
+                    filter.workflowName(), filter.status(), filter.from(), filter.to())) {
+
+                WorkflowExecutionDto current = null;
+                for (var iterator = rows.iterator(); iterator.hasNext(); ) {
+                    ExecutionHistoryRow row = iterator.next();
+                    if (current == null || !current.getExecutionId().equals(row.executionId())) {
+                        writeLine(current, out);
+                        current = new WorkflowExecutionDto(row.executionId(), row.workflowName(), row.executedAt(), row.status());
+                        current.setSteps(new ArrayList<>());
+                    }
+                    if (row.hasStep()) {
+                        current.getSteps().add(row.toStepDto());
+                    }
+                }
+                writeLine(current, out);
+                out.flush();
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        });
+    }
 
+    private void writeLine(WorkflowExecutionDto execution, OutputStream out) throws IOException {
+        if (execution == null) return;
+        out.write(objectMapper.writeValueAsBytes(execution));
+        out.write('\n');
+    }
 }
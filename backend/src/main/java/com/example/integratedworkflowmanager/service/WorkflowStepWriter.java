@@ -0,0 +1,204 @@
+package com.example.integratedworkflowmanager.service;
+
+import com.example.integratedworkflowmanager.engine.WorkflowMetrics;
+import com.example.integratedworkflowmanager.entity.StepPayload;
+import com.example.integratedworkflowmanager.entity.WorkflowExecutionStep;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.locks.ReentrantLock;
+
+/*
+    Write-behind journal for WorkflowExecutionStep records (workflow.persistence.*).
+
+        - SYNC: every step is inserted in its own transaction as soon as it is written (the original behaviour).
+        - BATCHED: steps are buffered in memory and inserted with JDBC batch inserts, in one
+          transaction per batch, when batch-size steps are waiting or every flush-interval-ms.
+          completeRun() flushes synchronously, so a run's steps are stored before its status changes.
+        - ASYNC: like BATCHED, but completeRun() only schedules the flush; the run does not wait
+          for its steps to be stored, and a crash can lose the last flush-interval-ms of steps.
+
+    createdAt is stamped when a step is written, not when it is inserted. With BATCHED / ASYNC,
+    steps that are still buffered are not visible in the execution history until the next flush
+    (idempotency does not depend on them; see IdempotencyLedger). When buffer-capacity steps are waiting, the writing thread flushes inline.
+
+    Large payloads are moved to step_payloads (StepPayloadStore) before each insert, in the same transaction as the steps.
+
+    A failed batch insert is retried (batch-retries times), then its steps are inserted one by one, so one
+    bad step or a transient error does not lose the whole batch. Steps that cannot be stored even alone are
+    counted (workflow.step.persist.failed) and their runs are flagged with steps_incomplete.
+*/
+@Component
+@Slf4j
+public class WorkflowStepWriter {
+
+    public enum Durability {
+        SYNC,
+        BATCHED,
+        ASYNC
+    }
+
+    private final WorkflowTransactionalService transactionalService;
+    private final WorkflowMetrics metrics;
+    private final StepPayloadStore payloadStore;
+    private final Durability durability;
+    private final int batchSize;
+    private final int batchRetries;
+    private final BlockingQueue<WorkflowExecutionStep> buffer;
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final ScheduledExecutorService flusher;
+
+    public WorkflowStepWriter(WorkflowTransactionalService transactionalService,
+                              WorkflowMetrics metrics,
+                              StepPayloadStore payloadStore,
+                              @Value("${workflow.persistence.step-mode:SYNC}") Durability durability,
+                              @Value("${workflow.persistence.batch-size:100}") int batchSize,
+                              @Value("${workflow.persistence.batch-retries:1}") int batchRetries,
+                              @Value("${workflow.persistence.flush-interval-ms:200}") long flushIntervalMs,
+                              @Value("${workflow.persistence.buffer-capacity:10000}") int bufferCapacity) {
+        this.transactionalService = transactionalService;
+        this.metrics = metrics;
+        this.payloadStore = payloadStore;
+        this.durability = durability;
+        this.batchSize = batchSize;
+        this.batchRetries = batchRetries;
+        this.buffer = new LinkedBlockingQueue<>(bufferCapacity);
+        this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "workflow-step-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        metrics.gauge("workflow.step.buffer.pending", "Steps buffered and not yet stored", buffer, BlockingQueue::size);
+
+        if (durability != Durability.SYNC) {
+            flusher.scheduleWithFixedDelay(this::flush, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    public void write(WorkflowExecutionStep step) {
+        if (step.getCreatedAt() == null) {
+            step.setCreatedAt(LocalDateTime.now());
+        }
+
+        if (durability == Durability.SYNC) {
+            long persistStart = System.nanoTime();
+            List<StepPayload> payloads = payloadStore.extract(step);
+            if (!saveOne(step, payloads)) {
+                markIncomplete(Collections.singleton(executionId(step)));
+            }
+            metrics.recordPersist("single", persistStart);
+            return;
+        }
+
+        while (!buffer.offer(step)) {
+            flush(); // buffer full: the writer pays for the flush (back-pressure)
+        }
+        if (buffer.size() >= batchSize) {
+            flusher.execute(this::flush);
+        }
+    }
+
+    // Called when a run finishes, before its final status is recorded
+    public void completeRun() {
+        switch (durability) {
+            case BATCHED -> flush();
+            case ASYNC -> flusher.execute(this::flush);
+            default -> { }
+        }
+    }
+
+    public void flush() {
+        flushLock.lock();
+        try {
+            List<WorkflowExecutionStep> batch = new ArrayList<>(batchSize);
+            while (buffer.drainTo(batch, batchSize) > 0) {
+                long persistStart = System.nanoTime();
+                List<List<StepPayload>> payloads = batch.stream().map(payloadStore::extract).toList();
+                if (saveBatch(batch, payloads)) {
+                    metrics.recordPersist("batch", persistStart);
+                } else {
+                    saveOneByOne(batch, payloads);
+                }
+                batch.clear();
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private boolean saveBatch(List<WorkflowExecutionStep> batch, List<List<StepPayload>> payloads) {
+        List<StepPayload> all = payloads.stream().flatMap(List::stream).toList();
+        for (int attempt = 0; attempt <= batchRetries; attempt++) {
+            try {
+                transactionalService.saveWorkflowSteps(batch, all);
+                return true;
+            } catch (Exception ex) {
+                log.warn("⚠️ Failed to store {} workflow steps (attempt {} of {}): {}",
+                        batch.size(), attempt + 1, batchRetries + 1, ex.getMessage());
+                batch.forEach(step -> step.setId(null)); // ids generated by the rolled back insert
+            }
+        }
+        metrics.recordPersistFailure("batch", batch.size());
+        return false;
+    }
+
+    // Fallback for a batch that cannot be inserted: every step that can be stored alone is kept
+    private void saveOneByOne(List<WorkflowExecutionStep> batch, List<List<StepPayload>> payloads) {
+        Set<UUID> incomplete = new HashSet<>();
+        for (int i = 0; i < batch.size(); i++) {
+            WorkflowExecutionStep step = batch.get(i);
+            long persistStart = System.nanoTime();
+            if (saveOne(step, payloads.get(i))) {
+                metrics.recordPersist("single", persistStart);
+            } else {
+                incomplete.add(executionId(step));
+            }
+        }
+        markIncomplete(incomplete);
+    }
+
+    private boolean saveOne(WorkflowExecutionStep step, List<StepPayload> payloads) {
+        try {
+            transactionalService.saveWorkflowStep(step, payloads);
+            return true;
+        } catch (Exception ex) {
+            log.error("❌ Failed to store workflow step {} of execution {}: {}", step.getNodeName(), executionId(step), ex.getMessage());
+            step.setId(null);
+            metrics.recordPersistFailure("single", 1);
+            return false;
+        }
+    }
+
+    private void markIncomplete(Set<UUID> executionIds) {
+        List<UUID> known = executionIds.stream().filter(Objects::nonNull).toList();
+        if (known.isEmpty()) return;
+        try {
+            transactionalService.markStepsIncomplete(known);
+        } catch (Exception ex) {
+            log.error("❌ Cannot flag executions {} as having lost steps: {}", known, ex.getMessage());
+        }
+    }
+
+    private static UUID executionId(WorkflowExecutionStep step) {
+        return step.getExecution() != null ? step.getExecution().getExecutionId() : null;
+    }
+
+    public int pending() {
+        return buffer.size();
+    }
+
+    public Durability getDurability() {
+        return durability;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flusher.shutdown();
+        flush();
+    }
+}
@@ -1,18 +1,23 @@
 package com.example.integratedworkflowmanager.service;
 
+import com.example.integratedworkflowmanager.entity.StepPayload;
 import com.example.integratedworkflowmanager.entity.WorkflowErrorLog;
 import com.example.integratedworkflowmanager.entity.WorkflowExecution;
 import com.example.integratedworkflowmanager.entity.WorkflowExecutionStep;
 import com.example.integratedworkflowmanager.repository.WorkflowErrorLogRepository;
 import com.example.integratedworkflowmanager.repository.WorkflowExecutionRepository;
 import com.example.integratedworkflowmanager.repository.WorkflowExecutionStepRepository;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 
 @Service
@@ -22,7 +27,7 @@ public class WorkflowTransactionalService {
     private final WorkflowExecutionRepository executionRepo;
     private final WorkflowExecutionStepRepository stepRepo;
     private final WorkflowErrorLogRepository errorRepo;
-    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final StepPayloadStore stepPayloadStore;
 
     @Transactional(Transactional.TxType.REQUIRES_NEW)
     public WorkflowExecution saveWorkflowExecution(WorkflowExecution execution) {
@@ -38,54 +43,102 @@ public class WorkflowTransactionalService {
     }
 
     /**
-     * Save a detailed execution step with idempotency support.
+     * Move a failed execution back to IN_PROGRESS; false when it is not (or no longer) FAIL.
      */
     @Transactional(Transactional.TxType.REQUIRES_NEW)
-    public void saveWorkflowStep(
-            WorkflowExecution execution,
-            Integer nodeId,
-            String nodeName,
-            String url,
-            Map<String, Object> body,
-            Map<String, Object> headers,
-            Map<String, Object> query,
-            String response,
-            int statusCode,
-            String applicationId,
-            String idempotencyKey,
-            boolean skipped
-    ) {
-        try {
-            WorkflowExecutionStep step = WorkflowExecutionStep.builder()
-                    .execution(execution)
-                    .nodeId(nodeId)
-                    .nodeName(nodeName)
-                    .requestUrl(url)
-                    .requestBody(objectMapper.writeValueAsString(body))
-                    .requestHeaders(objectMapper.writeValueAsString(headers))
-                    .queryParams(objectMapper.writeValueAsString(query))
-                    .response(response)
-                    .statusCode(statusCode)
-                    .applicationId(applicationId)
-                    .idempotencyKey(idempotencyKey)
-                    .skipped(skipped)
-                    .build();
-            stepRepo.save(step);
-        } catch (Exception e) {
-            // optionally log error silently
-        }
+    public boolean reopenFailedExecution(UUID executionId) {
+        return executionRepo.updateStatusIf(executionId, "FAIL", "IN_PROGRESS") == 1;
     }
 
     /**
-     * Overloaded version for pre-built step (e.g., for skipped node cases).
+     * Claim up to limit runs for a worker: runs whose lease expired first, then QUEUED runs, oldest first.
      */
     @Transactional(Transactional.TxType.REQUIRES_NEW)
-    public void saveWorkflowStep(WorkflowExecutionStep step) {
-        try {
-            stepRepo.save(step);
-        } catch (Exception e) {
-            // optionally log error silently
+    public List<WorkflowExecution> claimExecutions(String workerId, int limit, long leaseMs) {
+        List<String> ids = new ArrayList<>(executionRepo.lockExpiredLeases(limit));
+        if (ids.size() < limit) {
+            ids.addAll(executionRepo.lockQueued(limit - ids.size()));
+        }
+        if (ids.isEmpty()) {
+            return List.of();
         }
+        executionRepo.claim(ids, workerId, leaseMs);
+        return executionRepo.findAllById(ids.stream().map(UUID::fromString).toList());
+    }
+
+    /**
+     * Extend the leases of runs a worker still holds; returns how many it still owns.
+     */
+    @Transactional(Transactional.TxType.REQUIRES_NEW)
+    public int renewLeases(String workerId, Collection<UUID> executionIds, long leaseMs) {
+        return executionRepo.renewLeases(executionIds.stream().map(UUID::toString).toList(), workerId, leaseMs);
+    }
+
+    /**
+     * Record the final status of a leased run and end its lease; false when the run is no longer leased to this worker.
+     */
+    @Transactional(Transactional.TxType.REQUIRES_NEW)
+    public boolean finishLeasedExecution(UUID executionId, String workerId, String status) {
+        return executionRepo.finishLeased(executionId, workerId, status) == 1;
+    }
+
+    /**
+     * Flag runs some of whose step records could not be stored.
+     */
+    @Transactional(Transactional.TxType.REQUIRES_NEW)
+    public void markStepsIncomplete(Collection<UUID> executionIds) {
+        executionRepo.markStepsIncomplete(executionIds);
+    }
+
+    /**
+     * Runs among the given ones that are still IN_PROGRESS and leased to the worker.
+     */
+    @Transactional(Transactional.TxType.REQUIRES_NEW)
+    public Set<UUID> findLeased(String workerId, Collection<UUID> executionIds) {
+        return new HashSet<>(executionRepo.findLeased(executionIds, workerId));
+    }
+
+    @Transactional(Transactional.TxType.REQUIRES_NEW)
+    public void endLease(String workerId, UUID executionId) {
+        executionRepo.endLease(executionId.toString(), workerId);
+    }
+
+    /**
+     * Store the offloaded payloads of a step, then the step, in one transaction.
+     */
+    @Transactional(Transactional.TxType.REQUIRES_NEW)
+    public void saveWorkflowStep(WorkflowExecutionStep step, List<StepPayload> payloads) {
+        stepPayloadStore.insert(payloads);
+        stepRepo.save(step);
+    }
+
+    /**
+     * Insert the offloaded payloads of a batch, then the batch, in one transaction (JDBC batched, see hibernate.jdbc.batch_size).
+     */
+    @Transactional(Transactional.TxType.REQUIRES_NEW)
+    public void saveWorkflowSteps(List<WorkflowExecutionStep> steps, List<StepPayload> payloads) {
+        stepPayloadStore.insert(payloads);
+        stepRepo.saveAll(steps);
+    }
+
+    /**
+     * Remove a batch of expired executions with their steps, error logs and payloads no other step uses.
+     */
+    @Transactional(Transactional.TxType.REQUIRES_NEW)
+    public Map<String, Integer> deleteExecutions(Collection<UUID> executionIds, Collection<String> payloadHashes) {
+        int errors = errorRepo.deleteByExecutionIds(executionIds);
+        int steps = stepRepo.deleteByExecutionIds(executionIds);
+        int executions = executionRepo.deleteByIds(executionIds);
+        int payloads = stepPayloadStore.deleteUnreferenced(payloadHashes);
+        return Map.of("executions", executions, "steps", steps, "errors", errors, "payloads", payloads);
+    }
+
+    /**
+     * Delete payloads no step references any more (after step partitions were dropped).
+     */
+    @Transactional(Transactional.TxType.REQUIRES_NEW)
+    public int deleteUnreferencedPayloads(Collection<String> payloadHashes) {
+        return stepPayloadStore.deleteUnreferenced(payloadHashes);
     }
 
     @Transactional(Transactional.TxType.REQUIRES_NEW)
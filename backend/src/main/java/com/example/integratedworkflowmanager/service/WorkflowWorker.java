@@ -0,0 +1,226 @@
+package com.example.integratedworkflowmanager.service;
+
+import com.example.integratedworkflowmanager.engine.RunLease;
+import com.example.integratedworkflowmanager.engine.WorkflowMetrics;
+import com.example.integratedworkflowmanager.entity.WorkflowExecution;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.lang.management.ManagementFactory;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+    Worker mode (workflow.worker.*): every instance pulls runs from workflow_executions instead of
+    running them where the HTTP request landed, so adding instances adds throughput and MySQL is the
+    only thing they share.
+
+        1. Every poll-interval-ms, and again whenever a run finishes while there is a backlog, the
+           worker claims up to its free slots (concurrency): runs whose lease expired first, then
+           QUEUED runs, oldest first. The rows are locked FOR UPDATE SKIP LOCKED, so workers
+           polling at the same time claim different runs without waiting for each other.
+        2. A claimed run is IN_PROGRESS and leased to this worker for lease-ms. A heartbeat renews
+           the leases of all runs it holds every heartbeat-interval-ms.
+        3. When an instance dies or stalls, its leases expire and other workers reclaim its runs.
+           A reclaimed run continues like a resume (see WorkflowServiceImpl.runClaimed), and the
+           idempotency ledger stops nodes that already completed from calling their API twice.
+        4. A run claimed more than max-attempts times keeps taking workers down with it, and is
+           marked FAIL instead of being run again.
+
+    lease-ms must comfortably exceed heartbeat-interval-ms. A run whose lease is lost (a heartbeat
+    finds the row leased to another worker, or no heartbeat succeeded for lease-ms) is cancelled:
+    it starts no further node or retry, and its final status is only recorded while the row is
+    still leased to this worker, so it never overwrites the outcome of the worker that took over.
+*/
+@Component
+@Slf4j
+public class WorkflowWorker {
+
+    private final WorkflowTransactionalService transactionalService;
+    private final WorkflowService workflowService;
+    private final WorkflowMetrics metrics;
+    private final ExecutorService workerExecutor;
+    private final boolean enabled;
+    private final String workerId;
+    private final int concurrency;
+    private final long pollIntervalMs;
+    private final long leaseMs;
+    private final long heartbeatIntervalMs;
+    private final int maxAttempts;
+
+    private final Semaphore slots;
+    private final Map<UUID, RunLease> active = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService scheduler;
+    private final AtomicLong claimed = new AtomicLong();
+    private final AtomicLong reclaimed = new AtomicLong();
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong abandoned = new AtomicLong();
+    private final AtomicLong lostLeases = new AtomicLong();
+    private volatile boolean backlog;
+    private volatile boolean stopping;
+
+    public WorkflowWorker(WorkflowTransactionalService transactionalService,
+                          WorkflowService workflowService,
+                          WorkflowMetrics metrics,
+                          @Qualifier("workerExecutor") ExecutorService workerExecutor,
+                          @Value("${workflow.worker.enabled:false}") boolean enabled,
+                          @Value("${workflow.worker.id:}") String workerId,
+                          @Value("${workflow.worker.concurrency:8}") int concurrency,
+                          @Value("${workflow.worker.poll-interval-ms:500}") long pollIntervalMs,
+                          @Value("${workflow.worker.lease-ms:30000}") long leaseMs,
+                          @Value("${workflow.worker.heartbeat-interval-ms:10000}") long heartbeatIntervalMs,
+                          @Value("${workflow.worker.max-attempts:3}") int maxAttempts) {
+        if (enabled && heartbeatIntervalMs >= leaseMs) {
+            throw new IllegalArgumentException("workflow.worker.heartbeat-interval-ms must be shorter than lease-ms");
+        }
+        this.transactionalService = transactionalService;
+        this.workflowService = workflowService;
+        this.metrics = metrics;
+        this.workerExecutor = workerExecutor;
+        this.enabled = enabled;
+        // Unique per process, so the runs of a restarted instance are reclaimed rather than mistaken for its own
+        this.workerId = workerId.isBlank()
+                ? ManagementFactory.getRuntimeMXBean().getName() + "-" + UUID.randomUUID().toString().substring(0, 8)
+                : workerId + "-" + UUID.randomUUID().toString().substring(0, 8);
+        this.concurrency = concurrency;
+        this.pollIntervalMs = pollIntervalMs;
+        this.leaseMs = leaseMs;
+        this.heartbeatIntervalMs = heartbeatIntervalMs;
+        this.maxAttempts = maxAttempts;
+        this.slots = new Semaphore(concurrency);
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "workflow-worker-poller");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) return;
+        metrics.gauge("workflow.worker.active", "Claimed runs executing on this worker", active, Map::size);
+        scheduler.scheduleWithFixedDelay(this::poll, 0, pollIntervalMs, TimeUnit.MILLISECONDS);
+        scheduler.scheduleWithFixedDelay(this::heartbeat, heartbeatIntervalMs, heartbeatIntervalMs, TimeUnit.MILLISECONDS);
+        log.info("👷 Worker {} started: {} concurrent run(s), lease {} ms", workerId, concurrency, leaseMs);
+    }
+
+    // Runs on the scheduler thread only, so the free slots cannot shrink while claiming
+    private void poll() {
+        if (stopping) return;
+        try {
+            int free;
+            while ((free = slots.availablePermits()) > 0) {
+                List<WorkflowExecution> executions = transactionalService.claimExecutions(workerId, free, leaseMs);
+                backlog = executions.size() == free;
+                for (WorkflowExecution execution : executions) {
+                    slots.acquireUninterruptibly();
+                    RunLease lease = new RunLease(workerId, leaseMs);
+                    active.put(execution.getExecutionId(), lease);
+                    workerExecutor.execute(() -> run(execution, lease));
+                }
+                record(executions);
+                if (!backlog) break;
+            }
+        } catch (Exception ex) {
+            log.error("❌ Worker {} failed to claim runs: {}", workerId, ex.getMessage());
+        }
+    }
+
+    private void run(WorkflowExecution execution, RunLease lease) {
+        UUID executionId = execution.getExecutionId();
+        try {
+            if (execution.getAttempts() != null && execution.getAttempts() > maxAttempts) {
+                abandoned.incrementAndGet();
+                String message = "Abandoned after " + maxAttempts + " attempts: its workers stopped renewing the lease";
+                log.warn("⚠️ Execution {} of {}: {}", executionId, execution.getWorkflowName(), message);
+                transactionalService.saveWorkflowError(executionId, execution.getWorkflowName(), message);
+                transactionalService.finishLeasedExecution(executionId, workerId, "FAIL");
+                return;
+            }
+            Object status = workflowService.runClaimed(execution, lease).get("status");
+            log.debug("👷 Worker {} finished execution {}: {}", workerId, executionId, status);
+        } catch (Exception ex) {
+            log.error("❌ Worker {} failed to run execution {}: {}", workerId, executionId, ex.getMessage());
+        } finally {
+            try {
+                transactionalService.endLease(workerId, executionId);
+            } catch (Exception ex) {
+                log.warn("⚠️ Cannot end the lease of execution {}: {}", executionId, ex.getMessage());
+            }
+            active.remove(executionId);
+            completed.incrementAndGet();
+            slots.release();
+            if (backlog && !stopping) {
+                scheduler.execute(this::poll);
+            }
+        }
+    }
+
+    private void heartbeat() {
+        if (active.isEmpty()) return;
+        Map<UUID, RunLease> held = Map.copyOf(active);
+        try {
+            int renewed = transactionalService.renewLeases(workerId, held.keySet(), leaseMs);
+            Set<UUID> owned = renewed == held.size() ? held.keySet() : transactionalService.findLeased(workerId, held.keySet());
+            held.forEach((executionId, lease) -> {
+                if (owned.contains(executionId)) {
+                    lease.renewed();
+                } else if (active.containsKey(executionId)) { // not just finished: another worker took it over
+                    lose(executionId, lease, "the execution is leased to another worker");
+                }
+            });
+        } catch (Exception ex) {
+            log.error("❌ Worker {} failed to renew its leases: {}", workerId, ex.getMessage());
+            held.forEach((executionId, lease) -> {
+                if (lease.isExpired()) {
+                    lose(executionId, lease, "it could not be renewed for " + leaseMs + " ms");
+                }
+            });
+        }
+    }
+
+    private void lose(UUID executionId, RunLease lease, String reason) {
+        if (lease.isLost()) return;
+        lease.lose();
+        lostLeases.incrementAndGet();
+        log.warn("🛑 Worker {} lost the lease of execution {} ({}), cancelling the run", workerId, executionId, reason);
+    }
+
+    private void record(List<WorkflowExecution> executions) {
+        int again = (int) executions.stream().filter(execution -> execution.getAttempts() != null && execution.getAttempts() > 1).count();
+        claimed.addAndGet(executions.size() - again);
+        reclaimed.addAndGet(again);
+        if (executions.size() > again) metrics.recordClaim(false, executions.size() - again);
+        if (again > 0) metrics.recordClaim(true, again);
+    }
+
+    public Map<String, Object> status() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("enabled", enabled);
+        if (!enabled) return status;
+        status.put("workerId", workerId);
+        status.put("concurrency", concurrency);
+        status.put("active", active.size());
+        status.put("claimed", claimed.get());
+        status.put("reclaimed", reclaimed.get());
+        status.put("completed", completed.get());
+        status.put("abandoned", abandoned.get());
+        status.put("lostLeases", lostLeases.get());
+        status.put("leaseMs", leaseMs);
+        status.put("heartbeatIntervalMs", heartbeatIntervalMs);
+        return status;
+    }
+
+    // Stops claiming; runs still executing keep their leases until they expire, then other workers reclaim them
+    @PreDestroy
+    public void shutdown() {
+        stopping = true;
+        scheduler.shutdown();
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.integratedworkflowmanager.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+    Token-bucket rate limiter using the Generic Cell Rate Algorithm (GCRA).
+
+        - The whole state is one AtomicLong, the theoretical arrival time (TAT) of the next
+          request; reserve() is a compare-and-set loop, never a lock.
+        - A request is due at max(TAT, now) - tolerance, where tolerance = (burst - 1) * interval
+          lets up to `burst` requests through back to back; each reservation moves TAT one
+          interval (1 / perSecond) further.
+        - reserve() does not wait itself: it returns how long the caller must wait before
+          sending, or -1 (without reserving) when that would exceed maxWaitNanos. Callers wait
+          with a timer or by parking, so no thread spins.
+        - release() returns a reservation that will not be used (e.g. another limiter rejected
+          the request), moving TAT one interval back.
+*/
+public class GcraRateLimiter {
+
+    private final double perSecond;
+    private final int burst;
+    private final long intervalNanos;
+    private final long toleranceNanos;
+    private final AtomicLong theoreticalArrival = new AtomicLong(Long.MIN_VALUE);
+
+    public GcraRateLimiter(double perSecond, int burst) {
+        if (perSecond <= 0 || burst <= 0) {
+            throw new IllegalArgumentException("perSecond and burst must be positive: " + perSecond + ", " + burst);
+        }
+        this.perSecond = perSecond;
+        this.burst = burst;
+        this.intervalNanos = Math.max(1, (long) (1_000_000_000L / perSecond));
+        this.toleranceNanos = (burst - 1) * intervalNanos;
+    }
+
+    // Nanoseconds to wait before sending (0 = now), or -1 when the wait would exceed maxWaitNanos
+    public long reserve(long maxWaitNanos) {
+        while (true) {
+            long now = System.nanoTime();
+            long current = theoreticalArrival.get();
+            long start = current == Long.MIN_VALUE || current - now < 0 ? now : current;
+            long wait = Math.max(0, start - toleranceNanos - now);
+            if (wait > maxWaitNanos) {
+                return -1;
+            }
+            if (theoreticalArrival.compareAndSet(current, start + intervalNanos)) {
+                return wait;
+            }
+        }
+    }
+
+    // Gives back a reservation whose request is not sent after all; later reservations keep their slots
+    public void release() {
+        theoreticalArrival.getAndUpdate(current -> current == Long.MIN_VALUE ? current : current - intervalNanos);
+    }
+
+    public boolean hasLimit(double perSecond, int burst) {
+        return this.perSecond == perSecond && this.burst == burst;
+    }
+
+    public double getPerSecond() {
+        return perSecond;
+    }
+
+    public int getBurst() {
+        return burst;
+    }
+}
@@ -0,0 +1,217 @@
+package com.example.integratedworkflowmanager.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/*
+    Append-only log of small binary records in memory-mapped segment files (segment-<n>.journal).
+
+        - Frame: [int length][int CRC32C of the payload][payload]. Segments are zero-filled when
+          created, so a zero length marks the end of what was written.
+        - append() copies the frame into the mapping under a lock, without a system call. The
+          pages belong to the kernel, so a record survives a JVM crash as soon as append() returns.
+        - force() writes everything appended since the previous force to disk (msync), which also
+          covers an OS crash or power loss. The owner calls it on a timer: one sync for all records
+          of the interval (group commit).
+        - When a segment is full, the next one starts with the records of the checkpoint supplier
+          (the live state) and the older segments are deleted, so the log stays as small as the
+          state it describes.
+        - read() returns the records of all segments in order; within a segment it stops at the first
+          torn or corrupt frame (a write that was cut short by the crash).
+
+    The lock is a ReentrantLock rather than synchronized, so contending virtual threads do not pin
+    their carrier threads.
+*/
+public class MappedSegmentLog implements Closeable {
+
+    private static final int HEADER_BYTES = 8;
+
+    private final Path directory;
+    private final int segmentBytes;
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private long segment;
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+    private int forcedPosition;
+
+    private volatile long records;
+    private volatile long bytes;
+    private volatile long forces;
+
+    public MappedSegmentLog(Path directory, int segmentBytes) {
+        if (segmentBytes < 4096) {
+            throw new IllegalArgumentException("segmentBytes must be at least 4096: " + segmentBytes);
+        }
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+    }
+
+    // Valid records of every segment in the directory, oldest first
+    public static List<byte[]> read(Path directory) throws IOException {
+        List<byte[]> result = new ArrayList<>();
+        for (Path file : segments(directory)) {
+            ByteBuffer data = ByteBuffer.wrap(Files.readAllBytes(file));
+            while (data.remaining() >= HEADER_BYTES) {
+                int length = data.getInt();
+                int crc = data.getInt();
+                if (length <= 0 || length > data.remaining()) break;
+                byte[] payload = new byte[length];
+                data.get(payload);
+                if (crc(payload) != crc) break;
+                result.add(payload);
+            }
+        }
+        return result;
+    }
+
+    // Starts a new segment holding the given records and deletes all older segments
+    public void open(List<byte[]> initialRecords) throws IOException {
+        lock.lock();
+        try {
+            Files.createDirectories(directory);
+            List<Path> existing = segments(directory);
+            segment = existing.isEmpty() ? 0 : segmentNumber(existing.get(existing.size() - 1));
+            roll(initialRecords);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void append(byte[] payload, Supplier<List<byte[]>> checkpoint) throws IOException {
+        if (HEADER_BYTES + payload.length > segmentBytes / 2) {
+            throw new IllegalArgumentException("Record of " + payload.length + " bytes is too large for the segment size");
+        }
+        lock.lock();
+        try {
+            if (buffer == null) {
+                throw new IllegalStateException("Log is not open");
+            }
+            if (buffer.remaining() < HEADER_BYTES + payload.length) {
+                roll(checkpoint.get());
+            }
+            write(payload);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Writes the records appended since the last force to disk
+    public void force() {
+        MappedByteBuffer target;
+        int from;
+        int to;
+        lock.lock();
+        try {
+            if (buffer == null || buffer.position() == forcedPosition) return;
+            target = buffer;
+            from = forcedPosition;
+            to = buffer.position();
+            forcedPosition = to;
+            forces++;
+        } finally {
+            lock.unlock();
+        }
+        target.force(from, to - from); // outside the lock: appends continue meanwhile
+    }
+
+    public long getSegment() {
+        return segment;
+    }
+
+    public long getRecords() {
+        return records;
+    }
+
+    public long getBytes() {
+        return bytes;
+    }
+
+    public long getForces() {
+        return forces;
+    }
+
+    @Override
+    public void close() throws IOException {
+        force();
+        lock.lock();
+        try {
+            if (channel != null) {
+                channel.close();
+            }
+            buffer = null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Called with the lock held
+    private void roll(List<byte[]> initialRecords) throws IOException {
+        if (buffer != null) {
+            buffer.force();
+            channel.close();
+        }
+        segment++;
+        Path file = directory.resolve(String.format("segment-%016d.journal", segment));
+        channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+        forcedPosition = 0;
+        for (byte[] record : initialRecords) {
+            if (buffer.remaining() < HEADER_BYTES + record.length + segmentBytes / 2) {
+                throw new IOException("Checkpoint does not fit into a " + segmentBytes + " byte segment; increase the segment size");
+            }
+            write(record);
+        }
+        buffer.force();
+        forcedPosition = buffer.position();
+
+        // The new segment holds the complete state: older segments are no longer needed
+        for (Path old : segments(directory)) {
+            if (segmentNumber(old) < segment) {
+                Files.deleteIfExists(old);
+            }
+        }
+    }
+
+    private void write(byte[] payload) {
+        buffer.putInt(payload.length);
+        buffer.putInt(crc(payload));
+        buffer.put(payload);
+        records++;
+        bytes += HEADER_BYTES + payload.length;
+    }
+
+    private static int crc(byte[] payload) {
+        CRC32C crc = new CRC32C();
+        crc.update(payload);
+        return (int) crc.getValue();
+    }
+
+    private static List<Path> segments(Path directory) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().matches("segment-\\d{16}\\.journal"))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private static long segmentNumber(Path file) {
+        String name = file.getFileName().toString();
+        return Long.parseLong(name.substring("segment-".length(), name.length() - ".journal".length()));
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.integratedworkflowmanager.util;
+
+import lombok.experimental.UtilityClass;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/*
+    Access to Java 21 virtual threads from code compiled for Java 17.
+
+        - isSupported() is true only when the running JVM provides Thread.ofVirtual()
+        - newThreadPerTaskExecutor(prefix) starts one named virtual thread per task
+          (workflow-node-1, workflow-node-2, ...)
+*/
+@UtilityClass
+public class VirtualThreads {
+
+    public boolean isSupported() {
+        try {
+            Thread.class.getMethod("ofVirtual");
+            return true;
+        } catch (NoSuchMethodException ex) {
+            return false;
+        }
+    }
+
+    public ExecutorService newThreadPerTaskExecutor(String prefix) {
+        try {
+            Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            builder = builderType.getMethod("name", String.class, long.class).invoke(builder, prefix, 1L);
+            ThreadFactory factory = (ThreadFactory) builderType.getMethod("factory").invoke(builder);
+
+            Method perTask = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+            return (ExecutorService) perTask.invoke(null, factory);
+        } catch (ReflectiveOperationException ex) {
+            throw new IllegalStateException("Virtual threads require Java 21 or newer", ex);
+        }
+    }
+}
@@ -1,10 +1,13 @@
 package com.example.integratedworkflowmanager.util;
 
+import com.example.integratedworkflowmanager.engine.EngineMode;
+import com.example.integratedworkflowmanager.engine.Expression;
+import com.example.integratedworkflowmanager.engine.Template;
 import com.fasterxml.jackson.databind.JsonNode;
 import lombok.experimental.UtilityClass;
 
-import java.util.HashSet;
-import java.util.Set;
+import java.util.*;
+import java.util.stream.StreamSupport;
 
 @UtilityClass
 public class WorkflowValidator {
@@ -14,7 +17,27 @@ public class WorkflowValidator {
             throw new IllegalArgumentException("Workflow JSON must contain an array field 'nodes'.");
         }
 
+        if (workflowJson.has("engine")) {
+            try {
+                EngineMode.from(workflowJson.get("engine").asText());
+            } catch (IllegalArgumentException ex) {
+                throw new IllegalArgumentException("'engine' must be \"blocking\" or \"reactive\".");
+            }
+        }
+
+        if (workflowJson.has("rate_limit")) {
+            JsonNode rateLimit = workflowJson.get("rate_limit");
+            if (!rateLimit.isObject() || !rateLimit.path("per_second").isNumber() || rateLimit.get("per_second").asDouble() <= 0) {
+                throw new IllegalArgumentException("'rate_limit' must be an object with a positive 'per_second'.");
+            }
+            if (rateLimit.has("burst") && (!rateLimit.get("burst").isInt() || rateLimit.get("burst").asInt() <= 0)) {
+                throw new IllegalArgumentException("'rate_limit.burst' must be a positive integer.");
+            }
+        }
+
         Set<Integer> ids = new HashSet<>();
+        Set<String> names = new HashSet<>();
+        Map<String, List<String>> dependsOn = new HashMap<>();
 
         for (JsonNode node : workflowJson.get("nodes")) {
             if (!node.has("id") || !node.has("name") || !node.has("request_url")) {
@@ -26,16 +49,168 @@ public class WorkflowValidator {
                 throw new IllegalArgumentException("Duplicate node ID found: " + id);
             }
 
-            // Optional: Validate MVEL expressions
+            String name = node.get("name").asText();
+            if (!names.add(name)) {
+                throw new IllegalArgumentException("Duplicate node name found: " + name);
+            }
+
+            if (node.has("depends_on")) {
+                if (!node.get("depends_on").isArray()) {
+                    throw new IllegalArgumentException("'depends_on' of node " + id + " must be an array of node names.");
+                }
+                List<String> dependencies = new ArrayList<>();
+                node.get("depends_on").forEach(d -> dependencies.add(d.asText()));
+                dependsOn.put(name, dependencies);
+            }
+
+            validatePositiveInt(node, "timeout_ms", id);
+            validatePositiveInt(node, "connect_timeout_ms", id);
+            if (node.has("coalesce") && !node.get("coalesce").isBoolean()) {
+                throw new IllegalArgumentException("'coalesce' of node " + id + " must be true or false.");
+            }
+            if (node.has("capture")) {
+                validateChoice(node, "capture", Set.of("full", "truncate", "none"), "node " + id);
+            }
+            if (node.has("capture_max_chars") && (!node.get("capture_max_chars").isInt() || node.get("capture_max_chars").asInt() <= 0)) {
+                throw new IllegalArgumentException("'capture_max_chars' of node " + id + " must be a positive integer.");
+            }
+            if (node.has("cache")) {
+                validateCache(node, id);
+            }
+            if (node.has("retry") && (!node.get("retry").isInt() || node.get("retry").asInt() < 0)) {
+                throw new IllegalArgumentException("'retry' of node " + id + " must be a non-negative integer.");
+            }
+            if (node.has("retry_policy")) {
+                validateRetryPolicy(node.get("retry_policy"), id);
+            }
+
+            // Validate MVEL expressions by compiling them (no evaluation context needed)
             if (node.has("condition")) {
                 String condition = node.get("condition").asText();
                 if (condition.isBlank()) {
                     throw new IllegalArgumentException("Condition must not be blank.");
                 }
-                // You can optionally validate MVEL syntax statically
-                // But MVEL doesn't have built-in syntax checker without evaluation context
+                compile(condition, "condition of node " + id);
+            }
+            compileTemplate(node.get("request_url").asText(), "request_url of node " + id);
+            if (node.has("idempotency_key")) {
+                compileTemplate(node.get("idempotency_key").asText(), "idempotency_key of node " + id);
             }
         }
+
+        validateDependencies(names, dependsOn);
+    }
+
+    // "cache": { "ttl_ms": <positive>, "key": "<optional template>" }, GET nodes only
+    private void validateCache(JsonNode node, int id) {
+        JsonNode cache = node.get("cache");
+        if (!cache.isObject()) {
+            throw new IllegalArgumentException("'cache' of node " + id + " must be an object.");
+        }
+        if (!"GET".equalsIgnoreCase(node.path("method").asText("GET"))) {
+            throw new IllegalArgumentException("'cache' of node " + id + " is only supported for GET nodes.");
+        }
+        if (!cache.has("ttl_ms") || !cache.get("ttl_ms").canConvertToLong() || cache.get("ttl_ms").asLong() <= 0) {
+            throw new IllegalArgumentException("'cache.ttl_ms' of node " + id + " must be a positive number (milliseconds).");
+        }
+        if (cache.has("key")) {
+            compileTemplate(cache.get("key").asText(), "cache.key of node " + id);
+        }
+    }
+
+    /*
+        "retry_policy": backoff none|fixed|exponential, jitter none|full|equal, non-negative delays,
+        retry_on_status as codes (503) or classes ("5xx"), retry_on_exceptions as names, positive deadline_ms
+    */
+    private void validateRetryPolicy(JsonNode policy, int id) {
+        String location = "'retry_policy' of node " + id;
+        if (!policy.isObject()) {
+            throw new IllegalArgumentException(location + " must be an object.");
+        }
+        validateChoice(policy, "backoff", Set.of("none", "fixed", "exponential"), location);
+        validateChoice(policy, "jitter", Set.of("none", "full", "equal"), location);
+        for (String field : List.of("base_delay_ms", "max_delay_ms")) {
+            if (policy.has(field) && (!policy.get(field).canConvertToLong() || policy.get(field).asLong() < 0)) {
+                throw new IllegalArgumentException(location + ": '" + field + "' must be a non-negative number (milliseconds).");
+            }
+        }
+        if (policy.has("deadline_ms") && (!policy.get("deadline_ms").canConvertToLong() || policy.get("deadline_ms").asLong() <= 0)) {
+            throw new IllegalArgumentException(location + ": 'deadline_ms' must be a positive number (milliseconds).");
+        }
+        if (policy.has("retry_on_status")) {
+            if (!policy.get("retry_on_status").isArray()) {
+                throw new IllegalArgumentException(location + ": 'retry_on_status' must be an array.");
+            }
+            for (JsonNode status : policy.get("retry_on_status")) {
+                boolean code = status.isInt() && status.asInt() >= 100 && status.asInt() <= 599;
+                boolean statusClass = status.isTextual() && status.asText().matches("[1-5]xx");
+                if (!code && !statusClass) {
+                    throw new IllegalArgumentException(location + ": invalid retry_on_status entry " + status + " (use e.g. 503 or \"5xx\").");
+                }
+            }
+        }
+        if (policy.has("retry_on_exceptions")) {
+            JsonNode exceptions = policy.get("retry_on_exceptions");
+            if (!exceptions.isArray() || !StreamSupport.stream(exceptions.spliterator(), false).allMatch(JsonNode::isTextual)) {
+                throw new IllegalArgumentException(location + ": 'retry_on_exceptions' must be an array of names.");
+            }
+        }
+    }
+
+    private void validateChoice(JsonNode object, String field, Set<String> allowed, String location) {
+        if (object.has(field) && !allowed.contains(object.get(field).asText().toLowerCase())) {
+            throw new IllegalArgumentException(location + ": '" + field + "' must be one of " + new TreeSet<>(allowed) + ".");
+        }
     }
-}
 
+    private void validatePositiveInt(JsonNode node, String field, int id) {
+        if (node.has(field) && (!node.get(field).isInt() || node.get(field).asInt() <= 0)) {
+            throw new IllegalArgumentException("'" + field + "' of node " + id + " must be a positive integer (milliseconds).");
+        }
+    }
+
+    // Every depends_on entry must name another node, and the explicit dependencies must not form a cycle
+    private void validateDependencies(Set<String> names, Map<String, List<String>> dependsOn) {
+        dependsOn.forEach((node, dependencies) -> {
+            for (String dependency : dependencies) {
+                if (!names.contains(dependency) || dependency.equals(node)) {
+                    throw new IllegalArgumentException("Node " + node + " has invalid depends_on entry: " + dependency);
+                }
+            }
+        });
+
+        Set<String> done = new HashSet<>();
+        Set<String> visiting = new HashSet<>();
+        for (String node : dependsOn.keySet()) {
+            visit(node, dependsOn, visiting, done);
+        }
+    }
+
+    private void visit(String node, Map<String, List<String>> dependsOn, Set<String> visiting, Set<String> done) {
+        if (done.contains(node)) return;
+        if (!visiting.add(node)) {
+            throw new IllegalArgumentException("Workflow nodes have a dependency cycle involving: " + node);
+        }
+        for (String dependency : dependsOn.getOrDefault(node, List.of())) {
+            visit(dependency, dependsOn, visiting, done);
+        }
+        visiting.remove(node);
+        done.add(node);
+    }
+
+    private void compileTemplate(String template, String location) {
+        try {
+            Template.parse(template);
+        } catch (Exception ex) {
+            throw new IllegalArgumentException("Invalid template in " + location + ": " + ex.getMessage());
+        }
+    }
+
+    private void compile(String expression, String location) {
+        try {
+            new Expression(expression);
+        } catch (Exception ex) {
+            throw new IllegalArgumentException("Invalid MVEL expression in " + location + ": " + ex.getMessage());
+        }
+    }
+}
@@ -0,0 +1,60 @@
+-- Optional: monthly RANGE partitioning of the execution tables (MySQL 8), so that retention
+-- (workflow.retention.partitioned=true) can drop a whole month instead of deleting its rows.
+--
+--  - MySQL requires the partitioning column in every unique key, so the primary keys are widened
+--    with the time column.
+--  - Partitioned InnoDB tables cannot have foreign keys: the steps -> executions foreign key is
+--    dropped. The application already removes steps before their execution. With
+--    spring.jpa.hibernate.ddl-auto=update Hibernate tries to re-create it at startup and logs
+--    the failure; use validate or none once the tables are partitioned.
+--  - Steps and error logs are partitioned on their own time (created_at, timestamp), not on the
+--    executed_at of their execution: that column is not on those tables. Rows written in a later
+--    month than their execution (a run crossing the end of a month, a run resumed or reclaimed
+--    later) are not dropped with the execution's partition. In DELETE mode they remain, with no
+--    execution to show them, until their own month's partition expires and is dropped (their
+--    offloaded payloads are collected then). ARCHIVE mode deletes steps with their execution and
+--    only drops partitions that are empty, so it leaves no such rows.
+--  - ExecutionPartitions splits pmax for upcoming months; the partitions below only need to
+--    cover the data that already exists. Run during a quiet period: every ALTER rebuilds the table.
+
+SET @fk = (SELECT CONSTRAINT_NAME FROM information_schema.REFERENTIAL_CONSTRAINTS
+           WHERE CONSTRAINT_SCHEMA = DATABASE()
+             AND TABLE_NAME = 'workflow_execution_steps'
+             AND REFERENCED_TABLE_NAME = 'workflow_executions');
+SET @sql = IF(@fk IS NULL, 'DO 0', CONCAT('ALTER TABLE workflow_execution_steps DROP FOREIGN KEY ', @fk));
+PREPARE stmt FROM @sql;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+ALTER TABLE workflow_executions
+    MODIFY executed_at DATETIME(6) NOT NULL,
+    DROP PRIMARY KEY,
+    ADD PRIMARY KEY (execution_id, executed_at);
+
+ALTER TABLE workflow_execution_steps
+    DROP PRIMARY KEY,
+    ADD PRIMARY KEY (id, created_at);
+
+ALTER TABLE workflow_error_logs
+    MODIFY `timestamp` DATETIME(6) NOT NULL,
+    DROP PRIMARY KEY,
+    ADD PRIMARY KEY (id, `timestamp`);
+
+-- Adjust the first months to the oldest data; everything older lands in the first partition.
+ALTER TABLE workflow_executions PARTITION BY RANGE COLUMNS (executed_at) (
+    PARTITION p202609 VALUES LESS THAN ('2026-10-01'),
+    PARTITION p202610 VALUES LESS THAN ('2026-11-01'),
+    PARTITION pmax VALUES LESS THAN (MAXVALUE)
+);
+
+ALTER TABLE workflow_execution_steps PARTITION BY RANGE COLUMNS (created_at) (
+    PARTITION p202609 VALUES LESS THAN ('2026-10-01'),
+    PARTITION p202610 VALUES LESS THAN ('2026-11-01'),
+    PARTITION pmax VALUES LESS THAN (MAXVALUE)
+);
+
+ALTER TABLE workflow_error_logs PARTITION BY RANGE COLUMNS (`timestamp`) (
+    PARTITION p202609 VALUES LESS THAN ('2026-10-01'),
+    PARTITION p202610 VALUES LESS THAN ('2026-11-01'),
+    PARTITION pmax VALUES LESS THAN (MAXVALUE)
+);
@@ -0,0 +1,97 @@
+package com.example.integratedworkflowmanager.benchmark;
+
+import com.example.integratedworkflowmanager.engine.Expression;
+import com.example.integratedworkflowmanager.engine.Template;
+import com.example.integratedworkflowmanager.engine.WorkflowPlan;
+import com.example.integratedworkflowmanager.interfaces.FunctionRegistry;
+import org.mvel2.MVEL;
+import org.mvel2.integration.VariableResolverFactory;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/*
+    Interpreted vs precompiled evaluation of every condition and {{...}} expression of the
+    sample workflows, once per benchmark invocation:
+
+        - interpreted: MVEL.eval on the source string, as the engine did before plans held
+          compiled expressions (parses the expression on every evaluation)
+        - precompiled: Expression.evaluate, the compiled form built with the plan, over the
+          resolver factory the engine creates per node
+
+    mvn -Pbenchmark test-compile exec:exec -Dbenchmark=ExpressionBenchmark
+*/
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ExpressionBenchmark {
+
+    private List<Expression> conditions;
+    private List<Template> templates;
+    private List<Expression> mapExpressions;
+    private Map<String, Object> context;
+    private Map<String, Object> interpretedContext;
+
+    @Setup
+    public void setUp() throws Exception {
+        List<WorkflowPlan> plans = SampleWorkflows.plans();
+        conditions = SampleWorkflows.conditions(plans);
+        templates = SampleWorkflows.templates(plans);
+        mapExpressions = SampleWorkflows.mapExpressions(plans);
+        context = SampleWorkflows.context();
+        interpretedContext = new HashMap<>(FunctionRegistry.getFunctions());
+        interpretedContext.putAll(context);
+
+        // Both sides must compute the same thing, or the comparison is meaningless
+        VariableResolverFactory variables = FunctionRegistry.newResolverFactory(context);
+        for (Expression condition : conditions) {
+            same(condition.getSource(), MVEL.evalToBoolean(condition.getSource(), interpretedContext), condition.evaluateToBoolean(variables));
+        }
+        for (Template template : templates) {
+            same(template.getSource(),
+                    template.render(expression -> MVEL.eval(expression.getSource(), interpretedContext)),
+                    template.render(expression -> expression.evaluate(variables)));
+        }
+        for (Expression expression : mapExpressions) {
+            same(expression.getSource(), MVEL.eval(expression.getSource(), interpretedContext), expression.evaluate(variables));
+        }
+    }
+
+    private static void same(String source, Object interpreted, Object precompiled) {
+        if (!Objects.equals(interpreted, precompiled)) {
+            throw new IllegalStateException(source + ": " + interpreted + " != " + precompiled);
+        }
+    }
+
+    @Benchmark
+    public void interpreted(Blackhole blackhole) {
+        for (Expression condition : conditions) {
+            blackhole.consume(MVEL.evalToBoolean(condition.getSource(), interpretedContext));
+        }
+        for (Template template : templates) {
+            blackhole.consume(template.render(expression -> MVEL.eval(expression.getSource(), interpretedContext)));
+        }
+        for (Expression expression : mapExpressions) {
+            blackhole.consume(MVEL.eval(expression.getSource(), interpretedContext));
+        }
+    }
+
+    @Benchmark
+    public void precompiled(Blackhole blackhole) {
+        VariableResolverFactory variables = FunctionRegistry.newResolverFactory(context);
+        for (Expression condition : conditions) {
+            blackhole.consume(condition.evaluateToBoolean(variables));
+        }
+        for (Template template : templates) {
+            blackhole.consume(template.render(expression -> expression.evaluate(variables)));
+        }
+        for (Expression expression : mapExpressions) {
+            blackhole.consume(expression.evaluate(variables));
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.integratedworkflowmanager.benchmark;
+
+import com.example.integratedworkflowmanager.engine.Expression;
+import com.example.integratedworkflowmanager.engine.WorkflowPlan;
+import com.example.integratedworkflowmanager.interfaces.FunctionRegistry;
+import org.mvel2.integration.impl.MapVariableResolverFactory;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/*
+    Allocation of the variables the precompiled sample expressions are evaluated against, per
+    node, with a run context holding `responses` earlier node responses besides the ones the
+    expressions read:
+
+        - copied: a fresh HashMap with every helper function plus the whole context, as
+          getMvelContext built it before the layered resolver factory
+        - layered: FunctionRegistry.newResolverFactory, a read-only view of the live context
+          over the shared function layer
+
+    Meant to be read with the GC profiler (gc.alloc.rate.norm = bytes per evaluation pass):
+
+        mvn -Pbenchmark test-compile exec:exec -Dbenchmark=ResolverBenchmark -Dbenchmark.args="-prof gc"
+*/
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ResolverBenchmark {
+
+    @Param({"0", "50"})
+    private int responses;
+
+    private List<Expression> expressions;
+    private Map<String, Object> context;
+
+    @Setup
+    public void setUp() throws Exception {
+        List<WorkflowPlan> plans = SampleWorkflows.plans();
+        expressions = new ArrayList<>(SampleWorkflows.conditions(plans));
+        expressions.addAll(SampleWorkflows.mapExpressions(plans));
+        SampleWorkflows.templates(plans).forEach(template -> template.getSegments().stream()
+                .filter(Expression.class::isInstance)
+                .map(Expression.class::cast)
+                .forEach(expressions::add));
+
+        context = SampleWorkflows.context();
+        for (int i = 0; i < responses; i++) {
+            context.put("node" + i, Map.of("id", i, "status", "OK", "items", List.of(i, i + 1, i + 2)));
+        }
+    }
+
+    @Benchmark
+    public void copied(Blackhole blackhole) {
+        for (Expression expression : expressions) {
+            Map<String, Object> variables = new HashMap<>(FunctionRegistry.getFunctions());
+            variables.putAll(context);
+            blackhole.consume(expression.evaluate(new MapVariableResolverFactory(variables)));
+        }
+    }
+
+    @Benchmark
+    public void layered(Blackhole blackhole) {
+        for (Expression expression : expressions) {
+            blackhole.consume(expression.evaluate(FunctionRegistry.newResolverFactory(context)));
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.integratedworkflowmanager.benchmark;
+
+import com.example.integratedworkflowmanager.engine.Expression;
+import com.example.integratedworkflowmanager.engine.PlanNode;
+import com.example.integratedworkflowmanager.engine.Template;
+import com.example.integratedworkflowmanager.engine.WorkflowPlan;
+import com.example.integratedworkflowmanager.engine.WorkflowPlanCompiler;
+import com.example.integratedworkflowmanager.entity.WorkflowDefinition;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.stream.Stream;
+
+/*
+    The workflows in /sample-workflows, compiled into plans, plus a context in which all of
+    their conditions and {{...}} expressions evaluate: the inputs they read and a response
+    for every node they reference.
+
+    Run from the backend directory (the default working directory of the benchmark profile),
+    or point -Dsample.workflows at the folder.
+*/
+final class SampleWorkflows {
+
+    private SampleWorkflows() {
+    }
+
+    static List<WorkflowPlan> plans() throws Exception {
+        Path folder = Path.of(System.getProperty("sample.workflows", "../sample-workflows"));
+        ObjectMapper objectMapper = new ObjectMapper();
+        WorkflowPlanCompiler compiler = new WorkflowPlanCompiler();
+
+        List<WorkflowPlan> plans = new ArrayList<>();
+        try (Stream<Path> files = Files.list(folder)) {
+            for (Path file : files.filter(path -> path.toString().endsWith(".json")).sorted().toList()) {
+                JsonNode sample = objectMapper.readTree(Files.readString(file));
+                plans.add(compiler.compile(WorkflowDefinition.builder()
+                        .name(sample.get("name").asText())
+                        .workflowJson(objectMapper.writeValueAsString(sample.get("workflowJson")))
+                        .version(0L)
+                        .build()));
+            }
+        } catch (IOException ex) {
+            throw new IllegalStateException("Cannot read the sample workflows in " + folder.toAbsolutePath(), ex);
+        }
+        return plans;
+    }
+
+    static List<Expression> conditions(List<WorkflowPlan> plans) {
+        return nodes(plans).map(PlanNode::getCondition).toList();
+    }
+
+    // Every dynamic request_url / idempotency_key of the samples
+    static List<Template> templates(List<WorkflowPlan> plans) {
+        return nodes(plans)
+                .flatMap(node -> Stream.of(node.getRequestUrl(), node.getIdempotencyKey()))
+                .filter(template -> template != null && template.isDynamic())
+                .toList();
+    }
+
+    // Every {{...}} value of request_body / request_headers / query_params
+    static List<Expression> mapExpressions(List<WorkflowPlan> plans) {
+        return nodes(plans)
+                .flatMap(node -> Stream.of(node.getRequestBody(), node.getRequestHeaders(), node.getQueryParams()))
+                .filter(Objects::nonNull)
+                .flatMap(map -> map.values().stream())
+                .filter(Expression.class::isInstance)
+                .map(Expression.class::cast)
+                .toList();
+    }
+
+    static Map<String, Object> context() {
+        Map<String, Object> context = new HashMap<>();
+        context.put("applicationId", "APP-1024");
+        context.put("userId", 1);
+        context.put("requestId", "req-42");
+        context.put("loanAmount", 15000);
+        context.put("getUser", Map.of("id", 1, "name", "Leanne Graham", "age", 31));
+        context.put("authToken", Map.of("token", "eyJhbGciOiJIUzI1NiJ9.demo"));
+        context.put("GetUserDetails", Map.of("id", "7", "name", "Ana", "age", 32)); // padString.apply needs a String id
+        context.put("GetCreditScores", Map.of("score1", 712, "score2", 695));
+        context.put("ComputeAverageScore", Map.of("average", 703.5));
+        context.put("LoanCheck", Map.of("limit", 20000));
+        return context;
+    }
+
+    private static Stream<PlanNode> nodes(List<WorkflowPlan> plans) {
+        return plans.stream().flatMap(plan -> plan.getNodes().stream());
+    }
+}
@@ -0,0 +1,148 @@
+package com.example.integratedworkflowmanager.engine;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.example.integratedworkflowmanager.engine.TestRuns.*;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class DagSchedulerTest {
+
+    private final ExecutorService nodeExecutor = Executors.newFixedThreadPool(8);
+    private final DagScheduler scheduler = new DagScheduler(nodeExecutor, 8);
+
+    @AfterEach
+    void shutdown() {
+        nodeExecutor.shutdownNow();
+    }
+
+    @Test
+    void startsNodesOnlyAfterAllOfTheirDependencies() throws Exception {
+        // a → (b, c) → d
+        WorkflowRun run = dag(null, node("a"), node("b", "a"), node("c", "a"), node("d", "b", "c"));
+        List<String> finished = Collections.synchronizedList(new ArrayList<>());
+        Map<String, List<String>> finishedBeforeStart = new ConcurrentHashMap<>();
+
+        boolean success = scheduler.execute(run, (r, node, pooled) -> {
+            finishedBeforeStart.put(node.getName(), List.copyOf(finished));
+            return later(10, () -> {
+                finished.add(node.getName());
+                return NodeOutcome.SUCCESS;
+            });
+        });
+
+        assertThat(success).isTrue();
+        assertThat(finished).containsExactlyInAnyOrder("a", "b", "c", "d");
+        assertThat(finishedBeforeStart.get("b")).containsExactly("a");
+        assertThat(finishedBeforeStart.get("c")).containsExactly("a");
+        assertThat(finishedBeforeStart.get("d")).containsExactlyInAnyOrder("a", "b", "c");
+    }
+
+    @Test
+    void runsIndependentNodesConcurrentlyUpToMaxConcurrency() throws Exception {
+        WorkflowRun run = dag(2, node("a"), node("b"), node("c"), node("d"), node("e"));
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+
+        boolean success = scheduler.execute(run, (r, node, pooled) -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            return later(30, () -> {
+                running.decrementAndGet();
+                return NodeOutcome.SUCCESS;
+            });
+        });
+
+        assertThat(success).isTrue();
+        assertThat(maxRunning.get()).isEqualTo(2);
+    }
+
+    @Test
+    void runsALoneReadyNodeOnTheCallingThread() throws Exception {
+        WorkflowRun run = dag(null, node("a"), node("b", "a"));
+        Thread caller = Thread.currentThread();
+        Map<String, Boolean> inline = new ConcurrentHashMap<>();
+
+        scheduler.execute(run, (r, node, pooled) -> {
+            inline.put(node.getName(), !pooled && Thread.currentThread() == caller);
+            return CompletableFuture.completedFuture(NodeOutcome.SUCCESS);
+        });
+
+        assertThat(inline).containsEntry("a", true).containsEntry("b", true);
+    }
+
+    @Test
+    void skippedNodesReleaseTheirDependents() throws Exception {
+        WorkflowRun run = dag(null, node("a"), node("b", "a"));
+        List<String> started = Collections.synchronizedList(new ArrayList<>());
+
+        boolean success = scheduler.execute(run, (r, node, pooled) -> {
+            started.add(node.getName());
+            return CompletableFuture.completedFuture(node.getName().equals("a") ? NodeOutcome.SKIPPED : NodeOutcome.SUCCESS);
+        });
+
+        assertThat(success).isTrue();
+        assertThat(started).containsExactly("a", "b");
+    }
+
+    @Test
+    void startsNoFurtherNodesOnceANodeFailed() throws Exception {
+        // b fails while c is in flight: c finishes, but neither d nor e starts
+        WorkflowRun run = dag(null, node("a"), node("b", "a"), node("c", "a"), node("d", "b"), node("e", "c"));
+        List<String> started = Collections.synchronizedList(new ArrayList<>());
+        List<String> finished = Collections.synchronizedList(new ArrayList<>());
+
+        boolean success = scheduler.execute(run, (r, node, pooled) -> {
+            started.add(node.getName());
+            long delay = node.getName().equals("c") ? 50 : 5;
+            return later(delay, () -> {
+                finished.add(node.getName());
+                return node.getName().equals("b") ? NodeOutcome.FAILED : NodeOutcome.SUCCESS;
+            });
+        });
+
+        assertThat(success).isFalse();
+        assertThat(started).containsExactlyInAnyOrder("a", "b", "c");
+        assertThat(finished).containsExactlyInAnyOrder("a", "b", "c");
+    }
+
+    @Test
+    void rethrowsTheExceptionOfAFailedTask() {
+        WorkflowRun run = dag(null, node("a"), node("b"), node("c", "a", "b"));
+
+        assertThatThrownBy(() -> scheduler.execute(run, (r, node, pooled) -> node.getName().equals("b")
+                ? CompletableFuture.failedFuture(new IllegalStateException("boom"))
+                : CompletableFuture.completedFuture(NodeOutcome.SUCCESS)))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessage("boom");
+    }
+
+    @Test
+    void rethrowsAnExceptionThrownWhileStartingAnInlineNode() {
+        WorkflowRun run = dag(null, node("a"));
+
+        assertThatThrownBy(() -> scheduler.execute(run, (r, node, pooled) -> {
+            throw new IllegalArgumentException("bad template");
+        }))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("bad template");
+    }
+
+    private static CompletableFuture<NodeOutcome> later(long delayMs, Callable<NodeOutcome> outcome) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return outcome.call();
+            } catch (Exception ex) {
+                throw new CompletionException(ex);
+            }
+        }, CompletableFuture.delayedExecutor(delayMs, TimeUnit.MILLISECONDS));
+    }
+
+    private static WorkflowRun dag(Integer maxConcurrency, PlanNode... nodes) {
+        return run(plan("dag", nodes).parallel(true).maxConcurrency(maxConcurrency));
+    }
+}
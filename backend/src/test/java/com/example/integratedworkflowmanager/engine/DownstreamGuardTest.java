@@ -0,0 +1,84 @@
+package com.example.integratedworkflowmanager.engine;
+
+import com.example.integratedworkflowmanager.config.ResilienceProperties;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.ResponseEntity;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static com.example.integratedworkflowmanager.engine.TestRuns.*;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class DownstreamGuardTest {
+
+    private static final String URL = "https://down.example/api";
+
+    private final ResilienceProperties properties = new ResilienceProperties();
+    private final WorkflowRun run = run(plan("guarded", node("call")));
+
+    @Test
+    void anOpenBreakerFailsTheCheckBeforeAnySlotIsReserved() throws Exception {
+        properties.setSlidingWindowSize(2);
+        properties.setMinimumCalls(2);
+        DownstreamGuard guard = guard();
+
+        for (int i = 0; i < 2; i++) {
+            assertThatThrownBy(() -> guard.call(run, node("call"), URL, () -> {
+                throw new IOException("connection refused");
+            })).isInstanceOf(IOException.class);
+        }
+
+        assertThatThrownBy(() -> guard.checkPermitted(run, node("call"), URL))
+                .isInstanceOf(CallNotPermittedException.class)
+                .satisfies(error -> assertThat(DownstreamGuard.rejectionStatus(error)).isEqualTo("CIRCUIT_OPEN"));
+        // Other hosts have their own breaker
+        assertThatCode(() -> guard.checkPermitted(run, node("call"), "https://up.example/api")).doesNotThrowAnyException();
+    }
+
+    @Test
+    void aFullBulkheadThatDoesNotQueueFailsTheCheck() throws Exception {
+        properties.setMaxConcurrentCalls(1);
+        DownstreamGuard guard = guard();
+        CountDownLatch inCall = new CountDownLatch(1);
+        CountDownLatch finish = new CountDownLatch(1);
+
+        CompletableFuture<ResponseEntity<String>> running = CompletableFuture.supplyAsync(() -> {
+            try {
+                return guard.call(run, node("call"), URL, () -> {
+                    inCall.countDown();
+                    finish.await();
+                    return ResponseEntity.ok("{}");
+                });
+            } catch (Exception ex) {
+                throw new IllegalStateException(ex);
+            }
+        });
+        assertThat(inCall.await(1, TimeUnit.SECONDS)).isTrue();
+
+        assertThatThrownBy(() -> guard.checkPermitted(run, node("call"), URL)).isInstanceOf(BulkheadFullException.class);
+
+        finish.countDown();
+        running.get(1, TimeUnit.SECONDS);
+        assertThatCode(() -> guard.checkPermitted(run, node("call"), URL)).doesNotThrowAnyException();
+    }
+
+    @Test
+    void aDisabledGuardPermitsEverything() {
+        properties.setEnabled(false);
+        properties.setMaxConcurrentCalls(0);
+
+        assertThatCode(() -> guard().checkPermitted(run, node("call"), URL)).doesNotThrowAnyException();
+    }
+
+    private DownstreamGuard guard() {
+        return new DownstreamGuard(properties, new SimpleMeterRegistry());
+    }
+}
@@ -0,0 +1,162 @@
+package com.example.integratedworkflowmanager.engine;
+
+import com.example.integratedworkflowmanager.entity.IdempotencyLedgerEntry;
+import com.example.integratedworkflowmanager.repository.IdempotencyLedgerRepository;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class IdempotencyLedgerTest {
+
+    private static final long CLAIM_TIMEOUT_MS = 60_000;
+
+    private final IdempotencyLedgerRepository repository = mock(IdempotencyLedgerRepository.class);
+    private final IdempotencyLedger ledger = new IdempotencyLedger(repository, 100, CLAIM_TIMEOUT_MS, true);
+    private final UUID executionId = UUID.randomUUID();
+
+    @Test
+    void theRunWhoseInsertWinsClaimsTheKey() {
+        when(repository.insertClaim(eq("wf"), eq("pay"), eq("key-1"), eq(executionId.toString()), any())).thenReturn(1);
+
+        assertThat(ledger.claim("wf", "pay", "key-1", executionId)).isEqualTo(IdempotencyLedger.Claim.CLAIMED);
+        verify(repository, never()).findByWorkflowNameAndNodeNameAndIdempotencyKey(any(), any(), any());
+    }
+
+    @Test
+    void aLostInsertOnACompletedKeySkipsAndCachesTheKey() {
+        existing(entry("COMPLETED", UUID.randomUUID()));
+
+        assertThat(ledger.claim("wf", "pay", "key-1", executionId)).isEqualTo(IdempotencyLedger.Claim.COMPLETED);
+        assertThat(ledger.claim("wf", "pay", "key-1", UUID.randomUUID())).isEqualTo(IdempotencyLedger.Claim.COMPLETED);
+
+        // The second claim was answered by the cache of completed keys
+        verify(repository, times(1)).insertClaim(any(), any(), any(), any(), any());
+        verify(repository, never()).reclaimStale(any(), any(), any(), any());
+    }
+
+    @Test
+    void aLostInsertOnAnotherRunsLiveClaimIsInFlight() {
+        existing(entry("IN_FLIGHT", UUID.randomUUID()));
+        when(repository.reclaimStale(eq(7L), eq(executionId), any(), any())).thenReturn(0);
+
+        assertThat(ledger.claim("wf", "pay", "key-1", executionId)).isEqualTo(IdempotencyLedger.Claim.IN_FLIGHT);
+        // Not cached: the other run may still fail and release the key
+        assertThat(ledger.claim("wf", "pay", "key-1", executionId)).isEqualTo(IdempotencyLedger.Claim.IN_FLIGHT);
+        verify(repository, times(2)).insertClaim(any(), any(), any(), any(), any());
+    }
+
+    @Test
+    void theSameExecutionTakesBackItsOwnClaim() {
+        existing(entry("IN_FLIGHT", executionId));
+
+        assertThat(ledger.claim("wf", "pay", "key-1", executionId)).isEqualTo(IdempotencyLedger.Claim.CLAIMED);
+        verify(repository, never()).reclaimStale(any(), any(), any(), any());
+    }
+
+    @Test
+    void aStaleClaimOfAnotherRunIsTakenOver() {
+        existing(entry("IN_FLIGHT", UUID.randomUUID()));
+        when(repository.reclaimStale(eq(7L), eq(executionId), any(), any())).thenReturn(1);
+
+        assertThat(ledger.claim("wf", "pay", "key-1", executionId)).isEqualTo(IdempotencyLedger.Claim.CLAIMED);
+
+        ArgumentCaptor<LocalDateTime> claimedAt = ArgumentCaptor.forClass(LocalDateTime.class);
+        ArgumentCaptor<LocalDateTime> staleBefore = ArgumentCaptor.forClass(LocalDateTime.class);
+        verify(repository).reclaimStale(eq(7L), eq(executionId), claimedAt.capture(), staleBefore.capture());
+        assertThat(staleBefore.getValue()).isEqualTo(claimedAt.getValue().minusNanos(CLAIM_TIMEOUT_MS * 1_000_000));
+    }
+
+    @Test
+    void aClaimReleasedBetweenInsertAndLookupIsInsertedAgain() {
+        when(repository.insertClaim(any(), any(), any(), any(), any())).thenReturn(0, 1);
+        when(repository.findByWorkflowNameAndNodeNameAndIdempotencyKey("wf", "pay", "key-1")).thenReturn(Optional.empty());
+
+        assertThat(ledger.claim("wf", "pay", "key-1", executionId)).isEqualTo(IdempotencyLedger.Claim.CLAIMED);
+        verify(repository, times(2)).insertClaim(any(), any(), any(), any(), any());
+    }
+
+    @Test
+    void keysUpToTheColumnLengthAreStoredUnchanged() {
+        String key = "k".repeat(IdempotencyLedger.MAX_KEY_LENGTH);
+
+        assertThat(IdempotencyLedger.storedKey("short")).isEqualTo("short");
+        assertThat(IdempotencyLedger.storedKey(key)).isEqualTo(key);
+    }
+
+    @Test
+    void longerKeysAreStoredAsTheirSha256() {
+        String key = "k".repeat(IdempotencyLedger.MAX_KEY_LENGTH + 1);
+
+        String stored = IdempotencyLedger.storedKey(key);
+
+        assertThat(stored).matches("sha256:[0-9a-f]{64}").hasSizeLessThanOrEqualTo(IdempotencyLedger.MAX_KEY_LENGTH);
+        assertThat(IdempotencyLedger.storedKey(key)).isEqualTo(stored);
+        assertThat(IdempotencyLedger.storedKey(key + "x")).isNotEqualTo(stored);
+        assertThat(IdempotencyLedger.storedKey("a".repeat(300))).isEqualTo("sha256:9835fa6bf4e20a9b9ea812506302e98982721a6cf8d2cae67af57129bf21ae90");
+    }
+
+    @Test
+    void claimCompleteAndReleaseUseTheStoredKey() {
+        String key = "k".repeat(400);
+        String stored = IdempotencyLedger.storedKey(key);
+        when(repository.insertClaim(any(), any(), any(), any(), any())).thenReturn(1);
+
+        ledger.claim("wf", "pay", key, executionId);
+        ledger.complete("wf", "pay", key, executionId);
+        ledger.release("wf", "pay", key, executionId);
+
+        verify(repository).insertClaim(eq("wf"), eq("pay"), eq(stored), eq(executionId.toString()), any());
+        verify(repository).markCompleted(eq("wf"), eq("pay"), eq(stored), eq(executionId), any());
+        verify(repository).deleteClaim("wf", "pay", stored, executionId);
+    }
+
+    @Test
+    void backfillEntersLongStepKeysHashed() {
+        String key = "k".repeat(400);
+        LocalDateTime completedAt = LocalDateTime.of(2026, 9, 1, 12, 0);
+        IdempotencyLedgerRepository.CompletedStepKey step = mock(IdempotencyLedgerRepository.CompletedStepKey.class);
+        when(step.getWorkflowName()).thenReturn("wf");
+        when(step.getNodeName()).thenReturn("pay");
+        when(step.getIdempotencyKey()).thenReturn(key);
+        when(step.getExecutionId()).thenReturn(executionId.toString());
+        when(step.getCompletedAt()).thenReturn(completedAt);
+        when(repository.findCompletedStepKeysLongerThan(IdempotencyLedger.MAX_KEY_LENGTH)).thenReturn(List.of(step));
+
+        ledger.backfill();
+
+        verify(repository).backfillCompletedSteps(IdempotencyLedger.MAX_KEY_LENGTH);
+        verify(repository).insertCompleted("wf", "pay", IdempotencyLedger.storedKey(key), executionId.toString(), completedAt);
+    }
+
+    @Test
+    void backfillCanBeTurnedOff() {
+        new IdempotencyLedger(repository, 100, CLAIM_TIMEOUT_MS, false).backfill();
+
+        verifyNoInteractions(repository);
+    }
+
+    private void existing(IdempotencyLedgerEntry entry) {
+        when(repository.insertClaim(any(), any(), any(), any(), any())).thenReturn(0);
+        when(repository.findByWorkflowNameAndNodeNameAndIdempotencyKey("wf", "pay", "key-1")).thenReturn(Optional.of(entry));
+    }
+
+    private static IdempotencyLedgerEntry entry(String status, UUID executionId) {
+        return IdempotencyLedgerEntry.builder()
+                .id(7L)
+                .workflowName("wf")
+                .nodeName("pay")
+                .idempotencyKey("key-1")
+                .status(status)
+                .executionId(executionId)
+                .claimedAt(LocalDateTime.now().minusSeconds(5))
+                .build();
+    }
+}
@@ -0,0 +1,139 @@
+package com.example.integratedworkflowmanager.engine;
+
+import com.example.integratedworkflowmanager.config.RateLimitProperties;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static com.example.integratedworkflowmanager.engine.TestRuns.plan;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class NodeRateLimiterTest {
+
+    private final ExecutorService nodeExecutor = Executors.newFixedThreadPool(2);
+    private final NodeTimer nodeTimer = new NodeTimer(nodeExecutor);
+    private final RateLimitProperties properties = new RateLimitProperties();
+    private final NodeRateLimiter rateLimiter = new NodeRateLimiter(properties, new WorkflowMetrics(new SimpleMeterRegistry()), nodeTimer);
+
+    @AfterEach
+    void shutdown() {
+        nodeTimer.shutdown();
+        nodeExecutor.shutdownNow();
+    }
+
+    @Test
+    void callsWithoutAConfiguredLimitPassStraightThrough() throws Exception {
+        WorkflowRun run = run(null);
+
+        for (int i = 0; i < 100; i++) {
+            assertThat(acquire(run, "https://free.example")).isEqualTo("sent");
+        }
+    }
+
+    @Test
+    void rejectsCallsWhoseSlotIsFurtherAwayThanMaxWait() throws Exception {
+        properties.setMaxWaitMs(0);
+        WorkflowRun run = run(new RateLimit(1, 1));
+
+        assertThat(acquire(run, "https://a.example")).isEqualTo("sent");
+        assertThatThrownBy(() -> acquire(run, "https://a.example"))
+                .isInstanceOf(NodeRateLimiter.RateLimitedException.class)
+                .hasMessageContaining("workflow:limited");
+    }
+
+    @Test
+    void aCallRejectedByItsHostGivesItsWorkflowSlotBack() throws Exception {
+        properties.setMaxWaitMs(0);
+        properties.getPerHost().put("https://slow.example", limit(1, 1));
+        WorkflowRun run = run(new RateLimit(1, 2));
+
+        assertThat(acquire(run, "https://slow.example")).isEqualTo("sent"); // workflow slot 1, host slot 1
+        assertThatThrownBy(() -> acquire(run, "https://slow.example"))
+                .isInstanceOf(NodeRateLimiter.RateLimitedException.class)
+                .hasMessageContaining("host:https://slow.example");
+
+        // Slot 2 of the workflow is still free for a call to another host
+        assertThat(acquire(run, "https://fast.example")).isEqualTo("sent");
+    }
+
+    @Test
+    void pooledCallsWaitForTheirSlotOnTheTimer() throws Exception {
+        properties.setMaxWaitMs(1000);
+        WorkflowRun run = run(new RateLimit(10, 1));
+
+        long start = System.nanoTime();
+        acquire(run, "https://a.example"); // the next slot is 100 ms after this one
+        var pending = rateLimiter.acquire(run, node(), "https://a.example", true, () -> "sent");
+
+        assertThat(pending.get(1, TimeUnit.SECONDS)).isEqualTo("sent");
+        assertThat(System.nanoTime() - start).isGreaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(90));
+    }
+
+    @Test
+    void aCallTheGuardRejectsGivesBothSlotsBack() throws Exception {
+        properties.setMaxWaitMs(0);
+        properties.getPerHost().put("https://down.example", limit(1, 1));
+        WorkflowRun run = run(new RateLimit(1, 1));
+
+        assertThatThrownBy(() -> NodeTimer.await(rateLimiter.acquire(run, node(), "https://down.example", false, () -> {
+            throw CallNotPermittedException.createCallNotPermittedException(CircuitBreaker.ofDefaults("down"));
+        }))).isInstanceOf(CallNotPermittedException.class);
+
+        // The rejected call never went out: its workflow and host slots are free again
+        assertThat(acquire(run, "https://down.example")).isEqualTo("sent");
+    }
+
+    @Test
+    void aCallThatWentOutKeepsItsSlotsEvenWhenItFailed() {
+        properties.setMaxWaitMs(0);
+        WorkflowRun run = run(new RateLimit(1, 1));
+
+        assertThatThrownBy(() -> NodeTimer.await(rateLimiter.acquire(run, node(), "https://a.example", false, () -> {
+            throw new IOException("connection reset");
+        }))).isInstanceOf(IOException.class);
+
+        assertThatThrownBy(() -> acquire(run, "https://a.example")).isInstanceOf(NodeRateLimiter.RateLimitedException.class);
+    }
+
+    @Test
+    void aReactiveCallTheGuardRejectsGivesItsSlotBack() throws Exception {
+        properties.setMaxWaitMs(0);
+        WorkflowRun run = run(new RateLimit(1, 1));
+        Mono<String> rejected = Mono.error(BulkheadFullException.createBulkheadFullException(Bulkhead.ofDefaults("full")));
+
+        assertThatThrownBy(() -> rateLimiter.acquire(run, node(), "https://a.example", rejected).block())
+                .isInstanceOf(BulkheadFullException.class);
+
+        assertThat(rateLimiter.acquire(run, node(), "https://a.example", Mono.just("sent")).block()).isEqualTo("sent");
+    }
+
+    private String acquire(WorkflowRun run, String url) throws Exception {
+        return NodeTimer.await(rateLimiter.acquire(run, node(), url, false, () -> "sent"));
+    }
+
+    private static RateLimitProperties.Limit limit(double perSecond, int burst) {
+        RateLimitProperties.Limit limit = new RateLimitProperties.Limit();
+        limit.setPerSecond(perSecond);
+        limit.setBurst(burst);
+        return limit;
+    }
+
+    private static PlanNode node() {
+        return TestRuns.node("call");
+    }
+
+    private static WorkflowRun run(RateLimit rateLimit) {
+        return TestRuns.run(plan("limited", node()).rateLimit(rateLimit));
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.integratedworkflowmanager.engine;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class NodeTimerTest {
+
+    private final ExecutorService nodeExecutor = Executors.newFixedThreadPool(1, runnable -> new Thread(runnable, "node"));
+    private final NodeTimer timer = new NodeTimer(nodeExecutor);
+
+    @AfterEach
+    void shutdown() {
+        timer.shutdown();
+        nodeExecutor.shutdownNow();
+    }
+
+    @Test
+    void pooledDelayReturnsAtOnceAndContinuesOnTheNodeExecutor() throws Exception {
+        long start = System.nanoTime();
+        CompletableFuture<String> continued = timer.delay(TimeUnit.MILLISECONDS.toNanos(50), true)
+                .thenApply(ignored -> Thread.currentThread().getName());
+
+        assertThat(continued).isNotDone();
+        assertThat(continued.get(1, TimeUnit.SECONDS)).isEqualTo("node");
+        assertThat(System.nanoTime() - start).isGreaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(50));
+    }
+
+    @Test
+    void pooledDelaysDoNotHoldNodeThreads() throws Exception {
+        // A single node thread: ten overlapping waits still all finish after about one delay
+        long start = System.nanoTime();
+        CompletableFuture<?>[] waits = new CompletableFuture<?>[10];
+        for (int i = 0; i < waits.length; i++) {
+            waits[i] = timer.delay(TimeUnit.MILLISECONDS.toNanos(100), true);
+        }
+        CompletableFuture.allOf(waits).get(1, TimeUnit.SECONDS);
+
+        assertThat(System.nanoTime() - start).isLessThan(TimeUnit.MILLISECONDS.toNanos(500));
+    }
+
+    @Test
+    void inlineDelaySleepsOnTheCallingThread() {
+        long start = System.nanoTime();
+        CompletableFuture<Void> due = timer.delay(TimeUnit.MILLISECONDS.toNanos(30), false);
+
+        assertThat(due).isCompleted();
+        assertThat(System.nanoTime() - start).isGreaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(30));
+    }
+
+    @Test
+    void noDelayCompletesImmediately() {
+        assertThat(timer.delay(0, true)).isCompleted();
+        assertThat(timer.delay(-5, false)).isCompleted();
+    }
+
+    @Test
+    void delayFailsOnceTheNodeExecutorIsShutDown() {
+        nodeExecutor.shutdown();
+
+        assertThatThrownBy(() -> timer.delay(TimeUnit.MILLISECONDS.toNanos(10), true).get(1, TimeUnit.SECONDS))
+                .hasCauseInstanceOf(RejectedExecutionException.class);
+    }
+
+    @Test
+    void awaitRethrowsTheOriginalException() {
+        CompletableFuture<String> failed = CompletableFuture.supplyAsync(() -> {
+            throw new IllegalStateException("node failed");
+        });
+
+        assertThatThrownBy(() -> NodeTimer.await(failed))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessage("node failed");
+    }
+}
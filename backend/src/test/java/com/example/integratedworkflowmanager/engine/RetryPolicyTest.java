@@ -0,0 +1,153 @@
+package com.example.integratedworkflowmanager.engine;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RetryPolicyTest {
+
+    @Test
+    void exponentialBackoffDoublesFromTheBaseDelayUpToTheMaximum() {
+        RetryPolicy policy = withoutJitter(RetryPolicy.Backoff.EXPONENTIAL, 100, 1000);
+
+        assertThat(IntStream.rangeClosed(1, 6).mapToLong(policy::delayMs).toArray())
+                .containsExactly(100, 200, 400, 800, 1000, 1000);
+    }
+
+    @Test
+    void exponentialBackoffDoesNotOverflowForLateRetries() {
+        RetryPolicy policy = withoutJitter(RetryPolicy.Backoff.EXPONENTIAL, 200, 5000);
+
+        assertThat(policy.delayMs(64)).isEqualTo(5000);
+    }
+
+    @Test
+    void fixedBackoffAlwaysWaitsTheBaseDelay() {
+        RetryPolicy policy = withoutJitter(RetryPolicy.Backoff.FIXED, 250, 1000);
+
+        assertThat(policy.delayMs(1)).isEqualTo(250);
+        assertThat(policy.delayMs(5)).isEqualTo(250);
+    }
+
+    @Test
+    void noBackoffRetriesImmediatelyWhateverTheJitter() {
+        RetryPolicy policy = RetryPolicy.defaults(3).toBuilder().backoff(RetryPolicy.Backoff.NONE).build();
+
+        assertThat(policy.delayMs(1)).isZero();
+        assertThat(policy.delayMs(3)).isZero();
+    }
+
+    @Test
+    void fullJitterWaitsBetweenZeroAndTheDelay() {
+        RetryPolicy policy = withoutJitter(RetryPolicy.Backoff.FIXED, 100, 1000).toBuilder()
+                .jitter(RetryPolicy.Jitter.FULL)
+                .build();
+
+        Set<Long> delays = sample(policy, 2000);
+
+        assertThat(delays).allMatch(delay -> delay >= 0 && delay <= 100);
+        assertThat(delays.size()).as("distinct delays").isGreaterThan(50);
+        assertThat(delays).contains(0L);
+    }
+
+    @Test
+    void equalJitterWaitsBetweenHalfTheDelayAndTheDelay() {
+        RetryPolicy policy = withoutJitter(RetryPolicy.Backoff.FIXED, 101, 1000).toBuilder()
+                .jitter(RetryPolicy.Jitter.EQUAL)
+                .build();
+
+        Set<Long> delays = sample(policy, 2000);
+
+        assertThat(delays).allMatch(delay -> delay >= 50 && delay <= 101);
+        assertThat(delays.size()).as("distinct delays").isGreaterThan(25);
+    }
+
+    @Test
+    void jitterNeverExceedsTheMaximumDelay() {
+        RetryPolicy policy = RetryPolicy.defaults(10);
+
+        for (int retry = 1; retry <= 10; retry++) {
+            assertThat(policy.delayMs(retry)).isBetween(0L, RetryPolicy.DEFAULT_MAX_DELAY_MS);
+        }
+    }
+
+    @Test
+    void retriesOnlyTheConfiguredStatuses() {
+        RetryPolicy policy = RetryPolicy.defaults(3);
+
+        assertThat(policy.isRetryable(new HttpServerErrorException(HttpStatus.SERVICE_UNAVAILABLE))).isTrue();
+        assertThat(policy.isRetryable(new HttpClientErrorException(HttpStatus.TOO_MANY_REQUESTS))).isTrue();
+        assertThat(policy.isRetryable(new HttpServerErrorException(HttpStatus.NOT_IMPLEMENTED))).isFalse();
+        assertThat(policy.isRetryable(new HttpClientErrorException(HttpStatus.NOT_FOUND))).isFalse();
+    }
+
+    @Test
+    void retriesTimeoutsAndIoErrorsAnywhereInTheCauseChain() {
+        RetryPolicy policy = RetryPolicy.defaults(3);
+
+        assertThat(policy.isRetryable(new ResourceAccessException("read", new SocketTimeoutException("Read timed out")))).isTrue();
+        assertThat(policy.isRetryable(new RuntimeException(new ConnectException("refused")))).isTrue();
+        assertThat(policy.isRetryable(new TimeoutException())).isTrue();
+    }
+
+    @Test
+    void doesNotRetryUnparseableResponses() {
+        RetryPolicy policy = RetryPolicy.defaults(3);
+
+        assertThat(policy.isRetryable(new JsonParseException((JsonParser) null, "Unexpected character"))).isFalse();
+        assertThat(policy.isRetryable(new IllegalStateException("bug"))).isFalse();
+    }
+
+    @Test
+    void retriesExceptionsConfiguredByClassName() {
+        RetryPolicy policy = RetryPolicy.defaults(3).toBuilder()
+                .retryOnExceptions(Set.of("IllegalStateException", "java.lang.UnsupportedOperationException"))
+                .build();
+
+        assertThat(policy.isRetryable(new RuntimeException(new IllegalStateException()))).isTrue();
+        assertThat(policy.isRetryable(new UnsupportedOperationException())).isTrue();
+        assertThat(policy.isRetryable(new IOException("io is not configured"))).isFalse();
+    }
+
+    @Test
+    void deadlineStopsRetriesThatWouldEndTooLate() {
+        RetryPolicy policy = RetryPolicy.defaults(3).toBuilder().deadlineMs(1000L).build();
+        long startedHalfASecondAgo = System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(500);
+
+        assertThat(policy.allowsRetry(startedHalfASecondAgo, 100)).isTrue();
+        assertThat(policy.allowsRetry(startedHalfASecondAgo, 600)).isFalse();
+        assertThat(RetryPolicy.defaults(3).allowsRetry(startedHalfASecondAgo, 60_000)).isTrue();
+    }
+
+    private static RetryPolicy withoutJitter(RetryPolicy.Backoff backoff, long baseDelayMs, long maxDelayMs) {
+        return RetryPolicy.defaults(5).toBuilder()
+                .backoff(backoff)
+                .baseDelayMs(baseDelayMs)
+                .maxDelayMs(maxDelayMs)
+                .jitter(RetryPolicy.Jitter.NONE)
+                .build();
+    }
+
+    private static Set<Long> sample(RetryPolicy policy, int samples) {
+        Set<Long> delays = new HashSet<>();
+        for (int i = 0; i < samples; i++) {
+            delays.add(policy.delayMs(1));
+        }
+        return delays;
+    }
+}
@@ -0,0 +1,195 @@
+package com.example.integratedworkflowmanager.engine;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static com.example.integratedworkflowmanager.engine.TestRuns.*;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class RunJournalTest {
+
+    @TempDir
+    Path directory;
+
+    private final List<RunJournal> opened = new ArrayList<>();
+
+    @AfterEach
+    void shutdown() throws IOException {
+        for (RunJournal journal : opened) {
+            journal.shutdown();
+        }
+    }
+
+    @Test
+    void reportsRunsWithoutAnEndAsInterruptedAfterARestart() throws IOException {
+        RunJournal journal = open(1 << 16);
+        WorkflowRun run = run(plan("orders"));
+        journal.runStarted(run);
+        journal.nodeDispatched(run, node("fetch"));
+        journal.nodeCompleted(run, node("fetch"), NodeOutcome.SUCCESS);
+        journal.nodeDispatched(run, node("charge"));
+        journal.nodeDispatched(run, node("notify"));
+        journal.nodeCompleted(run, node("notify"), NodeOutcome.FAILED);
+        close(journal);
+
+        List<RunJournal.InterruptedRun> interrupted = open(1 << 16).interruptedRuns();
+
+        assertThat(interrupted).singleElement().satisfies(found -> {
+            assertThat(found.executionId()).isEqualTo(run.getExecutionId());
+            assertThat(found.workflowName()).isEqualTo("orders");
+            assertThat(found.completedNodes()).containsExactly("fetch");
+            assertThat(found.inFlightNodes()).containsExactly("charge");
+        });
+    }
+
+    @Test
+    void doesNotReportEndedOrForgottenRuns() throws IOException {
+        RunJournal journal = open(1 << 16);
+        WorkflowRun ended = run(plan("ended"));
+        WorkflowRun forgotten = run(plan("forgotten"));
+        journal.runStarted(ended);
+        journal.runStarted(forgotten);
+        journal.nodeDispatched(ended, node("a"));
+        journal.runEnded(ended.getExecutionId(), "COMPLETED");
+        journal.forget(forgotten.getExecutionId());
+        close(journal);
+
+        assertThat(open(1 << 16).interruptedRuns()).isEmpty();
+    }
+
+    @Test
+    void replayIgnoresATornEventAtTheTail() throws IOException {
+        RunJournal journal = open(1 << 16);
+        WorkflowRun run = run(plan("orders"));
+        journal.runStarted(run);
+        journal.nodeDispatched(run, node("fetch"));
+        close(journal);
+        // The crash cut the next event short: its header is on disk, its payload is not
+        Path segment = lastSegment();
+        long end = frameEnd(segment);
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.allocate(8).putInt(40).putInt(0xCAFE).flip(), end);
+        }
+
+        List<RunJournal.InterruptedRun> interrupted = open(1 << 16).interruptedRuns();
+
+        assertThat(interrupted).singleElement().satisfies(found -> {
+            assertThat(found.executionId()).isEqualTo(run.getExecutionId());
+            assertThat(found.inFlightNodes()).containsExactly("fetch");
+        });
+    }
+
+    @Test
+    void replayRebuildsTheStateFromTheCheckpointAfterARollover() throws IOException {
+        RunJournal journal = open(4096);
+        WorkflowRun active = run(plan("active"));
+        journal.runStarted(active);
+        journal.nodeDispatched(active, node("first"));
+        journal.nodeCompleted(active, node("first"), NodeOutcome.SUCCESS);
+        journal.nodeDispatched(active, node("second"));
+        // Enough short runs to fill several segments
+        for (int i = 0; i < 200; i++) {
+            WorkflowRun shortRun = run(plan("short"));
+            journal.runStarted(shortRun);
+            journal.nodeDispatched(shortRun, node("only"));
+            journal.nodeCompleted(shortRun, node("only"), NodeOutcome.SUCCESS);
+            journal.runEnded(shortRun.getExecutionId(), "COMPLETED");
+        }
+        assertThat((long) journal.stats().get("segment")).isGreaterThan(1);
+        close(journal);
+
+        List<RunJournal.InterruptedRun> interrupted = open(4096).interruptedRuns();
+
+        assertThat(segments()).hasSize(1);
+        assertThat(interrupted).singleElement().satisfies(found -> {
+            assertThat(found.executionId()).isEqualTo(active.getExecutionId());
+            assertThat(found.completedNodes()).containsExactly("first");
+            assertThat(found.inFlightNodes()).containsExactly("second");
+        });
+    }
+
+    @Test
+    void aSecondJournalCannotUseALockedDirectory() throws IOException {
+        open(1 << 16);
+
+        assertThatThrownBy(() -> open(1 << 16))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("in use by another instance");
+    }
+
+    @Test
+    void theLockIsReleasedOnShutdown() throws IOException {
+        close(open(1 << 16));
+
+        assertThat(open(1 << 16).stats()).containsEntry("enabled", true);
+    }
+
+    @Test
+    void anEnabledJournalNeedsADirectory() {
+        assertThatThrownBy(() -> new RunJournal(true, " ", 1 << 16, 10, metrics()))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void aDisabledJournalRecordsNothing() throws IOException {
+        RunJournal journal = new RunJournal(false, "", 1 << 16, 10, metrics());
+        opened.add(journal);
+        WorkflowRun run = run(plan("orders"));
+        journal.runStarted(run);
+        journal.nodeDispatched(run, node("fetch"));
+
+        assertThat(journal.stats()).containsExactly(Map.entry("enabled", false));
+        assertThat(journal.interruptedRuns()).isEmpty();
+        assertThat(segments()).isEmpty();
+    }
+
+    private RunJournal open(int segmentBytes) throws IOException {
+        RunJournal journal = new RunJournal(true, directory.toString(), segmentBytes, 10, metrics());
+        opened.add(journal);
+        return journal;
+    }
+
+    private void close(RunJournal journal) throws IOException {
+        journal.shutdown();
+        opened.remove(journal);
+    }
+
+    private Path lastSegment() throws IOException {
+        List<Path> segments = segments();
+        return segments.get(segments.size() - 1);
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().endsWith(".journal")).sorted().toList();
+        }
+    }
+
+    // Offset just after the last complete frame of a segment
+    private static long frameEnd(Path segment) throws IOException {
+        ByteBuffer data = ByteBuffer.wrap(Files.readAllBytes(segment));
+        int length;
+        while ((length = data.getInt(data.position())) > 0) {
+            data.position(data.position() + 8 + length);
+        }
+        return data.position();
+    }
+
+    private static WorkflowMetrics metrics() {
+        return new WorkflowMetrics(new SimpleMeterRegistry());
+    }
+}
@@ -0,0 +1,134 @@
+package com.example.integratedworkflowmanager.engine;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.ResponseEntity;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SingleFlightTest {
+
+    private final SingleFlight singleFlight = new SingleFlight();
+    private final AtomicInteger downstream = new AtomicInteger();
+
+    @Test
+    void concurrentReactiveCallersShareOneCallAndTheKeyIsRemovedOnCompletion() {
+        Sinks.One<ResponseEntity<String>> response = Sinks.one();
+        CompletableFuture<ResponseEntity<String>> first = singleFlight.execute("key", () -> call(response.asMono())).toFuture();
+        CompletableFuture<ResponseEntity<String>> second = singleFlight.execute("key", () -> call(response.asMono())).toFuture();
+        assertThat(singleFlight.stats()).containsEntry("inFlight", 1);
+
+        response.tryEmitValue(ResponseEntity.ok("{}"));
+
+        assertThat(first.join()).isSameAs(second.join());
+        assertThat(downstream).hasValue(1);
+        assertThat(singleFlight.stats())
+                .containsEntry("inFlight", 0)
+                .containsEntry("calls", 1L)
+                .containsEntry("coalesced", 1L);
+        // Nothing is cached: the next call goes out again
+        singleFlight.execute("key", () -> call(Mono.just(ResponseEntity.ok("{}")))).block();
+        assertThat(downstream).hasValue(2);
+    }
+
+    @Test
+    void aFailedReactiveCallFailsEveryJoinerWithTheSameError() {
+        Sinks.One<ResponseEntity<String>> response = Sinks.one();
+        CompletableFuture<ResponseEntity<String>> first = singleFlight.execute("key", () -> call(response.asMono())).toFuture();
+        CompletableFuture<ResponseEntity<String>> second = singleFlight.execute("key", () -> call(response.asMono())).toFuture();
+        IOException error = new IOException("connection reset");
+
+        response.tryEmitError(error);
+
+        assertThat(cause(first)).isSameAs(error);
+        assertThat(cause(second)).isSameAs(error);
+        assertThat(downstream).hasValue(1);
+        assertThat(singleFlight.stats()).containsEntry("inFlight", 0);
+    }
+
+    @Test
+    void aCancelledReactiveCallerDoesNotLeaveItsCallInFlight() {
+        AtomicBoolean cancelled = new AtomicBoolean();
+        Disposable subscription = singleFlight.execute("key", () -> call(Mono.<ResponseEntity<String>>never()
+                .doOnCancel(() -> cancelled.set(true)))).subscribe();
+        assertThat(singleFlight.stats()).containsEntry("inFlight", 1);
+
+        subscription.dispose();
+
+        assertThat(cancelled).isTrue();
+        assertThat(singleFlight.stats()).containsEntry("inFlight", 0);
+        assertThat(singleFlight.execute("key", () -> call(Mono.just(ResponseEntity.ok("{}")))).block().getBody()).isEqualTo("{}");
+        assertThat(downstream).hasValue(2);
+    }
+
+    @Test
+    void aCallerThatCancelsDoesNotCancelTheCallForTheOthers() {
+        AtomicBoolean cancelled = new AtomicBoolean();
+        Sinks.One<ResponseEntity<String>> response = Sinks.one();
+        Disposable leaving = singleFlight.execute("key", () -> call(response.asMono().doOnCancel(() -> cancelled.set(true)))).subscribe();
+        CompletableFuture<ResponseEntity<String>> staying = singleFlight.execute("key", () -> call(response.asMono())).toFuture();
+
+        leaving.dispose();
+        response.tryEmitValue(ResponseEntity.ok("{}"));
+
+        assertThat(cancelled).isFalse();
+        assertThat(staying.join().getBody()).isEqualTo("{}");
+        assertThat(downstream).hasValue(1);
+        assertThat(singleFlight.stats()).containsEntry("inFlight", 0);
+    }
+
+    @Test
+    void asyncCallersShareOneFutureAndTheSameError() throws Exception {
+        CompletableFuture<ResponseEntity<String>> response = new CompletableFuture<>();
+        CompletableFuture<ResponseEntity<String>> first = singleFlight.executeAsync("key", () -> callAsync(response));
+        CompletableFuture<ResponseEntity<String>> second = singleFlight.executeAsync("key", () -> callAsync(response));
+        IOException error = new IOException("connection reset");
+
+        response.completeExceptionally(error);
+
+        assertThat(second).isSameAs(first);
+        assertThat(cause(first)).isSameAs(error);
+        assertThat(downstream).hasValue(1);
+        assertThat(singleFlight.stats()).containsEntry("inFlight", 0).containsEntry("coalesced", 1L);
+        ResponseEntity<String> ok = ResponseEntity.ok("{}");
+        assertThat(singleFlight.executeAsync("key", () -> callAsync(CompletableFuture.completedFuture(ok))).get(1, TimeUnit.SECONDS)).isSameAs(ok);
+        assertThat(singleFlight.stats()).containsEntry("inFlight", 0);
+    }
+
+    @Test
+    void anAsyncCallThatThrowsOnStartFailsItsFutureAndFreesTheKey() {
+        IllegalStateException error = new IllegalStateException("no connection");
+
+        CompletableFuture<ResponseEntity<String>> failed = singleFlight.executeAsync("key", () -> {
+            throw error;
+        });
+
+        assertThatThrownBy(failed::join).hasCause(error);
+        assertThat(singleFlight.stats()).containsEntry("inFlight", 0);
+    }
+
+    private Mono<ResponseEntity<String>> call(Mono<ResponseEntity<String>> response) {
+        downstream.incrementAndGet();
+        return response;
+    }
+
+    private CompletableFuture<ResponseEntity<String>> callAsync(CompletableFuture<ResponseEntity<String>> response) {
+        downstream.incrementAndGet();
+        return response;
+    }
+
+    private static Throwable cause(CompletableFuture<?> future) {
+        assertThatThrownBy(() -> future.get(1, TimeUnit.SECONDS)).isInstanceOf(ExecutionException.class);
+        return future.handle((value, error) -> error).join();
+    }
+}
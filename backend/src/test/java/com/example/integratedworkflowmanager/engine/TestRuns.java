@@ -0,0 +1,45 @@
+package com.example.integratedworkflowmanager.engine;
+
+import com.example.integratedworkflowmanager.entity.WorkflowExecution;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/*
+    Plans, nodes and runs for engine tests that need a WorkflowRun but no definition JSON.
+
+        - plan(name, nodes) returns the builder, so a test can set parallel, rateLimit, ...
+        - run(plan) starts a new execution of the plan with an empty input
+*/
+final class TestRuns {
+
+    private TestRuns() {
+    }
+
+    static PlanNode node(String name, String... dependsOn) {
+        return PlanNode.builder()
+                .name(name)
+                .dependsOn(Set.of(dependsOn))
+                .build();
+    }
+
+    static WorkflowPlan.WorkflowPlanBuilder plan(String name, PlanNode... nodes) {
+        return WorkflowPlan.builder()
+                .name(name)
+                .nodes(List.of(nodes));
+    }
+
+    static WorkflowRun run(WorkflowPlan.WorkflowPlanBuilder plan) {
+        return run(plan.build());
+    }
+
+    static WorkflowRun run(WorkflowPlan plan) {
+        WorkflowExecution execution = WorkflowExecution.builder()
+                .executionId(UUID.randomUUID())
+                .workflowName(plan.getName())
+                .build();
+        return new WorkflowRun(plan, execution, Map.of());
+    }
+}
@@ -0,0 +1,128 @@
+package com.example.integratedworkflowmanager.engine;
+
+import com.example.integratedworkflowmanager.entity.WorkflowDefinition;
+import org.junit.jupiter.api.Test;
+import org.mvel2.integration.impl.MapVariableResolverFactory;
+
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class WorkflowPlanCompilerTest {
+
+    private final WorkflowPlanCompiler compiler = new WorkflowPlanCompiler();
+
+    @Test
+    void infersDependenciesFromEarlierNodesReferencedInExpressions() throws Exception {
+        WorkflowPlan plan = compile("""
+                { "parallel": true, "nodes": [
+                  { "name": "authToken", "request_url": "https://auth/token" },
+                  { "name": "getUser", "request_url": "https://api/users/{{userId}}" },
+                  { "name": "getPosts", "request_url": "{{'https://api/posts?userId=' + getUser.id}}",
+                    "request_headers": { "Authorization": "{{'Bearer ' + authToken.token}}" } },
+                  { "name": "audit", "request_url": "https://audit", "condition": "getPosts != null" }
+                ] }
+                """);
+        Map<String, PlanNode> nodes = byName(plan);
+
+        assertThat(plan.isParallel()).isTrue();
+        assertThat(nodes.get("authToken").getDependsOn()).isEmpty();
+        assertThat(nodes.get("getUser").getDependsOn()).isEmpty();
+        assertThat(nodes.get("getPosts").getDependsOn()).containsExactlyInAnyOrder("getUser", "authToken");
+        assertThat(nodes.get("audit").getDependsOn()).containsExactly("getPosts");
+    }
+
+    @Test
+    void ignoresNodeNamesUsedAsPropertiesOrInsideOtherNames() throws Exception {
+        WorkflowPlan plan = compile("""
+                { "nodes": [
+                  { "name": "user", "request_url": "https://api/user" },
+                  { "name": "profile", "request_url": "https://api/profile/{{input.user}}/{{userId}}" }
+                ] }
+                """);
+
+        assertThat(byName(plan).get("profile").getDependsOn()).isEmpty();
+    }
+
+    @Test
+    void keepsExplicitDependsOn() throws Exception {
+        WorkflowPlan plan = compile("""
+                { "nodes": [
+                  { "name": "a", "request_url": "https://a" },
+                  { "name": "b", "request_url": "https://b", "depends_on": ["a"] }
+                ] }
+                """);
+
+        assertThat(byName(plan).get("b").getDependsOn()).containsExactly("a");
+    }
+
+    @Test
+    void rejectsDependenciesOnUnknownNodes() {
+        assertThatThrownBy(() -> compile("""
+                { "nodes": [ { "name": "a", "request_url": "https://a", "depends_on": ["missing"] } ] }
+                """))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("missing");
+    }
+
+    @Test
+    void rejectsCycles() {
+        assertThatThrownBy(() -> compile("""
+                { "nodes": [
+                  { "name": "a", "request_url": "https://a", "depends_on": ["b"] },
+                  { "name": "b", "request_url": "https://b", "depends_on": ["a"] }
+                ] }
+                """))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void mapValuesMixingTextAndPlaceholdersRenderAsStrings() throws Exception {
+        WorkflowPlan plan = compile("""
+                { "nodes": [
+                  { "name": "login", "request_url": "https://auth/login" },
+                  { "name": "call", "method": "POST", "request_url": "https://api/call",
+                    "request_headers": { "Authorization": "Bearer {{login.token}}", "Accept": "application/json" },
+                    "request_body": { "note": "user {{userId}} of {{tenant}}" } }
+                ] }
+                """);
+        PlanNode call = byName(plan).get("call");
+
+        NodeRequest request = NodeRequest.resolve(call, new MapVariableResolverFactory(Map.of(
+                "login", Map.of("token", "abc"), "userId", 7, "tenant", "acme")));
+
+        assertThat(call.getRequestHeaders().get("Authorization")).isInstanceOf(Template.class);
+        assertThat(call.getDependsOn()).containsExactly("login");
+        assertThat(request.getHeaders()).containsEntry("Authorization", "Bearer abc").containsEntry("Accept", "application/json");
+        assertThat(request.getBody()).containsEntry("note", "user 7 of acme");
+    }
+
+    @Test
+    void aValueThatIsOnePlaceholderKeepsTheTypeOfItsResult() throws Exception {
+        WorkflowPlan plan = compile("""
+                { "nodes": [ { "name": "call", "method": "POST", "request_url": "https://api/call",
+                    "request_body": { "age": "{{user.age}}", "adult": "{{ user.age >= 18 }}" } } ] }
+                """);
+        PlanNode call = byName(plan).get("call");
+
+        NodeRequest request = NodeRequest.resolve(call, new MapVariableResolverFactory(Map.of("user", Map.of("age", 42))));
+
+        assertThat(call.getRequestBody().get("age")).isInstanceOf(Expression.class);
+        assertThat(request.getBody()).containsEntry("age", 42).containsEntry("adult", true);
+    }
+
+    private WorkflowPlan compile(String workflowJson) throws Exception {
+        return compiler.compile(WorkflowDefinition.builder()
+                .name("test")
+                .version(1L)
+                .workflowJson(workflowJson)
+                .build());
+    }
+
+    private static Map<String, PlanNode> byName(WorkflowPlan plan) {
+        return plan.getNodes().stream().collect(Collectors.toMap(PlanNode::getName, Function.identity()));
+    }
+}
@@ -0,0 +1,122 @@
+package com.example.integratedworkflowmanager.service;
+
+import com.example.integratedworkflowmanager.entity.StepPayload;
+import com.example.integratedworkflowmanager.entity.WorkflowExecutionStep;
+import com.example.integratedworkflowmanager.repository.StepPayloadRepository;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.*;
+
+class StepPayloadStoreTest {
+
+    private static final int THRESHOLD_BYTES = 16;
+
+    private final StepPayloadRepository repository = mock(StepPayloadRepository.class);
+
+    @Test
+    void onlyPayloadsOverTheThresholdInUtf8BytesAreOffloaded() {
+        WorkflowExecutionStep step = WorkflowExecutionStep.builder()
+                .requestBody("x".repeat(THRESHOLD_BYTES))  // 16 bytes: at the threshold
+                .requestHeaders("é".repeat(8))            // 8 chars but 16 bytes
+                .queryParams("é".repeat(9))               // 9 chars but 18 bytes
+                .response("x".repeat(THRESHOLD_BYTES + 1))
+                .build();
+
+        List<StepPayload> payloads = store(StepPayloadStore.Compression.NONE).extract(step);
+
+        assertThat(step.getRequestBody()).isEqualTo("x".repeat(THRESHOLD_BYTES));
+        assertThat(step.getRequestBodyRef()).isNull();
+        assertThat(step.getRequestHeaders()).isEqualTo("é".repeat(8));
+        assertThat(step.getRequestHeadersRef()).isNull();
+        assertThat(step.getQueryParams()).isNull();
+        assertThat(step.getQueryParamsRef()).matches("[0-9a-f]{64}");
+        assertThat(step.getResponse()).isNull();
+        assertThat(step.getResponseRef()).matches("[0-9a-f]{64}");
+        assertThat(payloads).extracting(StepPayload::getOriginalLength).containsExactly(18, THRESHOLD_BYTES + 1);
+    }
+
+    @Test
+    void theSamePayloadTwiceInOneStepIsStoredOnce() {
+        String echoed = "{\"order\":\"" + "1".repeat(40) + "\"}";
+        WorkflowExecutionStep step = WorkflowExecutionStep.builder().requestBody(echoed).response(echoed).build();
+
+        List<StepPayload> payloads = store(StepPayloadStore.Compression.LZ4).extract(step);
+
+        assertThat(payloads).singleElement().extracting(StepPayload::getHash).isEqualTo(step.getResponseRef());
+        assertThat(step.getRequestBodyRef()).isEqualTo(step.getResponseRef());
+    }
+
+    @Test
+    void compressiblePayloadsAreStoredAsLz4AndOthersAsIs() {
+        String repetitive = "abc".repeat(100);
+        String distinct = "abcdefghijklmnopqrstuvwxyz";
+        WorkflowExecutionStep step = WorkflowExecutionStep.builder().requestBody(repetitive).response(distinct).build();
+
+        List<StepPayload> payloads = store(StepPayloadStore.Compression.LZ4).extract(step);
+
+        assertThat(payloads).extracting(StepPayload::getCodec).containsExactly("LZ4", "NONE");
+        assertThat(payloads.get(0).getData().length).isLessThan(repetitive.length());
+        assertThat(payloads.get(1).getData()).isEqualTo(distinct.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void withoutCompressionEveryPayloadIsStoredAsIs() {
+        String repetitive = "abc".repeat(100);
+        WorkflowExecutionStep step = WorkflowExecutionStep.builder().response(repetitive).build();
+
+        List<StepPayload> payloads = store(StepPayloadStore.Compression.NONE).extract(step);
+
+        assertThat(payloads).singleElement().satisfies(payload -> {
+            assertThat(payload.getCodec()).isEqualTo("NONE");
+            assertThat(payload.getData()).isEqualTo(repetitive.getBytes(StandardCharsets.UTF_8));
+        });
+    }
+
+    @Test
+    void loadedPayloadsReadBackAsTheOriginalText() {
+        String body = "{\"items\":[" + "\"ü\",".repeat(50) + "\"end\"]}";
+        String response = "plain text response, not compressible";
+        WorkflowExecutionStep step = WorkflowExecutionStep.builder()
+                .requestBody(body)
+                .requestHeaders("{}")
+                .response(response)
+                .build();
+        StepPayloadStore store = store(StepPayloadStore.Compression.LZ4);
+        List<StepPayload> payloads = store.extract(step);
+        when(repository.findAllById(anyCollection())).thenReturn(payloads);
+
+        Map<String, String> loaded = store.load(List.of(step));
+
+        assertThat(StepPayloadStore.text(step.getRequestBody(), step.getRequestBodyRef(), loaded)).isEqualTo(body);
+        assertThat(StepPayloadStore.text(step.getRequestHeaders(), step.getRequestHeadersRef(), loaded)).isEqualTo("{}");
+        assertThat(StepPayloadStore.text(step.getResponse(), step.getResponseRef(), loaded)).isEqualTo(response);
+    }
+
+    @Test
+    void stepsWithoutReferencesDoNotQueryPayloads() {
+        WorkflowExecutionStep step = WorkflowExecutionStep.builder().response("short").build();
+
+        assertThat(store(StepPayloadStore.Compression.LZ4).load(List.of(step))).isEmpty();
+        verifyNoInteractions(repository);
+    }
+
+    @Test
+    void aDisabledStoreLeavesStepsUnchanged() {
+        String response = "x".repeat(1000);
+        WorkflowExecutionStep step = WorkflowExecutionStep.builder().response(response).build();
+
+        assertThat(new StepPayloadStore(repository, false, THRESHOLD_BYTES, StepPayloadStore.Compression.LZ4).extract(step)).isEmpty();
+        assertThat(step.getResponse()).isEqualTo(response);
+        assertThat(step.getResponseRef()).isNull();
+    }
+
+    private StepPayloadStore store(StepPayloadStore.Compression compression) {
+        return new StepPayloadStore(repository, true, THRESHOLD_BYTES, compression);
+    }
+}
@@ -0,0 +1,271 @@
+package com.example.integratedworkflowmanager.service;
+
+import com.example.integratedworkflowmanager.engine.*;
+import com.example.integratedworkflowmanager.entity.WorkflowExecution;
+import com.example.integratedworkflowmanager.entity.WorkflowExecutionStep;
+import com.example.integratedworkflowmanager.repository.WorkflowDefinitionRepository;
+import com.example.integratedworkflowmanager.repository.WorkflowErrorLogRepository;
+import com.example.integratedworkflowmanager.repository.WorkflowExecutionRepository;
+import com.example.integratedworkflowmanager.repository.WorkflowExecutionStepRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class WorkflowServiceImplTest {
+
+    private final WorkflowExecutionRepository executionRepository = mock(WorkflowExecutionRepository.class);
+    private final WorkflowExecutionStepRepository stepRepository = mock(WorkflowExecutionStepRepository.class);
+    private final WorkflowTransactionalService transactionalService = mock(WorkflowTransactionalService.class);
+    private final WorkflowPlanCache planCache = mock(WorkflowPlanCache.class);
+    private final WorkflowEngine blockingEngine = mock(WorkflowEngine.class);
+    private final ReactiveWorkflowEngine reactiveEngine = mock(ReactiveWorkflowEngine.class);
+    private final WorkflowRunQueue runQueue = mock(WorkflowRunQueue.class);
+    private final ExecutorService batchExecutor = Executors.newFixedThreadPool(4);
+
+    private final WorkflowServiceImpl service = new WorkflowServiceImpl(
+            mock(WorkflowDefinitionRepository.class),
+            executionRepository,
+            mock(WorkflowErrorLogRepository.class),
+            transactionalService,
+            stepRepository,
+            planCache,
+            blockingEngine,
+            reactiveEngine,
+            runQueue,
+            mock(WorkflowStepWriter.class),
+            new WorkflowMetrics(new SimpleMeterRegistry()),
+            mock(ExecutionTracer.class),
+            mock(TransactionTemplate.class),
+            new ObjectMapper(),
+            mock(StepPayloadStore.class),
+            mock(RunJournal.class),
+            batchExecutor);
+
+    @BeforeEach
+    void setUp() throws Exception {
+        ReflectionTestUtils.setField(service, "defaultEngineMode", "blocking");
+        when(transactionalService.saveWorkflowExecution(any())).thenAnswer(invocation -> {
+            WorkflowExecution execution = invocation.getArgument(0);
+            execution.setExecutionId(UUID.randomUUID());
+            return execution;
+        });
+        when(reactiveEngine.offload(any())).thenAnswer(invocation -> Mono.fromCallable(invocation.<Callable<?>>getArgument(0)));
+        when(reactiveEngine.execute(any())).thenReturn(Mono.just(true));
+        when(blockingEngine.execute(any())).thenReturn(true);
+        when(runQueue.tryReserve()).thenReturn(true);
+        doAnswer(invocation -> {
+            invocation.<Runnable>getArgument(0).run();
+            return null;
+        }).when(runQueue).execute(any());
+    }
+
+    @AfterEach
+    void shutdown() {
+        batchExecutor.shutdownNow();
+    }
+
+    @Test
+    void asyncRunsOfAReactivePlanUseTheReactiveEngine() throws Exception {
+        plan(EngineMode.REACTIVE);
+
+        assertThat(service.submitWorkflow("flow", Map.of(), RunOptions.DEFAULT)).containsEntry("status", "QUEUED");
+
+        verify(reactiveEngine).execute(any());
+        verify(blockingEngine, never()).execute(any());
+        verify(transactionalService).updateWorkflowStatus(any(), eq("SUCCESS"));
+    }
+
+    @Test
+    void theDefaultEngineModeAppliesToPlansWithoutAnEngine() throws Exception {
+        ReflectionTestUtils.setField(service, "defaultEngineMode", "reactive");
+        plan(null);
+
+        service.submitWorkflow("flow", Map.of(), RunOptions.DEFAULT);
+
+        verify(reactiveEngine).execute(any());
+        verify(blockingEngine, never()).execute(any());
+    }
+
+    @Test
+    void resumedReactiveRunsRestoreTheirCompletedNodes() throws Exception {
+        WorkflowPlan plan = plan(EngineMode.REACTIVE);
+        WorkflowExecution execution = execution("FAIL", plan.getVersion());
+        when(executionRepository.findById(execution.getExecutionId())).thenReturn(Optional.of(execution));
+        when(transactionalService.reopenFailedExecution(execution.getExecutionId())).thenReturn(true);
+        when(stepRepository.findByExecutionOrderByNodeIdAsc(execution)).thenReturn(List.of(
+                WorkflowExecutionStep.builder().nodeName("a").status("SUCCESS").response("{\"id\":1}").build()));
+
+        Map<String, Object> result = service.resumeWorkflow(execution.getExecutionId(), RunOptions.DEFAULT);
+
+        WorkflowRun run = reactiveRun();
+        assertThat(run.isRestored("a")).isTrue();
+        assertThat(run.isRestored("b")).isFalse();
+        assertThat(run.getContext()).containsEntry("a", Map.of("id", 1));
+        assertThat(result).containsEntry("status", "SUCCESS").containsEntry("resumed", true);
+    }
+
+    @Test
+    void aClaimedReactiveRunOnlyRecordsItsStatusWhileLeased() throws Exception {
+        WorkflowPlan plan = plan(EngineMode.REACTIVE);
+        WorkflowExecution execution = execution("IN_PROGRESS", plan.getVersion());
+        RunLease lease = new RunLease("worker-1", 30_000);
+        when(transactionalService.finishLeasedExecution(execution.getExecutionId(), "worker-1", "SUCCESS")).thenReturn(false);
+
+        Map<String, Object> result = service.runClaimed(execution, lease);
+
+        assertThat(reactiveRun().getLease()).isSameAs(lease);
+        assertThat(result).containsEntry("leaseLost", true);
+        verify(transactionalService, never()).updateWorkflowStatus(any(), any());
+        verify(blockingEngine, never()).execute(any());
+    }
+
+    @Test
+    void aBatchKeepsAtMostConcurrencyRunsInFlightAndReturnsOnceAllHaveCompleted() throws Exception {
+        plan(EngineMode.BLOCKING);
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        when(blockingEngine.execute(any())).thenAnswer(invocation -> {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            Thread.sleep(30);
+            inFlight.decrementAndGet();
+            return true;
+        });
+        List<Map<String, Object>> lines = new CopyOnWriteArrayList<>();
+
+        Map<String, Object> summary = service.runBatch("flow", inputs(6), 2, RunOptions.DEFAULT, lines::add);
+
+        assertThat(lines).hasSize(6).allSatisfy(line -> assertThat(line).containsEntry("status", "SUCCESS"));
+        assertThat(lines).extracting(line -> line.get("index")).containsExactlyInAnyOrder(0, 1, 2, 3, 4, 5);
+        assertThat(maxInFlight.get()).isBetween(1, 2);
+        assertThat(summary)
+                .containsEntry("total", 6)
+                .containsEntry("succeeded", 6)
+                .containsEntry("failed", 0)
+                .doesNotContainKeys("error", "unwritten");
+    }
+
+    @Test
+    void aMalformedInputEndsReadingButTheStartedRunsComplete() throws Exception {
+        plan(EngineMode.BLOCKING);
+        Iterator<Map<String, Object>> inputs = new Iterator<>() {
+            private int read;
+
+            @Override
+            public boolean hasNext() {
+                return true;
+            }
+
+            @Override
+            public Map<String, Object> next() {
+                if (read == 2) throw new IllegalArgumentException("Unexpected character '}'");
+                return Map.of("n", read++);
+            }
+        };
+        List<Map<String, Object>> lines = new CopyOnWriteArrayList<>();
+
+        Map<String, Object> summary = service.runBatch("flow", inputs, 4, RunOptions.DEFAULT, lines::add);
+
+        assertThat(lines).hasSize(2);
+        assertThat(summary)
+                .containsEntry("total", 2)
+                .containsEntry("succeeded", 2)
+                .containsEntry("error", "Invalid input #2: Unexpected character '}'");
+    }
+
+    @Test
+    void aResultThatCannotBeWrittenIsCountedAsUnwrittenNotFailed() throws Exception {
+        plan(EngineMode.BLOCKING);
+
+        Map<String, Object> summary = service.runBatch("flow", inputs(3), 2, RunOptions.DEFAULT, line -> {
+            if (line.get("index").equals(1)) throw new UncheckedIOException(new IOException("Broken pipe"));
+        });
+
+        assertThat(summary)
+                .containsEntry("total", 3)
+                .containsEntry("succeeded", 3)
+                .containsEntry("failed", 0)
+                .containsEntry("unwritten", 1);
+    }
+
+    @Test
+    void aRejectedSubmissionFailsItsRunAndStopsTheBatch() throws Exception {
+        plan(EngineMode.BLOCKING);
+        // One worker and no queue: the second run is rejected while the first is running
+        ExecutorService saturated = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new SynchronousQueue<>());
+        ReflectionTestUtils.setField(service, "batchExecutor", saturated);
+        when(blockingEngine.execute(any())).thenAnswer(invocation -> {
+            Thread.sleep(100);
+            return true;
+        });
+        List<Map<String, Object>> lines = new CopyOnWriteArrayList<>();
+
+        try {
+            Map<String, Object> summary = service.runBatch("flow", inputs(5), 3, RunOptions.DEFAULT, lines::add);
+
+            assertThat(summary)
+                    .containsEntry("total", 2)
+                    .containsEntry("succeeded", 1)
+                    .containsEntry("failed", 1);
+            assertThat((String) summary.get("error")).startsWith("Batch run #1 rejected");
+            // The summary waited for the run started before the rejection
+            assertThat(lines).extracting(line -> line.get("status")).containsExactlyInAnyOrder("SUCCESS", "FAIL");
+            verify(blockingEngine, times(1)).execute(any());
+        } finally {
+            saturated.shutdownNow();
+        }
+    }
+
+    private WorkflowPlan plan(EngineMode engine) throws Exception {
+        WorkflowPlan plan = WorkflowPlan.builder()
+                .name("flow")
+                .version(3L)
+                .nodes(List.of(
+                        PlanNode.builder().name("a").dependsOn(Set.of()).build(),
+                        PlanNode.builder().name("b").dependsOn(Set.of()).build()))
+                .engine(engine)
+                .build();
+        when(planCache.getPlan("flow")).thenReturn(plan);
+        when(planCache.getCurrentPlan("flow")).thenReturn(plan);
+        return plan;
+    }
+
+    private static WorkflowExecution execution(String status, Long version) {
+        return WorkflowExecution.builder()
+                .executionId(UUID.randomUUID())
+                .workflowName("flow")
+                .status(status)
+                .inputJson("{}")
+                .workflowVersion(version)
+                .build();
+    }
+
+    private static Iterator<Map<String, Object>> inputs(int count) {
+        List<Map<String, Object>> inputs = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            inputs.add(Map.of("n", i));
+        }
+        return inputs.iterator();
+    }
+
+    private WorkflowRun reactiveRun() {
+        ArgumentCaptor<WorkflowRun> run = ArgumentCaptor.forClass(WorkflowRun.class);
+        verify(reactiveEngine).execute(run.capture());
+        return run.getValue();
+    }
+}
@@ -0,0 +1,159 @@
+package com.example.integratedworkflowmanager.service;
+
+import com.example.integratedworkflowmanager.engine.WorkflowMetrics;
+import com.example.integratedworkflowmanager.entity.WorkflowExecution;
+import com.example.integratedworkflowmanager.entity.WorkflowExecutionStep;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class WorkflowStepWriterTest {
+
+    private static final long NO_TIMED_FLUSH = 60_000;
+
+    private final WorkflowTransactionalService transactionalService = mock(WorkflowTransactionalService.class);
+    private final StepPayloadStore payloadStore = mock(StepPayloadStore.class);
+    private final List<Thread> batchThreads = new CopyOnWriteArrayList<>();
+    private final List<List<String>> batches = new CopyOnWriteArrayList<>();
+    private WorkflowStepWriter writer;
+
+    @AfterEach
+    void shutdown() {
+        if (writer != null) writer.shutdown();
+    }
+
+    @Test
+    void aFullBatchIsFlushedWithoutWaitingForTheInterval() {
+        recordBatches();
+        writer = writer(WorkflowStepWriter.Durability.BATCHED, 3, 1, 100);
+
+        writer.write(step("a"));
+        writer.write(step("b"));
+        assertThat(batches).isEmpty();
+        writer.write(step("c"));
+
+        verify(transactionalService, timeout(1000)).saveWorkflowSteps(anyList(), anyList());
+        assertThat(batches).containsExactly(List.of("a", "b", "c"));
+        assertThat(writer.pending()).isZero();
+    }
+
+    @Test
+    void completeRunStoresTheBufferedStepsBeforeReturning() {
+        recordBatches();
+        writer = writer(WorkflowStepWriter.Durability.BATCHED, 100, 1, 100);
+        writer.write(step("a"));
+        writer.write(step("b"));
+
+        writer.completeRun();
+
+        assertThat(batches).containsExactly(List.of("a", "b"));
+        assertThat(writer.pending()).isZero();
+        verify(transactionalService, never()).saveWorkflowStep(any(WorkflowExecutionStep.class), anyList());
+    }
+
+    @Test
+    void aBatchThatKeepsFailingIsStoredStepByStepAndFlagsRunsWithLostSteps() {
+        WorkflowExecution stored = execution();
+        WorkflowExecution lost = execution();
+        WorkflowExecutionStep good = step("good", stored);
+        WorkflowExecutionStep bad = step("bad", lost);
+        doThrow(new IllegalStateException("deadlock")).when(transactionalService).saveWorkflowSteps(anyList(), anyList());
+        doThrow(new IllegalStateException("data too long")).when(transactionalService).saveWorkflowStep(same(bad), anyList());
+        writer = writer(WorkflowStepWriter.Durability.BATCHED, 100, 2, 100);
+        writer.write(good);
+        writer.write(bad);
+
+        writer.completeRun();
+
+        verify(transactionalService, times(3)).saveWorkflowSteps(anyList(), anyList()); // the batch and two retries
+        verify(transactionalService).saveWorkflowStep(same(good), anyList());
+        verify(transactionalService).saveWorkflowStep(same(bad), anyList());
+        verify(transactionalService).markStepsIncomplete(List.of(lost.getExecutionId()));
+    }
+
+    @Test
+    void idsOfARolledBackBatchAreClearedBeforeTheNextInsert() {
+        List<UUID> idsOnRetry = new ArrayList<>();
+        WorkflowExecutionStep step = step("a");
+        doAnswer(invocation -> {
+            step.setId(UUID.randomUUID()); // assigned by the insert, then rolled back
+            throw new IllegalStateException(new SQLException("lock wait timeout"));
+        }).doAnswer(invocation -> {
+            idsOnRetry.add(step.getId());
+            return null;
+        }).when(transactionalService).saveWorkflowSteps(anyList(), anyList());
+        writer = writer(WorkflowStepWriter.Durability.BATCHED, 100, 1, 100);
+        writer.write(step);
+
+        writer.completeRun();
+
+        verify(transactionalService, times(2)).saveWorkflowSteps(anyList(), anyList());
+        assertThat(idsOnRetry).containsExactly((UUID) null);
+        verify(transactionalService, never()).markStepsIncomplete(any());
+    }
+
+    @Test
+    void aFullBufferIsFlushedByTheWritingThread() {
+        recordBatches();
+        writer = writer(WorkflowStepWriter.Durability.BATCHED, 100, 1, 2);
+        writer.write(step("a"));
+        writer.write(step("b"));
+
+        writer.write(step("c"));
+
+        assertThat(batches).containsExactly(List.of("a", "b"));
+        assertThat(batchThreads).containsExactly(Thread.currentThread());
+        assertThat(writer.pending()).isEqualTo(1);
+    }
+
+    @Test
+    void aSyncStepThatCannotBeStoredFlagsItsRun() {
+        WorkflowExecution execution = execution();
+        doThrow(new IllegalStateException("connection reset")).when(transactionalService).saveWorkflowStep(any(WorkflowExecutionStep.class), anyList());
+        writer = writer(WorkflowStepWriter.Durability.SYNC, 100, 1, 100);
+
+        writer.write(step("a", execution));
+
+        verify(transactionalService).markStepsIncomplete(List.of(execution.getExecutionId()));
+        verify(transactionalService, never()).saveWorkflowSteps(anyList(), anyList());
+    }
+
+    private WorkflowStepWriter writer(WorkflowStepWriter.Durability durability, int batchSize, int batchRetries, int bufferCapacity) {
+        when(payloadStore.extract(any(WorkflowExecutionStep.class))).thenReturn(List.of());
+        return new WorkflowStepWriter(transactionalService, new WorkflowMetrics(new SimpleMeterRegistry()), payloadStore,
+                durability, batchSize, batchRetries, NO_TIMED_FLUSH, bufferCapacity);
+    }
+
+    // The writer reuses its batch list, so the node names are copied as each batch is stored
+    private void recordBatches() {
+        doAnswer(invocation -> {
+            batchThreads.add(Thread.currentThread());
+            batches.add(invocation.<List<WorkflowExecutionStep>>getArgument(0).stream().map(WorkflowExecutionStep::getNodeName).toList());
+            return null;
+        }).when(transactionalService).saveWorkflowSteps(anyList(), anyList());
+    }
+
+    private static WorkflowExecutionStep step(String nodeName) {
+        return step(nodeName, execution());
+    }
+
+    private static WorkflowExecutionStep step(String nodeName, WorkflowExecution execution) {
+        return WorkflowExecutionStep.builder()
+                .execution(execution)
+                .nodeName(nodeName)
+                .statusCode(200)
+                .build();
+    }
+
+    private static WorkflowExecution execution() {
+        return WorkflowExecution.builder().executionId(UUID.randomUUID()).workflowName("flow").build();
+    }
+}
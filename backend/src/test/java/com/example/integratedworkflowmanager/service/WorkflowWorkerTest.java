@@ -0,0 +1,185 @@
+package com.example.integratedworkflowmanager.service;
+
+import com.example.integratedworkflowmanager.engine.RunLease;
+import com.example.integratedworkflowmanager.engine.WorkflowMetrics;
+import com.example.integratedworkflowmanager.entity.WorkflowExecution;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class WorkflowWorkerTest {
+
+    private static final long LEASE_MS = 300;
+    private static final long HEARTBEAT_MS = 50;
+
+    private final WorkflowTransactionalService transactionalService = mock(WorkflowTransactionalService.class);
+    private final WorkflowService workflowService = mock(WorkflowService.class);
+    private final ExecutorService workerExecutor = Executors.newCachedThreadPool();
+    private final Map<UUID, RunLease> leases = new ConcurrentHashMap<>();
+    private final CountDownLatch finish = new CountDownLatch(1);
+    private WorkflowWorker worker;
+
+    @AfterEach
+    void shutdown() {
+        finish.countDown();
+        if (worker != null) worker.shutdown();
+        workerExecutor.shutdownNow();
+    }
+
+    @Test
+    void claimsUpToItsFreeSlotsAndPollsAgainWhenARunFinishes() throws Exception {
+        WorkflowExecution first = execution(1);
+        WorkflowExecution reclaimed = execution(2);
+        when(transactionalService.claimExecutions(anyString(), anyInt(), anyLong())).thenReturn(List.of(first, reclaimed), List.of());
+        runsBlockUntilFinished();
+
+        worker = start(2, 3);
+
+        verify(workflowService, timeout(1000).times(2)).runClaimed(any(), any());
+        // Both slots taken: the worker claims nothing more while the runs execute
+        Thread.sleep(100);
+        verify(transactionalService, times(1)).claimExecutions(workerId(), 2, LEASE_MS);
+        assertThat(worker.status())
+                .containsEntry("active", 2)
+                .containsEntry("claimed", 1L)
+                .containsEntry("reclaimed", 1L);
+
+        finish.countDown();
+
+        verify(transactionalService, timeout(1000)).endLease(workerId(), first.getExecutionId());
+        verify(transactionalService, timeout(1000)).endLease(workerId(), reclaimed.getExecutionId());
+        // The claim filled every slot (a backlog): finishing runs poll again at once, for the freed slots
+        verify(transactionalService, timeout(1000).atLeast(2)).claimExecutions(eq(workerId()), intThat(free -> free > 0), eq(LEASE_MS));
+        waitFor(() -> worker.status().get("completed").equals(2L) && worker.status().get("active").equals(0));
+    }
+
+    @Test
+    void aHeartbeatRenewsTheLeasesOfRunningRuns() throws Exception {
+        WorkflowExecution execution = execution(1);
+        when(transactionalService.claimExecutions(anyString(), anyInt(), anyLong())).thenReturn(List.of(execution), List.of());
+        when(transactionalService.renewLeases(anyString(), anyCollection(), anyLong())).thenAnswer(invocation -> invocation.<Collection<?>>getArgument(1).size());
+        runsBlockUntilFinished();
+
+        worker = start(1, 3);
+
+        verify(transactionalService, timeout(1000).atLeast(2)).renewLeases(workerId(), Set.of(execution.getExecutionId()), LEASE_MS);
+        Thread.sleep(LEASE_MS + HEARTBEAT_MS); // longer than the lease: only the renewals keep it
+        RunLease lease = leases.get(execution.getExecutionId());
+        assertThat(lease.isLost()).isFalse();
+        assertThat(lease.isExpired()).isFalse();
+        verify(transactionalService, never()).findLeased(any(), any());
+    }
+
+    @Test
+    void aLeaseTakenOverByAnotherWorkerIsLost() throws Exception {
+        WorkflowExecution execution = execution(1);
+        when(transactionalService.claimExecutions(anyString(), anyInt(), anyLong())).thenReturn(List.of(execution), List.of());
+        when(transactionalService.renewLeases(anyString(), anyCollection(), anyLong())).thenReturn(0);
+        when(transactionalService.findLeased(anyString(), anyCollection())).thenReturn(Set.of());
+        runsBlockUntilFinished();
+
+        worker = start(1, 3);
+
+        waitFor(() -> leases.containsKey(execution.getExecutionId()) && leases.get(execution.getExecutionId()).isLost());
+        assertThat(worker.status()).containsEntry("lostLeases", 1L);
+    }
+
+    @Test
+    void aLeaseThatCannotBeRenewedIsLostOnceItExpires() throws Exception {
+        WorkflowExecution execution = execution(1);
+        when(transactionalService.claimExecutions(anyString(), anyInt(), anyLong())).thenReturn(List.of(execution), List.of());
+        when(transactionalService.renewLeases(anyString(), anyCollection(), anyLong())).thenThrow(new IllegalStateException("database down"));
+        runsBlockUntilFinished();
+
+        worker = start(1, 3);
+
+        verify(transactionalService, timeout(1000).atLeast(2)).renewLeases(any(), any(), anyLong());
+        assertThat(leases.get(execution.getExecutionId()).isLost()).isFalse(); // failed renewals alone do not lose it yet
+        waitFor(() -> leases.get(execution.getExecutionId()).isLost());
+        assertThat(leases.get(execution.getExecutionId()).isExpired()).isTrue();
+    }
+
+    @Test
+    void aRunClaimedMoreThanMaxAttemptsTimesIsFailedInsteadOfRun() throws Exception {
+        WorkflowExecution execution = execution(4);
+        when(transactionalService.claimExecutions(anyString(), anyInt(), anyLong())).thenReturn(List.of(execution), List.of());
+
+        worker = start(1, 3);
+
+        verify(transactionalService, timeout(1000)).finishLeasedExecution(execution.getExecutionId(), workerId(), "FAIL");
+        verify(transactionalService).saveWorkflowError(eq(execution.getExecutionId()), eq("flow"), contains("Abandoned after 3 attempts"));
+        verify(transactionalService, timeout(1000)).endLease(workerId(), execution.getExecutionId());
+        verify(workflowService, never()).runClaimed(any(), any());
+        waitFor(() -> worker.status().get("abandoned").equals(1L));
+    }
+
+    @Test
+    void aRunThatThrowsStillEndsItsLeaseAndFreesItsSlot() throws Exception {
+        WorkflowExecution failing = execution(1);
+        WorkflowExecution next = execution(1);
+        when(transactionalService.claimExecutions(anyString(), anyInt(), anyLong())).thenReturn(List.of(failing), List.of(next), List.of());
+        when(workflowService.runClaimed(any(), any())).thenThrow(new IllegalStateException("boom")).thenReturn(Map.of("status", "SUCCESS"));
+
+        worker = start(1, 3);
+
+        verify(transactionalService, timeout(1000)).endLease(workerId(), failing.getExecutionId());
+        verify(transactionalService, timeout(1000)).endLease(workerId(), next.getExecutionId());
+        waitFor(() -> worker.status().get("completed").equals(2L));
+    }
+
+    @Test
+    void aHeartbeatThatIsNotShorterThanTheLeaseIsRejected() {
+        assertThatThrownBy(() -> new WorkflowWorker(transactionalService, workflowService, metrics(), workerExecutor,
+                true, "", 1, 20, 1000, 1000, 3))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private WorkflowWorker start(int concurrency, int maxAttempts) {
+        WorkflowWorker started = new WorkflowWorker(transactionalService, workflowService, metrics(), workerExecutor,
+                true, "test", concurrency, 20, LEASE_MS, HEARTBEAT_MS, maxAttempts);
+        started.start();
+        return started;
+    }
+
+    private String workerId() {
+        return (String) worker.status().get("workerId");
+    }
+
+    // Every claimed run records its lease and keeps running until the test lets it finish
+    private void runsBlockUntilFinished() {
+        when(workflowService.runClaimed(any(), any())).thenAnswer(invocation -> {
+            leases.put(invocation.<WorkflowExecution>getArgument(0).getExecutionId(), invocation.getArgument(1));
+            finish.await();
+            return Map.of("status", "SUCCESS");
+        });
+    }
+
+    private static WorkflowExecution execution(int attempts) {
+        return WorkflowExecution.builder()
+                .executionId(UUID.randomUUID())
+                .workflowName("flow")
+                .status("IN_PROGRESS")
+                .attempts(attempts)
+                .build();
+    }
+
+    private static WorkflowMetrics metrics() {
+        return new WorkflowMetrics(new SimpleMeterRegistry());
+    }
+
+    private static void waitFor(Callable<Boolean> condition) throws Exception {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(2);
+        while (!condition.call()) {
+            assertThat(System.nanoTime()).as("condition met within 2 s").isLessThan(deadline);
+            Thread.sleep(10);
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.integratedworkflowmanager.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class GcraRateLimiterTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    @Test
+    void letsABurstThroughBackToBack() {
+        GcraRateLimiter limiter = new GcraRateLimiter(1, 3);
+
+        assertThat(limiter.reserve(0)).isZero();
+        assertThat(limiter.reserve(0)).isZero();
+        assertThat(limiter.reserve(0)).isZero();
+        assertThat(limiter.reserve(0)).isEqualTo(-1);
+    }
+
+    @Test
+    void spacesRequestsAfterTheBurstOneIntervalApart() {
+        GcraRateLimiter limiter = new GcraRateLimiter(10, 1); // one request every 100 ms
+
+        assertThat(limiter.reserve(SECOND)).isZero();
+        long second = limiter.reserve(SECOND);
+        long third = limiter.reserve(SECOND);
+
+        assertThat(second).isBetween(TimeUnit.MILLISECONDS.toNanos(90), TimeUnit.MILLISECONDS.toNanos(100));
+        assertThat(third - second).isBetween(TimeUnit.MILLISECONDS.toNanos(95), TimeUnit.MILLISECONDS.toNanos(105));
+    }
+
+    @Test
+    void rejectsWithoutReservingWhenTheWaitExceedsTheMaximum() {
+        GcraRateLimiter limiter = new GcraRateLimiter(10, 1);
+        limiter.reserve(0);
+
+        assertThat(limiter.reserve(TimeUnit.MILLISECONDS.toNanos(10))).isEqualTo(-1);
+        assertThat(limiter.reserve(TimeUnit.MILLISECONDS.toNanos(10))).isEqualTo(-1);
+        // The rejected attempts took nothing: the next slot is still one interval away
+        assertThat(limiter.reserve(SECOND)).isLessThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(100));
+    }
+
+    @Test
+    void releaseGivesAnUnusedReservationBack() {
+        GcraRateLimiter limiter = new GcraRateLimiter(1, 2);
+        limiter.reserve(0);
+        limiter.reserve(0);
+        assertThat(limiter.reserve(0)).isEqualTo(-1);
+
+        limiter.release();
+
+        assertThat(limiter.reserve(0)).isZero();
+        assertThat(limiter.reserve(0)).isEqualTo(-1);
+    }
+
+    @Test
+    void releaseBeforeAnyReservationIsHarmless() {
+        GcraRateLimiter limiter = new GcraRateLimiter(1, 1);
+
+        limiter.release();
+
+        assertThat(limiter.reserve(0)).isZero();
+        assertThat(limiter.reserve(0)).isEqualTo(-1);
+    }
+
+    @Test
+    void concurrentCallersNeverGetMoreThanTheBurst() throws Exception {
+        GcraRateLimiter limiter = new GcraRateLimiter(0.1, 5); // no new slot for 10 s
+        ExecutorService pool = Executors.newFixedThreadPool(16);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger granted = new AtomicInteger();
+        try {
+            for (int i = 0; i < 200; i++) {
+                pool.execute(() -> {
+                    try {
+                        start.await();
+                    } catch (InterruptedException ex) {
+                        Thread.currentThread().interrupt();
+                    }
+                    if (limiter.reserve(0) == 0) {
+                        granted.incrementAndGet();
+                    }
+                });
+            }
+            start.countDown();
+        } finally {
+            pool.shutdown();
+            assertThat(pool.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+        }
+
+        assertThat(granted.get()).isEqualTo(5);
+    }
+
+    @Test
+    void rejectsNonPositiveLimits() {
+        assertThatThrownBy(() -> new GcraRateLimiter(0, 1)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new GcraRateLimiter(1, 0)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,160 @@
+package com.example.integratedworkflowmanager.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class MappedSegmentLogTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void readsBackAppendedRecordsInOrder() throws IOException {
+        try (MappedSegmentLog log = new MappedSegmentLog(directory, 4096)) {
+            log.open(List.of());
+            log.append(bytes("one"), List::of);
+            log.append(bytes("two"), List::of);
+            log.append(bytes("three"), List::of);
+        }
+
+        assertThat(texts(MappedSegmentLog.read(directory))).containsExactly("one", "two", "three");
+    }
+
+    @Test
+    void recordsAreReadableWithoutCloseOrForce() throws IOException {
+        MappedSegmentLog log = new MappedSegmentLog(directory, 4096);
+        log.open(List.of(bytes("checkpoint")));
+        log.append(bytes("after"), List::of);
+
+        // As after a JVM crash: nothing was forced, the pages of the mapping hold the records
+        assertThat(texts(MappedSegmentLog.read(directory))).containsExactly("checkpoint", "after");
+        log.close();
+    }
+
+    @Test
+    void stopsAtATornFrameAtTheEndOfTheSegment() throws IOException {
+        try (MappedSegmentLog log = new MappedSegmentLog(directory, 4096)) {
+            log.open(List.of());
+            log.append(bytes("complete"), List::of);
+        }
+        // A frame whose header made it to disk but whose payload was cut short
+        writeAt(onlySegment(), 8 + "complete".length(), frameHeader(100, 12345), bytes("cut sh"));
+
+        assertThat(texts(MappedSegmentLog.read(directory))).containsExactly("complete");
+    }
+
+    @Test
+    void stopsAtAFrameWhoseChecksumDoesNotMatch() throws IOException {
+        try (MappedSegmentLog log = new MappedSegmentLog(directory, 4096)) {
+            log.open(List.of());
+            log.append(bytes("first"), List::of);
+            log.append(bytes("second"), List::of);
+            log.append(bytes("third"), List::of);
+        }
+        // Flip a payload byte of "second": it and everything after it in the segment are dropped
+        writeAt(onlySegment(), 8 + "first".length() + 8, ByteBuffer.allocate(0), bytes("X"));
+
+        assertThat(texts(MappedSegmentLog.read(directory))).containsExactly("first");
+    }
+
+    @Test
+    void reopeningAppendsToANewSegmentStartingWithTheCheckpoint() throws IOException {
+        try (MappedSegmentLog log = new MappedSegmentLog(directory, 4096)) {
+            log.open(List.of());
+            log.append(bytes("old"), List::of);
+        }
+        try (MappedSegmentLog log = new MappedSegmentLog(directory, 4096)) {
+            log.open(List.of(bytes("state")));
+            log.append(bytes("new"), List::of);
+            assertThat(log.getSegment()).isEqualTo(2);
+        }
+
+        assertThat(segments()).hasSize(1);
+        assertThat(texts(MappedSegmentLog.read(directory))).containsExactly("state", "new");
+    }
+
+    @Test
+    void rollsOverToACheckpointWhenASegmentIsFull() throws IOException {
+        List<String> appended = new ArrayList<>();
+        try (MappedSegmentLog log = new MappedSegmentLog(directory, 4096)) {
+            log.open(List.of());
+            for (int i = 0; i < 1000; i++) {
+                String record = "record-" + i;
+                log.append(bytes(record), () -> List.of(bytes("checkpoint@" + appended.size())));
+                appended.add(record);
+            }
+            assertThat(log.getSegment()).isGreaterThan(1);
+        }
+
+        List<String> replayed = texts(MappedSegmentLog.read(directory));
+        assertThat(segments()).hasSize(1);
+        assertThat(replayed.get(0)).startsWith("checkpoint@");
+        int checkpointAt = Integer.parseInt(replayed.get(0).substring("checkpoint@".length()));
+        assertThat(replayed.subList(1, replayed.size())).isEqualTo(appended.subList(checkpointAt, appended.size()));
+    }
+
+    @Test
+    void rejectsRecordsLargerThanHalfASegment() throws IOException {
+        try (MappedSegmentLog log = new MappedSegmentLog(directory, 4096)) {
+            log.open(List.of());
+            assertThatThrownBy(() -> log.append(new byte[3000], List::of)).isInstanceOf(IllegalArgumentException.class);
+        }
+    }
+
+    @Test
+    void rejectsAppendsBeforeOpen() {
+        MappedSegmentLog log = new MappedSegmentLog(directory, 4096);
+
+        assertThatThrownBy(() -> log.append(bytes("early"), List::of)).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void readsNothingFromAMissingDirectory() throws IOException {
+        assertThat(MappedSegmentLog.read(directory.resolve("missing"))).isEmpty();
+    }
+
+    private Path onlySegment() throws IOException {
+        List<Path> segments = segments();
+        assertThat(segments).hasSize(1);
+        return segments.get(0);
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().endsWith(".journal")).sorted().toList();
+        }
+    }
+
+    private static void writeAt(Path file, long position, ByteBuffer header, byte[] payload) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.write(header, position);
+            channel.write(ByteBuffer.wrap(payload), position + header.capacity());
+        }
+    }
+
+    private static ByteBuffer frameHeader(int length, int crc) {
+        return ByteBuffer.allocate(8).putInt(length).putInt(crc).flip();
+    }
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static List<String> texts(List<byte[]> records) {
+        return records.stream().map(record -> new String(record, StandardCharsets.UTF_8)).toList();
+    }
+}
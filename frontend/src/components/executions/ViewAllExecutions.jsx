@@ -6,20 +6,24 @@ import { oneLight } from "react-syntax-highlighter/dist/esm/styles/prism";
 
 export default function ViewAllExecutions() {
   const [executions, setExecutions] = useState([]);
+  const [nextCursor, setNextCursor] = useState(null);
   const [selectedExecution, setSelectedExecution] = useState(null);
   const [error, setError] = useState("");
   const [copied, setCopied] = useState(false);
   const detailsRef = useRef(null);
 
+  // Executions are paged; the cursor of the next page comes back in the X-Next-Cursor header
+  const fetchExecutions = async (cursor) => {
+    try {
+      const res = await api.get("/workflows/executions", { params: cursor ? { cursor } : {} });
+      setExecutions((prev) => (cursor ? [...prev, ...res.data] : res.data));
+      setNextCursor(res.headers["x-next-cursor"] || null);
+    } catch (err) {
+      setError("❌ Failed to fetch executions");
+    }
+  };
+
   useEffect(() => {
-    const fetchExecutions = async () => {
-      try {
-        const res = await api.get("/workflows/executions");
-        setExecutions(res.data);
-      } catch (err) {
-        setError("❌ Failed to fetch executions");
-      }
-    };
     fetchExecutions();
   }, []);
 
@@ -88,6 +92,12 @@ export default function ViewAllExecutions() {
         </tbody>
       </table>
 
+      {nextCursor && (
+        <button className="view-button" style={{ marginTop: "1rem" }} onClick={() => fetchExecutions(nextCursor)}>
+          Load more
+        </button>
+      )}
+
       {selectedExecution && (
         <div
           ref={detailsRef}